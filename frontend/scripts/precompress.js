@@ -0,0 +1,29 @@
+// Writes .gz and .br copies of the hashed build assets under build/static, so the
+// backend can serve them precompressed (see StaticResourceConfig.java) instead of
+// compressing on every request.
+const fs = require("fs");
+const path = require("path");
+const zlib = require("zlib");
+
+const root = path.join(__dirname, "..", "build", "static");
+const compressible = /\.(js|css|map|svg|json|txt)$/;
+
+function walk(dir) {
+  for (const entry of fs.readdirSync(dir, { withFileTypes: true })) {
+    const file = path.join(dir, entry.name);
+    if (entry.isDirectory()) {
+      walk(file);
+    } else if (compressible.test(entry.name)) {
+      const data = fs.readFileSync(file);
+      fs.writeFileSync(file + ".gz", zlib.gzipSync(data, { level: 9 }));
+      fs.writeFileSync(
+        file + ".br",
+        zlib.brotliCompressSync(data, {
+          params: { [zlib.constants.BROTLI_PARAM_QUALITY]: 11 },
+        }),
+      );
+    }
+  }
+}
+
+walk(root);
@@ -0,0 +1,49 @@
+package edu.ucsb.cs156.example.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import org.springframework.security.web.csrf.CsrfToken;
+import org.springframework.security.web.csrf.CsrfTokenRepository;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Makes sure the browser has a CSRF cookie, which the frontend copies into the X-XSRF-TOKEN header
+ * of its requests.
+ *
+ * <p>Spring Security creates the token lazily, so this filter forces it to be loaded, which
+ * issues the cookie. That is only done when the request arrived without a CSRF cookie (first
+ * visit, or after login or logout removed it so that it is rotated), and never for static assets
+ * (paths whose last segment has a file extension, e.g. /static/js/main.js), which the frontend
+ * does not send API requests from. Every other request skips the work: forcing the token runs
+ * the XOR masking in SpaCsrfTokenRequestHandler, which draws fresh random bytes each time.
+ */
+final class CsrfCookieFilter extends OncePerRequestFilter {
+
+  private final CsrfTokenRepository csrfTokenRepository;
+
+  CsrfCookieFilter(CsrfTokenRepository csrfTokenRepository) {
+    this.csrfTokenRepository = csrfTokenRepository;
+  }
+
+  @Override
+  protected boolean shouldNotFilter(HttpServletRequest request) {
+    return isStaticAsset(request) || csrfTokenRepository.loadToken(request) != null;
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+      throws ServletException, IOException {
+    CsrfToken csrfToken = (CsrfToken) request.getAttribute("_csrf");
+    // Render the token value to a cookie by causing the deferred token to be loaded
+    csrfToken.getToken();
+    filterChain.doFilter(request, response);
+  }
+
+  private static boolean isStaticAsset(HttpServletRequest request) {
+    String path = request.getRequestURI();
+    return path.lastIndexOf('.') > path.lastIndexOf('/');
+  }
+}
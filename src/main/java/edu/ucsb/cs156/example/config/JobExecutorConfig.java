@@ -0,0 +1,74 @@
+package edu.ucsb.cs156.example.config;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * The `JobExecutorConfig` class defines the executor that background jobs run on (see the
+ * {@code @Async("jobExecutor")} annotation in JobService), and the one that job log streams are
+ * written out on (see JobLogStreamService).
+ *
+ * <p>At most {@code app.jobs.executor.maxConcurrentJobs} jobs run at once; further jobs wait in a
+ * queue of at most {@code app.jobs.executor.queueCapacity} entries, and submissions beyond that
+ * are rejected rather than buffered without limit. Jobs run on virtual threads unless {@code
+ * app.jobs.executor.virtualThreads} is false.
+ */
+@Configuration
+@Slf4j
+public class JobExecutorConfig {
+
+  @Value("${app.jobs.executor.maxConcurrentJobs:4}")
+  private int maxConcurrentJobs;
+
+  @Value("${app.jobs.executor.queueCapacity:50}")
+  private int queueCapacity;
+
+  @Value("${app.jobs.executor.virtualThreads:true}")
+  private boolean virtualThreads;
+
+  /**
+   * The executor used to run jobs.
+   *
+   * @return a bounded executor that throws RejectedExecutionException when its queue is full
+   */
+  @Bean(name = "jobExecutor", destroyMethod = "shutdown")
+  public ThreadPoolExecutor jobExecutor() {
+    ThreadFactory threadFactory =
+        virtualThreads
+            ? Thread.ofVirtual().name("job-", 0).factory()
+            : Thread.ofPlatform().name("job-", 0).factory();
+    log.info(
+        "jobExecutor: maxConcurrentJobs={} queueCapacity={} virtualThreads={}",
+        maxConcurrentJobs,
+        queueCapacity,
+        virtualThreads);
+    return new ThreadPoolExecutor(
+        maxConcurrentJobs,
+        maxConcurrentJobs,
+        0L,
+        TimeUnit.MILLISECONDS,
+        new LinkedBlockingQueue<>(queueCapacity),
+        threadFactory,
+        new ThreadPoolExecutor.AbortPolicy());
+  }
+
+  /**
+   * The executor that sends job log lines to streaming clients, so that neither the request
+   * thread nor the job waits for a slow client.
+   *
+   * @return an executor that runs each task on a new virtual thread
+   */
+  @Bean(name = "jobLogStreamExecutor", destroyMethod = "shutdown")
+  public ExecutorService jobLogStreamExecutor() {
+    return Executors.newThreadPerTaskExecutor(
+        Thread.ofVirtual().name("job-log-stream-", 0).factory());
+  }
+}
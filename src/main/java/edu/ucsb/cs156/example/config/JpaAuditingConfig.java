@@ -0,0 +1,31 @@
+package edu.ucsb.cs156.example.config;
+
+import java.time.ZonedDateTime;
+import java.util.Optional;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.auditing.DateTimeProvider;
+import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
+
+/**
+ * The `JpaAuditingConfig` class turns on JPA auditing, so that fields annotated with
+ * {@code @CreatedDate} and {@code @LastModifiedDate} (e.g. on Job) are filled in automatically.
+ *
+ * <p>This lives in its own class rather than on ExampleApplication so that {@code @WebMvcTest}
+ * slices, which have no JPA metamodel, do not try to set up auditing.
+ */
+@Configuration
+@EnableJpaAuditing(dateTimeProviderRef = "auditingDateTimeProvider")
+public class JpaAuditingConfig {
+
+  /**
+   * The default provider supplies a LocalDateTime, which cannot be converted to the
+   * ZonedDateTime fields used by our entities.
+   *
+   * @return provider of the current time as a ZonedDateTime
+   */
+  @Bean
+  public DateTimeProvider auditingDateTimeProvider() {
+    return () -> Optional.of(ZonedDateTime.now());
+  }
+}
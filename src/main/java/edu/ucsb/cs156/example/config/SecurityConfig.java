@@ -1,9 +1,10 @@
 package edu.ucsb.cs156.example.config;
 
 import edu.ucsb.cs156.example.entities.User;
-import edu.ucsb.cs156.example.repositories.UserRepository;
-import jakarta.servlet.FilterChain;
-import jakarta.servlet.ServletException;
+import edu.ucsb.cs156.example.services.AdminRoleService;
+import edu.ucsb.cs156.example.services.AuthAuditLogger;
+import edu.ucsb.cs156.example.services.CurrentUserService;
+import edu.ucsb.cs156.example.services.SessionTokenCodec;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
@@ -11,6 +12,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -34,17 +37,14 @@ import org.springframework.security.web.csrf.XorCsrfTokenRequestAttributeHandler
 import org.springframework.security.web.csrf.CsrfToken;
 import org.springframework.security.web.util.matcher.AntPathRequestMatcher;
 import org.springframework.util.StringUtils;
-import org.springframework.web.filter.OncePerRequestFilter;
 
 import static org.springframework.security.web.util.matcher.AntPathRequestMatcher.antMatcher;
 
 
-import java.io.IOException;
-import java.util.ArrayList;
+import java.time.Clock;
+import java.time.Duration;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.Set;
 import java.util.function.Supplier;
 
@@ -59,11 +59,24 @@ import java.util.function.Supplier;
 @Slf4j
 public class SecurityConfig {
 
-  @Value("${app.admin.emails}")
-  private final List<String> adminEmails = new ArrayList<>();
+  @Autowired
+  AdminRoleService adminRoleService;
+
+  @Autowired
+  AuthAuditLogger authAudit;
 
+  @Lazy
   @Autowired
-  UserRepository userRepository;
+  CurrentUserService currentUserService;
+
+  @Value("${app.session.stateless:false}")
+  private boolean statelessSessions;
+
+  @Value("${app.session.signingKey:}")
+  private String sessionSigningKey;
+
+  @Value("${app.session.ttlMinutes:480}")
+  private long sessionTtlMinutes;
 
   /**
    * The `filterChain` method in this Java code configures various security
@@ -77,44 +90,69 @@ public class SecurityConfig {
   // https://docs.spring.io/spring-security/reference/servlet/exploits/csrf.html#csrf-integration-javascript-spa
   @Bean
   public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
+    CookieCsrfTokenRepository csrfTokenRepository = CookieCsrfTokenRepository.withHttpOnlyFalse();
     http
         .exceptionHandling(handling -> handling.authenticationEntryPoint(new Http403ForbiddenEntryPoint()))
         .oauth2Login(
             oauth2 -> oauth2.userInfoEndpoint(userInfo -> userInfo.userAuthoritiesMapper(this.userAuthoritiesMapper())))
         .csrf(csrf -> csrf
-            .csrfTokenRepository(CookieCsrfTokenRepository.withHttpOnlyFalse())
+            .csrfTokenRepository(csrfTokenRepository)
             .csrfTokenRequestHandler(new SpaCsrfTokenRequestHandler()))
-        .addFilterAfter(new CsrfCookieFilter(), BasicAuthenticationFilter.class)
-        .authorizeHttpRequests(auth -> auth.anyRequest().permitAll())
+        .addFilterAfter(new CsrfCookieFilter(csrfTokenRepository), BasicAuthenticationFilter.class)
+        .authorizeHttpRequests(auth -> auth
+            .requestMatchers(antMatcher("/actuator/metrics/**")).hasRole("ADMIN")
+            .anyRequest().permitAll())
         .logout(logout -> logout.logoutRequestMatcher(new AntPathRequestMatcher("/logout")).logoutSuccessUrl("/"));
+
+    if (statelessSessions) {
+      // keep the logged in user in a signed cookie rather than the HttpSession, so any
+      // instance can serve the user; the session is then only used during the OAuth handshake
+      SessionTokenCodec codec = new SessionTokenCodec(
+          sessionSigningKey, Duration.ofMinutes(sessionTtlMinutes), Clock.systemUTC());
+      http
+          .securityContext(context -> context
+              .securityContextRepository(
+                  new SignedCookieSecurityContextRepository(codec, this::currentUserId)))
+          .logout(logout -> logout.deleteCookies(SignedCookieSecurityContextRepository.COOKIE_NAME));
+    }
     return http.build();
   }
 
+  // the database id of the user who just logged in, looked up (or created) as on any request
+  private Long currentUserId() {
+    User user = currentUserService.getUser();
+    return user == null ? null : user.getId();
+  }
+
   /**
    * The `webSecurityCustomizer` method is used to configure web security in Java,
    * specifically ignoring requests
-   * to the "/h2-console/**" path.
+   * to the "/h2-console/**" path, and to the hashed frontend assets under "/static/**"
+   * (see StaticResourceConfig), which are public and need no session, CSRF cookie or
+   * OAuth2 processing.
    */
   @Bean
   public WebSecurityCustomizer webSecurityCustomizer() {
-    return web -> web.ignoring().requestMatchers(antMatcher("/h2-console/**"));
+    return web -> web.ignoring().requestMatchers(
+        antMatcher("/h2-console/**"),
+        antMatcher(HttpMethod.GET, StaticResourceConfig.STATIC_ASSETS),
+        antMatcher(HttpMethod.HEAD, StaticResourceConfig.STATIC_ASSETS));
   }
 
   private GrantedAuthoritiesMapper userAuthoritiesMapper() {
     return (authorities) -> {
       Set<GrantedAuthority> mappedAuthorities = new HashSet<>();
-      log.info("********** authorities={}", authorities);
+      String email = null;
+      Map<String, Object> userAttributes = null;
 
-      authorities.forEach(authority -> {
-        log.info("********** authority={}", authority);
+      for (GrantedAuthority authority : authorities) {
         mappedAuthorities.add(authority);
         if (authority instanceof OAuth2UserAuthority oauth2UserAuthority) {
-          Map<String, Object> userAttributes = oauth2UserAuthority.getAttributes();
-          log.info("********** userAttributes={}", userAttributes);
+          userAttributes = oauth2UserAuthority.getAttributes();
 
           mappedAuthorities.add(new SimpleGrantedAuthority("ROLE_USER"));
 
-          String email = (String) userAttributes.get("email");
+          email = (String) userAttributes.get("email");
           if (getAdmin(email)) {
             mappedAuthorities.add(new SimpleGrantedAuthority("ROLE_ADMIN"));
           }
@@ -123,27 +161,22 @@ public class SecurityConfig {
             mappedAuthorities.add(new SimpleGrantedAuthority("ROLE_MEMBER"));
           }
         }
-
-      });
-      log.info("********** mappedAuthorities={}", mappedAuthorities);
+      }
+      authAudit.login(email, mappedAuthorities, userAttributes);
       return mappedAuthorities;
     };
   }
 
   /**
-   * This method checks if the given email belongs to an admin user either from a
-   * predefined
-   * list or by querying the user repository.
+   * This method checks if the given email belongs to an admin user, either from
+   * the configured list of admin emails or from the user's admin flag
+   * (see AdminRoleService).
    * 
    * @param email email address of the user
    * @return whether the user with the given email is an admin
    */
   public boolean getAdmin(String email) {
-    if (adminEmails.contains(email)) {
-      return true;
-    }
-    Optional<User> u = userRepository.findByEmail(email);
-    return u.isPresent() && u.get().getAdmin();
+    return adminRoleService.isAdmin(email);
   }
 }
 
@@ -184,15 +217,3 @@ final class SpaCsrfTokenRequestHandler extends CsrfTokenRequestAttributeHandler
     return this.delegate.resolveCsrfTokenValue(request, csrfToken);
   }
 }
-
-final class CsrfCookieFilter extends OncePerRequestFilter {
-
-  @Override
-  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
-      throws ServletException, IOException {
-    CsrfToken csrfToken = (CsrfToken) request.getAttribute("_csrf");
-    // Render the token value to a cookie by causing the deferred token to be loaded
-    csrfToken.getToken();
-    filterChain.doFilter(request, response);
-  }
-}
\ No newline at end of file
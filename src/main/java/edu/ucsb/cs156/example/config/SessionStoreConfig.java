@@ -0,0 +1,119 @@
+package edu.ucsb.cs156.example.config;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.session.MapSessionRepository;
+import org.springframework.session.Session;
+import org.springframework.session.config.SessionRepositoryCustomizer;
+import org.springframework.session.config.annotation.web.http.EnableSpringHttpSession;
+import org.springframework.session.jdbc.JdbcIndexedSessionRepository;
+import org.springframework.session.jdbc.config.annotation.web.http.EnableJdbcHttpSession;
+
+/**
+ * The `SessionStoreConfig` class chooses where HTTP sessions (and so OAuth2 logins) are kept,
+ * based on {@code app.session.store}:
+ *
+ * <ul>
+ *   <li>{@code servlet} (default): the servlet container's sessions, unbounded and local to one
+ *       instance
+ *   <li>{@code memory}: a single-node in-memory store that holds at most {@code
+ *       app.session.memory.maxSessions} sessions, evicting the least recently used first
+ *   <li>{@code jdbc}: the SPRING_SESSION tables, shared by all instances so no sticky sessions are
+ *       needed; expired sessions are deleted at most {@code app.session.jdbc.cleanupBatchSize} at
+ *       a time
+ * </ul>
+ *
+ * The memory and jdbc stores replace the container's session through Spring Session's
+ * SessionRepositoryFilter, which runs ahead of the security filter chain, so SecurityConfig stores
+ * the logged in user in whichever store is configured. Any other value stops the application from
+ * starting, rather than quietly falling back to the servlet container's sessions.
+ */
+@Configuration
+public class SessionStoreConfig {
+
+  private static final Set<String> STORES = Set.of("servlet", "memory", "jdbc");
+
+  /**
+   * @param store the value of {@code app.session.store}
+   * @throws IllegalStateException if it is not servlet, memory or jdbc
+   */
+  public SessionStoreConfig(@Value("${app.session.store:servlet}") String store) {
+    if (!STORES.contains(store)) {
+      throw new IllegalStateException(
+          "app.session.store must be servlet, memory or jdbc, not " + store);
+    }
+  }
+
+  @Configuration
+  @ConditionalOnProperty(name = "app.session.store", havingValue = "memory")
+  @EnableSpringHttpSession
+  @Slf4j
+  static class InMemorySessionStore {
+
+    @Value("${app.session.memory.maxSessions:10000}")
+    private int maxSessions;
+
+    @Value("${server.servlet.session.timeout:30m}")
+    private Duration sessionTimeout;
+
+    private final Map<String, Session> sessions =
+        Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+              @Override
+              protected boolean removeEldestEntry(Map.Entry<String, Session> eldest) {
+                return size() > maxSessions;
+              }
+            });
+
+    @Bean
+    public MapSessionRepository sessionRepository() {
+      log.info("sessions: in memory, maxSessions={}", maxSessions);
+      MapSessionRepository repository = new MapSessionRepository(sessions);
+      repository.setDefaultMaxInactiveInterval(sessionTimeout);
+      return repository;
+    }
+
+    /** MapSessionRepository only notices that a session expired when it is read again. */
+    @Scheduled(fixedDelayString = "${app.session.memory.cleanupIntervalMs:60000}")
+    public void removeExpiredSessions() {
+      synchronized (sessions) {
+        sessions.values().removeIf(Session::isExpired);
+      }
+    }
+  }
+
+  @Configuration
+  @ConditionalOnProperty(name = "app.session.store", havingValue = "jdbc")
+  @EnableJdbcHttpSession
+  @Slf4j
+  static class JdbcSessionStore {
+
+    @Value("${app.session.jdbc.cleanupBatchSize:1000}")
+    private int cleanupBatchSize;
+
+    /**
+     * Deletes expired sessions in bounded batches (one batch per cleanup run, every minute), so a
+     * backlog of expired sessions cannot turn into one long-running delete. Their attributes go
+     * with them through the ON DELETE CASCADE foreign key.
+     */
+    @Bean
+    public SessionRepositoryCustomizer<JdbcIndexedSessionRepository> batchedExpiryCleanup() {
+      log.info("sessions: jdbc, cleanupBatchSize={}", cleanupBatchSize);
+      return repository ->
+          repository.setDeleteSessionsByExpiryTimeQuery(
+              "DELETE FROM %TABLE_NAME% WHERE PRIMARY_ID IN (SELECT PRIMARY_ID FROM %TABLE_NAME%"
+                  + " WHERE EXPIRY_TIME < ? FETCH FIRST "
+                  + cleanupBatchSize
+                  + " ROWS ONLY)");
+    }
+  }
+}
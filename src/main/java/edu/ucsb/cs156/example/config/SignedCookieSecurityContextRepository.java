@@ -0,0 +1,98 @@
+package edu.ucsb.cs156.example.config;
+
+import edu.ucsb.cs156.example.services.SessionTokenCodec;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.time.Duration;
+import java.util.function.Supplier;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+import org.springframework.security.web.context.HttpRequestResponseHolder;
+import org.springframework.security.web.context.SecurityContextRepository;
+
+/**
+ * Keeps the logged in user in a signed cookie (see SessionTokenCodec) instead of the
+ * HttpSession, so that any instance can authenticate a request without a session store.
+ * Used when app.session.stateless is true.
+ */
+public class SignedCookieSecurityContextRepository implements SecurityContextRepository {
+
+  public static final String COOKIE_NAME = "AUTH_TOKEN";
+
+  private final SessionTokenCodec codec;
+
+  private final Supplier<Long> currentUserId;
+
+  /**
+   * @param codec signs and checks the tokens
+   * @param currentUserId returns the database id of the user who just logged in; called when
+   *     the new login is already in the SecurityContextHolder
+   */
+  public SignedCookieSecurityContextRepository(
+      SessionTokenCodec codec, Supplier<Long> currentUserId) {
+    this.codec = codec;
+    this.currentUserId = currentUserId;
+  }
+
+  @Override
+  @Deprecated
+  public SecurityContext loadContext(HttpRequestResponseHolder requestResponseHolder) {
+    return readContext(requestResponseHolder.getRequest());
+  }
+
+  @Override
+  public void saveContext(
+      SecurityContext context, HttpServletRequest request, HttpServletResponse response) {
+    Authentication authentication = context.getAuthentication();
+    if (authentication instanceof OAuth2AuthenticationToken token) {
+      writeCookie(request, response, codec.encode(token, currentUserId.get()), codec.getTtl());
+    } else if (authentication == null && containsContext(request)) {
+      writeCookie(request, response, "", Duration.ZERO); // logged out
+    }
+  }
+
+  @Override
+  public boolean containsContext(HttpServletRequest request) {
+    return findToken(request) != null;
+  }
+
+  private SecurityContext readContext(HttpServletRequest request) {
+    SecurityContext context = SecurityContextHolder.createEmptyContext();
+    String token = findToken(request);
+    if (token != null) {
+      context.setAuthentication(codec.decode(token));
+    }
+    return context;
+  }
+
+  private static String findToken(HttpServletRequest request) {
+    Cookie[] cookies = request.getCookies();
+    if (cookies == null) {
+      return null;
+    }
+    for (Cookie cookie : cookies) {
+      if (COOKIE_NAME.equals(cookie.getName())) {
+        return cookie.getValue();
+      }
+    }
+    return null;
+  }
+
+  private static void writeCookie(
+      HttpServletRequest request, HttpServletResponse response, String value, Duration maxAge) {
+    ResponseCookie cookie =
+        ResponseCookie.from(COOKIE_NAME, value)
+            .httpOnly(true)
+            .secure(request.isSecure())
+            .sameSite("Lax")
+            .path("/")
+            .maxAge(maxAge)
+            .build();
+    response.addHeader(HttpHeaders.SET_COOKIE, cookie.toString());
+  }
+}
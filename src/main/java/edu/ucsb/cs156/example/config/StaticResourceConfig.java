@@ -0,0 +1,36 @@
+package edu.ucsb.cs156.example.config;
+
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.CacheControl;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.resource.EncodedResourceResolver;
+
+/**
+ * Serves the frontend's build output under /static/ (JS, CSS and media).
+ *
+ * These files have a content hash in their name, so a given URL never changes:
+ * they are served with a one year, immutable Cache-Control. The frontend build
+ * (frontend/scripts/precompress.js) writes .br and .gz copies next to them, which
+ * are served to clients that accept them instead of compressing per request.
+ *
+ * Requests for /static/** also bypass the security filter chain entirely
+ * (see SecurityConfig.webSecurityCustomizer).
+ */
+@Configuration
+public class StaticResourceConfig implements WebMvcConfigurer {
+
+  /** URL pattern of the hashed frontend assets */
+  public static final String STATIC_ASSETS = "/static/**";
+
+  @Override
+  public void addResourceHandlers(ResourceHandlerRegistry registry) {
+    registry.addResourceHandler(STATIC_ASSETS)
+        .addResourceLocations("classpath:/public/static/")
+        .setCacheControl(CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable())
+        .resourceChain(true)
+        .addResolver(new EncodedResourceResolver());
+  }
+}
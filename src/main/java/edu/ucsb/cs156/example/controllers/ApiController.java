@@ -1,16 +1,42 @@
 package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.errors.JobQueueFullException;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.BeanWrapperImpl;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import edu.ucsb.cs156.example.models.CurrentUser;
+import edu.ucsb.cs156.example.repositories.KeysetPagingRepository;
 import edu.ucsb.cs156.example.services.CurrentUserService;
+import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.query.criteria.HibernateCriteriaBuilder;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.EscapeCharacter;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 
 /**
  * This is an abstract class that provides common functionality for all API controllers.
@@ -18,9 +44,27 @@ import java.util.Map;
 
 @Slf4j
 public abstract class ApiController {
+  /** The largest page size a client may ask for */
+  protected static final int MAX_PAGE_SIZE = 500;
+
+  /** Response header with the cursor of the next page of a keyset paged listing */
+  protected static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+  // only used to encode and decode cursors, which clients treat as opaque
+  private static final ObjectMapper CURSOR_MAPPER = JsonMapper.builder().findAndAddModules().build();
+
   @Autowired
   private CurrentUserService currentUserService;
 
+  /**
+   * This describes how a type of entity is paged by keysetPage: the name of its id
+   * attribute, and the attributes that clients may sort by. Sort attributes should
+   * be indexed together with the id, e.g. (name, id); they may be null.
+   * @param id name of the id attribute
+   * @param sortable names of the attributes clients may sort by (including the id)
+   */
+  protected record Keyset(String id, Set<String> sortable) {}
+
   /**
    * This method returns the current user.
    * @return the current user
@@ -38,6 +82,185 @@ public abstract class ApiController {
     return Map.of("message", message);
   }
 
+  /**
+   * This method returns one page of entities using keyset (cursor) pagination:
+   * rows are ordered by the sort attribute and then the id, and each page starts
+   * right after the last row of the previous one, so every page costs the same
+   * however deep into the table it is, and rows added or deleted meanwhile do not
+   * shift the pages. Rows whose sort attribute is null come after the others when
+   * ascending, and before them when descending.
+   *
+   * If there are more rows, the response has a Link header (rel="next") with the
+   * URL of the next page, and an X-Next-Cursor header with its cursor.
+   * @param <T> type of the entity
+   * @param repository repository of the entities
+   * @param keyset id and sortable attributes of the entity
+   * @param sort attribute to sort by, optionally followed by ",asc" or ",desc"
+   * @param cursor cursor of the page (from X-Next-Cursor), or null for the first page
+   * @param size page size; at most MAX_PAGE_SIZE
+   * @return the page of entities, with Link and X-Next-Cursor headers if there are more
+   */
+  protected <T> ResponseEntity<List<T>> keysetPage(KeysetPagingRepository<T, ?> repository, Keyset keyset,
+      String sort, String cursor, int size) {
+    return keysetPage(repository, keyset, null, sort, cursor, size);
+  }
+
+  /**
+   * This method returns one page of the entities that match a filter, using keyset
+   * pagination as in {@link #keysetPage(KeysetPagingRepository, Keyset, String, String, int)}.
+   * @param <T> type of the entity
+   * @param repository repository of the entities
+   * @param keyset id and sortable attributes of the entity
+   * @param filter only entities that match this; null for all entities
+   * @param sort attribute to sort by, optionally followed by ",asc" or ",desc"
+   * @param cursor cursor of the page (from X-Next-Cursor), or null for the first page
+   * @param size page size; at most MAX_PAGE_SIZE
+   * @return the page of entities, with Link and X-Next-Cursor headers if there are more
+   */
+  protected <T> ResponseEntity<List<T>> keysetPage(KeysetPagingRepository<T, ?> repository, Keyset keyset,
+      Specification<T> filter, String sort, String cursor, int size) {
+    String[] sortParts = sort.split(",", 2);
+    String attribute = sortParts[0];
+    Optional<Sort.Direction> direction = sortParts.length == 1
+        ? Optional.of(Sort.Direction.ASC)
+        : Sort.Direction.fromOptionalString(sortParts[1]);
+    if (!keyset.sortable().contains(attribute) || direction.isEmpty()) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+          "Invalid sort %s; sort by one of %s, optionally followed by ,asc or ,desc".formatted(sort, keyset.sortable()));
+    }
+
+    int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+    JsonNode keys = (cursor == null) ? null : decodeCursor(cursor, attribute);
+    Specification<T> page = Specification.where(filter).and(keyset(keys, attribute, keyset.id(), direction.get()));
+    List<T> rows = repository.findBy(page, query -> query.limit(pageSize + 1).all());
+
+    if (rows.size() <= pageSize) {
+      return ResponseEntity.ok(rows);
+    }
+    List<T> content = rows.subList(0, pageSize);
+    BeanWrapper last = new BeanWrapperImpl(content.get(pageSize - 1));
+    String nextCursor = Base64.getUrlEncoder().withoutPadding().encodeToString(
+        CURSOR_MAPPER.valueToTree(Arrays.asList(attribute, last.getPropertyValue(attribute),
+            last.getPropertyValue(keyset.id()))).toString().getBytes(StandardCharsets.UTF_8));
+    String next = ServletUriComponentsBuilder.fromCurrentRequest()
+        .replaceQueryParam("cursor", nextCursor).build().toUriString();
+    return ResponseEntity.ok()
+        .header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"")
+        .header(NEXT_CURSOR_HEADER, nextCursor)
+        .body(content);
+  }
+
+  /**
+   * This method returns a keysetPage filter that matches the entities whose attribute
+   * equals a value.
+   * @param <T> type of the entity
+   * @param attribute name of the attribute
+   * @param value the value; null to match all entities
+   * @return the filter, or null if the value is null
+   */
+  protected static <T> Specification<T> attributeEquals(String attribute, Object value) {
+    return value == null ? null : (root, query, cb) -> cb.equal(root.get(attribute), value);
+  }
+
+  /**
+   * This method returns a keysetPage filter that matches the entities whose attribute
+   * is at least a value.
+   * @param <T> type of the entity
+   * @param <Y> type of the attribute
+   * @param attribute name of the attribute
+   * @param value the value; null to match all entities
+   * @return the filter, or null if the value is null
+   */
+  protected static <T, Y extends Comparable<? super Y>> Specification<T> attributeAtLeast(String attribute,
+      Y value) {
+    return value == null ? null : (root, query, cb) -> cb.greaterThanOrEqualTo(root.<Y>get(attribute), value);
+  }
+
+  /**
+   * This method returns a keysetPage filter that matches the entities whose attribute
+   * is less than a value.
+   * @param <T> type of the entity
+   * @param <Y> type of the attribute
+   * @param attribute name of the attribute
+   * @param value the value; null to match all entities
+   * @return the filter, or null if the value is null
+   */
+  protected static <T, Y extends Comparable<? super Y>> Specification<T> attributeBefore(String attribute,
+      Y value) {
+    return value == null ? null : (root, query, cb) -> cb.lessThan(root.<Y>get(attribute), value);
+  }
+
+  /**
+   * This method returns a keysetPage filter that matches the entities whose attribute
+   * starts with a prefix. Wildcards in the prefix are matched literally.
+   * @param <T> type of the entity
+   * @param attribute name of the attribute
+   * @param prefix the prefix; null to match all entities
+   * @return the filter, or null if the prefix is null
+   */
+  protected static <T> Specification<T> attributeStartsWith(String attribute, String prefix) {
+    return prefix == null ? null
+        : (root, query, cb) -> cb.like(root.get(attribute), EscapeCharacter.DEFAULT.escape(prefix) + "%",
+            EscapeCharacter.DEFAULT.getEscapeCharacter());
+  }
+
+  // a cursor is the base64url encoded JSON array [sort attribute, sort value, id] of the last row of a page
+  private static JsonNode decodeCursor(String cursor, String attribute) {
+    JsonNode keys;
+    try {
+      keys = CURSOR_MAPPER.readTree(new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8));
+    } catch (IllegalArgumentException | IOException e) {
+      keys = null;
+    }
+    if (keys == null || keys.size() != 3 || !attribute.equals(keys.get(0).asText())) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+          "Invalid cursor; pass the X-Next-Cursor of the previous page, with the same sort");
+    }
+    return keys;
+  }
+
+  // rows ordered by (sort value, id), after the (sort value, id) of the cursor if there is one; null sort
+  // values come after all others ascending and before them descending, as in a default Postgres index, and
+  // are set explicitly since databases differ (the criteria API of Spring Data cannot express this)
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  private static <T> Specification<T> keyset(JsonNode keys, String attribute, String idAttribute,
+      Sort.Direction direction) {
+    boolean ascending = direction.isAscending();
+    return (root, query, cb) -> {
+      Path<Comparable> id = root.get(idAttribute);
+      Order idOrder = ascending ? cb.asc(id) : cb.desc(id);
+      if (attribute.equals(idAttribute)) {
+        query.orderBy(idOrder);
+      } else {
+        HibernateCriteriaBuilder hcb = (HibernateCriteriaBuilder) cb;
+        Path<?> value = root.get(attribute);
+        query.orderBy(ascending ? hcb.asc(value, false) : hcb.desc(value, true), idOrder);
+      }
+      if (keys == null) {
+        return null;
+      }
+
+      Comparable lastId = (Comparable) CURSOR_MAPPER.convertValue(keys.get(2), id.getJavaType());
+      Predicate afterId = ascending ? cb.greaterThan(id, lastId) : cb.lessThan(id, lastId);
+      if (attribute.equals(idAttribute)) {
+        return afterId;
+      }
+      Path<Comparable> value = root.get(attribute);
+      if (keys.get(1).isNull()) {
+        Predicate nullAfterId = cb.and(cb.isNull(value), afterId);
+        return ascending ? nullAfterId : cb.or(nullAfterId, cb.isNotNull(value));
+      }
+      Comparable lastValue = (Comparable) CURSOR_MAPPER.convertValue(keys.get(1), value.getJavaType());
+      Predicate afterValue = ascending
+          ? cb.greaterThan(value, lastValue)
+          : cb.lessThan(value, lastValue);
+      Predicate sameValueAfterId = cb.and(cb.equal(value, lastValue), afterId);
+      return ascending
+          ? cb.or(afterValue, sameValueAfterId, cb.isNull(value))
+          : cb.or(afterValue, sameValueAfterId);
+    };
+  }
+
   /**
    * This method handles the EntityNotFoundException.
    * @param e the exception
@@ -51,4 +274,18 @@ public abstract class ApiController {
       "message", e.getMessage()
     );
   }
+
+  /**
+   * This method handles the JobQueueFullException.
+   * @param e the exception
+   * @return a map with the type and message of the exception
+   */
+  @ExceptionHandler({ JobQueueFullException.class })
+  @ResponseStatus(HttpStatus.TOO_MANY_REQUESTS)
+  public Object handleJobQueueFullException(Throwable e) {
+    return Map.of(
+      "type", e.getClass().getSimpleName(),
+      "message", e.getMessage()
+    );
+  }
 }
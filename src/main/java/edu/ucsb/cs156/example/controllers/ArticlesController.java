@@ -3,6 +3,9 @@ package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.entities.Article;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
 import edu.ucsb.cs156.example.repositories.ArticlesRepository;
+import edu.ucsb.cs156.example.services.EntityStreamService;
+import edu.ucsb.cs156.example.services.EntityExportService;
+import edu.ucsb.cs156.example.services.EntityExportService.ExportTable;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -24,6 +27,10 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.RequestHeader;
 
 import jakarta.validation.Valid;
 
@@ -31,6 +38,7 @@ import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.List;
+import java.util.Set;
 
 /**
  * This is a REST controller for Articles
@@ -42,9 +50,19 @@ import java.util.List;
 @Slf4j
 public class ArticlesController extends ApiController {
 
+    static final Keyset KEYSET = new Keyset("id", Set.of("id", "dateAdded"));
+
+    static final ExportTable EXPORT = ExportTable.of("articles", "id", "title", "url", "explanation", "email", "dateAdded");
+
     @Autowired
     ArticlesRepository articlesRepository;
 
+    @Autowired
+    EntityStreamService entityStreamService;
+
+    @Autowired
+    EntityExportService entityExportService;
+
     /**
      * List all articles
      * 
@@ -57,6 +75,50 @@ public class ArticlesController extends ApiController {
         return articlesRepository.findAll();
     }
 
+    /**
+     * This method returns one page of articles, sorted by id or dateAdded
+     * (see ApiController.keysetPage).
+     * @param sort id or dateAdded, optionally followed by ",desc"
+     * @param cursor X-Next-Cursor header of the previous page; omit for the first page
+     * @param size page size (at most 500)
+     * @return a page of articles, with a Link header to the next page if there is one
+     */
+    @Operation(summary = "List articles a page at a time; follow the Link header (rel=next) for the next page")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/page")
+    public ResponseEntity<List<Article>> pageOfArticles(
+            @Parameter(name = "sort", description = "id or dateAdded, optionally followed by ,desc") @RequestParam(defaultValue = "id") String sort,
+            @Parameter(name = "cursor", description = "X-Next-Cursor of the previous page") @RequestParam(required = false) String cursor,
+            @Parameter(name = "size", description = "page size (at most 500)") @RequestParam(defaultValue = "50") int size) {
+        return keysetPage(articlesRepository, KEYSET, sort, cursor, size);
+    }
+
+    /**
+     * This method returns all articles, streamed (see EntityStreamService).
+     * @return all articles, as a JSON array
+     */
+    @Operation(summary = "List all articles, streamed")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/all/stream")
+    public ResponseEntity<StreamingResponseBody> streamAllArticles() {
+        return entityStreamService.streamAll(articlesRepository);
+    }
+
+    /**
+     * This method exports all articles (see EntityExportService).
+     * @param format csv or ndjson
+     * @param acceptEncoding Accept-Encoding header
+     * @return all articles, in the given format
+     */
+    @Operation(summary = "Export all articles as CSV or NDJSON")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportArticles(
+            @Parameter(name = "format", description = "csv or ndjson") @RequestParam(defaultValue = "csv") String format,
+            @RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return entityExportService.export(EXPORT, format, acceptEncoding);
+    }
+
     /**
      * Get a single article by id
      * 
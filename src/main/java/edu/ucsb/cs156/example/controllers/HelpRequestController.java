@@ -3,6 +3,9 @@ package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.entities.HelpRequest;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
 import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
+import edu.ucsb.cs156.example.services.EntityStreamService;
+import edu.ucsb.cs156.example.services.EntityExportService;
+import edu.ucsb.cs156.example.services.EntityExportService.ExportTable;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -22,10 +25,16 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.RequestHeader;
 
 import jakarta.validation.Valid;
 
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
 
 /**
  * This is a REST controller for UCSBDates
@@ -38,9 +47,19 @@ import java.time.LocalDateTime;
 
  public class HelpRequestController extends ApiController {
 
+    static final Keyset KEYSET = new Keyset("id", Set.of("id", "localDateTime"));
+
+    static final ExportTable EXPORT = ExportTable.of("helprequest", "id", "requesterEmail", "teamID", "tableOrBreakoutRoom", "localDateTime", "explanation", "solved");
+
     @Autowired
     HelpRequestRepository helpRequestRepository;
 
+    @Autowired
+    EntityStreamService entityStreamService;
+
+    @Autowired
+    EntityExportService entityExportService;
+
     /**
      * List all help requests
      * 
@@ -54,6 +73,50 @@ import java.time.LocalDateTime;
         return requests;
     }
 
+    /**
+     * This method returns one page of help requests, sorted by id or localDateTime
+     * (see ApiController.keysetPage).
+     * @param sort id or localDateTime, optionally followed by ",desc"
+     * @param cursor X-Next-Cursor header of the previous page; omit for the first page
+     * @param size page size (at most 500)
+     * @return a page of help requests, with a Link header to the next page if there is one
+     */
+    @Operation(summary = "List help requests a page at a time; follow the Link header (rel=next) for the next page")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/page")
+    public ResponseEntity<List<HelpRequest>> pageOfHelpRequests(
+            @Parameter(name = "sort", description = "id or localDateTime, optionally followed by ,desc") @RequestParam(defaultValue = "id") String sort,
+            @Parameter(name = "cursor", description = "X-Next-Cursor of the previous page") @RequestParam(required = false) String cursor,
+            @Parameter(name = "size", description = "page size (at most 500)") @RequestParam(defaultValue = "50") int size) {
+        return keysetPage(helpRequestRepository, KEYSET, sort, cursor, size);
+    }
+
+    /**
+     * This method returns all help requests, streamed (see EntityStreamService).
+     * @return all help requests, as a JSON array
+     */
+    @Operation(summary = "List all help requests, streamed")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/all/stream")
+    public ResponseEntity<StreamingResponseBody> streamAllHelpRequests() {
+        return entityStreamService.streamAll(helpRequestRepository);
+    }
+
+    /**
+     * This method exports all help requests (see EntityExportService).
+     * @param format csv or ndjson
+     * @param acceptEncoding Accept-Encoding header
+     * @return all help requests, in the given format
+     */
+    @Operation(summary = "Export all help requests as CSV or NDJSON")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportHelpRequests(
+            @Parameter(name = "format", description = "csv or ndjson") @RequestParam(defaultValue = "csv") String format,
+            @RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return entityExportService.export(EXPORT, format, acceptEncoding);
+    }
+
     /**
      * Get a single request by id
      * 
@@ -5,32 +5,61 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import edu.ucsb.cs156.example.entities.Job;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
 import edu.ucsb.cs156.example.jobs.TestJob;
+import edu.ucsb.cs156.example.models.JobExecutorStatus;
+import edu.ucsb.cs156.example.models.JobRetentionReport;
+import edu.ucsb.cs156.example.entities.JobSummary;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
+import edu.ucsb.cs156.example.repositories.JobSummariesRepository;
 import edu.ucsb.cs156.example.repositories.JobsRepository;
+import edu.ucsb.cs156.example.services.jobs.JobLogStreamService;
+import edu.ucsb.cs156.example.services.jobs.JobRetentionService;
 import edu.ucsb.cs156.example.services.jobs.JobService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.ZonedDateTime;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @Tag(name = "Jobs")
 @RequestMapping("/api/jobs")
 @RestController
 @Slf4j
 public class JobsController extends ApiController {
+  static final Keyset KEYSET = new Keyset("id", Set.of("id"));
+
   @Autowired private JobsRepository jobsRepository;
 
+  @Autowired private JobSummariesRepository jobSummariesRepository;
+
+  @Autowired private JobLogLinesRepository jobLogLinesRepository;
+
   @Autowired private JobService jobService;
 
+  @Autowired private JobLogStreamService jobLogStreamService;
+
+  @Autowired private JobRetentionService jobRetentionService;
+
   @Autowired ObjectMapper mapper;
 
   @Operation(summary = "List all jobs")
@@ -41,14 +70,73 @@ public class JobsController extends ApiController {
     return jobs;
   }
 
+  /**
+   * Lists jobs without their logs, a page at a time (see ApiController.keysetPage).
+   *
+   * @param status only jobs with this status
+   * @param createdById only jobs created by the user with this id
+   * @param createdAfter only jobs created at or after this time
+   * @param createdBefore only jobs created before this time
+   * @param sort id or id,desc (newest first, the default)
+   * @param cursor X-Next-Cursor header of the previous page; omit for the first page
+   * @param size page size (at most 500)
+   * @return a page of jobs, with a Link header to the next page if there is one
+   */
+  @Operation(
+      summary =
+          "List jobs newest first, without logs; follow the Link header (rel=next) for the next"
+              + " page")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @GetMapping("/page")
+  public ResponseEntity<List<JobSummary>> pageOfJobs(
+      @Parameter(name = "status", description = "only jobs with this status")
+          @RequestParam(required = false)
+          String status,
+      @Parameter(name = "createdById", description = "only jobs created by this user id")
+          @RequestParam(required = false)
+          Long createdById,
+      @Parameter(name = "createdAfter", description = "only jobs created at or after this time")
+          @RequestParam(required = false)
+          @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+          ZonedDateTime createdAfter,
+      @Parameter(name = "createdBefore", description = "only jobs created before this time")
+          @RequestParam(required = false)
+          @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
+          ZonedDateTime createdBefore,
+      @Parameter(name = "sort", description = "id, optionally followed by ,desc")
+          @RequestParam(defaultValue = "id,desc")
+          String sort,
+      @Parameter(name = "cursor", description = "X-Next-Cursor of the previous page")
+          @RequestParam(required = false)
+          String cursor,
+      @Parameter(name = "size", description = "page size (at most 500)")
+          @RequestParam(defaultValue = "50")
+          int size) {
+    Specification<JobSummary> filter =
+        Specification.allOf(
+            attributeEquals("status", status),
+            attributeEquals("createdById", createdById),
+            attributeAtLeast("createdAt", createdAfter),
+            attributeBefore("createdAt", createdBefore));
+    return keysetPage(jobSummariesRepository, KEYSET, filter, sort, cursor, size);
+  }
+
   @Operation(summary = "Delete all job records")
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @DeleteMapping("/all")
   public Map<String, String> deleteAllJobs() {
+    jobLogLinesRepository.deleteAllLines();
     jobsRepository.deleteAll();
     return Map.of("message", "All jobs deleted");
   }
 
+  @Operation(summary = "Delete old jobs and truncate old job logs now")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("/retention/run")
+  public JobRetentionReport runRetention() {
+    return jobRetentionService.runRetention();
+  }
+
   @Operation(summary = "Get a specific Job Log by ID if it is in the database")
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @GetMapping("")
@@ -69,10 +157,28 @@ public class JobsController extends ApiController {
     if (!jobsRepository.existsById(id)) {
       return Map.of("message", String.format("Job with id %d not found", id));
     }
+    jobLogLinesRepository.deleteByJobId(id);
     jobsRepository.deleteById(id);
     return Map.of("message", String.format("Job with id %d deleted", id));
   }
 
+  @Operation(summary = "Cancel a queued or running job")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @PostMapping("/cancel")
+  public Map<String, String> cancelJob(@Parameter(name = "id") @RequestParam Long id) {
+    if (!jobService.cancel(id)) {
+      return Map.of("message", String.format("Job with id %d is not queued or running", id));
+    }
+    return Map.of("message", String.format("Job with id %d cancelled", id));
+  }
+
+  @Operation(summary = "Get the number of running and queued jobs")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @GetMapping("/executor")
+  public JobExecutorStatus getExecutorStatus() {
+    return jobService.getExecutorStatus();
+  }
+
   @Operation(summary = "Launch Test Job (click fail if you want to test exception handling)")
   @PreAuthorize("hasRole('ROLE_ADMIN')")
   @PostMapping("/launch/testjob")
@@ -84,14 +190,33 @@ public class JobsController extends ApiController {
     return jobService.runAsJob(testJob);
   }
 
-
   @Operation(summary = "Get long job logs")
   @PreAuthorize("hasRole('ROLE_ADMIN')")
-  @GetMapping("/logs/{id}")
-  public String getJobLogs(@Parameter(name = "id", description = "Job ID") @PathVariable Long id) {
-
-    return jobService.getJobLogs(id);
+  @GetMapping(value = "/logs/{id}", produces = MediaType.TEXT_PLAIN_VALUE)
+  public void getJobLogs(
+      @Parameter(name = "id", description = "Job ID") @PathVariable Long id,
+      HttpServletResponse response)
+      throws IOException {
+
+    // written straight to the response so that long logs are never built up as one String
+    response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+    response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+    jobService.writeJobLogs(id, response.getWriter());
   }
 
-
+  @Operation(summary = "Stream job log lines as server-sent events while the job runs")
+  @PreAuthorize("hasRole('ROLE_ADMIN')")
+  @GetMapping(value = "/logs/{id}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+  public SseEmitter streamJobLogs(
+      @Parameter(name = "id", description = "Job ID") @PathVariable Long id,
+      @Parameter(name = "fromLine", description = "Number of the first line to send")
+          @RequestParam(defaultValue = "0")
+          Long fromLine,
+      @Parameter(hidden = true) @RequestHeader(value = "Last-Event-ID", required = false)
+          Long lastEventId) {
+
+    // an EventSource that reconnects sends the id of the last line it received
+    long start = lastEventId != null ? lastEventId + 1 : fromLine;
+    return jobLogStreamService.subscribe(id, start);
+  }
 }
@@ -3,6 +3,9 @@ package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.entities.MenuItemReview;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
 import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
+import edu.ucsb.cs156.example.services.EntityStreamService;
+import edu.ucsb.cs156.example.services.EntityExportService;
+import edu.ucsb.cs156.example.services.EntityExportService.ExportTable;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -21,8 +24,14 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.RequestHeader;
 
 import jakarta.validation.Valid;
+import java.util.List;
+import java.util.Set;
 
 @Tag(name = "MenuItemReview")
 @RequestMapping("/api/menuitemreview")
@@ -30,9 +39,19 @@ import jakarta.validation.Valid;
 @Slf4j
 public class MenuItemReviewController extends ApiController {
 
+    static final Keyset KEYSET = new Keyset("id", Set.of("id", "itemId"));
+
+    static final ExportTable EXPORT = ExportTable.of("menu_item_reviews", "id", "itemId", "reviewerEmail", "stars", "comments");
+
     @Autowired
     MenuItemReviewRepository menuItemReviewRepository;
 
+    @Autowired
+    EntityStreamService entityStreamService;
+
+    @Autowired
+    EntityExportService entityExportService;
+
     /**
      * List all MenuItemReview (MIR)
      * 
@@ -46,6 +65,50 @@ public class MenuItemReviewController extends ApiController {
         return mirs;
     }
 
+    /**
+     * This method returns one page of menu item reviews, sorted by id or itemId
+     * (see ApiController.keysetPage).
+     * @param sort id or itemId, optionally followed by ",desc"
+     * @param cursor X-Next-Cursor header of the previous page; omit for the first page
+     * @param size page size (at most 500)
+     * @return a page of menu item reviews, with a Link header to the next page if there is one
+     */
+    @Operation(summary = "List menu item reviews a page at a time; follow the Link header (rel=next) for the next page")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/page")
+    public ResponseEntity<List<MenuItemReview>> pageOfMIRs(
+            @Parameter(name = "sort", description = "id or itemId, optionally followed by ,desc") @RequestParam(defaultValue = "id") String sort,
+            @Parameter(name = "cursor", description = "X-Next-Cursor of the previous page") @RequestParam(required = false) String cursor,
+            @Parameter(name = "size", description = "page size (at most 500)") @RequestParam(defaultValue = "50") int size) {
+        return keysetPage(menuItemReviewRepository, KEYSET, sort, cursor, size);
+    }
+
+    /**
+     * This method returns all menu item reviews, streamed (see EntityStreamService).
+     * @return all menu item reviews, as a JSON array
+     */
+    @Operation(summary = "List all menu item reviews, streamed")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/all/stream")
+    public ResponseEntity<StreamingResponseBody> streamAllMIRs() {
+        return entityStreamService.streamAll(menuItemReviewRepository);
+    }
+
+    /**
+     * This method exports all menu item reviews (see EntityExportService).
+     * @param format csv or ndjson
+     * @param acceptEncoding Accept-Encoding header
+     * @return all menu item reviews, in the given format
+     */
+    @Operation(summary = "Export all menu item reviews as CSV or NDJSON")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportMIRs(
+            @Parameter(name = "format", description = "csv or ndjson") @RequestParam(defaultValue = "csv") String format,
+            @RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return entityExportService.export(EXPORT, format, acceptEncoding);
+    }
+
     /**
      * Create a new MIR
      * 
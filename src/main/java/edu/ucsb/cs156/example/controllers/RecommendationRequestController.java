@@ -5,6 +5,9 @@ import edu.ucsb.cs156.example.entities.UCSBDate;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
 import edu.ucsb.cs156.example.repositories.RecommendationRequestRepository;
 import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+import edu.ucsb.cs156.example.services.EntityStreamService;
+import edu.ucsb.cs156.example.services.EntityExportService;
+import edu.ucsb.cs156.example.services.EntityExportService.ExportTable;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -24,12 +27,18 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.RequestHeader;
 
 import jakarta.validation.Valid;
 
 import java.time.LocalDateTime;
 import java.util.Map;
 import java.util.Optional;
+import java.util.List;
+import java.util.Set;
 
 /**
  * This is a REST controller for RecommendationRequest
@@ -41,9 +50,19 @@ import java.util.Optional;
 @Slf4j
 public class RecommendationRequestController extends ApiController {
 
+    static final Keyset KEYSET = new Keyset("id", Set.of("id", "dateRequested"));
+
+    static final ExportTable EXPORT = ExportTable.of("recommendationrequest", "id", "requesterEmail", "professorEmail", "explanation", "dateRequested", "dateNeeded", "done");
+
     @Autowired
     RecommendationRequestRepository recommendationrequestRepository;
 
+    @Autowired
+    EntityStreamService entityStreamService;
+
+    @Autowired
+    EntityExportService entityExportService;
+
     /**
      * List all Recommendation Requests
      * 
@@ -57,6 +76,50 @@ public class RecommendationRequestController extends ApiController {
         return recommendationrequests;
     }
 
+    /**
+     * This method returns one page of recommendation requests, sorted by id or dateRequested
+     * (see ApiController.keysetPage).
+     * @param sort id or dateRequested, optionally followed by ",desc"
+     * @param cursor X-Next-Cursor header of the previous page; omit for the first page
+     * @param size page size (at most 500)
+     * @return a page of recommendation requests, with a Link header to the next page if there is one
+     */
+    @Operation(summary = "List recommendation requests a page at a time; follow the Link header (rel=next) for the next page")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/page")
+    public ResponseEntity<List<RecommendationRequest>> pageOfRecommendationRequests(
+            @Parameter(name = "sort", description = "id or dateRequested, optionally followed by ,desc") @RequestParam(defaultValue = "id") String sort,
+            @Parameter(name = "cursor", description = "X-Next-Cursor of the previous page") @RequestParam(required = false) String cursor,
+            @Parameter(name = "size", description = "page size (at most 500)") @RequestParam(defaultValue = "50") int size) {
+        return keysetPage(recommendationrequestRepository, KEYSET, sort, cursor, size);
+    }
+
+    /**
+     * This method returns all recommendation requests, streamed (see EntityStreamService).
+     * @return all recommendation requests, as a JSON array
+     */
+    @Operation(summary = "List all recommendation requests, streamed")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/all/stream")
+    public ResponseEntity<StreamingResponseBody> streamAllRecommendationRequests() {
+        return entityStreamService.streamAll(recommendationrequestRepository);
+    }
+
+    /**
+     * This method exports all recommendation requests (see EntityExportService).
+     * @param format csv or ndjson
+     * @param acceptEncoding Accept-Encoding header
+     * @return all recommendation requests, in the given format
+     */
+    @Operation(summary = "Export all recommendation requests as CSV or NDJSON")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportRecommendationRequests(
+            @Parameter(name = "format", description = "csv or ndjson") @RequestParam(defaultValue = "csv") String format,
+            @RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return entityExportService.export(EXPORT, format, acceptEncoding);
+    }
+
     /**
      * Create a new recommendation request
      * 
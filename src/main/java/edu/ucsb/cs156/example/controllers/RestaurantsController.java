@@ -3,6 +3,9 @@ package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.entities.Restaurant;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
 import edu.ucsb.cs156.example.repositories.RestaurantRepository;
+import edu.ucsb.cs156.example.services.EntityStreamService;
+import edu.ucsb.cs156.example.services.EntityExportService;
+import edu.ucsb.cs156.example.services.EntityExportService.ExportTable;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -18,8 +21,14 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.RequestHeader;
 
 import jakarta.validation.Valid;
+import java.util.List;
+import java.util.Set;
 
 /**
  * This is a REST controller for Restaurants
@@ -30,9 +39,19 @@ import jakarta.validation.Valid;
 @RestController
 public class RestaurantsController extends ApiController {
 
+    static final Keyset KEYSET = new Keyset("id", Set.of("id", "name"));
+
+    static final ExportTable EXPORT = ExportTable.of("restaurants", "id", "name", "description");
+
     @Autowired
     RestaurantRepository restaurantRepository;
 
+    @Autowired
+    EntityStreamService entityStreamService;
+
+    @Autowired
+    EntityExportService entityExportService;
+
     /**
      * This method returns a list of all restaurants.
      * @return a list of all restaurants
@@ -45,6 +64,50 @@ public class RestaurantsController extends ApiController {
         return restaurants;
     }
 
+    /**
+     * This method returns one page of restaurants, sorted by id or name
+     * (see ApiController.keysetPage).
+     * @param sort id or name, optionally followed by ",desc"
+     * @param cursor X-Next-Cursor header of the previous page; omit for the first page
+     * @param size page size (at most 500)
+     * @return a page of restaurants, with a Link header to the next page if there is one
+     */
+    @Operation(summary = "List restaurants a page at a time; follow the Link header (rel=next) for the next page")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/page")
+    public ResponseEntity<List<Restaurant>> pageOfRestaurants(
+            @Parameter(name = "sort", description = "id or name, optionally followed by ,desc") @RequestParam(defaultValue = "id") String sort,
+            @Parameter(name = "cursor", description = "X-Next-Cursor of the previous page") @RequestParam(required = false) String cursor,
+            @Parameter(name = "size", description = "page size (at most 500)") @RequestParam(defaultValue = "50") int size) {
+        return keysetPage(restaurantRepository, KEYSET, sort, cursor, size);
+    }
+
+    /**
+     * This method returns all restaurants, streamed (see EntityStreamService).
+     * @return all restaurants, as a JSON array
+     */
+    @Operation(summary = "List all restaurants, streamed")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/all/stream")
+    public ResponseEntity<StreamingResponseBody> streamAllRestaurants() {
+        return entityStreamService.streamAll(restaurantRepository);
+    }
+
+    /**
+     * This method exports all restaurants (see EntityExportService).
+     * @param format csv or ndjson
+     * @param acceptEncoding Accept-Encoding header
+     * @return all restaurants, in the given format
+     */
+    @Operation(summary = "Export all restaurants as CSV or NDJSON")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportRestaurants(
+            @Parameter(name = "format", description = "csv or ndjson") @RequestParam(defaultValue = "csv") String format,
+            @RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return entityExportService.export(EXPORT, format, acceptEncoding);
+    }
+
     /**
      * This method returns a single restaurant.
      * @param id id of the restaurant to get
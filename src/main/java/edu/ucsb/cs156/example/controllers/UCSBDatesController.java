@@ -3,6 +3,13 @@ package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.entities.UCSBDate;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
 import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+import edu.ucsb.cs156.example.services.EntityStreamService;
+import edu.ucsb.cs156.example.services.EntityExportService;
+import edu.ucsb.cs156.example.services.EntityExportService.ExportTable;
+import edu.ucsb.cs156.example.services.EntityImportService;
+import edu.ucsb.cs156.example.services.EntityImportService.ColumnType;
+import edu.ucsb.cs156.example.services.EntityImportService.ImportColumn;
+import edu.ucsb.cs156.example.services.EntityImportService.ImportTable;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -22,10 +29,19 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.http.MediaType;
 
 import jakarta.validation.Valid;
+import jakarta.servlet.http.HttpServletRequest;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
 
 /**
  * This is a REST controller for UCSBDates
@@ -37,9 +53,27 @@ import java.time.LocalDateTime;
 @Slf4j
 public class UCSBDatesController extends ApiController {
 
+    static final Keyset KEYSET = new Keyset("id", Set.of("id", "localDateTime"));
+
+    static final ExportTable EXPORT = ExportTable.of("ucsbdates", "id", "quarterYYYYQ", "name", "localDateTime");
+
+    static final ImportTable IMPORT = ImportTable.of("ucsbdates",
+            ImportColumn.required("quarterYYYYQ", ColumnType.STRING),
+            ImportColumn.required("name", ColumnType.STRING),
+            ImportColumn.required("localDateTime", ColumnType.DATETIME));
+
     @Autowired
     UCSBDateRepository ucsbDateRepository;
 
+    @Autowired
+    EntityStreamService entityStreamService;
+
+    @Autowired
+    EntityExportService entityExportService;
+
+    @Autowired
+    EntityImportService entityImportService;
+
     /**
      * List all UCSB dates
      * 
@@ -53,6 +87,66 @@ public class UCSBDatesController extends ApiController {
         return dates;
     }
 
+    /**
+     * This method returns one page of ucsb dates, sorted by id or localDateTime
+     * (see ApiController.keysetPage).
+     * @param sort id or localDateTime, optionally followed by ",desc"
+     * @param cursor X-Next-Cursor header of the previous page; omit for the first page
+     * @param size page size (at most 500)
+     * @return a page of ucsb dates, with a Link header to the next page if there is one
+     */
+    @Operation(summary = "List ucsb dates a page at a time; follow the Link header (rel=next) for the next page")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/page")
+    public ResponseEntity<List<UCSBDate>> pageOfUCSBDates(
+            @Parameter(name = "sort", description = "id or localDateTime, optionally followed by ,desc") @RequestParam(defaultValue = "id") String sort,
+            @Parameter(name = "cursor", description = "X-Next-Cursor of the previous page") @RequestParam(required = false) String cursor,
+            @Parameter(name = "size", description = "page size (at most 500)") @RequestParam(defaultValue = "50") int size) {
+        return keysetPage(ucsbDateRepository, KEYSET, sort, cursor, size);
+    }
+
+    /**
+     * This method returns all ucsb dates, streamed (see EntityStreamService).
+     * @return all ucsb dates, as a JSON array
+     */
+    @Operation(summary = "List all ucsb dates, streamed")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/all/stream")
+    public ResponseEntity<StreamingResponseBody> streamAllUCSBDates() {
+        return entityStreamService.streamAll(ucsbDateRepository);
+    }
+
+    /**
+     * This method exports all ucsb dates (see EntityExportService).
+     * @param format csv or ndjson
+     * @param acceptEncoding Accept-Encoding header
+     * @return all ucsb dates, in the given format
+     */
+    @Operation(summary = "Export all ucsb dates as CSV or NDJSON")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportUCSBDates(
+            @Parameter(name = "format", description = "csv or ndjson") @RequestParam(defaultValue = "csv") String format,
+            @RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return entityExportService.export(EXPORT, format, acceptEncoding);
+    }
+
+    /**
+     * This method imports ucsb dates in bulk, from CSV, NDJSON or a JSON array with the
+     * fields quarterYYYYQ, name and localDateTime (see EntityImportService). Small files are imported
+     * right away; larger ones are imported by a job.
+     * @param request the request, whose body is the file
+     * @return the import report (200), or the job importing the file (202)
+     * @throws IOException if the body cannot be read
+     */
+    @Operation(summary = "Import ucsb dates from CSV, NDJSON or a JSON array")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping(value = "/import", consumes = { "text/csv", MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE })
+    public ResponseEntity<Object> importUCSBDates(HttpServletRequest request) throws IOException {
+        return entityImportService.importBody(IMPORT, request.getContentType(), request.getContentLengthLong(),
+                request.getInputStream());
+    }
+
     /**
      * Get a single date by id
      * 
@@ -3,6 +3,9 @@ package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+import edu.ucsb.cs156.example.services.EntityStreamService;
+import edu.ucsb.cs156.example.services.EntityExportService;
+import edu.ucsb.cs156.example.services.EntityExportService.ExportTable;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -19,8 +22,14 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.RequestHeader;
 
 import jakarta.validation.Valid;
+import java.util.List;
+import java.util.Set;
 
 /**
  * This is a REST controller for UCSBDiningCommons
@@ -32,9 +41,19 @@ import jakarta.validation.Valid;
 @Slf4j
 public class UCSBDiningCommonsController extends ApiController {
 
+    static final Keyset KEYSET = new Keyset("code", Set.of("code", "name"));
+
+    static final ExportTable EXPORT = ExportTable.of("ucsbdiningcommons", "code", "name", "hasSackMeal", "hasTakeOutMeal", "hasDiningCam", "latitude", "longitude");
+
     @Autowired
     UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
 
+    @Autowired
+    EntityStreamService entityStreamService;
+
+    @Autowired
+    EntityExportService entityExportService;
+
     /**
      * THis method returns a list of all ucsbdiningcommons.
      * @return a list of all ucsbdiningcommons
@@ -47,6 +66,50 @@ public class UCSBDiningCommonsController extends ApiController {
         return commons;
     }
 
+    /**
+     * This method returns one page of ucsb dining commons, sorted by code or name
+     * (see ApiController.keysetPage).
+     * @param sort code or name, optionally followed by ",desc"
+     * @param cursor X-Next-Cursor header of the previous page; omit for the first page
+     * @param size page size (at most 500)
+     * @return a page of ucsb dining commons, with a Link header to the next page if there is one
+     */
+    @Operation(summary = "List ucsb dining commons a page at a time; follow the Link header (rel=next) for the next page")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/page")
+    public ResponseEntity<List<UCSBDiningCommons>> pageOfCommons(
+            @Parameter(name = "sort", description = "code or name, optionally followed by ,desc") @RequestParam(defaultValue = "code") String sort,
+            @Parameter(name = "cursor", description = "X-Next-Cursor of the previous page") @RequestParam(required = false) String cursor,
+            @Parameter(name = "size", description = "page size (at most 500)") @RequestParam(defaultValue = "50") int size) {
+        return keysetPage(ucsbDiningCommonsRepository, KEYSET, sort, cursor, size);
+    }
+
+    /**
+     * This method returns all ucsb dining commons, streamed (see EntityStreamService).
+     * @return all ucsb dining commons, as a JSON array
+     */
+    @Operation(summary = "List all ucsb dining commons, streamed")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/all/stream")
+    public ResponseEntity<StreamingResponseBody> streamAllCommons() {
+        return entityStreamService.streamAll(ucsbDiningCommonsRepository);
+    }
+
+    /**
+     * This method exports all ucsb dining commons (see EntityExportService).
+     * @param format csv or ndjson
+     * @param acceptEncoding Accept-Encoding header
+     * @return all ucsb dining commons, in the given format
+     */
+    @Operation(summary = "Export all ucsb dining commons as CSV or NDJSON")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportCommons(
+            @Parameter(name = "format", description = "csv or ndjson") @RequestParam(defaultValue = "csv") String format,
+            @RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return entityExportService.export(EXPORT, format, acceptEncoding);
+    }
+
     /**
      * This method returns a single diningcommons.
      * @param code code of the diningcommons
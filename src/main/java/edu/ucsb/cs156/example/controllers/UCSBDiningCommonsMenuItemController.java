@@ -5,6 +5,13 @@ import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
 import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
+import edu.ucsb.cs156.example.services.EntityStreamService;
+import edu.ucsb.cs156.example.services.EntityExportService;
+import edu.ucsb.cs156.example.services.EntityExportService.ExportTable;
+import edu.ucsb.cs156.example.services.EntityImportService;
+import edu.ucsb.cs156.example.services.EntityImportService.ColumnType;
+import edu.ucsb.cs156.example.services.EntityImportService.ImportColumn;
+import edu.ucsb.cs156.example.services.EntityImportService.ImportTable;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -23,10 +30,19 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.http.MediaType;
 
 import jakarta.validation.Valid;
+import jakarta.servlet.http.HttpServletRequest;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
 /**
  * This is a REST controller for UCSBDiningCommonsMenuItem
  */
@@ -35,9 +51,28 @@ import java.time.LocalDateTime;
 @RestController
 @Slf4j
 public class UCSBDiningCommonsMenuItemController extends ApiController{
+
+    static final Keyset KEYSET = new Keyset("id", Set.of("id", "diningCommonsCode"));
+
+    static final ExportTable EXPORT = ExportTable.of("items", "id", "diningCommonsCode", "name", "station");
+
+    static final ImportTable IMPORT = ImportTable.of("items",
+            ImportColumn.required("diningCommonsCode", ColumnType.STRING),
+            ImportColumn.required("name", ColumnType.STRING),
+            ImportColumn.required("station", ColumnType.STRING));
+
     @Autowired
     UCSBDiningCommonsMenuItemRepository ucsbDiningCommonsMenuItemRepository;
 
+    @Autowired
+    EntityStreamService entityStreamService;
+
+    @Autowired
+    EntityExportService entityExportService;
+
+    @Autowired
+    EntityImportService entityImportService;
+
     /**
      * List all UCSB Dining Commons Menu Items
      * 
@@ -51,6 +86,66 @@ public class UCSBDiningCommonsMenuItemController extends ApiController{
         return items;
     }
 
+    /**
+     * This method returns one page of ucsb dining commons menu items, sorted by id or diningCommonsCode
+     * (see ApiController.keysetPage).
+     * @param sort id or diningCommonsCode, optionally followed by ",desc"
+     * @param cursor X-Next-Cursor header of the previous page; omit for the first page
+     * @param size page size (at most 500)
+     * @return a page of ucsb dining commons menu items, with a Link header to the next page if there is one
+     */
+    @Operation(summary = "List ucsb dining commons menu items a page at a time; follow the Link header (rel=next) for the next page")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/page")
+    public ResponseEntity<List<UCSBDiningCommonsMenuItem>> pageOfUCSBDiningCommonsMenuItems(
+            @Parameter(name = "sort", description = "id or diningCommonsCode, optionally followed by ,desc") @RequestParam(defaultValue = "id") String sort,
+            @Parameter(name = "cursor", description = "X-Next-Cursor of the previous page") @RequestParam(required = false) String cursor,
+            @Parameter(name = "size", description = "page size (at most 500)") @RequestParam(defaultValue = "50") int size) {
+        return keysetPage(ucsbDiningCommonsMenuItemRepository, KEYSET, sort, cursor, size);
+    }
+
+    /**
+     * This method returns all ucsb dining commons menu items, streamed (see EntityStreamService).
+     * @return all ucsb dining commons menu items, as a JSON array
+     */
+    @Operation(summary = "List all ucsb dining commons menu items, streamed")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/all/stream")
+    public ResponseEntity<StreamingResponseBody> streamAllUCSBDiningCommonsMenuItems() {
+        return entityStreamService.streamAll(ucsbDiningCommonsMenuItemRepository);
+    }
+
+    /**
+     * This method exports all ucsb dining commons menu items (see EntityExportService).
+     * @param format csv or ndjson
+     * @param acceptEncoding Accept-Encoding header
+     * @return all ucsb dining commons menu items, in the given format
+     */
+    @Operation(summary = "Export all ucsb dining commons menu items as CSV or NDJSON")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportUCSBDiningCommonsMenuItems(
+            @Parameter(name = "format", description = "csv or ndjson") @RequestParam(defaultValue = "csv") String format,
+            @RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return entityExportService.export(EXPORT, format, acceptEncoding);
+    }
+
+    /**
+     * This method imports ucsb dining commons menu items in bulk, from CSV, NDJSON or a JSON array with the
+     * fields diningCommonsCode, name and station (see EntityImportService). Small files are imported
+     * right away; larger ones are imported by a job.
+     * @param request the request, whose body is the file
+     * @return the import report (200), or the job importing the file (202)
+     * @throws IOException if the body cannot be read
+     */
+    @Operation(summary = "Import ucsb dining commons menu items from CSV, NDJSON or a JSON array")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PostMapping(value = "/import", consumes = { "text/csv", MediaType.APPLICATION_NDJSON_VALUE, MediaType.APPLICATION_JSON_VALUE })
+    public ResponseEntity<Object> importUCSBDiningCommonsMenuItems(HttpServletRequest request) throws IOException {
+        return entityImportService.importBody(IMPORT, request.getContentType(), request.getContentLengthLong(),
+                request.getInputStream());
+    }
+
     /**
      * Create a new item
      * 
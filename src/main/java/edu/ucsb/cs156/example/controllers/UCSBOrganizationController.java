@@ -4,6 +4,9 @@ import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
 import edu.ucsb.cs156.example.entities.UCSBOrganization;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
 import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
+import edu.ucsb.cs156.example.services.EntityStreamService;
+import edu.ucsb.cs156.example.services.EntityExportService;
+import edu.ucsb.cs156.example.services.EntityExportService.ExportTable;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -20,8 +23,14 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.RequestHeader;
 
 import jakarta.validation.Valid;
+import java.util.List;
+import java.util.Set;
 
 /**
  * This is a REST controller for UCSBOrganization
@@ -33,9 +42,19 @@ import jakarta.validation.Valid;
 @Slf4j
 public class UCSBOrganizationController extends ApiController {
 
+    static final Keyset KEYSET = new Keyset("orgCode", Set.of("orgCode", "orgTranslationShort"));
+
+    static final ExportTable EXPORT = ExportTable.of("ucsborganizations", "orgCode", "orgTranslationShort", "orgTranslation", "inactive");
+
     @Autowired
     UCSBOrganizationRepository ucsbOrganizationRepository;
 
+    @Autowired
+    EntityStreamService entityStreamService;
+
+    @Autowired
+    EntityExportService entityExportService;
+
     /**
      * THis method returns a list of all ucsborganizations.
      * @return a list of all ucsborganizations
@@ -48,6 +67,50 @@ public class UCSBOrganizationController extends ApiController {
         return organizations;
     }
 
+    /**
+     * This method returns one page of ucsb organizations, sorted by orgCode or orgTranslationShort
+     * (see ApiController.keysetPage).
+     * @param sort orgCode or orgTranslationShort, optionally followed by ",desc"
+     * @param cursor X-Next-Cursor header of the previous page; omit for the first page
+     * @param size page size (at most 500)
+     * @return a page of ucsb organizations, with a Link header to the next page if there is one
+     */
+    @Operation(summary = "List ucsb organizations a page at a time; follow the Link header (rel=next) for the next page")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/page")
+    public ResponseEntity<List<UCSBOrganization>> pageOfOrganizations(
+            @Parameter(name = "sort", description = "orgCode or orgTranslationShort, optionally followed by ,desc") @RequestParam(defaultValue = "orgCode") String sort,
+            @Parameter(name = "cursor", description = "X-Next-Cursor of the previous page") @RequestParam(required = false) String cursor,
+            @Parameter(name = "size", description = "page size (at most 500)") @RequestParam(defaultValue = "50") int size) {
+        return keysetPage(ucsbOrganizationRepository, KEYSET, sort, cursor, size);
+    }
+
+    /**
+     * This method returns all ucsb organizations, streamed (see EntityStreamService).
+     * @return all ucsb organizations, as a JSON array
+     */
+    @Operation(summary = "List all ucsb organizations, streamed")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/all/stream")
+    public ResponseEntity<StreamingResponseBody> streamAllOrganizations() {
+        return entityStreamService.streamAll(ucsbOrganizationRepository);
+    }
+
+    /**
+     * This method exports all ucsb organizations (see EntityExportService).
+     * @param format csv or ndjson
+     * @param acceptEncoding Accept-Encoding header
+     * @return all ucsb organizations, in the given format
+     */
+    @Operation(summary = "Export all ucsb organizations as CSV or NDJSON")
+    @PreAuthorize("hasRole('ROLE_USER')")
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportOrganizations(
+            @Parameter(name = "format", description = "csv or ndjson") @RequestParam(defaultValue = "csv") String format,
+            @RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return entityExportService.export(EXPORT, format, acceptEncoding);
+    }
+
     /**
      * This method returns a single organization.
      * @param orgCode code of the organization
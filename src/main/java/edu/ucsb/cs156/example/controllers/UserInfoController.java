@@ -1,10 +1,14 @@
 package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.models.CurrentUser;
+import edu.ucsb.cs156.example.services.CurrentUserResponseCache;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -18,16 +22,26 @@ import org.springframework.web.bind.annotation.RestController;
 @RequestMapping("/api/currentUser")
 @RestController
 public class UserInfoController extends ApiController {
+
+  @Autowired
+  CurrentUserResponseCache currentUserResponseCache;
  
   /**
-   * This method returns the current user.
+   * This method returns the current user, with an ETag. The response is cached
+   * briefly (see CurrentUserResponseCache), and a request whose If-None-Match
+   * matches the ETag gets a 304 Not Modified with no body.
    * @return the current user
    */
 
   @Operation(summary= "Get information about current user")
   @PreAuthorize("hasRole('ROLE_USER')")
   @GetMapping("")
-  public CurrentUser getCurrentUser() {
-    return super.getCurrentUser();
+  public ResponseEntity<CurrentUser> getCurrentUserWithETag() {
+    CurrentUserResponseCache.Response response = currentUserResponseCache.get(this::getCurrentUser);
+    // ResponseEntity with an ETag is answered with 304 when If-None-Match matches
+    return ResponseEntity.ok()
+        .eTag(response.etag())
+        .cacheControl(CacheControl.noCache().cachePrivate())
+        .body(response.currentUser());
   }
 }
@@ -7,14 +7,23 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import edu.ucsb.cs156.example.entities.User;
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.AdminRoleService;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 /**
  * This is a REST controller for getting information about the users.
  * 
@@ -25,9 +34,14 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 @RequestMapping("/api/admin/users")
 @RestController
 public class UsersController extends ApiController {
+    static final Keyset KEYSET = new Keyset("id", Set.of("id", "email"));
+
     @Autowired
     UserRepository userRepository;
 
+    @Autowired
+    AdminRoleService adminRoleService;
+
     @Autowired
     ObjectMapper mapper;
 
@@ -45,4 +59,64 @@ public class UsersController extends ApiController {
         String body = mapper.writeValueAsString(users);
         return ResponseEntity.ok().body(body);
     }
-}
\ No newline at end of file
+
+    /**
+     * This method returns one page of users, optionally only those whose email starts
+     * with a prefix (see ApiController.keysetPage). Accessible only to users with the
+     * role "ROLE_ADMIN".
+     * @param emailPrefix only users whose email starts with this
+     * @param sort id or email, optionally followed by ",desc"
+     * @param cursor X-Next-Cursor header of the previous page; omit for the first page
+     * @param size page size (at most 500)
+     * @return a page of users, with a Link header to the next page if there is one
+     */
+    @Operation(summary= "List users a page at a time; follow the Link header (rel=next) for the next page")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @GetMapping("/page")
+    public ResponseEntity<List<User>> pageOfUsers(
+            @Parameter(name="emailPrefix", description="only users whose email starts with this") @RequestParam(required = false) String emailPrefix,
+            @Parameter(name="sort", description="id or email, optionally followed by ,desc") @RequestParam(defaultValue = "id") String sort,
+            @Parameter(name="cursor", description="X-Next-Cursor of the previous page") @RequestParam(required = false) String cursor,
+            @Parameter(name="size", description="page size (at most 500)") @RequestParam(defaultValue = "50") int size) {
+        return keysetPage(userRepository, KEYSET, attributeStartsWith("email", emailPrefix), sort, cursor, size);
+    }
+
+    /**
+     * This method returns the number of users, optionally only those whose email
+     * starts with a prefix. Accessible only to users with the role "ROLE_ADMIN".
+     * @param emailPrefix only users whose email starts with this
+     * @return a map with the count
+     */
+    @Operation(summary= "Count users")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @GetMapping("/count")
+    public Map<String, Long> countUsers(
+            @Parameter(name="emailPrefix", description="only users whose email starts with this") @RequestParam(required = false) String emailPrefix) {
+        long count = (emailPrefix == null)
+                ? userRepository.count()
+                : userRepository.countByEmailStartingWith(emailPrefix);
+        return Map.of("count", count);
+    }
+
+    /**
+     * This method sets or clears the admin flag of many users at once, in a single
+     * update. Their cached admin status is dropped, so the change takes effect at their
+     * next login. Users listed in app.admin.emails stay admins regardless.
+     * Accessible only to users with the role "ROLE_ADMIN".
+     * @param admin whether the users should be admins
+     * @param ids ids of the users
+     * @return a message with the number of users updated
+     */
+    @Operation(summary= "Set or clear the admin flag of many users")
+    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @PutMapping("/admin")
+    public Object updateAdmin(
+            @Parameter(name="admin", description="whether the users should be admins") @RequestParam boolean admin,
+            @RequestBody Set<Long> ids) {
+        int updated = ids.isEmpty() ? 0 : userRepository.updateAdminByIdIn(ids, admin);
+        if (updated > 0) {
+            userRepository.findEmailsByIdIn(ids).forEach(adminRoleService::invalidate);
+        }
+        return genericMessage("Updated admin flag of %d user(s)".formatted(updated));
+    }
+}
@@ -16,7 +16,8 @@ import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 @EntityListeners(AuditingEntityListener.class)
 public class Job {
   @Id
-  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "jobs_seq")
+  @SequenceGenerator(name = "jobs_seq", sequenceName = "jobs_seq", allocationSize = 50)
   private long id;
 
   @JsonIgnore
@@ -29,10 +30,35 @@ public class Job {
 
   private String status;
 
+  // class of a job that any instance can run, and its fields as JSON (see JobService.runAsJob);
+  // both are null for jobs that can only run on the instance that queued them
+  private String type;
+
+  @JsonIgnore
+  @ToString.Exclude
+  @Column(columnDefinition = "TEXT")
+  private String parameters;
+
+  // how long the job may run once started, in milliseconds (0 means no limit)
+  private Long timeoutMs;
+
+  // number of times the job has been started; a job is started again if its instance goes away
+  // while it runs
+  private int attempts;
+
+  // instance that is queuing or running the job, and when its claim on the job runs out
+  // unless renewed; both are cleared when the job ends
+  private String leaseOwner;
+  private ZonedDateTime leaseExpiresAt;
+
   // 1048576 is 2^20, which is the max size of a mediumtext in MySQL
   @Column(
       columnDefinition = "TEXT",
       length = 1048576) // needed for long strings, i.e. log entries longer than 255
   // characters
   private String log;
+
+  // log lines of a finished job, packed and deflate-compressed by JobLogArchive
+  // when the log was large; null otherwise
+  @JsonIgnore @ToString.Exclude private byte[] compressedLog;
 }
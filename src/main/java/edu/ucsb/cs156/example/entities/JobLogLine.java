@@ -0,0 +1,29 @@
+package edu.ucsb.cs156.example.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * This is a JPA entity that represents a single line of output from a Job.
+ *
+ * <p>Log lines are append-only: a running job inserts new rows rather than rewriting the whole
+ * log, and readers stream the rows back in {@code lineNumber} order.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+@Entity(name = "job_log_lines")
+public class JobLogLine {
+  @Id
+  @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "job_log_lines_seq")
+  @SequenceGenerator(name = "job_log_lines_seq", sequenceName = "job_log_lines_seq", allocationSize = 50)
+  private long id;
+
+  private long jobId;
+
+  private long lineNumber;
+
+  @Column(columnDefinition = "TEXT")
+  private String message;
+}
@@ -0,0 +1,30 @@
+package edu.ucsb.cs156.example.entities;
+
+import jakarta.persistence.*;
+import java.time.ZonedDateTime;
+import lombok.*;
+import org.hibernate.annotations.Immutable;
+
+/**
+ * This is a read-only JPA entity that represents a Job without its log, for use in job listings.
+ *
+ * <p>It is mapped to the same jobs table as Job but only to the columns a listing shows, so
+ * listing jobs never loads their (possibly very large) logs.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+@Immutable
+@Entity(name = "job_summaries")
+@Table(name = "jobs")
+public class JobSummary {
+  @Id private long id;
+
+  @Column(name = "created_by_id")
+  private Long createdById;
+
+  private ZonedDateTime createdAt;
+  private ZonedDateTime updatedAt;
+  private String status;
+}
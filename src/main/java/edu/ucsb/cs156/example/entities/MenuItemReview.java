@@ -4,6 +4,7 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -16,7 +17,8 @@ import lombok.NoArgsConstructor;
 @Entity(name = "menu_item_reviews")
 public class MenuItemReview {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "menu_item_reviews_seq")
+    @SequenceGenerator(name = "menu_item_reviews_seq", sequenceName = "menu_item_reviews_seq", allocationSize = 50)
     private long id;
 
     private long itemId;
@@ -0,0 +1,16 @@
+package edu.ucsb.cs156.example.errors;
+
+/**
+ * This is an error class for a custom RuntimeException that a job throws (via
+ * JobContext.checkCancelled) to stop early after it has been cancelled or has timed out.
+ */
+public class JobCancelledException extends RuntimeException {
+  /**
+   * Constructor for the exception
+   *
+   * @param reason why the job was stopped, e.g. "cancelled" or "timeout"
+   */
+  public JobCancelledException(String reason) {
+    super("Job stopped: %s".formatted(reason));
+  }
+}
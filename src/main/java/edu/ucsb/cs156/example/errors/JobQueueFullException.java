@@ -0,0 +1,12 @@
+package edu.ucsb.cs156.example.errors;
+
+/**
+ * This is an error class for a custom RuntimeException that is used to indicate that a job could
+ * not be started because the job queue is full.
+ */
+public class JobQueueFullException extends RuntimeException {
+  /** Constructor for the exception */
+  public JobQueueFullException() {
+    super("Job queue is full; try again later");
+  }
+}
@@ -0,0 +1,56 @@
+package edu.ucsb.cs156.example.jobs;
+
+import edu.ucsb.cs156.example.models.ImportReport;
+import edu.ucsb.cs156.example.services.EntityImportService;
+import edu.ucsb.cs156.example.services.EntityImportService.Format;
+import edu.ucsb.cs156.example.services.EntityImportService.ImportTable;
+import edu.ucsb.cs156.example.services.jobs.JobContext;
+import edu.ucsb.cs156.example.services.jobs.JobContextConsumer;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import lombok.AccessLevel;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.extern.jackson.Jacksonized;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Imports a file saved by EntityImportService, then deletes it. The import report is written to
+ * the job's log: one line per rejected row, then a summary.
+ *
+ * <p>The table, format and file are saved with the job, so another instance can run it if the file
+ * is in a directory they share (see {@code app.import.dir}); the import service is injected again
+ * there.
+ */
+@Builder
+@Jacksonized
+@Getter
+public class ImportJob implements JobContextConsumer {
+
+  @Autowired
+  @Getter(AccessLevel.NONE)
+  private EntityImportService importService;
+  private ImportTable table;
+  private Format format;
+  private Path file;
+
+  @Override
+  public void accept(JobContext ctx) throws Exception {
+    ctx.log("Importing %s into %s".formatted(format, table.table()));
+    try (InputStream in = Files.newInputStream(file)) {
+      ImportReport report = importService.importRows(table, format, in, ctx::checkCancelled);
+      report
+          .getErrors()
+          .forEach(error -> ctx.log("Row %d: %s".formatted(error.getRow(), error.getMessage())));
+      ctx.log(
+          "Imported %d of %d rows, rejected %d"
+              .formatted(report.getRowsImported(), report.getRowsRead(), report.getRowsRejected()));
+    } catch (ResponseStatusException e) {
+      throw new IllegalArgumentException(e.getReason(), e);
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+}
@@ -0,0 +1,35 @@
+package edu.ucsb.cs156.example.models;
+
+import java.util.List;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * This is a model class that reports the outcome of a bulk import: how many rows were read,
+ * imported and rejected, and why each rejected row was rejected (for at most the first {@code
+ * EntityImportService.MAX_ERRORS} rejected rows).
+ *
+ * <p>Rows are numbered from 1, not counting the header line of a CSV file.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class ImportReport {
+  private long rowsRead;
+  private long rowsImported;
+  private long rowsRejected;
+  private List<RowError> errors;
+
+  /** Why a row was rejected. */
+  @Data
+  @AllArgsConstructor
+  @NoArgsConstructor(access = AccessLevel.PROTECTED)
+  public static class RowError {
+    private long row;
+    private String message;
+  }
+}
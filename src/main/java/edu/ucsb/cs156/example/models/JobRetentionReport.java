@@ -0,0 +1,23 @@
+package edu.ucsb.cs156.example.models;
+
+import java.time.ZonedDateTime;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * This is a model class that reports what one run of the job retention task removed.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@Builder
+public class JobRetentionReport {
+  private ZonedDateTime ranAt;
+  private long jobsDeleted;
+  private long logLinesDeleted;
+  private long jobsTruncated;
+  private long logLinesTruncated;
+}
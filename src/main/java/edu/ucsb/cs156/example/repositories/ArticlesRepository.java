@@ -2,7 +2,6 @@ package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.Article;
 
-import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
@@ -13,7 +12,7 @@ import java.util.List;
  */
 
 @Repository
-public interface ArticlesRepository extends CrudRepository<Article, Long> {
+public interface ArticlesRepository extends KeysetPagingRepository<Article, Long> {
     // Custom query method to find articles by date range
     List<Article> findByDateAddedBetween(LocalDateTime start, LocalDateTime end);
 }
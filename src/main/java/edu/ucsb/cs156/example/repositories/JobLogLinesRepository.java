@@ -0,0 +1,119 @@
+package edu.ucsb.cs156.example.repositories;
+
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import jakarta.persistence.QueryHint;
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+/** The JobLogLinesRepository is a repository for JobLogLine entities. */
+@Repository
+public interface JobLogLinesRepository extends CrudRepository<JobLogLine, Long> {
+  /**
+   * Streams the log lines of a job in the order they were written. Must be called inside a
+   * transaction, and the stream must be closed by the caller.
+   *
+   * @param jobId id of the job
+   * @return stream of log lines ordered by line number
+   */
+  @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "500"))
+  Stream<JobLogLine> streamByJobIdOrderByLineNumberAsc(long jobId);
+
+  /**
+   * Streams the log lines of a job starting at a given line number. Must be called inside a
+   * transaction, and the stream must be closed by the caller.
+   *
+   * @param jobId id of the job
+   * @param lineNumber first line number to return
+   * @return stream of log lines ordered by line number
+   */
+  @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "500"))
+  Stream<JobLogLine> streamByJobIdAndLineNumberGreaterThanEqualOrderByLineNumberAsc(
+      long jobId, long lineNumber);
+
+  /**
+   * Deletes all log lines that belong to a job, in a single statement.
+   *
+   * @param jobId id of the job
+   * @return number of lines deleted
+   */
+  @Transactional
+  @Modifying
+  @Query("delete from job_log_lines l where l.jobId = :jobId")
+  int deleteByJobId(@Param("jobId") long jobId);
+
+  /**
+   * Deletes the log lines of every job, in a single statement.
+   *
+   * @return number of lines deleted
+   */
+  @Transactional
+  @Modifying
+  @Query("delete from job_log_lines l")
+  int deleteAllLines();
+
+  /**
+   * Deletes all log lines that belong to any of the given jobs, in a single statement.
+   *
+   * @param jobIds ids of the jobs
+   * @return number of lines deleted
+   */
+  @Transactional
+  @Modifying
+  @Query("delete from job_log_lines l where l.jobId in :jobIds")
+  int deleteByJobIds(@Param("jobIds") Collection<Long> jobIds);
+
+  /**
+   * Deletes the log lines of a job that come before a given line number.
+   *
+   * @param jobId id of the job
+   * @param lineNumber lines with a lower line number are deleted
+   * @return number of lines deleted
+   */
+  @Transactional
+  @Modifying
+  @Query("delete from job_log_lines l where l.jobId = :jobId and l.lineNumber < :lineNumber")
+  int deleteByJobIdBeforeLine(@Param("jobId") long jobId, @Param("lineNumber") long lineNumber);
+
+  /**
+   * Finds jobs that ended before a given time and still have more than a given number of log
+   * lines.
+   *
+   * @param statuses statuses of jobs that have ended
+   * @param endedBefore only jobs last updated before this time
+   * @param maxLines only jobs with more log lines than this
+   * @param pageable limits the number of ids returned
+   * @return ids of the jobs, in ascending order
+   */
+  @Query(
+      """
+      select l.jobId from job_log_lines l, jobs j
+      where l.jobId = j.id
+        and j.status in :statuses
+        and coalesce(j.updatedAt, j.createdAt) < :endedBefore
+      group by l.jobId
+      having count(l) > :maxLines
+      order by l.jobId
+      """)
+  List<Long> findIdsOfEndedJobsWithMoreLinesThan(
+      @Param("statuses") Collection<String> statuses,
+      @Param("endedBefore") ZonedDateTime endedBefore,
+      @Param("maxLines") long maxLines,
+      Pageable pageable);
+
+  /**
+   * @param jobId id of the job
+   * @return the highest line number of the job's log, or null if it has no lines
+   */
+  @Query("select max(l.lineNumber) from job_log_lines l where l.jobId = :jobId")
+  Long findMaxLineNumber(@Param("jobId") long jobId);
+}
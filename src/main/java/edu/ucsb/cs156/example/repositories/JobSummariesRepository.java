@@ -0,0 +1,8 @@
+package edu.ucsb.cs156.example.repositories;
+
+import edu.ucsb.cs156.example.entities.JobSummary;
+import org.springframework.stereotype.Repository;
+
+/** The JobSummariesRepository is a read-only repository for JobSummary entities. */
+@Repository
+public interface JobSummariesRepository extends KeysetPagingRepository<JobSummary, Long> {}
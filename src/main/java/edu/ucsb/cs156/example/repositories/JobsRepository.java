@@ -1,8 +1,240 @@
 package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.Job;
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.List;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 @Repository
-public interface JobsRepository extends CrudRepository<Job, Long> {}
+public interface JobsRepository extends CrudRepository<Job, Long> {
+  /**
+   * Finds jobs that ended before a given time.
+   *
+   * @param statuses statuses of jobs that have ended
+   * @param endedBefore only jobs last updated before this time
+   * @param pageable limits the number of ids returned
+   * @return ids of the jobs, in ascending order
+   */
+  @Query(
+      """
+      select j.id from jobs j
+      where j.status in :statuses
+        and coalesce(j.updatedAt, j.createdAt) < :endedBefore
+      order by j.id
+      """)
+  List<Long> findIdsOfEndedJobs(
+      @Param("statuses") Collection<String> statuses,
+      @Param("endedBefore") ZonedDateTime endedBefore,
+      Pageable pageable);
+
+  /**
+   * Finds jobs that ended before a given time and still have a log stored on the job itself,
+   * either compressed or as legacy log text.
+   *
+   * @param statuses statuses of jobs that have ended
+   * @param endedBefore only jobs last updated before this time
+   * @param afterId only jobs with an id above this one
+   * @param pageable limits the number of ids returned
+   * @return ids of the jobs, in ascending order
+   */
+  @Query(
+      """
+      select j.id from jobs j
+      where j.status in :statuses
+        and coalesce(j.updatedAt, j.createdAt) < :endedBefore
+        and (j.compressedLog is not null or j.log is not null)
+        and j.id > :afterId
+      order by j.id
+      """)
+  List<Long> findIdsOfEndedJobsWithStoredLogs(
+      @Param("statuses") Collection<String> statuses,
+      @Param("endedBefore") ZonedDateTime endedBefore,
+      @Param("afterId") long afterId,
+      Pageable pageable);
+
+  /**
+   * Replaces the compressed log of a job, without touching its other columns.
+   *
+   * @param id id of the job
+   * @param compressedLog the new compressed log
+   * @return number of jobs updated
+   */
+  @Transactional
+  @Modifying
+  @Query("update jobs j set j.compressedLog = :compressedLog where j.id = :id")
+  int updateCompressedLog(@Param("id") long id, @Param("compressedLog") byte[] compressedLog);
+
+  /**
+   * Replaces the legacy log text of a job, without touching its other columns.
+   *
+   * @param id id of the job
+   * @param log the new log text, or null
+   * @return number of jobs updated
+   */
+  @Transactional
+  @Modifying
+  @Query("update jobs j set j.log = :log where j.id = :id")
+  int updateLog(@Param("id") long id, @Param("log") String log);
+
+  /**
+   * Deletes the given jobs in a single statement.
+   *
+   * @param ids ids of the jobs
+   * @return number of jobs deleted
+   */
+  @Transactional
+  @Modifying
+  @Query("delete from jobs j where j.id in :ids")
+  int deleteByIds(@Param("ids") Collection<Long> ids);
+
+  /**
+   * Extends the leases an instance holds on its queued and running jobs.
+   *
+   * @param owner instance holding the leases
+   * @param ids ids of the jobs
+   * @param expiresAt new expiry time
+   * @return number of leases renewed; fewer than ids.size() if some were lost
+   */
+  @Transactional
+  @Modifying
+  @Query(
+      "update jobs j set j.leaseExpiresAt = :expiresAt"
+          + " where j.leaseOwner = :owner and j.id in :ids")
+  int renewLeases(
+      @Param("owner") String owner,
+      @Param("ids") Collection<Long> ids,
+      @Param("expiresAt") ZonedDateTime expiresAt);
+
+  /**
+   * Locks queued jobs that no instance has claimed yet, oldest first. Rows already locked by
+   * another instance's claim are skipped rather than waited for, so instances claiming at the same
+   * time get different jobs. The locks are held until the calling transaction ends, so the jobs
+   * must be claimed (see {@link #claimJobs}) in the same transaction.
+   *
+   * <p>The oldest jobs are picked by a subquery that doesn't lock, and only those rows are locked:
+   * H2 locks every row matching a {@code FOR UPDATE} query before applying its {@code LIMIT}, which
+   * would leave nothing for other instances. If some of the picked jobs are locked elsewhere, fewer
+   * than {@code limit} are returned, and the rest are picked up on the next claim.
+   *
+   * @param limit maximum number of jobs to lock
+   * @return ids of the locked jobs
+   */
+  @Query(
+      value =
+          """
+          SELECT id FROM jobs
+          WHERE id IN (
+            SELECT id FROM jobs
+            WHERE status = 'queued' AND type IS NOT NULL AND lease_owner IS NULL
+            ORDER BY id
+            LIMIT :limit)
+          AND status = 'queued' AND lease_owner IS NULL
+          ORDER BY id
+          FOR UPDATE SKIP LOCKED
+          """,
+      nativeQuery = true)
+  List<Long> lockUnclaimedJobIds(@Param("limit") int limit);
+
+  /**
+   * Gives an instance the lease on jobs that no instance has claimed yet.
+   *
+   * @param ids ids of the jobs, locked by {@link #lockUnclaimedJobIds}
+   * @param owner instance claiming the jobs
+   * @param expiresAt when the leases run out unless renewed
+   * @return number of jobs claimed
+   */
+  @Modifying
+  @Query(
+      "update jobs j set j.leaseOwner = :owner, j.leaseExpiresAt = :expiresAt"
+          + " where j.id in :ids and j.leaseOwner is null")
+  int claimJobs(
+      @Param("ids") Collection<Long> ids,
+      @Param("owner") String owner,
+      @Param("expiresAt") ZonedDateTime expiresAt);
+
+  /**
+   * Gives up an instance's lease on a job that it could not start, so that another instance can
+   * claim it.
+   *
+   * @param id id of the job
+   * @param owner instance holding the lease
+   * @return number of leases released
+   */
+  @Transactional
+  @Modifying
+  @Query(
+      "update jobs j set j.leaseOwner = null, j.leaseExpiresAt = null"
+          + " where j.id = :id and j.leaseOwner = :owner")
+  int releaseLease(@Param("id") long id, @Param("owner") String owner);
+
+  /**
+   * Cancels a queued job that no instance has claimed yet.
+   *
+   * @param id id of the job
+   * @return number of jobs cancelled
+   */
+  @Transactional
+  @Modifying
+  @Query(
+      "update jobs j set j.status = 'cancelled'"
+          + " where j.id = :id and j.status = 'queued' and j.leaseOwner is null")
+  int cancelUnclaimedJob(@Param("id") long id);
+
+  /**
+   * Queues jobs again whose lease has run out, i.e. jobs whose instance stopped or crashed while
+   * they were queued or running, so that any instance can claim them. Only jobs that can be run by
+   * any instance (with a type) and have been started fewer than maxAttempts times are queued
+   * again. A single conditional update, so it is safe for several instances to run it at once.
+   *
+   * @param statuses statuses of jobs that have not ended
+   * @param newStatus status to set
+   * @param maxAttempts only jobs started fewer times than this
+   * @param now current time
+   * @return number of jobs queued again
+   */
+  @Transactional
+  @Modifying
+  @Query(
+      "update jobs j set j.status = :newStatus, j.leaseOwner = null, j.leaseExpiresAt = null"
+          + " where j.status in :statuses"
+          + " and j.type is not null and j.attempts < :maxAttempts"
+          + " and j.leaseExpiresAt < :now")
+  int requeueJobsWithExpiredLeases(
+      @Param("statuses") Collection<String> statuses,
+      @Param("newStatus") String newStatus,
+      @Param("maxAttempts") int maxAttempts,
+      @Param("now") ZonedDateTime now);
+
+  /**
+   * Ends jobs whose lease has run out (or that never had one), i.e. jobs whose instance stopped
+   * or crashed while they were queued or running, and that cannot be queued again: jobs that only
+   * the instance that queued them could run (without a type), and jobs already started
+   * maxAttempts times. A single conditional update, so it is safe for several instances to run it
+   * at once.
+   *
+   * @param statuses statuses of jobs that have not ended
+   * @param newStatus status to set
+   * @param maxAttempts jobs with a type are only ended once started this many times
+   * @param now current time
+   * @return number of jobs ended
+   */
+  @Transactional
+  @Modifying
+  @Query(
+      "update jobs j set j.status = :newStatus, j.leaseOwner = null, j.leaseExpiresAt = null"
+          + " where j.status in :statuses"
+          + " and (j.type is null or j.attempts >= :maxAttempts)"
+          + " and (j.leaseExpiresAt is null or j.leaseExpiresAt < :now)")
+  int endJobsWithExpiredLeases(
+      @Param("statuses") Collection<String> statuses,
+      @Param("newStatus") String newStatus,
+      @Param("maxAttempts") int maxAttempts,
+      @Param("now") ZonedDateTime now);
+}
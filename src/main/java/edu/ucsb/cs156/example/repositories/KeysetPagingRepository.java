@@ -0,0 +1,32 @@
+package edu.ucsb.cs156.example.repositories;
+
+import jakarta.persistence.QueryHint;
+import java.util.stream.Stream;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.NoRepositoryBean;
+import org.springframework.data.repository.PagingAndSortingRepository;
+
+/**
+ * This is the base interface of the entity repositories: it adds sorting, paging and
+ * the specification queries used for keyset conditions (see ApiController.keysetPage)
+ * to the usual CrudRepository methods, and a streaming query for exporting a whole
+ * table (see EntityStreamService).
+ * @param <T> type of the entity
+ * @param <ID> type of the entity's id
+ */
+@NoRepositoryBean
+public interface KeysetPagingRepository<T, ID>
+    extends CrudRepository<T, ID>, PagingAndSortingRepository<T, ID>, JpaSpecificationExecutor<T> {
+  /**
+   * Streams all the entities, fetching rows from the database 500 at a time. The
+   * entities are read-only. Must be called inside a transaction, and the stream
+   * must be closed by the caller.
+   * @return stream of all the entities, in no particular order
+   */
+  @QueryHints({
+      @QueryHint(name = "org.hibernate.fetchSize", value = "500"),
+      @QueryHint(name = "org.hibernate.readOnly", value = "true") })
+  Stream<T> streamAllBy();
+}
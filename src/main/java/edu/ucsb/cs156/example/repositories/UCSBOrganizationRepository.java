@@ -3,13 +3,12 @@ package edu.ucsb.cs156.example.repositories;
 import edu.ucsb.cs156.example.entities.UCSBOrganization;
 
 import org.springframework.beans.propertyeditors.StringArrayPropertyEditor;
-import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
 
 /**
  * The UCSBOrganizationRepository is a repository for UCSBOrganization entities
  */
 @Repository
-public interface UCSBOrganizationRepository extends CrudRepository<UCSBOrganization, String> {
+public interface UCSBOrganizationRepository extends KeysetPagingRepository<UCSBOrganization, String> {
  
 }
\ No newline at end of file
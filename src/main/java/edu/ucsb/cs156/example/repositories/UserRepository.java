@@ -1,20 +1,51 @@
 package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.User;
-import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 /**
  * The UserRepository is a repository for User entities.
  */
 @Repository
-public interface UserRepository extends CrudRepository<User, Long> {
+public interface UserRepository extends KeysetPagingRepository<User, Long> {
   /**
    * This method returns a User entity with a given email.
    * @param email email address of the user
    * @return Optional of User (empty if not found)
    */
   Optional<User> findByEmail(String email);
+
+  /**
+   * This method counts the users whose email starts with a prefix.
+   * @param emailPrefix start of the email address
+   * @return number of users
+   */
+  long countByEmailStartingWith(String emailPrefix);
+
+  /**
+   * This method returns the emails of the users with the given ids.
+   * @param ids ids of the users
+   * @return their email addresses
+   */
+  @Query("select u.email from users u where u.id in :ids")
+  List<String> findEmailsByIdIn(@Param("ids") Collection<Long> ids);
+
+  /**
+   * This method sets or clears the admin flag of many users in a single statement.
+   * @param ids ids of the users
+   * @param admin new value of the admin flag
+   * @return number of users updated
+   */
+  @Transactional
+  @Modifying
+  @Query("update users u set u.admin = :admin where u.id in :ids")
+  int updateAdminByIdIn(@Param("ids") Collection<Long> ids, @Param("admin") boolean admin);
 }
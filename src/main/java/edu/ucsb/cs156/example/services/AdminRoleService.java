@@ -0,0 +1,75 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+
+import java.util.Optional;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * This is a service that decides whether a user is an admin.
+ *
+ * A user is an admin if their email is listed in app.admin.emails, or if their
+ * admin flag is set in the database. The database flag is read through UserCache,
+ * so a burst of logins (or requests) by the same users only queries the database
+ * once per user per cache TTL.
+ */
+@Service("adminRoles")
+public class AdminRoleService {
+
+  @Value("${app.admin.emails}")
+  private Set<String> adminEmails = Set.of();
+
+  @Autowired
+  private UserRepository userRepository;
+
+  @Autowired
+  private UserCache userCache;
+
+  @Autowired
+  private CurrentUserResponseCache currentUserResponseCache;
+
+  /**
+   * This method checks whether an email is listed in app.admin.emails.
+   * @param email email address of the user
+   * @return whether the email is a configured admin email
+   */
+  public boolean isAdminEmail(String email) {
+    return adminEmails.contains(email);
+  }
+
+  /**
+   * This method checks whether the user with a given email is an admin, either
+   * because the email is configured as an admin email or because the user's admin
+   * flag is set in the database.
+   * @param email email address of the user
+   * @return whether the user is an admin
+   */
+  public boolean isAdmin(String email) {
+    if (isAdminEmail(email)) {
+      return true;
+    }
+    User cached = userCache.get(email);
+    if (cached != null) {
+      return cached.getAdmin();
+    }
+    Optional<User> u = userRepository.findByEmail(email);
+    u.ifPresent(userCache::put);
+    return u.isPresent() && u.get().getAdmin();
+  }
+
+  /**
+   * This method must be called after a user's admin flag is changed in the database,
+   * so that the change takes effect on their next request rather than when the
+   * cache entry expires.
+   * @param email email address of the user
+   */
+  public void invalidate(String email) {
+    userCache.invalidate(email);
+    currentUserResponseCache.invalidate(email);
+  }
+}
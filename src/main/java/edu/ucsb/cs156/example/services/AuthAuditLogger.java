@@ -0,0 +1,56 @@
+package edu.ucsb.cs156.example.services;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * This is a service that writes authentication diagnostics to the "auth.audit" logger.
+ *
+ * A login is logged once, at INFO, when the OAuth login is mapped to authorities,
+ * i.e. once per session. Details that are available on every request (the current user,
+ * their authorities, their OAuth attributes) are only logged at DEBUG, so they cost
+ * nothing unless asked for with logging.level.auth.audit=DEBUG. A sample of them can
+ * also be logged at INFO by setting app.auth.audit.sampleRate (0 to 1).
+ *
+ * Entries are written as event=... key=value pairs so they are easy to search.
+ */
+@Slf4j(topic = "auth.audit")
+@Service("authAudit")
+public class AuthAuditLogger {
+
+  @Value("${app.auth.audit.sampleRate:0}")
+  private double sampleRate;
+
+  /**
+   * This method logs a login.
+   * @param email email address of the user (may be null for non-OAuth logins)
+   * @param authorities authorities granted to the user
+   * @param attributes attributes from the OAuth provider, logged at DEBUG only
+   */
+  public void login(String email, Collection<?> authorities, Map<String, Object> attributes) {
+    log.info("event=login email={} authorities={}", email, authorities);
+    log.debug("event=login email={} attributes={}", email, attributes);
+  }
+
+  /**
+   * This method logs a per-request detail at DEBUG, or at INFO for a sample of requests.
+   * The detail is only computed if it is logged.
+   * @param event name of the event
+   * @param detail supplies the detail to log
+   */
+  public void detail(String event, Supplier<?> detail) {
+    if (log.isDebugEnabled()) {
+      log.debug("event={} {}", event, detail.get());
+    } else if (sampleRate > 0 && log.isInfoEnabled()
+        && ThreadLocalRandom.current().nextDouble() < sampleRate) {
+      log.info("event={} sampled=true {}", event, detail.get());
+    }
+  }
+}
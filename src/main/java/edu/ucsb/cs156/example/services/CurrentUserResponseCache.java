@@ -0,0 +1,105 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.models.CurrentUser;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * This is a short lived cache of the /api/currentUser response, keyed by the name
+ * of the logged in principal, together with an ETag computed from its JSON.
+ *
+ * The frontend asks for the current user on nearly every page load; with this cache
+ * those requests neither rebuild the CurrentUser nor touch the database, and a client
+ * that sends the ETag back in If-None-Match gets a 304 with no body.
+ *
+ * An entry is only used while the request's authorities are the ones it was built
+ * with, so a new login with different roles is seen at once. Entries expire after
+ * app.users.currentUser.ttlSeconds; AdminRoleService.invalidate drops a user's
+ * entries when their admin flag changes.
+ */
+@Service("currentUserResponses")
+public class CurrentUserResponseCache {
+
+  @Autowired
+  private ObjectMapper mapper;
+
+  @Value("${app.users.currentUser.ttlSeconds:30}")
+  private long ttlSeconds;
+
+  @Value("${app.users.cache.maxSize:10000}")
+  private int maxSize;
+
+  private Clock clock = Clock.systemUTC();
+
+  private final Map<String, Entry> responses = new LinkedHashMap<>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+      return size() > maxSize;
+    }
+  };
+
+  /**
+   * A cached current user and the ETag of its JSON.
+   * @param currentUser the current user
+   * @param etag quoted ETag value
+   */
+  public record Response(CurrentUser currentUser, String etag) {}
+
+  private record Entry(Response response, Collection<? extends GrantedAuthority> authorities, long expiresAt) {}
+
+  /**
+   * This method returns the cached response for the logged in principal, building
+   * and caching it first if there is none.
+   * @param build builds the current user, e.g. CurrentUserService::getCurrentUser
+   * @return the current user and its ETag
+   */
+  public Response get(Supplier<CurrentUser> build) {
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    String key = authentication.getName();
+    synchronized (this) {
+      Entry entry = responses.get(key);
+      if (entry != null && clock.millis() < entry.expiresAt()
+          && entry.authorities().equals(authentication.getAuthorities())) {
+        return entry.response();
+      }
+    }
+
+    // built outside the lock, as it may query the database
+    CurrentUser currentUser = build.get();
+    String json = mapper.valueToTree(currentUser).toString();
+    Response response = new Response(currentUser,
+        "\"" + DigestUtils.md5DigestAsHex(json.getBytes(StandardCharsets.UTF_8)) + "\"");
+    synchronized (this) {
+      responses.put(key, new Entry(response, authentication.getAuthorities(), clock.millis() + ttlSeconds * 1000));
+    }
+    return response;
+  }
+
+  /**
+   * This method drops the cached responses for a user, e.g. after their admin flag changes.
+   * Responses without a user (an anonymous principal) are kept.
+   * @param email email address of the user
+   */
+  public synchronized void invalidate(String email) {
+    responses.values().removeIf(entry -> {
+      User user = entry.response().currentUser().getUser();
+      return user != null && email.equals(user.getEmail());
+    });
+  }
+}
@@ -5,14 +5,12 @@ import edu.ucsb.cs156.example.models.CurrentUser;
 import edu.ucsb.cs156.example.repositories.UserRepository;
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.List;
 import java.util.Optional;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Primary;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContext;
@@ -37,8 +35,14 @@ public class CurrentUserServiceImpl extends CurrentUserService {
   @Autowired
   GrantedAuthoritiesService grantedAuthoritiesService;
 
-  @Value("${app.admin.emails}")
-  final private List<String> adminEmails = new ArrayList<String>();
+  @Autowired
+  private UserCache userCache;
+
+  @Autowired
+  private AdminRoleService adminRoleService;
+
+  @Autowired
+  private AuthAuditLogger authAudit;
 
   /**
    * This method returns the current user as a User object.
@@ -49,7 +53,7 @@ public class CurrentUserServiceImpl extends CurrentUserService {
       .user(this.getUser())
       .roles(this.getRoles())
       .build();
-    log.info("getCurrentUser returns {}",cu);
+    authAudit.detail("currentUser", () -> cu);
     return cu;
   }
 
@@ -59,6 +63,9 @@ public class CurrentUserServiceImpl extends CurrentUserService {
    * 
    * This method also has a side effect of storing the user in the database if they are not already there.
    * 
+   * The user is cached (see UserCache), so after the first request following login
+   * this does not touch the database.
+   * 
    * @param securityContext the security context (provided by Spring)
    * @param authentication the authentication token (provided by Spring)
    * @return the User object representing the current user
@@ -67,6 +74,12 @@ public class CurrentUserServiceImpl extends CurrentUserService {
   public User getOAuth2AuthenticatedUser(SecurityContext securityContext, Authentication authentication) {
     OAuth2User oAuthUser = ((OAuth2AuthenticationToken) authentication).getPrincipal();
     String email = oAuthUser.getAttribute("email");
+
+    User cached = userCache.get(email);
+    if (cached != null) {
+      return cached;
+    }
+
     String googleSub = oAuthUser.getAttribute("sub");
     String pictureUrl = oAuthUser.getAttribute("picture");
     String fullName = oAuthUser.getAttribute("name");
@@ -76,16 +89,18 @@ public class CurrentUserServiceImpl extends CurrentUserService {
     String locale = oAuthUser.getAttribute("locale");
     String hostedDomain = oAuthUser.getAttribute("hd");
 
-    java.util.Map<java.lang.String,java.lang.Object> attrs = oAuthUser.getAttributes();
-    log.info("attrs={}",attrs);
+    authAudit.detail("oauthAttributes", () -> "email=" + email + " attributes=" + oAuthUser.getAttributes());
 
-    Optional<User> ou = userRepository.findByEmail(email);
+    // a signed session cookie carries the user's id (see SessionTokenCodec)
+    Long userId = oAuthUser.getAttribute(SessionTokenCodec.USER_ID);
+    Optional<User> ou = userId != null ? userRepository.findById(userId) : userRepository.findByEmail(email);
     if (ou.isPresent()) {
       User u = ou.get();
-      if (adminEmails.contains(email) && !u.getAdmin()) {
+      if (adminRoleService.isAdminEmail(email) && !u.getAdmin()) {
         u.setAdmin(true);
         userRepository.save(u);
       }
+      userCache.put(u);
       return u;
     }
 
@@ -99,9 +114,16 @@ public class CurrentUserServiceImpl extends CurrentUserService {
         .emailVerified(emailVerified)
         .locale(locale)
         .hostedDomain(hostedDomain)
-        .admin(adminEmails.contains(email))
+        .admin(adminRoleService.isAdminEmail(email))
         .build();
-    userRepository.save(u);
+    try {
+      userRepository.save(u);
+    } catch (DataIntegrityViolationException e) {
+      // another request logged the same user in first (e.g. two tabs at once);
+      // the unique index on email rejected our copy, so use theirs
+      u = userRepository.findByEmail(email).orElseThrow(() -> e);
+    }
+    userCache.put(u);
     return u;
   }
 
@@ -0,0 +1,292 @@
+package edu.ucsb.cs156.example.services;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * This is a service that exports a whole table as CSV or NDJSON (one JSON object
+ * per line), for analytics and other bulk consumers.
+ *
+ * Rows are read with plain JDBC through a cursor (a batch of FETCH_SIZE rows at a
+ * time) and each column value is written straight to the response, without
+ * building entities, so the export is both faster than /all and runs in constant
+ * memory. The response is gzip-compressed when the client accepts it.
+ */
+@Service
+public class EntityExportService {
+
+  /** The CSV media type, text/csv with UTF-8 */
+  public static final MediaType TEXT_CSV = new MediaType("text", "csv", StandardCharsets.UTF_8);
+
+  static final int FETCH_SIZE = 500;
+
+  private static final int BUFFER_SIZE = 8192;
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  @Autowired
+  private ObjectMapper mapper;
+
+  /**
+   * This describes a table to export: its name, and the entity properties to
+   * export, in order. The first property is the id, which the rows are sorted by.
+   * Property names are also the CSV headers and NDJSON field names (the same as in
+   * the JSON of /all); the column of a property is its snake_case name, as in the
+   * database (e.g. itemId is in column item_id).
+   * @param table name of the table
+   * @param properties names of the properties to export
+   */
+  public record ExportTable(String table, List<String> properties) {
+
+    /**
+     * @param table name of the table
+     * @param properties names of the properties to export, id first
+     * @return the table
+     */
+    public static ExportTable of(String table, String... properties) {
+      return new ExportTable(table, List.of(properties));
+    }
+
+    String select() {
+      List<String> columns = properties.stream().map(ExportTable::column).toList();
+      return "SELECT " + String.join(", ", columns) + " FROM " + table + " ORDER BY " + columns.get(0);
+    }
+
+    // the same mapping as Spring's CamelCaseToUnderscoresNamingStrategy
+    static String column(String property) {
+      StringBuilder column = new StringBuilder(property);
+      for (int i = 1; i < column.length() - 1; i++) {
+        if (Character.isLowerCase(column.charAt(i - 1))
+            && Character.isUpperCase(column.charAt(i))
+            && Character.isLowerCase(column.charAt(i + 1))) {
+          column.insert(i++, '_');
+        }
+      }
+      return column.toString().toLowerCase(Locale.ROOT);
+    }
+  }
+
+  /** The formats a table can be exported in */
+  public enum Format {
+    CSV(TEXT_CSV, "csv"),
+    NDJSON(MediaType.APPLICATION_NDJSON, "ndjson");
+
+    private final MediaType mediaType;
+    private final String extension;
+
+    Format(MediaType mediaType, String extension) {
+      this.mediaType = mediaType;
+      this.extension = extension;
+    }
+  }
+
+  /**
+   * This method returns a response that streams all the rows of a table in the
+   * given format.
+   * @param table table to export
+   * @param format csv or ndjson (case insensitive)
+   * @param acceptEncoding Accept-Encoding header of the request (may be null); the
+   * response is gzip-compressed if it accepts gzip
+   * @return the response, to be returned from the controller
+   * @throws ResponseStatusException (400) if the format is not supported
+   */
+  public ResponseEntity<StreamingResponseBody> export(ExportTable table, String format, String acceptEncoding) {
+    Format exportFormat = parseFormat(format);
+    boolean gzip = acceptsGzip(acceptEncoding);
+    TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+    transaction.setReadOnly(true);
+
+    StreamingResponseBody body = out -> {
+      OutputStream target = gzip ? new GZIPOutputStream(out, BUFFER_SIZE) : out;
+      // the transaction keeps the connection out of autocommit, which the driver
+      // needs to fetch the rows in batches rather than all at once
+      transaction.executeWithoutResult(status -> write(table, exportFormat, target));
+      if (gzip) {
+        ((GZIPOutputStream) target).finish();
+      }
+    };
+
+    ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+        .contentType(exportFormat.mediaType)
+        .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+            .filename(table.table() + "." + exportFormat.extension).build().toString())
+        .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+    if (gzip) {
+      response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+    }
+    return response.body(body);
+  }
+
+  private void write(ExportTable table, Format format, OutputStream out) {
+    try {
+      RowWriter writer = format == Format.CSV ? new CsvRowWriter(out) : new NdjsonRowWriter(mapper, out);
+      writer.start(table.properties());
+      jdbcTemplate.query(con -> {
+        PreparedStatement statement = con.prepareStatement(table.select());
+        statement.setFetchSize(FETCH_SIZE);
+        return statement;
+      }, rs -> {
+        try {
+          writer.row(table.properties(), rs);
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+      writer.finish();
+    } catch (IOException e) {
+      // e.g. the client went away; ends the transaction (and the query) early
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  static Format parseFormat(String format) {
+    for (Format f : Format.values()) {
+      if (f.name().equalsIgnoreCase(format)) {
+        return f;
+      }
+    }
+    throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+        "Unsupported format %s, expected one of csv, ndjson".formatted(format));
+  }
+
+  /**
+   * @param acceptEncoding value of an Accept-Encoding header, e.g. "gzip, deflate, br"
+   * @return whether it accepts gzip, i.e. lists gzip (or *) without q=0
+   */
+  static boolean acceptsGzip(String acceptEncoding) {
+    if (acceptEncoding == null) {
+      return false;
+    }
+    for (String coding : acceptEncoding.split(",")) {
+      String[] parts = coding.split(";");
+      String name = parts[0].trim();
+      if (name.equalsIgnoreCase("gzip") || name.equals("*")) {
+        return parts.length == 1 || !parts[1].replace(" ", "").matches("q=0(\\.0*)?");
+      }
+    }
+    return false;
+  }
+
+  // the value of a column as written out: timestamps in ISO format, as in the JSON of /all
+  static Object value(ResultSet rs, int column) throws SQLException {
+    Object value = rs.getObject(column);
+    if (value instanceof Timestamp timestamp) {
+      return DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(timestamp.toLocalDateTime());
+    }
+    return value;
+  }
+
+  private interface RowWriter {
+    void start(List<String> properties) throws IOException;
+
+    void row(List<String> properties, ResultSet rs) throws IOException, SQLException;
+
+    void finish() throws IOException;
+  }
+
+  // RFC 4180: comma separated, CRLF line breaks, fields with a comma, quote or line
+  // break are quoted, with quotes doubled; nulls are empty fields
+  private static class CsvRowWriter implements RowWriter {
+    private final Writer writer;
+
+    CsvRowWriter(OutputStream out) {
+      writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    @Override
+    public void start(List<String> properties) throws IOException {
+      writer.write(properties.stream().map(CsvRowWriter::field).collect(Collectors.joining(",")));
+      writer.write("\r\n");
+    }
+
+    @Override
+    public void row(List<String> properties, ResultSet rs) throws IOException, SQLException {
+      for (int i = 1; i <= properties.size(); i++) {
+        if (i > 1) {
+          writer.write(',');
+        }
+        Object value = value(rs, i);
+        if (value != null) {
+          writer.write(field(value.toString()));
+        }
+      }
+      writer.write("\r\n");
+    }
+
+    @Override
+    public void finish() throws IOException {
+      writer.flush();
+    }
+
+    static String field(String value) {
+      if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+        return value;
+      }
+      return '"' + value.replace("\"", "\"\"") + '"';
+    }
+  }
+
+  private static class NdjsonRowWriter implements RowWriter {
+    private final JsonGenerator json;
+
+    NdjsonRowWriter(ObjectMapper mapper, OutputStream out) throws IOException {
+      json = mapper.getFactory().createGenerator(out);
+      json.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+      json.setRootValueSeparator(null);
+    }
+
+    @Override
+    public void start(List<String> properties) {
+    }
+
+    @Override
+    public void row(List<String> properties, ResultSet rs) throws IOException, SQLException {
+      json.writeStartObject();
+      for (int i = 1; i <= properties.size(); i++) {
+        json.writeFieldName(properties.get(i - 1));
+        json.writeObject(value(rs, i));
+      }
+      json.writeEndObject();
+      json.writeRaw('\n');
+    }
+
+    @Override
+    public void finish() throws IOException {
+      json.close();
+    }
+  }
+}
@@ -0,0 +1,468 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.errors.JobQueueFullException;
+import edu.ucsb.cs156.example.jobs.ImportJob;
+import edu.ucsb.cs156.example.models.ImportReport;
+import edu.ucsb.cs156.example.services.EntityExportService.ExportTable;
+import edu.ucsb.cs156.example.services.jobs.JobService;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * This is a service that imports rows into a table in bulk, from CSV (with a header
+ * line), NDJSON (one JSON object per line) or a JSON array of objects; files
+ * exported with EntityExportService can be imported as they are.
+ *
+ * Each row is validated (required values, types, string lengths); invalid rows are
+ * skipped and listed in the ImportReport, valid rows are inserted with plain JDBC
+ * in batches of app.import.batchSize, all in one transaction. The input is read
+ * as a stream, so the file is never held in memory.
+ *
+ * Requests with a body of at most app.import.syncMaxBytes are imported while the
+ * client waits; larger ones (or ones of unknown length) are saved to a temporary
+ * file and imported by a job (see ImportJob), whose log holds the report.
+ */
+@Service
+public class EntityImportService {
+
+  /** At most this many rejected rows are listed in a report */
+  public static final int MAX_ERRORS = 1000;
+
+  static final int MAX_STRING_LENGTH = 255;
+
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  @Autowired
+  private ObjectMapper mapper;
+
+  @Autowired
+  private JobService jobService;
+
+  @Value("${app.import.batchSize:500}")
+  private int batchSize;
+
+  @Value("${app.import.syncMaxBytes:1048576}")
+  private long syncMaxBytes;
+
+  // where bodies imported by a job are saved until the job has run
+  @Value("${app.import.dir:${java.io.tmpdir}}")
+  private Path importDir;
+
+  /** The types of the values that can be imported */
+  public enum ColumnType {
+    STRING(Types.VARCHAR, "at most " + MAX_STRING_LENGTH + " characters long", text -> {
+      if (text.length() > MAX_STRING_LENGTH) {
+        throw new IllegalArgumentException();
+      }
+      return text;
+    }),
+    LONG(Types.BIGINT, "a whole number", Long::valueOf),
+    INTEGER(Types.INTEGER, "a whole number", Integer::valueOf),
+    DOUBLE(Types.DOUBLE, "a number", Double::valueOf),
+    BOOLEAN(Types.BOOLEAN, "true or false", text -> {
+      if (!text.equalsIgnoreCase("true") && !text.equalsIgnoreCase("false")) {
+        throw new IllegalArgumentException();
+      }
+      return Boolean.valueOf(text);
+    }),
+    DATETIME(Types.TIMESTAMP, "an ISO date and time, e.g. 2024-01-08T09:00:00",
+        text -> Timestamp.valueOf(LocalDateTime.parse(text)));
+
+    private final int sqlType;
+    private final String expected;
+    private final Function<String, Object> parser;
+
+    ColumnType(int sqlType, String expected, Function<String, Object> parser) {
+      this.sqlType = sqlType;
+      this.expected = expected;
+      this.parser = parser;
+    }
+  }
+
+  /**
+   * This describes a property to import.
+   * @param property name of the property (the CSV header or JSON field name)
+   * @param type type of its values
+   * @param required whether rows without a value are rejected
+   */
+  public record ImportColumn(String property, ColumnType type, boolean required) {
+
+    /**
+     * @param property name of the property
+     * @param type type of its values
+     * @return a column that every row must have a value for
+     */
+    public static ImportColumn required(String property, ColumnType type) {
+      return new ImportColumn(property, type, true);
+    }
+
+    /**
+     * @param property name of the property
+     * @param type type of its values
+     * @return a column whose value may be left out (imported as null)
+     */
+    public static ImportColumn optional(String property, ColumnType type) {
+      return new ImportColumn(property, type, false);
+    }
+  }
+
+  /**
+   * This describes a table to import into: its name, and the properties to import.
+   * Other properties in the input (e.g. a generated id) are ignored. As in
+   * ExportTable, the column of a property is its snake_case name.
+   * @param table name of the table
+   * @param columns properties to import
+   */
+  public record ImportTable(String table, List<ImportColumn> columns) {
+
+    /**
+     * @param table name of the table
+     * @param columns properties to import
+     * @return the table
+     */
+    public static ImportTable of(String table, ImportColumn... columns) {
+      return new ImportTable(table, List.of(columns));
+    }
+
+    String insert() {
+      return "INSERT INTO " + table + " ("
+          + columns.stream().map(c -> ExportTable.column(c.property())).collect(Collectors.joining(", "))
+          + ") VALUES (" + columns.stream().map(c -> "?").collect(Collectors.joining(", ")) + ")";
+    }
+
+    int[] sqlTypes() {
+      return columns.stream().mapToInt(c -> c.type().sqlType).toArray();
+    }
+  }
+
+  /** The formats that can be imported */
+  public enum Format {
+    CSV(EntityExportService.TEXT_CSV),
+    NDJSON(MediaType.APPLICATION_NDJSON),
+    JSON(MediaType.APPLICATION_JSON);
+
+    private final MediaType mediaType;
+
+    Format(MediaType mediaType) {
+      this.mediaType = mediaType;
+    }
+
+    /**
+     * @param contentType Content-Type of the input, e.g. text/csv
+     * @return the format of the input
+     * @throws ResponseStatusException (415) if the content type is not supported
+     */
+    public static Format of(String contentType) {
+      if (contentType != null) {
+        for (Format format : values()) {
+          if (format.mediaType.isCompatibleWith(MediaType.parseMediaType(contentType))) {
+            return format;
+          }
+        }
+      }
+      throw new ResponseStatusException(HttpStatus.UNSUPPORTED_MEDIA_TYPE,
+          "Unsupported content type %s, expected text/csv, application/x-ndjson or application/json"
+              .formatted(contentType));
+    }
+  }
+
+  /**
+   * This method imports the body of a request: right away if it is small, otherwise
+   * as a job.
+   * @param table table to import into
+   * @param contentType Content-Type of the body
+   * @param contentLength length of the body in bytes, or -1 if unknown
+   * @param body the body
+   * @return 200 with the ImportReport, or 202 with the Job importing the rows
+   * @throws IOException if the body cannot be saved for the job
+   * @throws ResponseStatusException (400) if the body is malformed, or cannot be
+   * inserted (e.g. a duplicate key); nothing is imported then
+   */
+  public ResponseEntity<Object> importBody(ImportTable table, String contentType, long contentLength,
+      InputStream body) throws IOException {
+    Format format = Format.of(contentType);
+    if (contentLength >= 0 && contentLength <= syncMaxBytes) {
+      try {
+        return ResponseEntity.ok(importRows(table, format, body, () -> { }));
+      } catch (DataAccessException e) {
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+            "Import failed, nothing was imported: " + e.getMostSpecificCause().getMessage());
+      }
+    }
+
+    Path file = Files.createTempFile(importDir, "import-" + table.table() + "-", "." + format.name().toLowerCase());
+    try {
+      Files.copy(body, file, StandardCopyOption.REPLACE_EXISTING);
+      ImportJob job = ImportJob.builder().importService(this).table(table).format(format).file(file).build();
+      return ResponseEntity.accepted().body(jobService.runAsJob(job));
+    } catch (IOException | JobQueueFullException e) {
+      Files.deleteIfExists(file);
+      throw e;
+    }
+  }
+
+  /**
+   * This method imports rows, in one transaction.
+   * @param table table to import into
+   * @param format format of the input
+   * @param in the input
+   * @param afterBatch called after each batch of rows is inserted (e.g. to stop a
+   * cancelled job by throwing an exception, which rolls back the import)
+   * @return the report
+   * @throws ResponseStatusException (400) if the input is malformed
+   */
+  public ImportReport importRows(ImportTable table, Format format, InputStream in, Runnable afterBatch) {
+    TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+    return transaction.execute(status -> {
+      try {
+        return importRows(table, rowReader(format, in), afterBatch);
+      } catch (IOException e) {
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Could not read the input: " + e.getMessage());
+      }
+    });
+  }
+
+  private ImportReport importRows(ImportTable table, RowReader rows, Runnable afterBatch) {
+    String insert = table.insert();
+    int[] sqlTypes = table.sqlTypes();
+    List<Object[]> batch = new ArrayList<>(batchSize);
+    List<ImportReport.RowError> errors = new ArrayList<>();
+    long rowsRead = 0;
+    long rowsImported = 0;
+    long rowsRejected = 0;
+
+    while (true) {
+      Map<String, String> values;
+      try {
+        values = rows.next();
+      } catch (RowException e) {
+        rowsRead++;
+        rowsRejected++;
+        addError(errors, rowsRead, e.getMessage());
+        continue;
+      } catch (IOException e) {
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+            "Could not read row %d: %s".formatted(rowsRead + 1, e.getMessage()));
+      }
+      if (values == null) {
+        break;
+      }
+      rowsRead++;
+
+      List<String> problems = new ArrayList<>();
+      Object[] args = new Object[table.columns().size()];
+      for (int i = 0; i < args.length; i++) {
+        ImportColumn column = table.columns().get(i);
+        String text = values.get(column.property());
+        if (text == null || (column.type() != ColumnType.STRING && text.isBlank())) {
+          if (column.required()) {
+            problems.add(column.property() + " is required");
+          }
+          continue;
+        }
+        try {
+          args[i] = column.type().parser.apply(column.type() == ColumnType.STRING ? text : text.strip());
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+          problems.add("%s must be %s".formatted(column.property(), column.type().expected));
+        }
+      }
+      if (!problems.isEmpty()) {
+        rowsRejected++;
+        addError(errors, rowsRead, String.join("; ", problems));
+        continue;
+      }
+
+      batch.add(args);
+      if (batch.size() == batchSize) {
+        rowsImported += insert(insert, batch, sqlTypes);
+        afterBatch.run();
+      }
+    }
+    rowsImported += insert(insert, batch, sqlTypes);
+
+    return ImportReport.builder()
+        .rowsRead(rowsRead)
+        .rowsImported(rowsImported)
+        .rowsRejected(rowsRejected)
+        .errors(errors)
+        .build();
+  }
+
+  private int insert(String insert, List<Object[]> batch, int[] sqlTypes) {
+    int rows = batch.size();
+    if (rows > 0) {
+      jdbcTemplate.batchUpdate(insert, batch, sqlTypes);
+      batch.clear();
+    }
+    return rows;
+  }
+
+  private static void addError(List<ImportReport.RowError> errors, long row, String message) {
+    if (errors.size() < MAX_ERRORS) {
+      errors.add(new ImportReport.RowError(row, message));
+    }
+  }
+
+  // a row that can be skipped, e.g. a JSON value that is not an object
+  private static class RowException extends RuntimeException {
+    RowException(String message) {
+      super(message);
+    }
+  }
+
+  private interface RowReader {
+    /**
+     * @return the values of the next row, by property name, or null at the end
+     * @throws RowException if the row is invalid, but the next one can be read
+     * @throws IOException if the input is malformed or cannot be read
+     */
+    Map<String, String> next() throws IOException;
+  }
+
+  private RowReader rowReader(Format format, InputStream in) throws IOException {
+    if (format == Format.CSV) {
+      return new CsvRowReader(new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8)));
+    }
+    MappingIterator<JsonNode> values = mapper.readerFor(JsonNode.class).readValues(in);
+    return () -> {
+      if (!values.hasNextValue()) {
+        return null;
+      }
+      JsonNode node = values.nextValue();
+      if (!node.isObject()) {
+        throw new RowException("expected a JSON object");
+      }
+      Map<String, String> row = new HashMap<>();
+      for (Map.Entry<String, JsonNode> field : node.properties()) {
+        JsonNode value = field.getValue();
+        if (value.isContainerNode()) {
+          throw new RowException(field.getKey() + " must be a single value");
+        }
+        row.put(field.getKey(), value.isNull() ? null : value.asText());
+      }
+      return row;
+    };
+  }
+
+  // RFC 4180, as written by EntityExportService: the first record is the header;
+  // an empty unquoted field is null, and blank lines are skipped
+  static class CsvRowReader implements RowReader {
+    private final BufferedReader in;
+    private List<String> header;
+
+    CsvRowReader(BufferedReader in) {
+      this.in = in;
+    }
+
+    @Override
+    public Map<String, String> next() throws IOException {
+      if (header == null) {
+        header = nextRecord();
+        if (header == null) {
+          return null;
+        }
+        header.replaceAll(name -> name == null ? "" : name.strip());
+        header.set(0, header.get(0).replace("\uFEFF", "")); // byte order mark, from e.g. Excel
+      }
+      List<String> fields = nextRecord();
+      if (fields == null) {
+        return null;
+      }
+      Map<String, String> row = new HashMap<>();
+      for (int i = 0; i < fields.size() && i < header.size(); i++) {
+        row.put(header.get(i), fields.get(i));
+      }
+      return row;
+    }
+
+    // the fields of the next non-blank record, or null at the end of the input
+    List<String> nextRecord() throws IOException {
+      List<String> fields;
+      do {
+        fields = readRecord();
+      } while (fields != null && fields.size() == 1 && fields.get(0) == null);
+      return fields;
+    }
+
+    private List<String> readRecord() throws IOException {
+      List<String> fields = new ArrayList<>();
+      StringBuilder field = new StringBuilder();
+      boolean quoted = false;
+      boolean inQuotes = false;
+      int c = in.read();
+      if (c == -1) {
+        return null;
+      }
+      for (; c != -1; c = in.read()) {
+        if (inQuotes) {
+          if (c != '"') {
+            field.append((char) c);
+            continue;
+          }
+          in.mark(1);
+          if (in.read() == '"') {
+            field.append('"');
+          } else {
+            in.reset();
+            inQuotes = false;
+          }
+        } else if (c == '"' && field.length() == 0) {
+          inQuotes = true;
+          quoted = true;
+        } else if (c == ',' || c == '\n') {
+          fields.add(quoted || field.length() > 0 ? field.toString() : null);
+          field.setLength(0);
+          quoted = false;
+          if (c == '\n') {
+            return fields;
+          }
+        } else if (c != '\r') {
+          field.append((char) c);
+        }
+      }
+      if (inQuotes) {
+        throw new EOFException("unterminated quoted field");
+      }
+      fields.add(quoted || field.length() > 0 ? field.toString() : null);
+      return fields;
+    }
+  }
+}
@@ -0,0 +1,78 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.repositories.KeysetPagingRepository;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * This is a service that writes out a whole table as a JSON array while it is
+ * being read, for exports that are too large to load into memory at once.
+ *
+ * Rows are read through a streaming query (KeysetPagingRepository.streamAllBy),
+ * fetched from the database a batch at a time, and each entity is serialized
+ * straight to the response and then detached, so neither the list of entities nor
+ * the response body is ever held in memory: exporting a million rows uses as
+ * little heap as exporting a thousand.
+ *
+ * The query runs in its own read-only transaction on the thread that writes the
+ * response, which is needed for the driver to fetch rows in batches.
+ */
+@Service
+public class EntityStreamService {
+
+  @Autowired
+  private ObjectMapper mapper;
+
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  /**
+   * This method returns a response that streams all the entities of a repository
+   * as a JSON array, in the same format as findAll.
+   * @param <T> type of the entity
+   * @param repository repository of the entities
+   * @return the response, to be returned from the controller
+   */
+  public <T> ResponseEntity<StreamingResponseBody> streamAll(KeysetPagingRepository<T, ?> repository) {
+    TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+    transaction.setReadOnly(true);
+    StreamingResponseBody body = out -> transaction.executeWithoutResult(status -> {
+      try (Stream<T> rows = repository.streamAllBy();
+          JsonGenerator json = mapper.getFactory().createGenerator(out)) {
+        json.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+        json.writeStartArray();
+        Iterator<T> it = rows.iterator();
+        while (it.hasNext()) {
+          T row = it.next();
+          json.writeObject(row);
+          entityManager.detach(row);
+        }
+        json.writeEndArray();
+      } catch (IOException e) {
+        // e.g. the client went away; ends the transaction (and the query) early
+        throw new UncheckedIOException(e);
+      }
+    });
+    return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+  }
+}
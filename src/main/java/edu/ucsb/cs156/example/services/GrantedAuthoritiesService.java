@@ -6,18 +6,19 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import lombok.extern.slf4j.Slf4j;
-
 /**
  * The is a service that retrieves and logs the granted authorities for the
  * current user's authentication.
  */
-@Slf4j
 @Service("grantedAuthorities")
 public class GrantedAuthoritiesService {
 
+    @Autowired
+    private AuthAuditLogger authAudit;
+
     /**
      * The function retrieves and logs the granted authorities from the current security context in a
      * Java application.
@@ -28,7 +29,7 @@ public class GrantedAuthoritiesService {
         SecurityContext securityContext = SecurityContextHolder.getContext();
         Authentication authentication = securityContext.getAuthentication();
         Collection<? extends GrantedAuthority> authorities = authentication.getAuthorities();
-        log.info("authorities={}", authorities);
+        authAudit.detail("authorities", () -> authorities);
         return authorities;
     }
 
@@ -0,0 +1,171 @@
+package edu.ucsb.cs156.example.services;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+import org.springframework.security.oauth2.core.user.DefaultOAuth2User;
+import org.springframework.security.oauth2.core.user.OAuth2User;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * This class turns an OAuth2 login into a compact signed token, and back.
+ *
+ * The token is base64url(JSON payload) + "." + base64url(HMAC-SHA256 of the payload).
+ * The payload holds the OAuth registration id, the roles, the expiry time, the database
+ * id of the user, and the OAuth attributes the app reads (email, sub, name, ...), so a
+ * request carrying the token can be authenticated by any instance without a session or
+ * a database lookup. The user id comes back as the {@link #USER_ID} attribute.
+ *
+ * Roles are fixed when the token is issued; a change to a user's admin flag takes
+ * effect when they next log in, or when the token expires.
+ */
+@Slf4j
+public class SessionTokenCodec {
+
+  /** OAuth attributes copied into the token; CurrentUserServiceImpl reads these */
+  static final List<String> ATTRIBUTES = List.of(
+      "sub", "email", "email_verified", "name", "given_name", "family_name",
+      "picture", "locale", "hd");
+
+  /** attribute of a decoded login that holds the user's database id, if the token had one */
+  public static final String USER_ID = "userId";
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  private final SecretKeySpec key;
+
+  private final String algorithm;
+
+  private final Duration ttl;
+
+  private final Clock clock;
+
+  /**
+   * @param secret signing secret; at least 32 bytes
+   * @param ttl how long a token stays valid
+   * @param clock source of the current time
+   */
+  public SessionTokenCodec(String secret, Duration ttl, Clock clock) {
+    this(secret, ttl, clock, "HmacSHA256");
+  }
+
+  SessionTokenCodec(String secret, Duration ttl, Clock clock, String algorithm) {
+    if (secret == null || secret.getBytes(StandardCharsets.UTF_8).length < 32) {
+      throw new IllegalArgumentException("Session signing key must be at least 32 bytes");
+    }
+    this.key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), algorithm);
+    this.algorithm = algorithm;
+    this.ttl = ttl;
+    this.clock = clock;
+  }
+
+  /**
+   * @return how long a token stays valid
+   */
+  public Duration getTtl() {
+    return ttl;
+  }
+
+  /**
+   * This method issues a token for a logged in user.
+   * @param authentication the user's OAuth2 authentication
+   * @param userId the user's id in the database, or null if not known
+   * @return the token
+   */
+  public String encode(OAuth2AuthenticationToken authentication, Long userId) {
+    Map<String, Object> attributes = new LinkedHashMap<>();
+    for (String name : ATTRIBUTES) {
+      Object value = authentication.getPrincipal().getAttribute(name);
+      if (value != null) {
+        attributes.put(name, value);
+      }
+    }
+    attributes.putIfAbsent("sub", authentication.getName());
+
+    Map<String, Object> payload = new LinkedHashMap<>();
+    payload.put("reg", authentication.getAuthorizedClientRegistrationId());
+    payload.put("roles", AuthorityUtils.authorityListToSet(authentication.getAuthorities()));
+    payload.put("exp", clock.instant().plus(ttl).getEpochSecond());
+    if (userId != null) {
+      payload.put("uid", userId);
+    }
+    payload.put("attrs", attributes);
+
+    String body =
+        base64(MAPPER.valueToTree(payload).toString().getBytes(StandardCharsets.UTF_8));
+    return body + "." + base64(sign(body));
+  }
+
+  /**
+   * This method checks a token and rebuilds the login it was issued for.
+   * @param token the token
+   * @return the authentication, or null if the token is malformed, forged or expired
+   */
+  public OAuth2AuthenticationToken decode(String token) {
+    int dot = token.indexOf('.');
+    if (dot < 0) {
+      return null;
+    }
+    String body = token.substring(0, dot);
+    try {
+      byte[] signature = Base64.getUrlDecoder().decode(token.substring(dot + 1));
+      if (!MessageDigest.isEqual(signature, sign(body))) {
+        return null;
+      }
+      Payload payload = MAPPER.readValue(Base64.getUrlDecoder().decode(body), Payload.class);
+      if (clock.instant().getEpochSecond() >= payload.exp) {
+        return null;
+      }
+      List<GrantedAuthority> authorities =
+          AuthorityUtils.createAuthorityList(payload.roles.toArray(String[]::new));
+      Map<String, Object> attributes = new LinkedHashMap<>(payload.attrs);
+      if (payload.uid != null) {
+        attributes.put(USER_ID, payload.uid);
+      }
+      OAuth2User user = new DefaultOAuth2User(authorities, attributes, "sub");
+      return new OAuth2AuthenticationToken(user, authorities, payload.reg);
+    } catch (IllegalArgumentException | IOException e) {
+      log.debug("Rejected malformed session token: {}", e.getMessage());
+      return null;
+    }
+  }
+
+  private byte[] sign(String body) {
+    try {
+      Mac mac = Mac.getInstance(algorithm);
+      mac.init(key);
+      return mac.doFinal(body.getBytes(StandardCharsets.US_ASCII));
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException("Cannot sign session token", e);
+    }
+  }
+
+  private static String base64(byte[] bytes) {
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+  }
+
+  private static class Payload {
+    public String reg;
+    public List<String> roles;
+    public long exp;
+    public Long uid;
+    public Map<String, Object> attrs;
+  }
+}
@@ -0,0 +1,82 @@
+package edu.ucsb.cs156.example.services;
+
+import edu.ucsb.cs156.example.entities.User;
+
+import java.time.Clock;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * This is a cache of the User entities of logged in users, keyed by email, so that
+ * looking up the current user does not query the database on every request.
+ *
+ * Entries expire after app.users.cache.ttlSeconds, so changes made directly in the
+ * database are picked up eventually; code that changes a user (e.g. their admin flag)
+ * should call invalidate so the change takes effect on the user's next request.
+ * At most app.users.cache.maxSize users are kept; the least recently used are dropped first.
+ *
+ * The cached User objects are shared between requests and must not be modified.
+ */
+@Service("cachedUsers")
+public class UserCache {
+
+  @Value("${app.users.cache.ttlSeconds:300}")
+  private long ttlSeconds;
+
+  @Value("${app.users.cache.maxSize:10000}")
+  private int maxSize;
+
+  private Clock clock = Clock.systemUTC();
+
+  private final Map<String, Entry> users = new LinkedHashMap<>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+      return size() > maxSize;
+    }
+  };
+
+  private record Entry(User user, long expiresAt) {}
+
+  /**
+   * This method returns the cached user with a given email.
+   * @param email email address of the user
+   * @return the user, or null if not cached or expired
+   */
+  public synchronized User get(String email) {
+    Entry entry = users.get(email);
+    if (entry == null) {
+      return null;
+    }
+    if (clock.millis() >= entry.expiresAt()) {
+      users.remove(email);
+      return null;
+    }
+    return entry.user();
+  }
+
+  /**
+   * This method caches a user under their email.
+   * @param user the user
+   */
+  public synchronized void put(User user) {
+    users.put(user.getEmail(), new Entry(user, clock.millis() + ttlSeconds * 1000));
+  }
+
+  /**
+   * This method drops a user from the cache, e.g. after their admin flag changes.
+   * @param email email address of the user
+   */
+  public synchronized void invalidate(String email) {
+    users.remove(email);
+  }
+
+  /**
+   * This method drops all users from the cache.
+   */
+  public synchronized void invalidateAll() {
+    users.clear();
+  }
+}
@@ -0,0 +1,99 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import java.util.OptionalLong;
+
+/**
+ * Tracks whether a job has been asked to stop, either by an admin or because it ran longer than
+ * its timeout.
+ *
+ * <p>Cancellation is cooperative: the job sees it through JobContext.isCancelled() or
+ * JobContext.checkCancelled(), and the thread running the job is interrupted so that sleeps and
+ * blocking I/O end early. The interrupt is only delivered while the job is actually running, so
+ * it can never hit the next job that the same executor thread picks up.
+ */
+public class JobCancellation {
+  public static final String CANCELLED = "cancelled";
+  public static final String TIMEOUT = "timeout";
+
+  private final long timeoutMs;
+  private volatile String reason;
+  private Thread thread;
+  // empty until the job has started with a time limit
+  private OptionalLong deadline = OptionalLong.empty();
+
+  /**
+   * @param timeoutMs how long the job may run once started, in milliseconds (0 or less means no
+   *     limit)
+   */
+  public JobCancellation(long timeoutMs) {
+    this.timeoutMs = timeoutMs;
+  }
+
+  /**
+   * Marks the job as started on a thread; its timeout counts from now.
+   *
+   * @param thread thread running the job
+   * @param nowMs current time in milliseconds
+   */
+  public synchronized void start(Thread thread, long nowMs) {
+    this.thread = thread;
+    if (timeoutMs > 0) {
+      deadline = OptionalLong.of(nowMs + timeoutMs);
+    }
+  }
+
+  /** Marks the job as finished and clears any interrupt meant for it. */
+  public synchronized void finish() {
+    if (thread == Thread.currentThread()) {
+      Thread.interrupted();
+    }
+    thread = null;
+  }
+
+  /**
+   * Asks the job to stop. Only the first reason given is kept.
+   *
+   * @param reason why the job is being stopped, e.g. CANCELLED or TIMEOUT
+   */
+  public synchronized void cancel(String reason) {
+    if (this.reason != null) {
+      return;
+    }
+    this.reason = reason;
+    if (thread != null) {
+      thread.interrupt();
+    }
+  }
+
+  /**
+   * Stops the job with reason TIMEOUT if it has run past its deadline.
+   *
+   * @param nowMs current time in milliseconds
+   */
+  public synchronized void timeOutIfPast(long nowMs) {
+    if (deadline.isPresent() && nowMs >= deadline.getAsLong()) {
+      cancel(TIMEOUT);
+    }
+  }
+
+  /**
+   * @return whether the job has been asked to stop
+   */
+  public boolean isCancelled() {
+    return reason != null;
+  }
+
+  /**
+   * @return why the job was asked to stop, or null if it was not
+   */
+  public String getReason() {
+    return reason;
+  }
+
+  /**
+   * @return how long the job may run, in milliseconds
+   */
+  public long getTimeoutMs() {
+    return timeoutMs;
+  }
+}
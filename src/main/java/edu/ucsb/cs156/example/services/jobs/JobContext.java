@@ -1,20 +1,43 @@
 package edu.ucsb.cs156.example.services.jobs;
 
 import edu.ucsb.cs156.example.entities.Job;
-import edu.ucsb.cs156.example.repositories.JobsRepository;
+import edu.ucsb.cs156.example.errors.JobCancelledException;
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 @AllArgsConstructor
 @Slf4j
 public class JobContext {
-  private JobsRepository jobsRepository;
   private Job job;
+  private JobLogWriter logWriter;
+  private JobCancellation cancellation;
 
   public void log(String message) {
     log.info("Job %s: %s".formatted(job.getId(), message));
-    String previousLog = job.getLog() == null ? "" : (job.getLog() + "\n");
-    job.setLog(previousLog + message);
-    if (jobsRepository != null) jobsRepository.save(job);
+    logWriter.append(message);
+  }
+
+  /** Write any buffered log lines to the database. */
+  public void flush() {
+    logWriter.flush();
+  }
+
+  /**
+   * @return whether the job has been cancelled or has timed out, and should stop
+   */
+  public boolean isCancelled() {
+    return cancellation.isCancelled();
+  }
+
+  /**
+   * Long-running jobs should call this regularly (e.g. once per item processed) so that they stop
+   * promptly when cancelled or timed out.
+   *
+   * @throws JobCancelledException if the job should stop
+   */
+  public void checkCancelled() {
+    if (cancellation.isCancelled()) {
+      throw new JobCancelledException(cancellation.getReason());
+    }
   }
 }
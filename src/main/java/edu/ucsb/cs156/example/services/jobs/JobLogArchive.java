@@ -0,0 +1,128 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Packs the log lines of a finished job into a single deflate-compressed blob, and reads them
+ * back.
+ *
+ * <p>Each line is stored as its line number (long), the length of its UTF-8 encoded message
+ * (int, or -1 for a null message) and the message bytes, so lines round-trip exactly, including
+ * messages that contain newlines. Reading decompresses incrementally, one line at a time.
+ */
+public final class JobLogArchive {
+
+  private JobLogArchive() {}
+
+  /**
+   * Compresses log lines.
+   *
+   * @param lines the lines, in order
+   * @return the compressed blob
+   */
+  public static byte[] compress(Stream<JobLogLine> lines) {
+    Deflater deflater = new Deflater();
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    byte[] buffer = new byte[8192];
+    try {
+      Iterator<JobLogLine> it = lines.iterator();
+      while (it.hasNext()) {
+        JobLogLine line = it.next();
+        byte[] message =
+            line.getMessage() == null ? null : line.getMessage().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer header =
+            ByteBuffer.allocate(Long.BYTES + Integer.BYTES)
+                .putLong(line.getLineNumber())
+                .putInt(message == null ? -1 : message.length);
+        deflate(deflater, header.array(), bytes, buffer);
+        if (message != null) {
+          deflate(deflater, message, bytes, buffer);
+        }
+      }
+      deflater.finish();
+      while (!deflater.finished()) {
+        bytes.write(buffer, 0, deflater.deflate(buffer));
+      }
+    } finally {
+      deflater.end();
+    }
+    return bytes.toByteArray();
+  }
+
+  // feeds input to the deflater, writing out whatever compressed output it produces
+  private static void deflate(
+      Deflater deflater, byte[] input, ByteArrayOutputStream out, byte[] buffer) {
+    deflater.setInput(input);
+    while (!deflater.needsInput()) {
+      out.write(buffer, 0, deflater.deflate(buffer));
+    }
+  }
+
+  /**
+   * Lazily decompresses log lines.
+   *
+   * @param jobId id of the job, set on the returned lines
+   * @param compressed a blob produced by {@link #compress(Stream)}
+   * @return the lines, in order
+   */
+  public static Stream<JobLogLine> lines(long jobId, byte[] compressed) {
+    Inflater inflater = new Inflater();
+    DataInputStream in =
+        new DataInputStream(
+            new InflaterInputStream(new ByteArrayInputStream(compressed), inflater));
+    Spliterator<JobLogLine> lines =
+        new Spliterators.AbstractSpliterator<>(
+            Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+          @Override
+          public boolean tryAdvance(Consumer<? super JobLogLine> action) {
+            JobLogLine line = readLine(in, jobId);
+            if (line == null) {
+              return false;
+            }
+            action.accept(line);
+            return true;
+          }
+        };
+    return StreamSupport.stream(lines, false).onClose(inflater::end);
+  }
+
+  // the next line, or null if the data ends cleanly between two lines; data that ends inside a
+  // line (a truncated or corrupt blob) throws rather than passing for a shorter log
+  private static JobLogLine readLine(DataInputStream in, long jobId) {
+    try {
+      int first = in.read();
+      if (first < 0) {
+        return null;
+      }
+      byte[] rest = new byte[Long.BYTES - 1];
+      in.readFully(rest);
+      long lineNumber = ByteBuffer.allocate(Long.BYTES).put((byte) first).put(rest).getLong(0);
+      int length = in.readInt();
+      String message = null;
+      if (length >= 0) {
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        message = new String(bytes, StandardCharsets.UTF_8);
+      }
+      return JobLogLine.builder().jobId(jobId).lineNumber(lineNumber).message(message).build();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
@@ -0,0 +1,273 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * Pushes job log lines to clients as server-sent events.
+ *
+ * <p>A subscriber first receives the lines already stored for the job (starting at the line it
+ * asked for), then each new batch of lines as soon as JobLogWriter flushes it. When the job ends
+ * an {@code end} event carrying the final status is sent and the stream is closed. Each {@code
+ * log} event has the line number as its id, so a client that reconnects with {@code
+ * Last-Event-ID} resumes where it left off.
+ *
+ * <p>Events are sent on the {@code jobLogStreamExecutor}, never on the request thread or the job's
+ * thread: the stored lines are replayed after the emitter has been returned, and new lines are only
+ * queued by {@link #publish}, so a slow client holds up nobody but itself.
+ */
+@Slf4j
+@Service
+public class JobLogStreamService {
+  @Autowired private JobsRepository jobsRepository;
+
+  @Autowired private JobLogLinesRepository jobLogLinesRepository;
+
+  @Lazy @Autowired private JobLogStreamService self;
+
+  @Autowired
+  @Qualifier("jobLogStreamExecutor")
+  private Executor streamExecutor;
+
+  @Value("${app.jobs.log.streamTimeoutMs:1800000}")
+  private long streamTimeoutMs;
+
+  private final Map<Long, Set<Subscription>> subscriptions = new ConcurrentHashMap<>();
+
+  /**
+   * Opens a stream of the log lines of a job. The stored lines are sent once the emitter has been
+   * returned.
+   *
+   * @param jobId id of the job
+   * @param fromLine number of the first line to send
+   * @return the emitter to return from the controller
+   * @throws EntityNotFoundException if there is no such job
+   */
+  public SseEmitter subscribe(long jobId, long fromLine) {
+    SseEmitter emitter = createEmitter();
+    Subscription subscription = new Subscription(emitter, fromLine, streamExecutor);
+
+    // register before reading the job and its stored lines, so that nothing written
+    // in between is missed; Subscription drops any line it has already sent
+    Set<Subscription> jobSubscriptions =
+        subscriptions.computeIfAbsent(jobId, id -> ConcurrentHashMap.newKeySet());
+    jobSubscriptions.add(subscription);
+    Runnable unsubscribe =
+        () -> {
+          jobSubscriptions.remove(subscription);
+          subscriptions.computeIfPresent(jobId, (id, set) -> set.isEmpty() ? null : set);
+        };
+    emitter.onCompletion(unsubscribe);
+    emitter.onTimeout(unsubscribe);
+    emitter.onError(e -> unsubscribe.run());
+
+    Job job = jobsRepository.findById(jobId).orElse(null);
+    if (job == null) {
+      unsubscribe.run();
+      throw new EntityNotFoundException(Job.class, jobId);
+    }
+
+    streamExecutor.execute(() -> self.replay(job, subscription));
+    return emitter;
+  }
+
+  /**
+   * Sends the stored lines of a job to a new subscriber, then whatever was published meanwhile.
+   *
+   * <p>The job may end between subscribe and replay, and its lines then be compressed and deleted
+   * from job_log_lines. So after streaming the table the job is read again, and whatever lines
+   * are still missing are sent from its compressed log.
+   *
+   * @param job the job, as read by subscribe
+   * @param subscription the subscriber's stream
+   */
+  @Transactional(readOnly = true)
+  void replay(Job job, Subscription subscription) {
+    Job current = job;
+    try {
+      if (job.getCompressedLog() == null) {
+        try (Stream<JobLogLine> lines =
+            jobLogLinesRepository.streamByJobIdAndLineNumberGreaterThanEqualOrderByLineNumberAsc(
+                job.getId(), subscription.getNextLine())) {
+          lines.forEach(subscription::send);
+        }
+        current = jobsRepository.findById(job.getId()).orElse(job);
+      }
+      if (current.getCompressedLog() != null) {
+        long fromLine = subscription.getNextLine();
+        try (Stream<JobLogLine> lines =
+            JobLogArchive.lines(current.getId(), current.getCompressedLog())) {
+          lines.filter(line -> line.getLineNumber() >= fromLine).forEach(subscription::send);
+        }
+      }
+    } catch (RuntimeException e) {
+      log.warn("could not replay the log of job {}: {}", job.getId(), e.getMessage());
+      subscription.fail(e);
+      return;
+    }
+    subscription.replayed(isFinished(current.getStatus()) ? current.getStatus() : null);
+  }
+
+  /**
+   * Queues newly written log lines for the subscribers of a job. This only hands the lines over;
+   * they are sent on the stream executor.
+   *
+   * @param jobId id of the job
+   * @param lines the lines, in order
+   */
+  public void publish(long jobId, List<JobLogLine> lines) {
+    subscriptions.getOrDefault(jobId, Set.of()).forEach(s -> s.publish(lines));
+  }
+
+  /**
+   * Tells the subscribers of a job that it has ended, and closes their streams once the lines
+   * queued before are sent.
+   *
+   * @param jobId id of the job
+   * @param status final status of the job
+   */
+  public void complete(long jobId, String status) {
+    Set<Subscription> jobSubscriptions = subscriptions.remove(jobId);
+    if (jobSubscriptions != null) {
+      jobSubscriptions.forEach(s -> s.finish(status));
+    }
+  }
+
+  SseEmitter createEmitter() {
+    return new SseEmitter(streamTimeoutMs);
+  }
+
+  private static boolean isFinished(String status) {
+    return !"queued".equals(status) && !"running".equals(status);
+  }
+
+  /**
+   * One client's stream. Published lines and the end status are queued, and sent by whichever
+   * thread holds the stream: the replay at first, then a task on the executor started whenever
+   * something is queued while nobody holds it. Events are sent outside the lock, one sender at a
+   * time.
+   */
+  static class Subscription {
+    private final SseEmitter emitter;
+    private final Executor executor;
+    private long nextLine;
+    private boolean sending = true; // held by the replay until it is done
+    private final List<JobLogLine> pending = new ArrayList<>();
+    private String pendingEndStatus;
+
+    Subscription(SseEmitter emitter, long fromLine, Executor executor) {
+      this.emitter = emitter;
+      this.nextLine = fromLine;
+      this.executor = executor;
+    }
+
+    long getNextLine() {
+      return nextLine;
+    }
+
+    void publish(List<JobLogLine> lines) {
+      synchronized (this) {
+        pending.addAll(lines);
+      }
+      startSending();
+    }
+
+    void finish(String status) {
+      synchronized (this) {
+        pendingEndStatus = status;
+      }
+      startSending();
+    }
+
+    void replayed(String endStatus) {
+      if (endStatus != null) {
+        synchronized (this) {
+          pendingEndStatus = endStatus;
+        }
+      }
+      sendPending();
+    }
+
+    void fail(Exception e) {
+      emitter.completeWithError(e);
+    }
+
+    private void startSending() {
+      synchronized (this) {
+        if (sending) {
+          return;
+        }
+        sending = true;
+      }
+      executor.execute(this::sendPending);
+    }
+
+    // sends what is queued until nothing is left, then lets go of the stream; after the end
+    // event the stream is never let go of, so nothing more is sent
+    private void sendPending() {
+      while (true) {
+        List<JobLogLine> lines;
+        String endStatus;
+        synchronized (this) {
+          if (pending.isEmpty() && pendingEndStatus == null) {
+            sending = false;
+            return;
+          }
+          lines = new ArrayList<>(pending);
+          pending.clear();
+          endStatus = pendingEndStatus;
+        }
+        lines.forEach(this::send);
+        if (endStatus != null) {
+          end(endStatus);
+          return;
+        }
+      }
+    }
+
+    private void end(String status) {
+      try {
+        emitter.send(SseEmitter.event().name("end").data(status));
+        emitter.complete();
+      } catch (IOException e) {
+        emitter.completeWithError(e);
+      }
+    }
+
+    void send(JobLogLine line) {
+      if (line.getLineNumber() < nextLine) {
+        return;
+      }
+      try {
+        emitter.send(
+            SseEmitter.event()
+                .id(Long.toString(line.getLineNumber()))
+                .name("log")
+                .data(line.getMessage()));
+        nextLine = line.getLineNumber() + 1;
+      } catch (IOException e) {
+        log.debug("log stream closed by client: {}", e.getMessage());
+        emitter.completeWithError(e);
+      }
+    }
+  }
+}
@@ -0,0 +1,143 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Buffers the log lines of a single job and appends them to the job_log_lines table in batches,
+ * so that logging a line never rewrites what was already written and does not cost a database
+ * round trip of its own.
+ *
+ * <p>Lines are held in a fixed-size ring buffer. The buffer is written out when it is full, when
+ * the oldest buffered line has waited longer than the flush interval, or when {@link #flush()} is
+ * called explicitly (e.g. when the job ends). Since a full buffer is always flushed before
+ * another line is accepted, memory per job is bounded by the buffer capacity.
+ */
+public class JobLogWriter {
+  private final JobLogLinesRepository jobLogLinesRepository;
+  private final long jobId;
+  private final long flushIntervalMs;
+  private final Clock clock;
+  private final Consumer<List<JobLogLine>> onFlush;
+
+  private final JobLogLine[] ring;
+  private int head = 0;
+  private int size = 0;
+  private long nextLineNumber = 0;
+  private long logSize = 0;
+  private long lastFlushAt;
+
+  /**
+   * Create a writer for one job.
+   *
+   * @param jobLogLinesRepository repository the lines are appended to
+   * @param jobId id of the job the lines belong to
+   * @param capacity number of buffered lines that triggers a flush (values below 1 flush every
+   *     line)
+   * @param flushIntervalMs maximum time in milliseconds a line may stay buffered
+   * @param clock source of the current time
+   * @param onFlush called with each batch of lines after it has been saved; it runs on the job's
+   *     thread with the writer locked, so it should only hand the lines off
+   */
+  public JobLogWriter(
+      JobLogLinesRepository jobLogLinesRepository,
+      long jobId,
+      int capacity,
+      long flushIntervalMs,
+      Clock clock,
+      Consumer<List<JobLogLine>> onFlush) {
+    this(jobLogLinesRepository, jobId, 0, capacity, flushIntervalMs, clock, onFlush);
+  }
+
+  /**
+   * Create a writer for one job that already has log lines, e.g. from an earlier attempt to run
+   * it.
+   *
+   * @param jobLogLinesRepository repository the lines are appended to
+   * @param jobId id of the job the lines belong to
+   * @param firstLineNumber line number of the first line appended
+   * @param capacity number of buffered lines that triggers a flush (values below 1 flush every
+   *     line)
+   * @param flushIntervalMs maximum time in milliseconds a line may stay buffered
+   * @param clock source of the current time
+   * @param onFlush called with each batch of lines after it has been saved, as above
+   */
+  public JobLogWriter(
+      JobLogLinesRepository jobLogLinesRepository,
+      long jobId,
+      long firstLineNumber,
+      int capacity,
+      long flushIntervalMs,
+      Clock clock,
+      Consumer<List<JobLogLine>> onFlush) {
+    this.jobLogLinesRepository = jobLogLinesRepository;
+    this.jobId = jobId;
+    this.flushIntervalMs = flushIntervalMs;
+    this.clock = clock;
+    this.onFlush = onFlush;
+    this.ring = new JobLogLine[Math.max(1, capacity)];
+    this.nextLineNumber = firstLineNumber;
+    this.lastFlushAt = clock.millis();
+  }
+
+  /**
+   * Buffer a line, flushing the buffer if it is full or due.
+   *
+   * @param message the line to append
+   */
+  public synchronized void append(String message) {
+    ring[(head + size) % ring.length] =
+        JobLogLine.builder().jobId(jobId).lineNumber(nextLineNumber++).message(message).build();
+    size++;
+    logSize += message == null ? 0 : message.length();
+    if (size == ring.length || isDue()) {
+      flush();
+    }
+  }
+
+  /** Write buffered lines to the database if the flush interval has elapsed. */
+  public synchronized void flushIfDue() {
+    if (isDue()) {
+      flush();
+    }
+  }
+
+  /** Write any buffered lines to the database. */
+  public synchronized void flush() {
+    lastFlushAt = clock.millis();
+    if (size == 0) {
+      return;
+    }
+    List<JobLogLine> batch = new ArrayList<>(size);
+    while (size > 0) {
+      batch.add(ring[head]);
+      ring[head] = null;
+      head = (head + 1) % ring.length;
+      size--;
+    }
+    jobLogLinesRepository.saveAll(batch);
+    onFlush.accept(batch);
+  }
+
+  /**
+   * @return number of lines in the job's log so far, including ones not yet flushed
+   */
+  public synchronized long getLineCount() {
+    return nextLineNumber;
+  }
+
+  /**
+   * @return total length in characters of the messages appended so far
+   */
+  public synchronized long getLogSize() {
+    return logSize;
+  }
+
+  private boolean isDue() {
+    return size > 0 && clock.millis() - lastFlushAt >= flushIntervalMs;
+  }
+}
@@ -0,0 +1,101 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Records job metrics in Micrometer, tagged by job type (the class of the JobContextConsumer):
+ *
+ * <ul>
+ *   <li>{@code jobs.queue.wait}: time from launch until a worker picks the job up
+ *   <li>{@code jobs.run}: run time, also tagged with the final status; its count by status gives
+ *       throughput and failure rates
+ *   <li>{@code jobs.log.size}: characters logged per job
+ *   <li>{@code jobs.rejected}: launches rejected because the queue was full
+ * </ul>
+ *
+ * The timers publish percentile histograms, so they can be viewed at /actuator/metrics/{name}.
+ */
+@Component
+public class JobMetrics {
+  @Autowired private MeterRegistry meterRegistry;
+
+  /**
+   * Records how long a job waited in the queue.
+   *
+   * @param jobFunction the job's work
+   * @param queuedAt when the job was launched (nothing is recorded if null)
+   * @param startedAt when a worker picked it up
+   */
+  public void recordQueueWait(
+      JobContextConsumer jobFunction, ZonedDateTime queuedAt, ZonedDateTime startedAt) {
+    if (queuedAt == null) {
+      return;
+    }
+    Timer.builder("jobs.queue.wait")
+        .description("Time jobs wait for a worker")
+        .tag("type", typeOf(jobFunction))
+        .publishPercentileHistogram()
+        .register(meterRegistry)
+        .record(Duration.between(queuedAt, startedAt));
+  }
+
+  /**
+   * Records a finished job.
+   *
+   * @param jobFunction the job's work
+   * @param status final status of the job
+   * @param runTime how long the job ran
+   * @param logSize number of characters the job logged
+   */
+  public void recordRun(
+      JobContextConsumer jobFunction, String status, Duration runTime, long logSize) {
+    String type = typeOf(jobFunction);
+    Timer.builder("jobs.run")
+        .description("Time jobs take to run")
+        .tag("type", type)
+        .tag("status", status)
+        .publishPercentileHistogram()
+        .register(meterRegistry)
+        .record(runTime);
+    DistributionSummary.builder("jobs.log.size")
+        .description("Characters logged per job")
+        .baseUnit("characters")
+        .tag("type", type)
+        .register(meterRegistry)
+        .record(logSize);
+  }
+
+  /**
+   * Records a launch that was rejected because the job queue was full.
+   *
+   * @param jobFunction the job's work
+   */
+  public void recordRejected(JobContextConsumer jobFunction) {
+    Counter.builder("jobs.rejected")
+        .description("Job launches rejected because the queue was full")
+        .tag("type", typeOf(jobFunction))
+        .register(meterRegistry)
+        .increment();
+  }
+
+  /**
+   * Names a job type for tagging. Jobs given as lambdas are named after the class that declares
+   * the lambda, since the generated class name changes from run to run.
+   */
+  static String typeOf(JobContextConsumer jobFunction) {
+    Class<?> type = jobFunction.getClass();
+    String name = type.getSimpleName();
+    int lambda = name.indexOf("$$Lambda");
+    if (lambda >= 0) {
+      return name.substring(0, lambda);
+    }
+    return name.isEmpty() ? type.getName() : name;
+  }
+}
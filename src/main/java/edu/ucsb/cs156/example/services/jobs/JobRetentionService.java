@@ -0,0 +1,165 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.models.JobRetentionReport;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import java.time.Clock;
+import java.time.ZonedDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Keeps the jobs tables from growing without bound.
+ *
+ * <p>On each run, jobs that ended more than {@code app.jobs.retention.jobTtlDays} days ago are
+ * deleted together with their log lines, and jobs that ended more than {@code
+ * app.jobs.retention.logTtlDays} days ago have their logs cut down to the last {@code
+ * app.jobs.retention.logKeepLines} lines. That covers the job_log_lines rows, the compressed log
+ * of jobs whose log was archived when they finished (re-archived with only the kept lines), and
+ * legacy log text stored on the job. Work is done a batch of jobs at a time, each statement in
+ * its own short transaction, so a run never holds locks for long.
+ */
+@Slf4j
+@Service
+public class JobRetentionService {
+  static final List<String> ENDED_STATUSES =
+      List.of("complete", "error", JobCancellation.CANCELLED, JobCancellation.TIMEOUT);
+
+  @Autowired private JobsRepository jobsRepository;
+
+  @Autowired private JobLogLinesRepository jobLogLinesRepository;
+
+  @Value("${app.jobs.retention.enabled:true}")
+  private boolean enabled;
+
+  @Value("${app.jobs.retention.jobTtlDays:90}")
+  private int jobTtlDays;
+
+  @Value("${app.jobs.retention.logTtlDays:14}")
+  private int logTtlDays;
+
+  @Value("${app.jobs.retention.logKeepLines:200}")
+  private int logKeepLines;
+
+  @Value("${app.jobs.retention.batchSize:100}")
+  private int batchSize;
+
+  private Clock clock = Clock.systemDefaultZone();
+
+  /** Runs retention on the configured schedule, unless retention is disabled. */
+  @Scheduled(cron = "${app.jobs.retention.cron:0 30 3 * * *}")
+  public void scheduledRun() {
+    if (enabled) {
+      runRetention();
+    }
+  }
+
+  /**
+   * Deletes old jobs and truncates the logs of less old ones.
+   *
+   * @return what was removed
+   */
+  public JobRetentionReport runRetention() {
+    ZonedDateTime now = ZonedDateTime.now(clock);
+    PageRequest batch = PageRequest.ofSize(Math.max(1, batchSize));
+    long keepLines = Math.max(0, logKeepLines);
+
+    long jobsDeleted = 0;
+    long logLinesDeleted = 0;
+    List<Long> ids;
+    do {
+      ids = jobsRepository.findIdsOfEndedJobs(ENDED_STATUSES, now.minusDays(jobTtlDays), batch);
+      if (!ids.isEmpty()) {
+        logLinesDeleted += jobLogLinesRepository.deleteByJobIds(ids);
+        jobsDeleted += jobsRepository.deleteByIds(ids);
+      }
+    } while (ids.size() == batch.getPageSize());
+
+    Set<Long> jobsTruncated = new HashSet<>();
+    long logLinesTruncated = 0;
+    do {
+      ids =
+          jobLogLinesRepository.findIdsOfEndedJobsWithMoreLinesThan(
+              ENDED_STATUSES, now.minusDays(logTtlDays), keepLines, batch);
+      for (Long jobId : ids) {
+        long firstKeptLine = jobLogLinesRepository.findMaxLineNumber(jobId) - keepLines + 1;
+        logLinesTruncated += jobLogLinesRepository.deleteByJobIdBeforeLine(jobId, firstKeptLine);
+        jobsTruncated.add(jobId);
+      }
+    } while (ids.size() == batch.getPageSize());
+
+    // logs stored on the job are still there after truncation, so page through them by id
+    long afterId = 0;
+    do {
+      ids =
+          jobsRepository.findIdsOfEndedJobsWithStoredLogs(
+              ENDED_STATUSES, now.minusDays(logTtlDays), afterId, batch);
+      for (Long jobId : ids) {
+        Optional<Job> job = jobsRepository.findById(jobId);
+        long truncated = job.map(j -> truncateStoredLogs(j, keepLines)).orElse(0L);
+        if (truncated > 0) {
+          logLinesTruncated += truncated;
+          jobsTruncated.add(jobId);
+        }
+        afterId = jobId;
+      }
+    } while (ids.size() == batch.getPageSize());
+
+    JobRetentionReport report =
+        JobRetentionReport.builder()
+            .ranAt(now)
+            .jobsDeleted(jobsDeleted)
+            .logLinesDeleted(logLinesDeleted)
+            .jobsTruncated(jobsTruncated.size())
+            .logLinesTruncated(logLinesTruncated)
+            .build();
+    log.info("job retention: {}", report);
+    return report;
+  }
+
+  // cuts the compressed log and the legacy log text of a job down to their last keepLines lines,
+  // returning the number of lines removed
+  private long truncateStoredLogs(Job job, long keepLines) {
+    long truncated = 0;
+    if (job.getCompressedLog() != null) {
+      long lineCount;
+      try (Stream<JobLogLine> lines = JobLogArchive.lines(job.getId(), job.getCompressedLog())) {
+        lineCount = lines.count();
+      }
+      if (lineCount > keepLines) {
+        byte[] kept;
+        try (Stream<JobLogLine> lines =
+            JobLogArchive.lines(job.getId(), job.getCompressedLog())) {
+          kept = JobLogArchive.compress(lines.skip(lineCount - keepLines));
+        }
+        jobsRepository.updateCompressedLog(job.getId(), kept);
+        truncated += lineCount - keepLines;
+      }
+    }
+    if (job.getLog() != null) {
+      String text = job.getLog();
+      long lineCount = text.chars().filter(c -> c == '\n').count() + 1;
+      if (lineCount > keepLines) {
+        // the kept lines start after the keepLines-th newline from the end
+        int start = text.length();
+        for (long kept = 0; kept < keepLines; kept++) {
+          start = text.lastIndexOf('\n', start - 1);
+        }
+        jobsRepository.updateLog(job.getId(), keepLines == 0 ? null : text.substring(start + 1));
+        truncated += lineCount - keepLines;
+      }
+    }
+    return truncated;
+  }
+}
@@ -1,53 +1,514 @@
 package edu.ucsb.cs156.example.services.jobs;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.errors.JobQueueFullException;
+import edu.ucsb.cs156.example.models.JobExecutorStatus;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
 import edu.ucsb.cs156.example.repositories.JobsRepository;
 import edu.ucsb.cs156.example.services.CurrentUserService;
+import java.io.IOException;
+import java.io.Writer;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+@Slf4j
 @Service
 public class JobService {
+  // jobs defined in this package are saved with their type and parameters (see runAsJob)
+  static final String JOBS_PACKAGE = "edu.ucsb.cs156.example.jobs";
+
   @Autowired private JobsRepository jobsRepository;
 
+  @Autowired private JobLogLinesRepository jobLogLinesRepository;
+
   @Autowired private CurrentUserService currentUserService;
 
+  @Autowired private JobLogStreamService jobLogStreamService;
+
+  @Autowired private JobMetrics jobMetrics;
+
+  @Autowired private AutowireCapableBeanFactory beanFactory;
+
   @Lazy @Autowired private JobService self;
 
+  @Autowired
+  @Qualifier("jobExecutor")
+  private ThreadPoolExecutor jobExecutor;
+
+  @Value("${app.jobs.log.batchSize:100}")
+  private int logBatchSize;
+
+  @Value("${app.jobs.log.flushIntervalMs:1000}")
+  private long logFlushIntervalMs;
+
+  @Value("${app.jobs.log.compressThresholdChars:65536}")
+  private long logCompressThresholdChars;
+
+  @Value("${app.jobs.timeoutMs:3600000}")
+  private long defaultTimeoutMs;
+
+  @Value("${app.jobs.lease.durationMs:60000}")
+  private long leaseDurationMs;
+
+  @Value("${app.jobs.queue.maxAttempts:3}")
+  private int maxAttempts;
+
+  // identifies this instance as the lease owner of the jobs it queues
+  private String instanceId = UUID.randomUUID().toString();
+
+  private Clock clock = Clock.systemUTC();
+
+  // writes and reads the parameters of jobs that any instance can run
+  private ObjectMapper objectMapper = new ObjectMapper();
+
+  private final Set<JobLogWriter> activeLogWriters = ConcurrentHashMap.newKeySet();
+
+  private final Map<Long, JobCancellation> cancellations = new ConcurrentHashMap<>();
+
+  /**
+   * Queues a job on the job executor, with the default timeout ({@code app.jobs.timeoutMs}).
+   *
+   * @param jobFunction the work to do
+   * @return the job
+   * @throws JobQueueFullException if the executor's queue is full; the job is not kept
+   */
   public Job runAsJob(JobContextConsumer jobFunction) {
-    Job job = Job.builder().createdBy(currentUserService.getUser()).status("running").build();
+    return runAsJob(jobFunction, Duration.ofMillis(defaultTimeoutMs));
+  }
+
+  /**
+   * Queues a job on the job executor. The job is saved with status "queued" and switches to
+   * "running" once a worker picks it up. If it is still running when the timeout expires, it is
+   * stopped and ends with status "timeout".
+   *
+   * <p>While the job is queued or running, this instance holds a lease on it that it renews
+   * periodically (see {@link #renewJobLeases()}).
+   *
+   * <p>Jobs defined as classes in the jobs package (e.g. TestJob) are saved with their class as
+   * the type and their fields as JSON parameters, so that any instance can run them:
+   *
+   * <ul>
+   *   <li>unless this instance has a worker free, the job is left in the jobs table until an
+   *       instance has one (see {@link #claimQueuedJobs()}), rather than waiting in this
+   *       instance's queue;
+   *   <li>if this instance goes away, the lease runs out and the job is queued again for any
+   *       instance, up to {@code app.jobs.queue.maxAttempts} starts (see {@link
+   *       #recoverJobsWithExpiredLeases()}).
+   * </ul>
+   *
+   * <p>Other jobs (e.g. lambdas) cannot be saved, so only this instance can run them: they are
+   * rejected when the executor's queue is full, and end as failed if the lease runs out.
+   *
+   * @param jobFunction the work to do
+   * @param timeout how long the job may run once started (zero means no limit)
+   * @return the job
+   * @throws JobQueueFullException if the executor's queue is full and only this instance can run
+   *     the job; the job is not kept
+   */
+  public Job runAsJob(JobContextConsumer jobFunction, Duration timeout) {
+    Job job =
+        Job.builder()
+            .createdBy(currentUserService.getUser())
+            .status("queued")
+            .timeoutMs(timeout.toMillis())
+            .build();
+    boolean canRunElsewhere = canRunElsewhere(jobFunction.getClass());
+    if (canRunElsewhere) {
+      job.setType(jobFunction.getClass().getName());
+      job.setParameters(writeParameters(jobFunction));
+    }
+    boolean startHere = !canRunElsewhere || idleWorkers() > 0;
+    if (startHere) {
+      job.setLeaseOwner(instanceId);
+      job.setLeaseExpiresAt(leaseExpiry());
+    }
 
     jobsRepository.save(job);
-    self.runJobAsync(job, jobFunction);
+    if (!startHere) {
+      return job;
+    }
+    try {
+      start(job, jobFunction);
+    } catch (RejectedExecutionException e) {
+      if (canRunElsewhere) {
+        jobsRepository.releaseLease(job.getId(), instanceId);
+        job.setLeaseOwner(null);
+        job.setLeaseExpiresAt(null);
+        return job;
+      }
+      jobsRepository.delete(job);
+      jobMetrics.recordRejected(jobFunction);
+      throw new JobQueueFullException();
+    }
 
     return job;
   }
 
-  @Async
-  public void runJobAsync(Job job, JobContextConsumer jobFunction) {
-    JobContext context = new JobContext(jobsRepository, job);
+  // submits a job this instance holds the lease on to the job executor
+  private void start(Job job, JobContextConsumer jobFunction) {
+    long timeoutMs = job.getTimeoutMs() != null ? job.getTimeoutMs() : defaultTimeoutMs;
+    JobCancellation cancellation = new JobCancellation(timeoutMs);
+    cancellations.put(job.getId(), cancellation);
+    try {
+      self.runJobAsync(job, jobFunction, cancellation);
+    } catch (RejectedExecutionException e) {
+      cancellations.remove(job.getId(), cancellation);
+      throw e;
+    }
+  }
+
+  private int idleWorkers() {
+    return jobExecutor.getMaximumPoolSize()
+        - jobExecutor.getActiveCount()
+        - jobExecutor.getQueue().size();
+  }
+
+  private static boolean canRunElsewhere(Class<?> type) {
+    return JobContextConsumer.class.isAssignableFrom(type)
+        && JOBS_PACKAGE.equals(type.getPackageName());
+  }
 
+  private String writeParameters(JobContextConsumer jobFunction) {
     try {
+      return objectMapper.writeValueAsString(jobFunction);
+    } catch (JsonProcessingException e) {
+      throw new IllegalArgumentException(
+          "Cannot save the parameters of " + jobFunction.getClass().getName(), e);
+    }
+  }
+
+  // the job saved by runAsJob, with its service dependencies injected
+  private JobContextConsumer readJob(Job job)
+      throws ClassNotFoundException, JsonProcessingException {
+    Class<?> type = Class.forName(job.getType());
+    if (!canRunElsewhere(type)) {
+      throw new IllegalArgumentException("Unknown job type " + job.getType());
+    }
+    JobContextConsumer jobFunction =
+        (JobContextConsumer) objectMapper.readValue(job.getParameters(), type);
+    beanFactory.autowireBean(jobFunction);
+    return jobFunction;
+  }
+
+  /**
+   * Periodically claims jobs waiting in the jobs table, as many as the job executor has idle
+   * workers for, and starts them. Jobs are locked with SELECT ... FOR UPDATE SKIP LOCKED (see
+   * {@link JobsRepository#lockUnclaimedJobIds}), so instances claiming at the same time never get
+   * the same job. A job that cannot be read back (e.g. its class no longer exists) ends as failed.
+   */
+  @Scheduled(fixedDelayString = "${app.jobs.queue.pollIntervalMs:1000}")
+  public void claimQueuedJobs() {
+    int idleWorkers = idleWorkers();
+    if (idleWorkers <= 0) {
+      return;
+    }
+    for (Job job : self.claimJobs(idleWorkers)) {
+      JobContextConsumer jobFunction;
+      try {
+        jobFunction = readJob(job);
+      } catch (ReflectiveOperationException | JsonProcessingException | IllegalArgumentException e) {
+        log.error("Could not read job {} of type {}", job.getId(), job.getType(), e);
+        endJob(job, "error", "Could not start job: " + e.getMessage());
+        continue;
+      }
+      try {
+        start(job, jobFunction);
+      } catch (RejectedExecutionException e) {
+        jobsRepository.releaseLease(job.getId(), instanceId);
+      }
+    }
+  }
+
+  /**
+   * Claims queued jobs that no instance has claimed yet, oldest first, giving this instance the
+   * lease on them.
+   *
+   * @param limit maximum number of jobs to claim
+   * @return the jobs claimed
+   */
+  @Transactional
+  public List<Job> claimJobs(int limit) {
+    List<Long> ids = jobsRepository.lockUnclaimedJobIds(limit);
+    if (ids.isEmpty()) {
+      return List.of();
+    }
+    jobsRepository.claimJobs(ids, instanceId, leaseExpiry());
+    return StreamSupport.stream(jobsRepository.findAllById(ids).spliterator(), false).toList();
+  }
+
+  // ends a job that could not be run, with one line in its log saying why
+  private void endJob(Job job, String status, String message) {
+    job.setStatus(status);
+    job.setLeaseOwner(null);
+    job.setLeaseExpiresAt(null);
+    jobsRepository.save(job);
+    jobLogLinesRepository.save(
+        JobLogLine.builder()
+            .jobId(job.getId())
+            .lineNumber(nextLineNumber(job.getId()))
+            .message(message)
+            .build());
+    jobLogStreamService.complete(job.getId(), status);
+  }
+
+  private long nextLineNumber(long jobId) {
+    Long last = jobLogLinesRepository.findMaxLineNumber(jobId);
+    return last == null ? 0 : last + 1;
+  }
+
+  @Async("jobExecutor")
+  public void runJobAsync(Job job, JobContextConsumer jobFunction, JobCancellation cancellation) {
+    job.setStatus("running");
+    job.setAttempts(job.getAttempts() + 1);
+    job.setLeaseExpiresAt(leaseExpiry());
+    jobsRepository.save(job);
+
+    JobLogWriter logWriter =
+        new JobLogWriter(
+            jobLogLinesRepository,
+            job.getId(),
+            // a job started again carries on after the log lines of its earlier attempts
+            job.getAttempts() > 1 ? nextLineNumber(job.getId()) : 0,
+            logBatchSize,
+            logFlushIntervalMs,
+            clock,
+            lines -> jobLogStreamService.publish(job.getId(), lines));
+    JobContext context = new JobContext(job, logWriter, cancellation);
+    activeLogWriters.add(logWriter);
+
+    long startedAt = clock.millis();
+    jobMetrics.recordQueueWait(jobFunction, job.getCreatedAt(), ZonedDateTime.now(clock));
+
+    try {
+      cancellation.start(Thread.currentThread(), startedAt);
+      if (job.getAttempts() > 1) {
+        context.log("Starting again (attempt %d of %d)".formatted(job.getAttempts(), maxAttempts));
+      }
+      context.checkCancelled(); // cancelled while still queued
       jobFunction.accept(context);
+      job.setStatus("complete");
     } catch (Exception e) {
-      job.setStatus("error");
-      context.log(e.getMessage());
-      return;
+      if (cancellation.isCancelled()) {
+        job.setStatus(cancellation.getReason());
+        context.log(
+            JobCancellation.TIMEOUT.equals(cancellation.getReason())
+                ? "Job timed out after %d ms".formatted(cancellation.getTimeoutMs())
+                : "Job cancelled");
+      } else {
+        job.setStatus("error");
+        context.log(e.getMessage());
+      }
+    } finally {
+      cancellation.finish();
+      cancellations.remove(job.getId(), cancellation);
+      activeLogWriters.remove(logWriter);
+      logWriter.flush();
     }
+    jobMetrics.recordRun(
+        jobFunction,
+        job.getStatus(),
+        Duration.ofMillis(clock.millis() - startedAt),
+        logWriter.getLogSize());
 
-    job.setStatus("complete");
+    if (logWriter.getLogSize() >= logCompressThresholdChars) {
+      job.setCompressedLog(self.compressJobLog(job.getId()));
+    }
+    job.setLeaseOwner(null);
+    job.setLeaseExpiresAt(null);
     jobsRepository.save(job);
+    if (job.getCompressedLog() != null) {
+      // only now that the compressed copy is saved
+      jobLogLinesRepository.deleteByJobIds(List.of(job.getId()));
+    }
+    jobLogStreamService.complete(job.getId(), job.getStatus());
+  }
+
+  /**
+   * Compresses the log lines of a job into a single blob.
+   *
+   * @param jobId id of the job
+   * @return the lines, compressed by JobLogArchive
+   */
+  @Transactional(readOnly = true)
+  public byte[] compressJobLog(long jobId) {
+    try (Stream<JobLogLine> lines =
+        jobLogLinesRepository.streamByJobIdOrderByLineNumberAsc(jobId)) {
+      return JobLogArchive.compress(lines);
+    }
+  }
+
+  /**
+   * Asks a queued or running job to stop. A queued job ends as soon as a worker picks it up; a
+   * running job is interrupted and ends once it notices (see JobContext.checkCancelled). A job
+   * waiting in the jobs table that no instance has claimed yet ends right away.
+   *
+   * @param jobId id of the job
+   * @return false if the job is neither queued or running in this instance, nor waiting to be
+   *     claimed
+   */
+  public boolean cancel(long jobId) {
+    JobCancellation cancellation = cancellations.get(jobId);
+    if (cancellation == null) {
+      if (jobsRepository.cancelUnclaimedJob(jobId) == 0) {
+        return false;
+      }
+      jobLogStreamService.complete(jobId, JobCancellation.CANCELLED);
+      return true;
+    }
+    cancellation.cancel(JobCancellation.CANCELLED);
+    return true;
+  }
+
+  /** Periodically stops jobs that have run longer than their timeout. */
+  @Scheduled(fixedDelayString = "${app.jobs.timeoutCheckIntervalMs:1000}")
+  public void cancelTimedOutJobs() {
+    long now = clock.millis();
+    cancellations.values().forEach(c -> c.timeOutIfPast(now));
+  }
+
+  /** Periodically renews this instance's leases on the jobs it has queued or running. */
+  @Scheduled(fixedDelayString = "${app.jobs.lease.heartbeatIntervalMs:15000}")
+  public void renewJobLeases() {
+    Set<Long> ids = Set.copyOf(cancellations.keySet());
+    if (ids.isEmpty()) {
+      return;
+    }
+    int renewed = jobsRepository.renewLeases(instanceId, ids, leaseExpiry());
+    if (renewed < ids.size()) {
+      log.warn(
+          "Lost the lease on {} of {} job(s) queued or running here",
+          ids.size() - renewed,
+          ids.size());
+    }
+  }
+
+  /**
+   * Periodically recovers jobs whose lease has run out, i.e. jobs left "queued" or "running" by an
+   * instance that was stopped or crashed. Jobs that any instance can run are queued again, unless
+   * they have already been started {@code app.jobs.queue.maxAttempts} times; the others will never
+   * finish, so they are marked as failed. This also covers jobs orphaned by this instance's own
+   * previous run, on startup.
+   */
+  @Scheduled(fixedDelayString = "${app.jobs.lease.checkIntervalMs:60000}")
+  public void recoverJobsWithExpiredLeases() {
+    List<String> statuses = List.of("queued", "running");
+    ZonedDateTime now = ZonedDateTime.now(clock);
+    int requeued = jobsRepository.requeueJobsWithExpiredLeases(statuses, "queued", maxAttempts, now);
+    if (requeued > 0) {
+      log.warn("Queued {} job(s) whose lease expired again", requeued);
+    }
+    int orphans = jobsRepository.endJobsWithExpiredLeases(statuses, "error", maxAttempts, now);
+    if (orphans > 0) {
+      log.warn("Marked {} job(s) whose lease expired as failed", orphans);
+    }
   }
 
+  /**
+   * Periodically writes out log lines buffered by running jobs, so that lines from a job that
+   * logs rarely still reach the database within the flush interval.
+   */
+  @Scheduled(fixedDelayString = "${app.jobs.log.flushIntervalMs:1000}")
+  public void flushJobLogs() {
+    activeLogWriters.forEach(JobLogWriter::flushIfDue);
+  }
+
+  /**
+   * Reports how busy the job executor is.
+   *
+   * @return number of running and queued jobs, and the executor's limits
+   */
+  public JobExecutorStatus getExecutorStatus() {
+    return JobExecutorStatus.builder()
+        .activeJobs(jobExecutor.getActiveCount())
+        .queuedJobs(jobExecutor.getQueue().size())
+        .maxConcurrentJobs(jobExecutor.getMaximumPoolSize())
+        .queueCapacity(jobExecutor.getQueue().size() + jobExecutor.getQueue().remainingCapacity())
+        .build();
+  }
+
+  /**
+   * Returns the full log of a job.
+   *
+   * @param jobId id of the job
+   * @return the log, one line per message
+   * @see #writeJobLogs(Long, Writer)
+   */
+  @Transactional(readOnly = true)
   public String getJobLogs(Long jobId) {
-    Job job =
-        jobsRepository
-            .findById(jobId)
-            .orElseThrow(() -> new IllegalArgumentException("Job not found"));
+    try (Stream<String> parts = logParts(findJob(jobId))) {
+      return parts.collect(Collectors.joining("\n"));
+    }
+  }
+
+  /**
+   * Writes the full log of a job, one line per message. Any log text stored on the job itself
+   * (written before log lines were kept in their own table) comes first, followed by the job's
+   * log lines. The lines are streamed from the database, or decompressed incrementally if the log
+   * was compressed, so the whole log is never held in memory at once.
+   *
+   * @param jobId id of the job
+   * @param out where to write the log
+   * @throws IOException if writing fails
+   */
+  @Transactional(readOnly = true)
+  public void writeJobLogs(Long jobId, Writer out) throws IOException {
+    try (Stream<String> parts = logParts(findJob(jobId))) {
+      Iterator<String> it = parts.iterator();
+      while (it.hasNext()) {
+        out.write(it.next());
+        if (it.hasNext()) {
+          out.write('\n');
+        }
+      }
+    }
+  }
+
+  private Job findJob(Long jobId) {
+    return jobsRepository
+        .findById(jobId)
+        .orElseThrow(() -> new IllegalArgumentException("Job not found"));
+  }
 
-    String log = job.getLog();
-    return log != null ? log : "";
+  // the legacy log text, if any, followed by the message of each log line
+  private Stream<String> logParts(Job job) {
+    return Stream.concat(
+        Stream.ofNullable(job.getLog()),
+        logLines(job).map(line -> String.valueOf(line.getMessage())));
+  }
+
+  private ZonedDateTime leaseExpiry() {
+    return ZonedDateTime.now(clock).plus(Duration.ofMillis(leaseDurationMs));
+  }
+
+  private Stream<JobLogLine> logLines(Job job) {
+    if (job.getCompressedLog() != null) {
+      return JobLogArchive.lines(job.getId(), job.getCompressedLog());
+    }
+    return jobLogLinesRepository.streamByJobIdOrderByLineNumberAsc(job.getId());
   }
 }
@@ -0,0 +1,97 @@
+package edu.ucsb.cs156.example.config;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import jakarta.servlet.Filter;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServlet;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.web.csrf.CookieCsrfTokenRepository;
+import org.springframework.security.web.csrf.CsrfFilter;
+import org.springframework.security.web.csrf.CsrfToken;
+
+/**
+ * Measures the cost per request of the CSRF filters as configured in SecurityConfig: Spring's
+ * CsrfFilter with SpaCsrfTokenRequestHandler, followed by CsrfCookieFilter. It compares a request
+ * without an XSRF-TOKEN cookie (the token is generated, masked and written to a cookie), a request
+ * that already has one (CsrfCookieFilter skips it), and the same request with the earlier filter,
+ * which forced the token on every request.
+ *
+ * <p>This is a benchmark, not a unit test, so it is only run on request: {@code mvn test
+ * -Dtest=CsrfCookieFilterBenchmarkIT -Djacoco.skip=true}. Timings are printed, not asserted.
+ */
+public class CsrfCookieFilterBenchmarkIT {
+
+  private static final int WARMUP_ROUNDS = 5;
+  private static final int ROUNDS = 10;
+  private static final int REQUESTS_PER_ROUND = 20_000;
+
+  private final CookieCsrfTokenRepository repository = CookieCsrfTokenRepository.withHttpOnlyFalse();
+
+  private final Filter csrfFilter = csrfFilter(repository);
+
+  private final Filter csrfCookieFilter = new CsrfCookieFilter(repository);
+
+  // CsrfCookieFilter as it was before it checked for the cookie
+  private final Filter alwaysLoadTokenFilter =
+      (request, response, chain) -> {
+        ((CsrfToken) request.getAttribute("_csrf")).getToken();
+        chain.doFilter(request, response);
+      };
+
+  private final String existingToken = repository.generateToken(null).getToken();
+
+  private static Filter csrfFilter(CookieCsrfTokenRepository repository) {
+    CsrfFilter filter = new CsrfFilter(repository);
+    filter.setRequestHandler(new SpaCsrfTokenRequestHandler());
+    return filter;
+  }
+
+  private MockHttpServletResponse get(Filter cookieFilter, boolean withCookie) throws Exception {
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/currentUser");
+    if (withCookie) {
+      request.setCookies(new Cookie("XSRF-TOKEN", existingToken));
+    }
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    new MockFilterChain(new HttpServlet() {}, csrfFilter, cookieFilter).doFilter(request, response);
+    return response;
+  }
+
+  // median nanoseconds per request over ROUNDS rounds, after WARMUP_ROUNDS unmeasured rounds
+  private long nanosPerRequest(Filter cookieFilter, boolean withCookie) throws Exception {
+    long[] rounds = new long[ROUNDS];
+    for (int round = -WARMUP_ROUNDS; round < ROUNDS; round++) {
+      long start = System.nanoTime();
+      for (int i = 0; i < REQUESTS_PER_ROUND; i++) {
+        get(cookieFilter, withCookie);
+      }
+      if (round >= 0) {
+        rounds[round] = (System.nanoTime() - start) / REQUESTS_PER_ROUND;
+      }
+    }
+    Arrays.sort(rounds);
+    return rounds[ROUNDS / 2];
+  }
+
+  @Test
+  public void csrf_filters_with_and_without_an_existing_cookie() throws Exception {
+    assertNotNull(get(csrfCookieFilter, false).getCookie("XSRF-TOKEN"));
+    assertNull(get(csrfCookieFilter, true).getCookie("XSRF-TOKEN"));
+
+    long withoutCookie = nanosPerRequest(csrfCookieFilter, false);
+    long withCookie = nanosPerRequest(csrfCookieFilter, true);
+    long withCookieAlwaysLoading = nanosPerRequest(alwaysLoadTokenFilter, true);
+
+    System.out.printf(
+        "CSRF filters, median ns/request over %d rounds of %d requests:%n"
+            + "  no XSRF-TOKEN cookie (cookie issued):       %,d%n"
+            + "  existing cookie (CsrfCookieFilter skips):   %,d%n"
+            + "  existing cookie, token loaded every time:   %,d%n",
+        ROUNDS, REQUESTS_PER_ROUND, withoutCookie, withCookie, withCookieAlwaysLoading);
+  }
+}
@@ -0,0 +1,72 @@
+package edu.ucsb.cs156.example.config;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.web.csrf.CookieCsrfTokenRepository;
+import org.springframework.security.web.csrf.CsrfToken;
+
+public class CsrfCookieFilterTests {
+
+  private final CookieCsrfTokenRepository repository = CookieCsrfTokenRepository.withHttpOnlyFalse();
+
+  private final CsrfCookieFilter filter = new CsrfCookieFilter(repository);
+
+  private final FilterChain chain = mock(FilterChain.class);
+
+  private MockHttpServletRequest request(String path) {
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+    request.setAttribute("_csrf", mock(CsrfToken.class));
+    return request;
+  }
+
+  @Test
+  public void issues_cookie_when_missing() throws Exception {
+    MockHttpServletRequest request = request("/api/currentUser");
+    MockHttpServletResponse response = new MockHttpServletResponse();
+
+    filter.doFilter(request, response, chain);
+
+    verify((CsrfToken) request.getAttribute("_csrf"), times(1)).getToken();
+    verify(chain, times(1)).doFilter(request, response);
+  }
+
+  @Test
+  public void skips_request_that_already_has_cookie() throws Exception {
+    MockHttpServletRequest request = request("/api/currentUser");
+    request.setCookies(new Cookie("XSRF-TOKEN", "existing-token"));
+    MockHttpServletResponse response = new MockHttpServletResponse();
+
+    filter.doFilter(request, response, chain);
+
+    verify((CsrfToken) request.getAttribute("_csrf"), never()).getToken();
+    verify(chain, times(1)).doFilter(request, response);
+  }
+
+  @Test
+  public void skips_static_assets() throws Exception {
+    for (String path : new String[] {"/static/js/main.abc123.js", "/favicon.ico", "/index.html"}) {
+      MockHttpServletRequest request = request(path);
+
+      filter.doFilter(request, new MockHttpServletResponse(), chain);
+
+      verify((CsrfToken) request.getAttribute("_csrf"), never()).getToken();
+    }
+  }
+
+  @Test
+  public void dots_in_directory_names_are_not_extensions() throws Exception {
+    MockHttpServletRequest request = request("/api/v1.0/items");
+
+    filter.doFilter(request, new MockHttpServletResponse(), chain);
+
+    verify((CsrfToken) request.getAttribute("_csrf"), times(1)).getToken();
+  }
+}
@@ -0,0 +1,143 @@
+package edu.ucsb.cs156.example.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.time.Instant;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.BeanCreationException;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceTransactionManagerAutoConfiguration;
+import org.springframework.boot.autoconfigure.liquibase.LiquibaseAutoConfiguration;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.boot.test.context.runner.WebApplicationContextRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.session.MapSession;
+import org.springframework.session.MapSessionRepository;
+import org.springframework.session.Session;
+import org.springframework.session.SessionRepository;
+import org.springframework.session.jdbc.JdbcIndexedSessionRepository;
+import org.springframework.session.web.http.SessionRepositoryFilter;
+
+public class SessionStoreConfigTests {
+
+  // each context gets its own in-memory H2 database, migrated like the application's
+  private final WebApplicationContextRunner contextRunner =
+      new WebApplicationContextRunner()
+          .withConfiguration(
+              AutoConfigurations.of(
+                  DataSourceAutoConfiguration.class,
+                  DataSourceTransactionManagerAutoConfiguration.class,
+                  LiquibaseAutoConfiguration.class))
+          .withPropertyValues("spring.liquibase.change-log=db/migration/changelog-master.json")
+          // converts e.g. "30m" to a Duration, as in the application
+          .withInitializer(
+              context ->
+                  context
+                      .getBeanFactory()
+                      .setConversionService(ApplicationConversionService.getSharedInstance()))
+          .withUserConfiguration(SessionStoreConfig.class);
+
+  @Test
+  public void servlet_store_is_the_default_and_adds_no_session_repository() {
+    contextRunner.run(
+        context -> {
+          assertNull(context.getStartupFailure());
+          assertTrue(context.getBeansOfType(SessionRepository.class).isEmpty());
+          assertTrue(context.getBeansOfType(SessionRepositoryFilter.class).isEmpty());
+        });
+  }
+
+  @Test
+  public void servlet_store_can_be_chosen_explicitly() {
+    contextRunner
+        .withPropertyValues("app.session.store=servlet")
+        .run(
+            context -> {
+              assertNull(context.getStartupFailure());
+              assertTrue(context.getBeansOfType(SessionRepository.class).isEmpty());
+            });
+  }
+
+  @Test
+  public void memory_store_keeps_at_most_max_sessions() {
+    contextRunner
+        .withPropertyValues("app.session.store=memory", "app.session.memory.maxSessions=2")
+        .run(
+            context -> {
+              assertNotNull(context.getBean(SessionRepositoryFilter.class));
+              MapSessionRepository repository =
+                  assertInstanceOf(
+                      MapSessionRepository.class, context.getBean(SessionRepository.class));
+
+              MapSession first = repository.createSession();
+              MapSession second = repository.createSession();
+              MapSession third = repository.createSession();
+              repository.save(first);
+              repository.save(second);
+              repository.findById(first.getId()); // first is now the most recently used
+              repository.save(third);
+
+              assertNotNull(repository.findById(first.getId()));
+              assertNull(repository.findById(second.getId()));
+              assertNotNull(repository.findById(third.getId()));
+            });
+  }
+
+  // saves a session that expires a minute after lastUsed
+  private static <S extends Session> void saveSessionLastUsedAt(
+      SessionRepository<S> repository, Instant lastUsed) {
+    S session = repository.createSession();
+    session.setMaxInactiveInterval(Duration.ofMinutes(1));
+    session.setLastAccessedTime(lastUsed);
+    repository.save(session);
+  }
+
+  @Test
+  public void jdbc_store_deletes_expired_sessions_in_batches() {
+    contextRunner
+        .withPropertyValues("app.session.store=jdbc", "app.session.jdbc.cleanupBatchSize=2")
+        .run(
+            context -> {
+              assertNotNull(context.getBean(SessionRepositoryFilter.class));
+              JdbcIndexedSessionRepository repository =
+                  assertInstanceOf(
+                      JdbcIndexedSessionRepository.class, context.getBean(SessionRepository.class));
+
+              for (int i = 0; i < 3; i++) {
+                saveSessionLastUsedAt(repository, Instant.now().minus(Duration.ofHours(1)));
+              }
+              saveSessionLastUsedAt(repository, Instant.now());
+              JdbcTemplate jdbcTemplate = new JdbcTemplate(context.getBean(DataSource.class));
+              String countSessions = "SELECT COUNT(*) FROM SPRING_SESSION";
+              assertEquals(4, jdbcTemplate.queryForObject(countSessions, Integer.class));
+
+              repository.cleanUpExpiredSessions();
+              assertEquals(2, jdbcTemplate.queryForObject(countSessions, Integer.class));
+              repository.cleanUpExpiredSessions();
+              assertEquals(1, jdbcTemplate.queryForObject(countSessions, Integer.class));
+            });
+  }
+
+  @Test
+  public void unknown_store_stops_the_context_from_starting() {
+    contextRunner
+        .withPropertyValues("app.session.store=redis")
+        .run(
+            context -> {
+              BeanCreationException failure =
+                  assertInstanceOf(BeanCreationException.class, context.getStartupFailure());
+              IllegalStateException cause =
+                  assertInstanceOf(IllegalStateException.class, failure.getMostSpecificCause());
+              assertEquals(
+                  "app.session.store must be servlet, memory or jdbc, not redis",
+                  cause.getMessage());
+            });
+  }
+}
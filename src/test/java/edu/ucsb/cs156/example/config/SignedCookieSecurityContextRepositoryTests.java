@@ -0,0 +1,189 @@
+package edu.ucsb.cs156.example.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import edu.ucsb.cs156.example.services.SessionTokenCodec;
+import jakarta.servlet.http.Cookie;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+import org.springframework.security.oauth2.core.user.DefaultOAuth2User;
+import org.springframework.security.web.context.HttpRequestResponseHolder;
+
+public class SignedCookieSecurityContextRepositoryTests {
+
+  private static final String SECRET = "0123456789abcdef0123456789abcdef";
+
+  private final Clock clock = mock(Clock.class);
+
+  private final SessionTokenCodec codec =
+      new SessionTokenCodec(SECRET, Duration.ofMinutes(60), clock);
+
+  private final SignedCookieSecurityContextRepository repository =
+      new SignedCookieSecurityContextRepository(codec, () -> 7L);
+
+  private OAuth2AuthenticationToken login;
+
+  @BeforeEach
+  public void setup() {
+    when(clock.instant()).thenReturn(Instant.ofEpochSecond(1_000_000));
+    List<GrantedAuthority> authorities = AuthorityUtils.createAuthorityList("ROLE_USER");
+    login =
+        new OAuth2AuthenticationToken(
+            new DefaultOAuth2User(
+                authorities, Map.of("sub", "12345", "email", "user@ucsb.edu"), "sub"),
+            authorities,
+            "google");
+  }
+
+  private MockHttpServletRequest requestWithToken(String token) {
+    MockHttpServletRequest request = new MockHttpServletRequest();
+    request.setCookies(
+        new Cookie("other", "x"),
+        new Cookie(SignedCookieSecurityContextRepository.COOKIE_NAME, token));
+    return request;
+  }
+
+  private SecurityContext load(MockHttpServletRequest request) {
+    return repository.loadDeferredContext(request).get();
+  }
+
+  private static SecurityContext contextOf(Authentication auth) {
+    return new SecurityContextImpl(auth);
+  }
+
+  @Test
+  public void save_writes_a_signed_cookie_with_the_user_id() {
+    MockHttpServletRequest request = new MockHttpServletRequest();
+    request.setSecure(true);
+    MockHttpServletResponse response = new MockHttpServletResponse();
+
+    repository.saveContext(contextOf(login), request, response);
+
+    String header = response.getHeader(HttpHeaders.SET_COOKIE);
+    assertTrue(header.startsWith(SignedCookieSecurityContextRepository.COOKIE_NAME + "="));
+    assertTrue(header.contains("Max-Age=3600"));
+    assertTrue(header.contains("Secure"));
+    assertTrue(header.contains("HttpOnly"));
+    assertTrue(header.contains("SameSite=Lax"));
+    String token = response.getCookie(SignedCookieSecurityContextRepository.COOKIE_NAME).getValue();
+    OAuth2AuthenticationToken restored = codec.decode(token);
+    assertEquals("12345", restored.getName());
+    assertEquals(7L, (Long) restored.getPrincipal().getAttribute(SessionTokenCodec.USER_ID));
+  }
+
+  @Test
+  public void saved_cookie_is_loaded_back() {
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    repository.saveContext(contextOf(login), new MockHttpServletRequest(), response);
+    String token = response.getCookie(SignedCookieSecurityContextRepository.COOKIE_NAME).getValue();
+
+    SecurityContext context = load(requestWithToken(token));
+
+    OAuth2AuthenticationToken restored =
+        assertInstanceOf(OAuth2AuthenticationToken.class, context.getAuthentication());
+    assertEquals("user@ucsb.edu", restored.getPrincipal().getAttribute("email"));
+    assertEquals(7L, (Long) restored.getPrincipal().getAttribute(SessionTokenCodec.USER_ID));
+  }
+
+  @Test
+  @SuppressWarnings("deprecation")
+  public void deprecated_load_context_reads_the_cookie() {
+    MockHttpServletRequest request = requestWithToken(codec.encode(login, 7L));
+
+    SecurityContext context =
+        repository.loadContext(new HttpRequestResponseHolder(request, new MockHttpServletResponse()));
+
+    assertEquals("12345", context.getAuthentication().getName());
+  }
+
+  @Test
+  public void expired_cookie_gives_an_empty_context() {
+    String token = codec.encode(login, 7L);
+    when(clock.instant()).thenReturn(Instant.ofEpochSecond(1_000_000 + 3600));
+
+    MockHttpServletRequest request = requestWithToken(token);
+
+    assertNull(load(request).getAuthentication());
+    assertTrue(repository.containsContext(request));
+  }
+
+  @Test
+  public void tampered_cookie_gives_an_empty_context() {
+    String token = codec.encode(login, 7L);
+    String tampered = "e30" + token.substring(token.indexOf('.'));
+
+    assertNull(load(requestWithToken(tampered)).getAuthentication());
+    assertNull(load(requestWithToken(token + "x")).getAuthentication());
+  }
+
+  @Test
+  public void missing_cookie_gives_an_empty_context() {
+    MockHttpServletRequest noCookies = new MockHttpServletRequest();
+    MockHttpServletRequest otherCookies = new MockHttpServletRequest();
+    otherCookies.setCookies(new Cookie("JSESSIONID", "abc"));
+
+    assertNull(load(noCookies).getAuthentication());
+    assertNull(load(otherCookies).getAuthentication());
+    assertFalse(repository.containsContext(noCookies));
+    assertFalse(repository.containsContext(otherCookies));
+  }
+
+  @Test
+  public void contains_context_when_the_cookie_is_present() {
+    assertTrue(repository.containsContext(requestWithToken(codec.encode(login, 7L))));
+  }
+
+  @Test
+  public void saving_an_empty_context_clears_the_cookie() {
+    MockHttpServletResponse response = new MockHttpServletResponse();
+
+    repository.saveContext(
+        new SecurityContextImpl(), requestWithToken(codec.encode(login, 7L)), response);
+
+    Cookie cleared = response.getCookie(SignedCookieSecurityContextRepository.COOKIE_NAME);
+    assertEquals("", cleared.getValue());
+    assertEquals(0, cleared.getMaxAge());
+  }
+
+  @Test
+  public void saving_an_empty_context_without_a_cookie_writes_nothing() {
+    MockHttpServletResponse response = new MockHttpServletResponse();
+
+    repository.saveContext(new SecurityContextImpl(), new MockHttpServletRequest(), response);
+
+    assertNull(response.getHeader(HttpHeaders.SET_COOKIE));
+  }
+
+  @Test
+  public void other_kinds_of_login_are_not_saved() {
+    MockHttpServletResponse response = new MockHttpServletResponse();
+
+    repository.saveContext(
+        contextOf(new TestingAuthenticationToken("user", "password", "ROLE_USER")),
+        requestWithToken(codec.encode(login, 7L)),
+        response);
+
+    assertNull(response.getHeader(HttpHeaders.SET_COOKIE));
+  }
+}
@@ -0,0 +1,64 @@
+package edu.ucsb.cs156.example.config;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.controllers.FrontendController;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.test.web.servlet.MvcResult;
+
+@WebMvcTest(controllers = FrontendController.class)
+public class StaticResourceConfigTests extends ControllerTestCase {
+
+  private static final String ASSET = "/static/js/main.0a1b2c3d.js";
+
+  @MockBean UserRepository userRepository;
+
+  @Test
+  public void hashed_asset_is_cached_for_a_year() throws Exception {
+    MvcResult response = mockMvc.perform(get(ASSET)).andExpect(status().isOk()).andReturn();
+
+    assertEquals(
+        "max-age=31536000, public, immutable",
+        response.getResponse().getHeader("Cache-Control"));
+    assertNull(response.getResponse().getHeader("Content-Encoding"));
+    assertEquals(
+        "console.log('static asset test');\n", response.getResponse().getContentAsString());
+  }
+
+  @Test
+  public void precompressed_variant_is_served_when_accepted() throws Exception {
+    MvcResult response =
+        mockMvc
+            .perform(get(ASSET).header("Accept-Encoding", "gzip, deflate, br"))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    assertEquals("gzip", response.getResponse().getHeader("Content-Encoding"));
+    assertEquals("Accept-Encoding", response.getResponse().getHeader("Vary"));
+    assertArrayEquals(
+        new ClassPathResource("public" + ASSET + ".gz").getContentAsByteArray(),
+        response.getResponse().getContentAsByteArray());
+  }
+
+  @Test
+  public void asset_request_gets_no_session_or_csrf_cookie() throws Exception {
+    MvcResult response = mockMvc.perform(get(ASSET)).andExpect(status().isOk()).andReturn();
+
+    assertNull(response.getRequest().getSession(false));
+    assertEquals(0, response.getResponse().getCookies().length);
+  }
+
+  @Test
+  public void missing_asset_is_not_found() throws Exception {
+    mockMvc.perform(get("/static/js/missing.js")).andExpect(status().isNotFound());
+  }
+}
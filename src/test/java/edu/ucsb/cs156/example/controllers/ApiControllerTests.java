@@ -2,20 +2,55 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.entities.Restaurant;
+import edu.ucsb.cs156.example.repositories.KeysetPagingRepository;
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Root;
 
+import org.hibernate.query.criteria.HibernateCriteriaBuilder;
+import org.hibernate.query.criteria.JpaOrder;
+import org.hibernate.query.criteria.JpaPredicate;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.repository.query.FluentQuery.FetchableFluentQuery;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.server.ResponseStatusException;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 @WebMvcTest(controllers = DummyController.class)
 @Import(TestConfig.class)
@@ -58,5 +93,362 @@ public class ApiControllerTests extends ControllerTestCase {
                 assertEquals("String with id 7 not found", json.get("message"));
         }
 
-}
+        @Test
+        public void test_that_job_queue_full_returns_too_many_requests() throws Exception {
+
+                // act
+                MvcResult response = mockMvc.perform(get("/dummycontroller/busy"))
+                                .andExpect(status().isTooManyRequests()).andReturn();
+
+                // assert
+
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("JobQueueFullException", json.get("type"));
+                assertEquals("Job queue is full; try again later", json.get("message"));
+        }
+
+        // keysetPage
+
+        private final ApiController.Keyset keyset = new ApiController.Keyset("id", Set.of("id", "name"));
+
+        private final Restaurant a = Restaurant.builder().id(1L).name("a").build();
+        private final Restaurant b = Restaurant.builder().id(2L).name("b").build();
+        private final Restaurant c = Restaurant.builder().id(3L).name("c").build();
+
+        @SuppressWarnings("unchecked")
+        private final KeysetPagingRepository<Restaurant, Long> repository = mock(KeysetPagingRepository.class);
+
+        @SuppressWarnings("unchecked")
+        private final FetchableFluentQuery<Restaurant> query = mock(FetchableFluentQuery.class);
+
+        @SuppressWarnings("unchecked")
+        private ArgumentCaptor<Specification<Restaurant>> stubQuery(List<Restaurant> rows) {
+                when(query.limit(anyInt())).thenReturn(query);
+                when(query.all()).thenReturn(rows);
+                when(repository.findBy(any(Specification.class), any())).thenAnswer(invocation -> {
+                        Function<FetchableFluentQuery<Restaurant>, List<Restaurant>> function = invocation.getArgument(1);
+                        return function.apply(query);
+                });
+                ArgumentCaptor<Specification<Restaurant>> spec = ArgumentCaptor.forClass(Specification.class);
+                return spec;
+        }
+
+        private ResponseEntity<List<Restaurant>> page(String sort, String cursor, int size) {
+                MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/restaurants/page");
+                request.setQueryString("sort=" + sort + "&size=" + size);
+                RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+                return new DummyController().keysetPage(repository, keyset, sort, cursor, size);
+        }
+
+        private static String cursor(String json) {
+                return Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @AfterEach
+        public void clear_request() {
+                RequestContextHolder.resetRequestAttributes();
+        }
+
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        @Test
+        public void keyset_last_page_has_no_link() {
+                ArgumentCaptor<Specification<Restaurant>> spec = stubQuery(List.of(a, b));
+
+                ResponseEntity<List<Restaurant>> response = page("id", null, 2);
+
+                assertEquals(List.of(a, b), response.getBody());
+                assertFalse(response.getHeaders().containsKey("Link"));
+                assertFalse(response.getHeaders().containsKey("X-Next-Cursor"));
+                verify(query).limit(3);
+                verify(repository).findBy(spec.capture(), any());
+                Root<Restaurant> root = mock(Root.class);
+                Path id = mock(Path.class);
+                CriteriaQuery<?> criteriaQuery = mock(CriteriaQuery.class);
+                CriteriaBuilder cb = mock(CriteriaBuilder.class);
+                Order idAsc = mock(Order.class);
+                when(root.get("id")).thenReturn(id);
+                when(cb.asc(id)).thenReturn(idAsc);
+                assertNull(spec.getValue().toPredicate(root, criteriaQuery, cb));
+                verify(criteriaQuery).orderBy(idAsc);
+        }
+
+        @Test
+        public void keyset_page_size_is_clamped() {
+                stubQuery(List.of());
+
+                page("id", null, 1000);
+                verify(query).limit(ApiController.MAX_PAGE_SIZE + 1);
+
+                page("id", null, 0);
+                verify(query).limit(2);
+        }
+
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        @Test
+        public void keyset_page_links_to_next_page() {
+                ArgumentCaptor<Specification<Restaurant>> spec = stubQuery(List.of(c, b, a));
+
+                ResponseEntity<List<Restaurant>> response = page("name,desc", null, 2);
+
+                String expectedCursor = cursor("[\"name\",\"b\",2]");
+                assertEquals(List.of(c, b), response.getBody());
+                assertEquals(expectedCursor, response.getHeaders().getFirst("X-Next-Cursor"));
+                assertEquals("<http://localhost/api/restaurants/page?sort=name,desc&size=2&cursor=" + expectedCursor + ">; rel=\"next\"",
+                                response.getHeaders().getFirst("Link"));
+                verify(repository).findBy(spec.capture(), any());
+                Root<Restaurant> root = mock(Root.class);
+                Path id = mock(Path.class);
+                Path name = mock(Path.class);
+                CriteriaQuery<?> criteriaQuery = mock(CriteriaQuery.class);
+                HibernateCriteriaBuilder cb = mock(HibernateCriteriaBuilder.class);
+                JpaOrder nameDescNullsFirst = mock(JpaOrder.class);
+                JpaOrder idDesc = mock(JpaOrder.class);
+                when(root.get("id")).thenReturn(id);
+                when(root.get("name")).thenReturn(name);
+                when(cb.desc(name, true)).thenReturn(nameDescNullsFirst);
+                when(cb.desc(id)).thenReturn(idDesc);
+                assertNull(spec.getValue().toPredicate(root, criteriaQuery, cb));
+                verify(criteriaQuery).orderBy(nameDescNullsFirst, idDesc);
+        }
+
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        @Test
+        public void keyset_cursor_continues_after_last_row_descending() {
+                ArgumentCaptor<Specification<Restaurant>> spec = stubQuery(List.of(a));
+                Root<Restaurant> root = mock(Root.class);
+                Path id = mock(Path.class);
+                Path name = mock(Path.class);
+                HibernateCriteriaBuilder cb = mock(HibernateCriteriaBuilder.class);
+                JpaPredicate nameBefore = mock(JpaPredicate.class);
+                JpaPredicate idBefore = mock(JpaPredicate.class);
+                JpaPredicate sameName = mock(JpaPredicate.class);
+                JpaPredicate sameNameIdBefore = mock(JpaPredicate.class);
+                JpaPredicate expected = mock(JpaPredicate.class);
+                when(root.get("id")).thenReturn(id);
+                when(root.get("name")).thenReturn(name);
+                when(id.getJavaType()).thenReturn(long.class);
+                when(name.getJavaType()).thenReturn(String.class);
+                when(cb.lessThan(id, (Comparable) 2L)).thenReturn(idBefore);
+                when(cb.lessThan(name, (Comparable) "b")).thenReturn(nameBefore);
+                when(cb.equal(name, "b")).thenReturn(sameName);
+                when(cb.and(sameName, idBefore)).thenReturn(sameNameIdBefore);
+                when(cb.or(nameBefore, sameNameIdBefore)).thenReturn(expected);
+
+                ResponseEntity<List<Restaurant>> response = page("name,desc", cursor("[\"name\",\"b\",2]"), 2);
+
+                assertEquals(List.of(a), response.getBody());
+                verify(repository).findBy(spec.capture(), any());
+                assertSame(expected, spec.getValue().toPredicate(root, mock(CriteriaQuery.class), cb));
+        }
+
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        @Test
+        public void keyset_cursor_continues_after_last_row_ascending() {
+                ArgumentCaptor<Specification<Restaurant>> spec = stubQuery(List.of(c));
+                Root<Restaurant> root = mock(Root.class);
+                Path id = mock(Path.class);
+                Path name = mock(Path.class);
+                HibernateCriteriaBuilder cb = mock(HibernateCriteriaBuilder.class);
+                JpaPredicate nameAfter = mock(JpaPredicate.class);
+                JpaPredicate idAfter = mock(JpaPredicate.class);
+                JpaPredicate sameName = mock(JpaPredicate.class);
+                JpaPredicate sameNameIdAfter = mock(JpaPredicate.class);
+                JpaPredicate nameNull = mock(JpaPredicate.class);
+                JpaPredicate expected = mock(JpaPredicate.class);
+                when(root.get("id")).thenReturn(id);
+                when(root.get("name")).thenReturn(name);
+                when(id.getJavaType()).thenReturn(long.class);
+                when(name.getJavaType()).thenReturn(String.class);
+                when(cb.greaterThan(id, (Comparable) 2L)).thenReturn(idAfter);
+                when(cb.greaterThan(name, (Comparable) "b")).thenReturn(nameAfter);
+                when(cb.equal(name, "b")).thenReturn(sameName);
+                when(cb.and(sameName, idAfter)).thenReturn(sameNameIdAfter);
+                when(cb.isNull(name)).thenReturn(nameNull);
+                when(cb.or(nameAfter, sameNameIdAfter, nameNull)).thenReturn(expected);
+
+                page("name,asc", cursor("[\"name\",\"b\",2]"), 2);
+
+                verify(repository).findBy(spec.capture(), any());
+                assertSame(expected, spec.getValue().toPredicate(root, mock(CriteriaQuery.class), cb));
+        }
 
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        @Test
+        public void keyset_cursor_on_id_compares_id_only() {
+                ArgumentCaptor<Specification<Restaurant>> spec = stubQuery(List.of(c));
+                Root<Restaurant> root = mock(Root.class);
+                Path id = mock(Path.class);
+                CriteriaBuilder cb = mock(CriteriaBuilder.class);
+                JpaPredicate idAfter = mock(JpaPredicate.class);
+                when(root.get("id")).thenReturn(id);
+                when(id.getJavaType()).thenReturn(long.class);
+                when(cb.greaterThan(id, (Comparable) 2L)).thenReturn(idAfter);
+
+                page("id", cursor("[\"id\",2,2]"), 2);
+
+                verify(repository).findBy(spec.capture(), any());
+                assertSame(idAfter, spec.getValue().toPredicate(root, mock(CriteriaQuery.class), cb));
+        }
+
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        @Test
+        public void keyset_cursor_after_null_value_ascending_stays_among_nulls() {
+                ArgumentCaptor<Specification<Restaurant>> spec = stubQuery(List.of(c));
+                Root<Restaurant> root = mock(Root.class);
+                Path id = mock(Path.class);
+                Path name = mock(Path.class);
+                HibernateCriteriaBuilder cb = mock(HibernateCriteriaBuilder.class);
+                JpaPredicate idAfter = mock(JpaPredicate.class);
+                JpaPredicate nameNull = mock(JpaPredicate.class);
+                JpaPredicate expected = mock(JpaPredicate.class);
+                when(root.get("id")).thenReturn(id);
+                when(root.get("name")).thenReturn(name);
+                when(id.getJavaType()).thenReturn(long.class);
+                when(cb.greaterThan(id, (Comparable) 2L)).thenReturn(idAfter);
+                when(cb.isNull(name)).thenReturn(nameNull);
+                when(cb.and(nameNull, idAfter)).thenReturn(expected);
+
+                page("name", cursor("[\"name\",null,2]"), 2);
+
+                verify(repository).findBy(spec.capture(), any());
+                assertSame(expected, spec.getValue().toPredicate(root, mock(CriteriaQuery.class), cb));
+        }
+
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        @Test
+        public void keyset_cursor_after_null_value_descending_continues_with_values() {
+                ArgumentCaptor<Specification<Restaurant>> spec = stubQuery(List.of(c));
+                Root<Restaurant> root = mock(Root.class);
+                Path id = mock(Path.class);
+                Path name = mock(Path.class);
+                HibernateCriteriaBuilder cb = mock(HibernateCriteriaBuilder.class);
+                JpaPredicate idBefore = mock(JpaPredicate.class);
+                JpaPredicate nameNull = mock(JpaPredicate.class);
+                JpaPredicate nameNullIdBefore = mock(JpaPredicate.class);
+                JpaPredicate nameNotNull = mock(JpaPredicate.class);
+                JpaPredicate expected = mock(JpaPredicate.class);
+                when(root.get("id")).thenReturn(id);
+                when(root.get("name")).thenReturn(name);
+                when(id.getJavaType()).thenReturn(long.class);
+                when(cb.lessThan(id, (Comparable) 2L)).thenReturn(idBefore);
+                when(cb.isNull(name)).thenReturn(nameNull);
+                when(cb.and(nameNull, idBefore)).thenReturn(nameNullIdBefore);
+                when(cb.isNotNull(name)).thenReturn(nameNotNull);
+                when(cb.or(nameNullIdBefore, nameNotNull)).thenReturn(expected);
+
+                page("name,desc", cursor("[\"name\",null,2]"), 2);
+
+                verify(repository).findBy(spec.capture(), any());
+                assertSame(expected, spec.getValue().toPredicate(root, mock(CriteriaQuery.class), cb));
+        }
+
+        @Test
+        public void keyset_cursor_of_row_with_null_value_holds_null() {
+                Restaurant unnamed = Restaurant.builder().id(4L).build();
+                stubQuery(List.of(a, unnamed, b));
+
+                ResponseEntity<List<Restaurant>> response = page("name", null, 2);
+
+                assertEquals(cursor("[\"name\",null,4]"), response.getHeaders().getFirst("X-Next-Cursor"));
+        }
+
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        @Test
+        public void keyset_cursor_is_utf8() {
+                Restaurant cafe = Restaurant.builder().id(4L).name("Caf\u00e9 \u6771").build();
+                ArgumentCaptor<Specification<Restaurant>> spec = stubQuery(List.of(cafe, c));
+
+                String nextCursor = page("name", null, 1).getHeaders().getFirst("X-Next-Cursor");
+
+                assertEquals(cursor("[\"name\",\"Caf\u00e9 \u6771\",4]"), nextCursor);
+                assertEquals("[\"name\",\"Caf\u00e9 \u6771\",4]",
+                                new String(Base64.getUrlDecoder().decode(nextCursor), StandardCharsets.UTF_8));
+
+                // the cursor decodes back to the same value
+                Root<Restaurant> root = mock(Root.class);
+                Path id = mock(Path.class);
+                Path name = mock(Path.class);
+                HibernateCriteriaBuilder cb = mock(HibernateCriteriaBuilder.class);
+                when(root.get("id")).thenReturn(id);
+                when(root.get("name")).thenReturn(name);
+                when(id.getJavaType()).thenReturn(long.class);
+                when(name.getJavaType()).thenReturn(String.class);
+
+                page("name", nextCursor, 1);
+
+                verify(repository, times(2)).findBy(spec.capture(), any());
+                spec.getValue().toPredicate(root, mock(CriteriaQuery.class), cb);
+                verify(cb).greaterThan(name, (Comparable) "Caf\u00e9 \u6771");
+        }
+
+        @Test
+        public void keyset_rejects_sort_not_in_whitelist() {
+                for (String sort : List.of("description", "name,sideways")) {
+                        ResponseStatusException e = assertThrows(ResponseStatusException.class, () -> page(sort, null, 2));
+                        assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+                }
+        }
+
+        @Test
+        public void keyset_rejects_invalid_cursor() {
+                stubQuery(List.of());
+                for (String cursor : List.of("not base64!", cursor("not json"), cursor("[\"id\",2]"), cursor("[\"name\",\"b\",2]"))) {
+                        ResponseStatusException e = assertThrows(ResponseStatusException.class, () -> page("id", cursor, 2));
+                        assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+                }
+        }
+
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        @Test
+        public void keyset_page_applies_the_filter() {
+                ArgumentCaptor<Specification<Restaurant>> spec = stubQuery(List.of(a));
+                JpaPredicate matches = mock(JpaPredicate.class);
+                Specification<Restaurant> filter = (root, query, cb) -> matches;
+                RequestContextHolder.setRequestAttributes(
+                                new ServletRequestAttributes(new MockHttpServletRequest("GET", "/api/restaurants/page")));
+
+                ResponseEntity<List<Restaurant>> response =
+                                new DummyController().keysetPage(repository, keyset, filter, "id", null, 2);
+
+                assertEquals(List.of(a), response.getBody());
+                verify(repository).findBy(spec.capture(), any());
+                Root<Restaurant> root = mock(Root.class);
+                CriteriaQuery<?> criteriaQuery = mock(CriteriaQuery.class);
+                CriteriaBuilder cb = mock(CriteriaBuilder.class);
+                when(root.get("id")).thenReturn(mock(Path.class));
+                assertSame(matches, spec.getValue().toPredicate(root, criteriaQuery, cb));
+        }
+
+        @Test
+        public void filters_match_everything_when_their_value_is_null() {
+                assertNull(ApiController.attributeEquals("name", null));
+                assertNull(ApiController.attributeAtLeast("id", null));
+                assertNull(ApiController.attributeBefore("id", null));
+                assertNull(ApiController.attributeStartsWith("name", null));
+        }
+
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        @Test
+        public void filters_compare_the_attribute_with_the_value() {
+                Root<Restaurant> root = mock(Root.class);
+                CriteriaQuery<?> criteriaQuery = mock(CriteriaQuery.class);
+                CriteriaBuilder cb = mock(CriteriaBuilder.class);
+                Path id = mock(Path.class);
+                Path name = mock(Path.class);
+                when(root.get("id")).thenReturn(id);
+                when(root.get("name")).thenReturn(name);
+                JpaPredicate equal = mock(JpaPredicate.class);
+                JpaPredicate atLeast = mock(JpaPredicate.class);
+                JpaPredicate before = mock(JpaPredicate.class);
+                JpaPredicate like = mock(JpaPredicate.class);
+                when(cb.equal(name, "a")).thenReturn(equal);
+                when(cb.greaterThanOrEqualTo(id, (Comparable) 2L)).thenReturn(atLeast);
+                when(cb.lessThan(id, (Comparable) 5L)).thenReturn(before);
+                when(cb.like(name, "50\\%\\_off\\\\%", '\\')).thenReturn(like);
+
+                assertSame(equal, ApiController.<Restaurant>attributeEquals("name", "a").toPredicate(root, criteriaQuery, cb));
+                assertSame(atLeast, ApiController.<Restaurant, Long>attributeAtLeast("id", 2L).toPredicate(root, criteriaQuery, cb));
+                assertSame(before, ApiController.<Restaurant, Long>attributeBefore("id", 5L).toPredicate(root, criteriaQuery, cb));
+                assertSame(like, ApiController.<Restaurant>attributeStartsWith("name", "50%_off\\").toPredicate(root, criteriaQuery, cb));
+        }
+}
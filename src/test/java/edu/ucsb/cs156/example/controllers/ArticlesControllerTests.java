@@ -5,6 +5,8 @@ import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.Article;
 import edu.ucsb.cs156.example.repositories.ArticlesRepository;
+import edu.ucsb.cs156.example.services.EntityStreamService;
+import edu.ucsb.cs156.example.services.EntityExportService;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -22,7 +24,11 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 
 import java.util.Optional;
+import java.util.List;
 import java.time.LocalDateTime;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
@@ -38,6 +44,12 @@ public class ArticlesControllerTests extends ControllerTestCase {
     @MockBean
     ArticlesRepository articlesRepository;
 
+    @MockBean
+    EntityStreamService entityStreamService;
+
+    @MockBean
+    EntityExportService entityExportService;
+
     @MockBean
     UserRepository userRepository;
 
@@ -246,7 +258,7 @@ public class ArticlesControllerTests extends ControllerTestCase {
 
         // assert
         verify(articlesRepository, times(1)).findById(15L);
-        verify(articlesRepository, times(1)).delete(any());
+        verify(articlesRepository, times(1)).delete(any(Article.class));
 
         Map<String, Object> json = responseToJson(response);
         assertEquals("Article with id 15 deleted", json.get("message"));
@@ -504,4 +516,76 @@ public class ArticlesControllerTests extends ControllerTestCase {
         String responseString = response.getResponse().getContentAsString();
         assertEquals(requestBody, responseString);
     }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_can_get_a_page_of_articles() throws Exception {
+
+        // arrange
+
+        when(articlesRepository.findBy(any(Specification.class), any())).thenReturn(List.of());
+
+        // act
+
+        MvcResult response = mockMvc.perform(get("/api/articles/page?sort=dateAdded,desc&size=10"))
+                .andExpect(status().isOk()).andReturn();
+
+        // assert
+
+        verify(articlesRepository, times(1)).findBy(any(Specification.class), any());
+        assertEquals("[]", response.getResponse().getContentAsString());
+    }
+
+    @Test
+    public void logged_out_users_cannot_stream_all() throws Exception {
+        mockMvc.perform(get("/api/articles/all/stream"))
+                .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_can_stream_all() throws Exception {
+        // arrange
+
+        StreamingResponseBody body = out -> out.write("[]".getBytes());
+        when(entityStreamService.streamAll(eq(articlesRepository))).thenReturn(ResponseEntity.ok().body(body));
+
+        // act
+
+        MvcResult started = mockMvc.perform(get("/api/articles/all/stream"))
+                .andExpect(request().asyncStarted()).andReturn();
+        MvcResult response = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk()).andReturn();
+
+        // assert
+
+        verify(entityStreamService, times(1)).streamAll(eq(articlesRepository));
+        assertEquals("[]", response.getResponse().getContentAsString());
+    }
+
+    @Test
+    public void logged_out_users_cannot_export() throws Exception {
+        mockMvc.perform(get("/api/articles/export"))
+                .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void export_passes_format_and_accept_encoding() throws Exception {
+        // arrange
+
+        StreamingResponseBody body = out -> { };
+        when(entityExportService.export(ArticlesController.EXPORT, "ndjson", "gzip"))
+                .thenReturn(ResponseEntity.ok().body(body));
+
+        // act
+
+        MvcResult started = mockMvc.perform(get("/api/articles/export?format=ndjson").header("Accept-Encoding", "gzip"))
+                .andExpect(request().asyncStarted()).andReturn();
+        mockMvc.perform(asyncDispatch(started)).andExpect(status().isOk());
+
+        // assert
+
+        verify(entityExportService, times(1)).export(ArticlesController.EXPORT, "ndjson", "gzip");
+    }
 }
@@ -6,10 +6,11 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.errors.JobQueueFullException;
 
 
 /**
- * This class is used to test ApiController and EntityNotFoundException
+ * This class is used to test ApiController, EntityNotFoundException and JobQueueFullException
  */
 
 @RequestMapping("/dummycontroller")
@@ -23,4 +24,9 @@ public class DummyController extends ApiController {
         }
         throw new EntityNotFoundException(String.class, id);
     }
+
+    @GetMapping("/busy")
+    public String busy() throws JobQueueFullException {
+        throw new JobQueueFullException();
+    }
 }
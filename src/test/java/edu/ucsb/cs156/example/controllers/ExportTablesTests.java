@@ -0,0 +1,80 @@
+package edu.ucsb.cs156.example.controllers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import edu.ucsb.cs156.example.services.EntityExportService;
+import edu.ucsb.cs156.example.services.EntityExportService.ExportTable;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import liquibase.integration.spring.SpringLiquibase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Checks the table and properties each controller exports against the schema built by the
+ * application's migrations. How the rows are written is tested in EntityExportServiceTests; the
+ * controller tests only check that each /export endpoint passes its table to the service.
+ */
+public class ExportTablesTests {
+
+  private static final List<ExportTable> EXPORT_TABLES =
+      List.of(
+          ArticlesController.EXPORT,
+          HelpRequestController.EXPORT,
+          MenuItemReviewController.EXPORT,
+          RecommendationRequestController.EXPORT,
+          RestaurantsController.EXPORT,
+          UCSBDatesController.EXPORT,
+          UCSBDiningCommonsController.EXPORT,
+          UCSBDiningCommonsMenuItemController.EXPORT,
+          UCSBOrganizationController.EXPORT);
+
+  private EmbeddedDatabase database;
+
+  private final EntityExportService service = new EntityExportService();
+
+  @BeforeEach
+  public void setup() throws Exception {
+    database =
+        new EmbeddedDatabaseBuilder()
+            .setType(EmbeddedDatabaseType.H2)
+            .generateUniqueName(true)
+            .build();
+    SpringLiquibase liquibase = new SpringLiquibase();
+    liquibase.setDataSource(database);
+    liquibase.setChangeLog("classpath:db/migration/changelog-master.json");
+    liquibase.setResourceLoader(new DefaultResourceLoader());
+    liquibase.afterPropertiesSet();
+    ReflectionTestUtils.setField(service, "jdbcTemplate", new JdbcTemplate(database));
+    ReflectionTestUtils.setField(
+        service, "transactionManager", new DataSourceTransactionManager(database));
+  }
+
+  @AfterEach
+  public void teardown() {
+    database.shutdown();
+  }
+
+  @Test
+  public void every_export_table_matches_the_schema() throws Exception {
+    for (ExportTable table : EXPORT_TABLES) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+      service.export(table, "csv", null).getBody().writeTo(out);
+
+      assertEquals(
+          String.join(",", table.properties()) + "\r\n",
+          out.toString(StandardCharsets.UTF_8),
+          table.table());
+    }
+  }
+}
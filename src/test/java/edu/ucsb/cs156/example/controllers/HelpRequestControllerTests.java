@@ -5,6 +5,8 @@ import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.HelpRequest;
 import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
+import edu.ucsb.cs156.example.services.EntityStreamService;
+import edu.ucsb.cs156.example.services.EntityExportService;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -24,6 +26,10 @@ import static org.springframework.security.test.web.servlet.request.SecurityMock
 import java.time.LocalDateTime;
 
 import java.util.Optional;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
@@ -39,6 +45,12 @@ public class HelpRequestControllerTests extends ControllerTestCase {
         @MockBean
         HelpRequestRepository helpRequestRepository;
 
+        @MockBean
+        EntityStreamService entityStreamService;
+
+        @MockBean
+        EntityExportService entityExportService;
+
         @MockBean
         UserRepository userRepository;
 
@@ -261,7 +273,7 @@ public class HelpRequestControllerTests extends ControllerTestCase {
 
                 // assert
                 verify(helpRequestRepository, times(1)).findById(15L);
-                verify(helpRequestRepository, times(1)).delete(any());
+                verify(helpRequestRepository, times(1)).delete(any(HelpRequest.class));
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("HelpRequest with id 15 deleted", json.get("message"));
@@ -368,5 +380,76 @@ public class HelpRequestControllerTests extends ControllerTestCase {
                 assertEquals("HelpRequest with id 67 not found", json.get("message"));
 
         }
-}
 
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_a_page_of_help_requests() throws Exception {
+
+                // arrange
+
+                when(helpRequestRepository.findBy(any(Specification.class), any())).thenReturn(List.of());
+
+                // act
+
+                MvcResult response = mockMvc.perform(get("/api/helprequest/page?sort=localDateTime,desc&size=10"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(helpRequestRepository, times(1)).findBy(any(Specification.class), any());
+                assertEquals("[]", response.getResponse().getContentAsString());
+        }
+
+        @Test
+        public void logged_out_users_cannot_stream_all() throws Exception {
+                mockMvc.perform(get("/api/helprequest/all/stream"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_stream_all() throws Exception {
+                // arrange
+
+                StreamingResponseBody body = out -> out.write("[]".getBytes());
+                when(entityStreamService.streamAll(eq(helpRequestRepository))).thenReturn(ResponseEntity.ok().body(body));
+
+                // act
+
+                MvcResult started = mockMvc.perform(get("/api/helprequest/all/stream"))
+                                .andExpect(request().asyncStarted()).andReturn();
+                MvcResult response = mockMvc.perform(asyncDispatch(started))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(entityStreamService, times(1)).streamAll(eq(helpRequestRepository));
+                assertEquals("[]", response.getResponse().getContentAsString());
+        }
+
+        @Test
+        public void logged_out_users_cannot_export() throws Exception {
+                mockMvc.perform(get("/api/helprequest/export"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void export_passes_format_and_accept_encoding() throws Exception {
+                // arrange
+
+                StreamingResponseBody body = out -> { };
+                when(entityExportService.export(HelpRequestController.EXPORT, "ndjson", "gzip"))
+                                .thenReturn(ResponseEntity.ok().body(body));
+
+                // act
+
+                MvcResult started = mockMvc.perform(get("/api/helprequest/export?format=ndjson").header("Accept-Encoding", "gzip"))
+                                .andExpect(request().asyncStarted()).andReturn();
+                mockMvc.perform(asyncDispatch(started)).andExpect(status().isOk());
+
+                // assert
+
+                verify(entityExportService, times(1)).export(HelpRequestController.EXPORT, "ndjson", "gzip");
+        }
+}
@@ -7,7 +7,12 @@ import edu.ucsb.cs156.example.entities.UCSBDate;
 import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
 import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
+import edu.ucsb.cs156.example.services.EntityStreamService;
+import edu.ucsb.cs156.example.services.EntityExportService;
+import edu.ucsb.cs156.example.services.EntityImportService;
+import edu.ucsb.cs156.example.models.ImportReport;
 
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Map;
@@ -29,6 +34,10 @@ import static org.springframework.security.test.web.servlet.request.SecurityMock
 import java.time.LocalDateTime;
 
 import java.util.Optional;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
@@ -43,6 +52,15 @@ public class ItemsControllerTests extends ControllerTestCase{
     @MockBean
     UCSBDiningCommonsMenuItemRepository ucsbDiningCommonsMenuItemRepository;
 
+    @MockBean
+    EntityStreamService entityStreamService;
+
+    @MockBean
+    EntityExportService entityExportService;
+
+    @MockBean
+    EntityImportService entityImportService;
+
     @MockBean
     UserRepository userRepository;
 
@@ -268,7 +286,7 @@ public class ItemsControllerTests extends ControllerTestCase{
 
                 // assert
                 verify(ucsbDiningCommonsMenuItemRepository, times(1)).findById(15L);
-                verify(ucsbDiningCommonsMenuItemRepository, times(1)).delete(any());
+                verify(ucsbDiningCommonsMenuItemRepository, times(1)).delete(any(UCSBDiningCommonsMenuItem.class));
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBDiningCommonsMenuItem with id 15 deleted", json.get("message"));
@@ -293,4 +311,118 @@ public class ItemsControllerTests extends ControllerTestCase{
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBDiningCommonsMenuItem with id 15 not found", json.get("message"));
         }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_a_page_of_menu_items() throws Exception {
+
+                // arrange
+
+                when(ucsbDiningCommonsMenuItemRepository.findBy(any(Specification.class), any())).thenReturn(List.of());
+
+                // act
+
+                MvcResult response = mockMvc.perform(get("/api/menuitems/page?sort=diningCommonsCode,desc&size=10"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(ucsbDiningCommonsMenuItemRepository, times(1)).findBy(any(Specification.class), any());
+                assertEquals("[]", response.getResponse().getContentAsString());
+        }
+
+    @Test
+    public void logged_out_users_cannot_stream_all() throws Exception {
+        mockMvc.perform(get("/api/menuitems/all/stream"))
+                .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_can_stream_all() throws Exception {
+        // arrange
+
+        StreamingResponseBody body = out -> out.write("[]".getBytes());
+        when(entityStreamService.streamAll(eq(ucsbDiningCommonsMenuItemRepository))).thenReturn(ResponseEntity.ok().body(body));
+
+        // act
+
+        MvcResult started = mockMvc.perform(get("/api/menuitems/all/stream"))
+                .andExpect(request().asyncStarted()).andReturn();
+        MvcResult response = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk()).andReturn();
+
+        // assert
+
+        verify(entityStreamService, times(1)).streamAll(eq(ucsbDiningCommonsMenuItemRepository));
+        assertEquals("[]", response.getResponse().getContentAsString());
+    }
+
+    @Test
+    public void logged_out_users_cannot_export() throws Exception {
+        mockMvc.perform(get("/api/menuitems/export"))
+                .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void export_passes_format_and_accept_encoding() throws Exception {
+        // arrange
+
+        StreamingResponseBody body = out -> { };
+        when(entityExportService.export(UCSBDiningCommonsMenuItemController.EXPORT, "ndjson", "gzip"))
+                .thenReturn(ResponseEntity.ok().body(body));
+
+        // act
+
+        MvcResult started = mockMvc.perform(get("/api/menuitems/export?format=ndjson").header("Accept-Encoding", "gzip"))
+                .andExpect(request().asyncStarted()).andReturn();
+        mockMvc.perform(asyncDispatch(started)).andExpect(status().isOk());
+
+        // assert
+
+        verify(entityExportService, times(1)).export(UCSBDiningCommonsMenuItemController.EXPORT, "ndjson", "gzip");
+    }
+
+    @Test
+    public void logged_out_users_cannot_import() throws Exception {
+        mockMvc.perform(post("/api/menuitems/import").with(csrf()).contentType("text/csv").content("name\n"))
+                .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_regular_users_cannot_import() throws Exception {
+        mockMvc.perform(post("/api/menuitems/import").with(csrf()).contentType("text/csv").content("name\n"))
+                .andExpect(status().is(403)); // only admins can import
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void an_admin_user_can_import() throws Exception {
+        // arrange
+
+        String csv = "diningCommonsCode,name,station\nortega,Baked Pesto Pasta,Entree Specials\n";
+        ImportReport report = ImportReport.builder().rowsRead(1).rowsImported(1).errors(List.of()).build();
+        when(entityImportService.importBody(eq(UCSBDiningCommonsMenuItemController.IMPORT), eq("text/csv"), eq((long) csv.length()), any(InputStream.class)))
+                .thenReturn(ResponseEntity.ok(report));
+
+        // act
+
+        MvcResult response = mockMvc.perform(post("/api/menuitems/import").with(csrf()).contentType("text/csv").content(csv))
+                .andExpect(status().isOk()).andReturn();
+
+        // assert
+
+        verify(entityImportService, times(1))
+                .importBody(eq(UCSBDiningCommonsMenuItemController.IMPORT), eq("text/csv"), eq((long) csv.length()), any(InputStream.class));
+        assertEquals(mapper.writeValueAsString(report), response.getResponse().getContentAsString());
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void import_rejects_other_content_types() throws Exception {
+        mockMvc.perform(post("/api/menuitems/import").with(csrf()).contentType("text/plain").content("name\n"))
+                .andExpect(status().isUnsupportedMediaType());
+    }
 }
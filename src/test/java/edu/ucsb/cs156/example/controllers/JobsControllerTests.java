@@ -4,7 +4,10 @@ import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.awaitility.Awaitility.await;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
@@ -12,38 +15,69 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.config.JobExecutorConfig;
 import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.JobLogLine;
 import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.models.JobRetentionReport;
+import edu.ucsb.cs156.example.entities.JobSummary;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
+import edu.ucsb.cs156.example.repositories.JobSummariesRepository;
 import edu.ucsb.cs156.example.repositories.JobsRepository;
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.jobs.JobLogStreamService;
+import edu.ucsb.cs156.example.services.jobs.JobMetrics;
+import edu.ucsb.cs156.example.services.jobs.JobRetentionService;
 import edu.ucsb.cs156.example.services.jobs.JobService;
+import java.time.ZonedDateTime;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Root;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import lombok.extern.slf4j.Slf4j;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.AutoConfigureDataJpa;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @Slf4j
 @WebMvcTest(controllers = JobsController.class)
-@Import(JobService.class)
+@Import({JobService.class, JobExecutorConfig.class})
 @AutoConfigureDataJpa
 public class JobsControllerTests extends ControllerTestCase {
 
   @MockitoBean JobsRepository jobsRepository;
 
+  @MockitoBean JobLogLinesRepository jobLogLinesRepository;
+
+  @MockitoBean JobSummariesRepository jobSummariesRepository;
+
+  @MockitoBean JobLogStreamService jobLogStreamService;
+
+  @MockitoBean JobMetrics jobMetrics;
+
+  @MockitoBean JobRetentionService jobRetentionService;
+
   @MockitoBean UserRepository userRepository;
 
   @Autowired JobService jobService;
@@ -76,6 +110,84 @@ public class JobsControllerTests extends ControllerTestCase {
     assertEquals(expectedJson, responseString);
   }
 
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_get_a_page_of_jobs() throws Exception {
+
+    // arrange
+
+    JobSummary job1 = JobSummary.builder().id(2L).createdById(1L).status("complete").build();
+    JobSummary job2 = JobSummary.builder().id(1L).createdById(1L).status("complete").build();
+    when(jobSummariesRepository.findBy(any(Specification.class), any()))
+        .thenReturn(List.of(job1, job2));
+
+    // act
+    MvcResult response =
+        mockMvc.perform(get("/api/jobs/page?size=10")).andExpect(status().isOk()).andReturn();
+
+    // assert
+
+    verify(jobSummariesRepository, times(1)).findBy(any(Specification.class), any());
+    assertEquals(
+        mapper.writeValueAsString(List.of(job1, job2)),
+        response.getResponse().getContentAsString());
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void page_of_jobs_is_filtered_by_the_request_parameters() throws Exception {
+
+    // arrange
+
+    ZonedDateTime after = ZonedDateTime.parse("2025-04-01T00:00:00Z");
+    ZonedDateTime before = ZonedDateTime.parse("2025-05-01T00:00:00Z");
+    when(jobSummariesRepository.findBy(any(Specification.class), any())).thenReturn(List.of());
+
+    // act
+    mockMvc
+        .perform(
+            get("/api/jobs/page")
+                .param("status", "error")
+                .param("createdById", "3")
+                .param("createdAfter", "2025-04-01T00:00:00Z")
+                .param("createdBefore", "2025-05-01T00:00:00Z"))
+        .andExpect(status().isOk());
+
+    // assert
+
+    ArgumentCaptor<Specification<JobSummary>> spec = ArgumentCaptor.forClass(Specification.class);
+    verify(jobSummariesRepository).findBy(spec.capture(), any());
+    Root<JobSummary> root = mock(Root.class);
+    Map<String, Path> paths = new HashMap<>();
+    when(root.get(anyString()))
+        .thenAnswer(
+            invocation ->
+                paths.computeIfAbsent(invocation.getArgument(0), name -> mock(Path.class)));
+    CriteriaBuilder cb = mock(CriteriaBuilder.class);
+    spec.getValue().toPredicate(root, mock(CriteriaQuery.class), cb);
+    verify(cb).equal(paths.get("status"), "error");
+    verify(cb).equal(paths.get("createdById"), 3L);
+    verify(cb)
+        .greaterThanOrEqualTo(
+            eq(paths.get("createdAt")), argThat((ZonedDateTime t) -> t.isEqual(after)));
+    verify(cb)
+        .lessThan(eq(paths.get("createdAt")), argThat((ZonedDateTime t) -> t.isEqual(before)));
+    verify(cb).desc(paths.get("id"));
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void page_of_jobs_cannot_be_sorted_by_status() throws Exception {
+    mockMvc.perform(get("/api/jobs/page?sort=status")).andExpect(status().isBadRequest());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void non_admin_cannot_get_page_of_jobs() throws Exception {
+    mockMvc.perform(get("/api/jobs/page")).andExpect(status().isForbidden());
+  }
+
   @WithMockUser(roles = {"ADMIN"})
   @Test
   public void api_getJobLogById__admin_logged_in__returns_job_by_id() throws Exception {
@@ -136,12 +248,51 @@ public class JobsControllerTests extends ControllerTestCase {
 
     // assert
 
+    verify(jobLogLinesRepository, times(1)).deleteAllLines();
     verify(jobsRepository, times(1)).deleteAll();
     String expectedJson = mapper.writeValueAsString(Map.of("message", "All jobs deleted"));
     String responseString = response.getResponse().getContentAsString();
     assertEquals(expectedJson, responseString);
   }
 
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_run_retention() throws Exception {
+
+    // arrange
+
+    JobRetentionReport report =
+        JobRetentionReport.builder()
+            .ranAt(ZonedDateTime.parse("2025-05-20T03:30:00Z"))
+            .jobsDeleted(3)
+            .logLinesDeleted(35)
+            .jobsTruncated(1)
+            .logLinesTruncated(90)
+            .build();
+    when(jobRetentionService.runRetention()).thenReturn(report);
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(post("/api/jobs/retention/run").with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+
+    verify(jobRetentionService, times(1)).runRetention();
+    assertEquals(mapper.writeValueAsString(report), response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void non_admin_cannot_run_retention() throws Exception {
+    mockMvc
+        .perform(post("/api/jobs/retention/run").with(csrf()))
+        .andExpect(status().isForbidden());
+    verify(jobRetentionService, never()).runRetention();
+  }
+
   @WithMockUser(roles = {"ADMIN"})
   @Test
   public void test_getJobLogs_admin_can_get_job_log() throws Exception {
@@ -175,6 +326,50 @@ public class JobsControllerTests extends ControllerTestCase {
         .andExpect(content().string(""));
   }
 
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_stream_job_log_from_start() throws Exception {
+    // Arrange
+    when(jobLogStreamService.subscribe(1L, 0L)).thenReturn(new SseEmitter());
+
+    // Act & Assert
+    mockMvc.perform(get("/api/jobs/logs/{id}/stream", 1L)).andExpect(request().asyncStarted());
+    verify(jobLogStreamService, times(1)).subscribe(1L, 0L);
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_stream_job_log_from_line() throws Exception {
+    // Arrange
+    when(jobLogStreamService.subscribe(1L, 10L)).thenReturn(new SseEmitter());
+
+    // Act & Assert
+    mockMvc
+        .perform(get("/api/jobs/logs/{id}/stream?fromLine=10", 1L))
+        .andExpect(request().asyncStarted());
+    verify(jobLogStreamService, times(1)).subscribe(1L, 10L);
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void stream_resumes_after_last_event_id() throws Exception {
+    // Arrange
+    when(jobLogStreamService.subscribe(1L, 6L)).thenReturn(new SseEmitter());
+
+    // Act & Assert
+    mockMvc
+        .perform(get("/api/jobs/logs/{id}/stream?fromLine=2", 1L).header("Last-Event-ID", "5"))
+        .andExpect(request().asyncStarted());
+    verify(jobLogStreamService, times(1)).subscribe(1L, 6L);
+  }
+
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void non_admin_cannot_stream_job_log() throws Exception {
+    mockMvc.perform(get("/api/jobs/logs/{id}/stream", 1L)).andExpect(status().isForbidden());
+    verify(jobLogStreamService, never()).subscribe(anyLong(), anyLong());
+  }
+
   @WithMockUser(roles = {"ADMIN"})
   @Test
   public void admin_can_delete_specific_job() throws Exception {
@@ -193,6 +388,7 @@ public class JobsControllerTests extends ControllerTestCase {
 
     // assert
 
+    verify(jobLogLinesRepository, times(1)).deleteByJobId(eq(1L));
     verify(jobsRepository, times(1)).deleteById(eq(1L));
     String expectedJson = mapper.writeValueAsString(Map.of("message", "Job with id 1 deleted"));
     String responseString = response.getResponse().getContentAsString();
@@ -217,6 +413,7 @@ public class JobsControllerTests extends ControllerTestCase {
     // assert
 
     verify(jobsRepository, times(1)).existsById(eq(2L));
+    verify(jobLogLinesRepository, never()).deleteByJobId(anyLong());
     String expectedJson = mapper.writeValueAsString(Map.of("message", "Job with id 2 not found"));
     String responseString = response.getResponse().getContentAsString();
     assertEquals(expectedJson, responseString);
@@ -224,33 +421,21 @@ public class JobsControllerTests extends ControllerTestCase {
 
   @WithMockUser(roles = {"ADMIN"})
   @Test
-  public void admin_can_launch_test_job() throws Exception {
-
-    // arrange
+  public void admin_can_get_executor_status() throws Exception {
 
-    User user = currentUserService.getUser();
-
-    Job jobStarted =
-        Job.builder()
-            .id(0L)
-            .createdBy(user)
-            .createdAt(null)
-            .updatedAt(null)
-            .status("running")
-            .log("Hello World! from test job!")
-            .build();
+    // act
+    MvcResult response =
+        mockMvc.perform(get("/api/jobs/executor")).andExpect(status().isOk()).andReturn();
 
-    Job jobCompleted =
-        Job.builder()
-            .id(0L)
-            .createdBy(user)
-            .createdAt(null)
-            .updatedAt(null)
-            .status("complete")
-            .log("Hello World! from test job!\nGoodbye from test job!")
-            .build();
+    // assert
+    Map<String, Object> json = responseToJson(response);
+    assertEquals(4, json.get("maxConcurrentJobs"));
+    assertEquals(50, json.get("queueCapacity"));
+  }
 
-    when(jobsRepository.save(any(Job.class))).thenReturn(jobStarted).thenReturn(jobCompleted);
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_launch_test_job() throws Exception {
 
     // act
     MvcResult response =
@@ -263,46 +448,29 @@ public class JobsControllerTests extends ControllerTestCase {
     String responseString = response.getResponse().getContentAsString();
     Job jobReturned = objectMapper.readValue(responseString, Job.class);
 
-    assertEquals("running", jobReturned.getStatus());
+    // the job may or may not have been picked up by a worker before the response was written
+    assertTrue(Set.of("queued", "running").contains(jobReturned.getStatus()));
 
-    await()
-        .atMost(1, SECONDS)
-        .untilAsserted(() -> verify(jobsRepository, times(2)).save(eq(jobStarted)));
+    // saved when queued, when running and when done
     await()
         .atMost(10, SECONDS)
-        .untilAsserted(() -> verify(jobsRepository, times(4)).save(eq(jobCompleted)));
+        .untilAsserted(() -> verify(jobsRepository, times(3)).save(any(Job.class)));
+
+    ArgumentCaptor<Job> jobCaptor = ArgumentCaptor.forClass(Job.class);
+    verify(jobsRepository, times(3)).save(jobCaptor.capture());
+    assertEquals("complete", jobCaptor.getValue().getStatus());
+
+    assertEquals(
+        List.of(
+            JobLogLine.builder().jobId(0L).lineNumber(0L).message("Hello World! from test job!").build(),
+            JobLogLine.builder().jobId(0L).lineNumber(1L).message("Goodbye from test job!").build()),
+        captureSavedLogLines());
   }
 
   @WithMockUser(roles = {"ADMIN"})
   @Test
   public void admin_can_launch_test_job_that_fails() throws Exception {
 
-    // arrange
-
-    User user = currentUserService.getUser();
-
-    Job jobStarted =
-        Job.builder()
-            .id(0L)
-            .createdBy(user)
-            .createdAt(null)
-            .updatedAt(null)
-            .status("running")
-            .log("Hello World! from test job!")
-            .build();
-
-    Job jobFailed =
-        Job.builder()
-            .id(0L)
-            .createdBy(user)
-            .createdAt(null)
-            .updatedAt(null)
-            .status("error")
-            .log("Hello World! from test job!\nFail!")
-            .build();
-
-    when(jobsRepository.save(any(Job.class))).thenReturn(jobStarted).thenReturn(jobFailed);
-
     // act
     MvcResult response =
         mockMvc
@@ -310,18 +478,89 @@ public class JobsControllerTests extends ControllerTestCase {
             .andExpect(status().isOk())
             .andReturn();
 
+    // assert
     String responseString = response.getResponse().getContentAsString();
     Job jobReturned = objectMapper.readValue(responseString, Job.class);
 
-    assertEquals("running", jobReturned.getStatus());
+    // the job may or may not have been picked up by a worker before the response was written
+    assertTrue(Set.of("queued", "running").contains(jobReturned.getStatus()));
 
+    // saved when queued, when running and when done
     await()
-        .atMost(1, SECONDS)
-        .untilAsserted(() -> verify(jobsRepository, times(2)).save(eq(jobStarted)));
+        .atMost(10, SECONDS)
+        .untilAsserted(() -> verify(jobsRepository, times(3)).save(any(Job.class)));
 
+    ArgumentCaptor<Job> jobCaptor = ArgumentCaptor.forClass(Job.class);
+    verify(jobsRepository, times(3)).save(jobCaptor.capture());
+    assertEquals("error", jobCaptor.getValue().getStatus());
+
+    assertEquals(
+        List.of(
+            JobLogLine.builder().jobId(0L).lineNumber(0L).message("Hello World! from test job!").build(),
+            JobLogLine.builder().jobId(0L).lineNumber(1L).message("Fail!").build()),
+        captureSavedLogLines());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void admin_can_cancel_running_test_job() throws Exception {
+
+    // arrange
+    mockMvc
+        .perform(post("/api/jobs/launch/testjob?fail=false&sleepMs=60000").with(csrf()))
+        .andExpect(status().isOk());
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(post("/api/jobs/cancel?id=0").with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("Job with id 0 cancelled", json.get("message"));
+
+    // saved when queued, when running and when cancelled
     await()
         .atMost(10, SECONDS)
-        .untilAsserted(() -> verify(jobsRepository, times(3)).save(eq(jobFailed)));
+        .untilAsserted(() -> verify(jobsRepository, times(3)).save(any(Job.class)));
+
+    ArgumentCaptor<Job> jobCaptor = ArgumentCaptor.forClass(Job.class);
+    verify(jobsRepository, times(3)).save(jobCaptor.capture());
+    assertEquals("cancelled", jobCaptor.getValue().getStatus());
+
+    List<JobLogLine> lines = captureSavedLogLines();
+    assertEquals("Job cancelled", lines.get(lines.size() - 1).getMessage());
+  }
+
+  @WithMockUser(roles = {"ADMIN"})
+  @Test
+  public void cancel_reports_job_that_is_not_running() throws Exception {
+
+    // act
+    MvcResult response =
+        mockMvc
+            .perform(post("/api/jobs/cancel?id=42").with(csrf()))
+            .andExpect(status().isOk())
+            .andReturn();
+
+    // assert
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("Job with id 42 is not queued or running", json.get("message"));
   }
 
+  @WithMockUser(roles = {"USER"})
+  @Test
+  public void non_admin_cannot_cancel_job() throws Exception {
+    mockMvc.perform(post("/api/jobs/cancel?id=0").with(csrf())).andExpect(status().isForbidden());
+  }
+
+  @SuppressWarnings("unchecked")
+  private List<JobLogLine> captureSavedLogLines() {
+    // lines may be written in more than one batch if the periodic flush runs mid-job
+    ArgumentCaptor<List<JobLogLine>> linesCaptor = ArgumentCaptor.forClass(List.class);
+    verify(jobLogLinesRepository, atLeastOnce()).saveAll(linesCaptor.capture());
+    return linesCaptor.getAllValues().stream().flatMap(List::stream).toList();
+  }
 }
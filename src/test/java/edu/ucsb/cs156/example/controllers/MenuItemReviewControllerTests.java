@@ -5,6 +5,8 @@ import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.MenuItemReview;
 import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
+import edu.ucsb.cs156.example.services.EntityStreamService;
+import edu.ucsb.cs156.example.services.EntityExportService;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -22,6 +24,10 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 
 import java.util.Optional;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
@@ -37,6 +43,12 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
         @MockBean
         MenuItemReviewRepository menuItemReviewRepository;
 
+        @MockBean
+        EntityStreamService entityStreamService;
+
+        @MockBean
+        EntityExportService entityExportService;
+
         @MockBean
         UserRepository userRepository;
 
@@ -261,7 +273,7 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
 
                 // assert
                 verify(menuItemReviewRepository, times(1)).findById(15L);
-                verify(menuItemReviewRepository, times(1)).delete(any());
+                verify(menuItemReviewRepository, times(1)).delete(any(MenuItemReview.class));
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("MenuItemReview with id 15 deleted", json.get("message"));
@@ -286,4 +298,76 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("MenuItemReview with id 15 not found", json.get("message"));
         }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_a_page_of_menu_item_reviews() throws Exception {
+
+                // arrange
+
+                when(menuItemReviewRepository.findBy(any(Specification.class), any())).thenReturn(List.of());
+
+                // act
+
+                MvcResult response = mockMvc.perform(get("/api/menuitemreview/page?sort=itemId,desc&size=10"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(menuItemReviewRepository, times(1)).findBy(any(Specification.class), any());
+                assertEquals("[]", response.getResponse().getContentAsString());
+        }
+
+        @Test
+        public void logged_out_users_cannot_stream_all() throws Exception {
+                mockMvc.perform(get("/api/menuitemreview/all/stream"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_stream_all() throws Exception {
+                // arrange
+
+                StreamingResponseBody body = out -> out.write("[]".getBytes());
+                when(entityStreamService.streamAll(eq(menuItemReviewRepository))).thenReturn(ResponseEntity.ok().body(body));
+
+                // act
+
+                MvcResult started = mockMvc.perform(get("/api/menuitemreview/all/stream"))
+                                .andExpect(request().asyncStarted()).andReturn();
+                MvcResult response = mockMvc.perform(asyncDispatch(started))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(entityStreamService, times(1)).streamAll(eq(menuItemReviewRepository));
+                assertEquals("[]", response.getResponse().getContentAsString());
+        }
+
+        @Test
+        public void logged_out_users_cannot_export() throws Exception {
+                mockMvc.perform(get("/api/menuitemreview/export"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void export_passes_format_and_accept_encoding() throws Exception {
+                // arrange
+
+                StreamingResponseBody body = out -> { };
+                when(entityExportService.export(MenuItemReviewController.EXPORT, "ndjson", "gzip"))
+                                .thenReturn(ResponseEntity.ok().body(body));
+
+                // act
+
+                MvcResult started = mockMvc.perform(get("/api/menuitemreview/export?format=ndjson").header("Accept-Encoding", "gzip"))
+                                .andExpect(request().asyncStarted()).andReturn();
+                mockMvc.perform(asyncDispatch(started)).andExpect(status().isOk());
+
+                // assert
+
+                verify(entityExportService, times(1)).export(MenuItemReviewController.EXPORT, "ndjson", "gzip");
+        }
 }
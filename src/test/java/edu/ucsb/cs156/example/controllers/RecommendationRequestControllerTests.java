@@ -7,6 +7,8 @@ import edu.ucsb.cs156.example.entities.RecommendationRequest;
 import edu.ucsb.cs156.example.entities.UCSBDate;
 import edu.ucsb.cs156.example.repositories.RecommendationRequestRepository;
 import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+import edu.ucsb.cs156.example.services.EntityStreamService;
+import edu.ucsb.cs156.example.services.EntityExportService;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -29,6 +31,10 @@ import static org.springframework.security.test.web.servlet.request.SecurityMock
 import java.time.LocalDateTime;
 
 import java.util.Optional;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
@@ -44,6 +50,12 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
         @MockBean
         RecommendationRequestRepository recommendationRequestRepository;
 
+        @MockBean
+        EntityStreamService entityStreamService;
+
+        @MockBean
+        EntityExportService entityExportService;
+
         @MockBean
         UserRepository userRepository;
 
@@ -311,7 +323,7 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
 
                 // assert
                 verify(recommendationRequestRepository, times(1)).findById(15L);
-                verify(recommendationRequestRepository, times(1)).delete(any());
+                verify(recommendationRequestRepository, times(1)).delete(any(RecommendationRequest.class));
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("RecommendationRequest with id 15 deleted", json.get("message"));
@@ -336,4 +348,76 @@ public class RecommendationRequestControllerTests extends ControllerTestCase {
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("RecommendationRequest with id 15 not found", json.get("message"));
         }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_a_page_of_recommendation_requests() throws Exception {
+
+                // arrange
+
+                when(recommendationRequestRepository.findBy(any(Specification.class), any())).thenReturn(List.of());
+
+                // act
+
+                MvcResult response = mockMvc.perform(get("/api/recommendationrequest/page?sort=dateRequested,desc&size=10"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(recommendationRequestRepository, times(1)).findBy(any(Specification.class), any());
+                assertEquals("[]", response.getResponse().getContentAsString());
+        }
+
+        @Test
+        public void logged_out_users_cannot_stream_all() throws Exception {
+                mockMvc.perform(get("/api/recommendationrequest/all/stream"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_stream_all() throws Exception {
+                // arrange
+
+                StreamingResponseBody body = out -> out.write("[]".getBytes());
+                when(entityStreamService.streamAll(eq(recommendationRequestRepository))).thenReturn(ResponseEntity.ok().body(body));
+
+                // act
+
+                MvcResult started = mockMvc.perform(get("/api/recommendationrequest/all/stream"))
+                                .andExpect(request().asyncStarted()).andReturn();
+                MvcResult response = mockMvc.perform(asyncDispatch(started))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(entityStreamService, times(1)).streamAll(eq(recommendationRequestRepository));
+                assertEquals("[]", response.getResponse().getContentAsString());
+        }
+
+        @Test
+        public void logged_out_users_cannot_export() throws Exception {
+                mockMvc.perform(get("/api/recommendationrequest/export"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void export_passes_format_and_accept_encoding() throws Exception {
+                // arrange
+
+                StreamingResponseBody body = out -> { };
+                when(entityExportService.export(RecommendationRequestController.EXPORT, "ndjson", "gzip"))
+                                .thenReturn(ResponseEntity.ok().body(body));
+
+                // act
+
+                MvcResult started = mockMvc.perform(get("/api/recommendationrequest/export?format=ndjson").header("Accept-Encoding", "gzip"))
+                                .andExpect(request().asyncStarted()).andReturn();
+                mockMvc.perform(asyncDispatch(started)).andExpect(status().isOk());
+
+                // assert
+
+                verify(entityExportService, times(1)).export(RecommendationRequestController.EXPORT, "ndjson", "gzip");
+        }
 }
@@ -5,6 +5,8 @@ import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.Restaurant;
 import edu.ucsb.cs156.example.repositories.RestaurantRepository;
+import edu.ucsb.cs156.example.services.EntityStreamService;
+import edu.ucsb.cs156.example.services.EntityExportService;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -22,6 +24,10 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 
 import java.util.Optional;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
@@ -37,6 +43,12 @@ public class RestaurantsControllerTests extends ControllerTestCase {
         @MockBean
         RestaurantRepository restaurantRepository;
 
+        @MockBean
+        EntityStreamService entityStreamService;
+
+        @MockBean
+        EntityExportService entityExportService;
+
         @MockBean
         UserRepository userRepository;
 
@@ -202,7 +214,7 @@ public class RestaurantsControllerTests extends ControllerTestCase {
 
                 // assert
                 verify(restaurantRepository, times(1)).findById(15L);
-                verify(restaurantRepository, times(1)).delete(any());
+                verify(restaurantRepository, times(1)).delete(any(Restaurant.class));
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("Restaurant with id 15 deleted", json.get("message"));
@@ -294,4 +306,83 @@ public class RestaurantsControllerTests extends ControllerTestCase {
                 assertEquals("Restaurant with id 67 not found", json.get("message"));
 
         }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_a_page_of_restaurants() throws Exception {
+
+                // arrange
+
+                when(restaurantRepository.findBy(any(Specification.class), any())).thenReturn(List.of());
+
+                // act
+
+                MvcResult response = mockMvc.perform(get("/api/restaurants/page?sort=name,desc&size=10"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(restaurantRepository, times(1)).findBy(any(Specification.class), any());
+                assertEquals("[]", response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void page_of_restaurants_cannot_be_sorted_by_description() throws Exception {
+                mockMvc.perform(get("/api/restaurants/page?sort=description"))
+                                .andExpect(status().isBadRequest());
+        }
+
+        @Test
+        public void logged_out_users_cannot_stream_all() throws Exception {
+                mockMvc.perform(get("/api/restaurants/all/stream"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_stream_all() throws Exception {
+                // arrange
+
+                StreamingResponseBody body = out -> out.write("[]".getBytes());
+                when(entityStreamService.streamAll(eq(restaurantRepository))).thenReturn(ResponseEntity.ok().body(body));
+
+                // act
+
+                MvcResult started = mockMvc.perform(get("/api/restaurants/all/stream"))
+                                .andExpect(request().asyncStarted()).andReturn();
+                MvcResult response = mockMvc.perform(asyncDispatch(started))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(entityStreamService, times(1)).streamAll(eq(restaurantRepository));
+                assertEquals("[]", response.getResponse().getContentAsString());
+        }
+
+        @Test
+        public void logged_out_users_cannot_export() throws Exception {
+                mockMvc.perform(get("/api/restaurants/export"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void export_passes_format_and_accept_encoding() throws Exception {
+                // arrange
+
+                StreamingResponseBody body = out -> { };
+                when(entityExportService.export(RestaurantsController.EXPORT, "ndjson", "gzip"))
+                                .thenReturn(ResponseEntity.ok().body(body));
+
+                // act
+
+                MvcResult started = mockMvc.perform(get("/api/restaurants/export?format=ndjson").header("Accept-Encoding", "gzip"))
+                                .andExpect(request().asyncStarted()).andReturn();
+                mockMvc.perform(asyncDispatch(started)).andExpect(status().isOk());
+
+                // assert
+
+                verify(entityExportService, times(1)).export(RestaurantsController.EXPORT, "ndjson", "gzip");
+        }
 }
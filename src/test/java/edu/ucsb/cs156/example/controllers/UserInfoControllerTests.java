@@ -13,6 +13,7 @@ import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
@@ -46,5 +47,44 @@ public class UserInfoControllerTests extends ControllerTestCase {
     // assert
     String responseString = response.getResponse().getContentAsString();
     assertEquals(expectedJson, responseString);
+    assertNotNull(response.getResponse().getHeader("ETag"));
+    assertEquals("no-cache, private", response.getResponse().getHeader("Cache-Control"));
+  }
+
+  @WithMockUser(roles = { "USER" })
+  @Test
+  public void currentUser__matching_etag_returns_304() throws Exception {
+
+    // arrange
+
+    String etag = mockMvc.perform(get("/api/currentUser"))
+        .andExpect(status().isOk()).andReturn().getResponse().getHeader("ETag");
+
+    // act
+
+    MvcResult response = mockMvc.perform(get("/api/currentUser").header("If-None-Match", etag))
+        .andExpect(status().isNotModified()).andReturn();
+
+    // assert
+    assertEquals("", response.getResponse().getContentAsString());
+    assertEquals(etag, response.getResponse().getHeader("ETag"));
+  }
+
+  @WithMockUser(roles = { "USER" })
+  @Test
+  public void currentUser__stale_etag_returns_200() throws Exception {
+
+    // arrange
+
+    CurrentUser currentUser = currentUserService.getCurrentUser();
+    String expectedJson = mapper.writeValueAsString(currentUser);
+
+    // act
+
+    MvcResult response = mockMvc.perform(get("/api/currentUser").header("If-None-Match", "\"stale\""))
+        .andExpect(status().isOk()).andReturn();
+
+    // assert
+    assertEquals(expectedJson, response.getResponse().getContentAsString());
   }
 }
@@ -3,24 +3,42 @@ package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.entities.User;
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.AdminRoleService;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Root;
+
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @WebMvcTest(controllers = UsersController.class)
 @Import(TestConfig.class)
@@ -29,6 +47,9 @@ public class UsersControllerTests extends ControllerTestCase {
   @MockBean
   UserRepository userRepository;
 
+  @MockBean
+  AdminRoleService adminRoleService;
+
   @Test
   public void users__logged_out() throws Exception {
     mockMvc.perform(get("/api/admin/users"))
@@ -70,4 +91,166 @@ public class UsersControllerTests extends ControllerTestCase {
     assertEquals(expectedJson, responseString);
 
   }
+
+  @WithMockUser(roles = { "USER" })
+  @Test
+  public void page__user_logged_in() throws Exception {
+    mockMvc.perform(get("/api/admin/users/page"))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = { "ADMIN", "USER" })
+  @Test
+  public void page__admin_can_get_a_page_of_users() throws Exception {
+
+    // arrange
+
+    User u1 = User.builder().id(1L).email("a@ucsb.edu").build();
+    User u2 = User.builder().id(2L).email("b@ucsb.edu").build();
+    when(userRepository.findBy(any(Specification.class), any())).thenReturn(List.of(u1, u2));
+
+    // act
+
+    MvcResult response = mockMvc.perform(get("/api/admin/users/page?sort=email&size=10"))
+        .andExpect(status().isOk()).andReturn();
+
+    // assert
+
+    verify(userRepository, times(1)).findBy(any(Specification.class), any());
+    assertEquals(mapper.writeValueAsString(List.of(u1, u2)), response.getResponse().getContentAsString());
+  }
+
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  @WithMockUser(roles = { "ADMIN", "USER" })
+  @Test
+  public void page__email_prefix_is_matched_literally() throws Exception {
+
+    // arrange
+
+    when(userRepository.findBy(any(Specification.class), any())).thenReturn(List.of());
+
+    // act
+
+    mockMvc.perform(get("/api/admin/users/page?emailPrefix=pat_"))
+        .andExpect(status().isOk());
+
+    // assert
+
+    ArgumentCaptor<Specification<User>> spec = ArgumentCaptor.forClass(Specification.class);
+    verify(userRepository).findBy(spec.capture(), any());
+    Root<User> root = mock(Root.class);
+    Path email = mock(Path.class);
+    CriteriaBuilder cb = mock(CriteriaBuilder.class);
+    when(root.get(anyString())).thenReturn(mock(Path.class));
+    when(root.get("email")).thenReturn(email);
+    spec.getValue().toPredicate(root, mock(CriteriaQuery.class), cb);
+    verify(cb).like(email, "pat\\_%", '\\');
+  }
+
+  @WithMockUser(roles = { "ADMIN", "USER" })
+  @Test
+  public void page__cannot_be_sorted_by_full_name() throws Exception {
+    mockMvc.perform(get("/api/admin/users/page?sort=fullName"))
+        .andExpect(status().isBadRequest());
+  }
+
+  @WithMockUser(roles = { "ADMIN", "USER" })
+  @Test
+  public void count__all_users() throws Exception {
+
+    // arrange
+
+    when(userRepository.count()).thenReturn(42L);
+
+    // act
+
+    MvcResult response = mockMvc.perform(get("/api/admin/users/count"))
+        .andExpect(status().isOk()).andReturn();
+
+    // assert
+
+    assertEquals(Map.of("count", 42), responseToJson(response));
+  }
+
+  @WithMockUser(roles = { "ADMIN", "USER" })
+  @Test
+  public void count__by_email_prefix() throws Exception {
+
+    // arrange
+
+    when(userRepository.countByEmailStartingWith("pat")).thenReturn(3L);
+
+    // act
+
+    MvcResult response = mockMvc.perform(get("/api/admin/users/count?emailPrefix=pat"))
+        .andExpect(status().isOk()).andReturn();
+
+    // assert
+
+    assertEquals(Map.of("count", 3), responseToJson(response));
+  }
+
+  @WithMockUser(roles = { "ADMIN", "USER" })
+  @Test
+  public void admin__sets_flag_and_invalidates_cached_roles() throws Exception {
+
+    // arrange
+
+    when(userRepository.updateAdminByIdIn(Set.of(1L, 2L), true)).thenReturn(2);
+    when(userRepository.findEmailsByIdIn(Set.of(1L, 2L))).thenReturn(List.of("a@ucsb.edu", "b@ucsb.edu"));
+
+    // act
+
+    MvcResult response = mockMvc.perform(put("/api/admin/users/admin?admin=true")
+        .contentType(MediaType.APPLICATION_JSON)
+        .content("[1, 2]")
+        .with(csrf()))
+        .andExpect(status().isOk()).andReturn();
+
+    // assert
+
+    assertEquals(Map.of("message", "Updated admin flag of 2 user(s)"), responseToJson(response));
+    verify(adminRoleService, times(1)).invalidate("a@ucsb.edu");
+    verify(adminRoleService, times(1)).invalidate("b@ucsb.edu");
+  }
+
+  @WithMockUser(roles = { "ADMIN", "USER" })
+  @Test
+  public void admin__unknown_ids_invalidate_nothing() throws Exception {
+
+    // arrange
+
+    when(userRepository.updateAdminByIdIn(Set.of(99L), false)).thenReturn(0);
+
+    // act
+
+    MvcResult response = mockMvc.perform(put("/api/admin/users/admin?admin=false")
+        .contentType(MediaType.APPLICATION_JSON)
+        .content("[99]")
+        .with(csrf()))
+        .andExpect(status().isOk()).andReturn();
+
+    // assert
+
+    assertEquals(Map.of("message", "Updated admin flag of 0 user(s)"), responseToJson(response));
+    verify(userRepository, never()).findEmailsByIdIn(any());
+    verify(adminRoleService, never()).invalidate(any());
+  }
+
+  @WithMockUser(roles = { "ADMIN", "USER" })
+  @Test
+  public void admin__empty_list_runs_no_update() throws Exception {
+
+    // act
+
+    mockMvc.perform(put("/api/admin/users/admin?admin=true")
+        .contentType(MediaType.APPLICATION_JSON)
+        .content("[]")
+        .with(csrf()))
+        .andExpect(status().isOk());
+
+    // assert
+
+    verify(userRepository, never()).updateAdminByIdIn(any(), anyBoolean());
+  }
 }
@@ -0,0 +1,142 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.AvailableSettings;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import edu.ucsb.cs156.example.entities.Restaurant;
+import liquibase.integration.spring.SpringLiquibase;
+
+/**
+ * Measures how fast Hibernate inserts restaurants with ids from the pooled sequence and JDBC
+ * batching (as configured in application.properties), compared with ids generated by the database
+ * (the identity columns used before), where Hibernate has to execute each insert on its own to
+ * read the id back. BulkInsertIT checks the statements each path prepares; this only times them.
+ *
+ * <p>This is a benchmark, not a test of behaviour, so it is only run on request: {@code mvn test
+ * -Dtest=BulkInsertBenchmarkIT -Djacoco.skip=true}. Timings are printed, not asserted.
+ */
+public class BulkInsertBenchmarkIT {
+
+        private static final int WARMUP_ROUNDS = 3;
+        private static final int ROUNDS = 7;
+        private static final int ROWS_PER_ROUND = 10_000;
+
+        private EmbeddedDatabase database;
+
+        private JdbcTemplate jdbcTemplate;
+
+        @BeforeEach
+        public void setup() throws Exception {
+                database = new EmbeddedDatabaseBuilder()
+                                .setType(EmbeddedDatabaseType.H2)
+                                .generateUniqueName(true)
+                                .build();
+                SpringLiquibase liquibase = new SpringLiquibase();
+                liquibase.setDataSource(database);
+                liquibase.setChangeLog("classpath:db/migration/changelog-master.json");
+                liquibase.setResourceLoader(new DefaultResourceLoader());
+                liquibase.afterPropertiesSet();
+                jdbcTemplate = new JdbcTemplate(database);
+        }
+
+        @AfterEach
+        public void teardown() {
+                database.shutdown();
+        }
+
+        // a session factory with the application's batching settings; mappingFile overrides how
+        // Restaurant ids are generated
+        private SessionFactory sessionFactory(String mappingFile) {
+                StandardServiceRegistry registry = new StandardServiceRegistryBuilder()
+                                .applySetting(AvailableSettings.DATASOURCE, database)
+                                .applySetting(AvailableSettings.STATEMENT_BATCH_SIZE, 50)
+                                .applySetting(AvailableSettings.ORDER_INSERTS, true)
+                                .build();
+                MetadataSources sources = new MetadataSources(registry).addAnnotatedClass(Restaurant.class);
+                if (mappingFile != null) {
+                        sources.addResource(mappingFile);
+                }
+                return sources.buildMetadata().buildSessionFactory();
+        }
+
+        private static void insert(SessionFactory sessionFactory, int batchSize) {
+                sessionFactory.inTransaction(session -> {
+                        session.setJdbcBatchSize(batchSize);
+                        for (int i = 0; i < ROWS_PER_ROUND; i++) {
+                                persist(session, i);
+                        }
+                });
+        }
+
+        private static void persist(Session session, int i) {
+                session.persist(Restaurant.builder().name("Restaurant " + i).description("food").build());
+        }
+
+        // difference between the ids of two restaurants inserted one after the other
+        private static long idStep(SessionFactory sessionFactory) {
+                return sessionFactory.fromTransaction(session -> {
+                        Restaurant first = Restaurant.builder().name("First").build();
+                        Restaurant second = Restaurant.builder().name("Second").build();
+                        session.persist(first);
+                        session.persist(second);
+                        session.flush();
+                        return second.getId() - first.getId();
+                });
+        }
+
+        // median rows per second over ROUNDS rounds, after WARMUP_ROUNDS unmeasured rounds
+        private long rowsPerSecond(Runnable insert) {
+                long[] rates = new long[ROUNDS];
+                for (int i = -WARMUP_ROUNDS; i < ROUNDS; i++) {
+                        jdbcTemplate.update("DELETE FROM restaurants");
+                        long start = System.nanoTime();
+                        insert.run();
+                        long elapsed = System.nanoTime() - start;
+                        assertEquals(ROWS_PER_ROUND, jdbcTemplate.queryForObject(
+                                        "SELECT COUNT(*) FROM restaurants", Integer.class));
+                        if (i >= 0) {
+                                rates[i] = ROWS_PER_ROUND * 1_000_000_000L / elapsed;
+                        }
+                }
+                Arrays.sort(rates);
+                return rates[ROUNDS / 2];
+        }
+
+        @Test
+        public void sequence_ids_with_batching_against_database_generated_ids() {
+                try (SessionFactory sequence = sessionFactory(null);
+                                SessionFactory identity = sessionFactory(
+                                                "edu/ucsb/cs156/example/integration/restaurant-identity-orm.xml")) {
+                        // the id column's default takes a whole block of the sequence for each row
+                        assertEquals(50, idStep(identity));
+                        assertEquals(1, idStep(sequence));
+
+                        long identityRate = rowsPerSecond(() -> insert(identity, 50));
+                        long sequenceUnbatchedRate = rowsPerSecond(() -> insert(sequence, 0));
+                        long sequenceBatchedRate = rowsPerSecond(() -> insert(sequence, 50));
+
+                        System.out.printf(
+                                        "Restaurant inserts, median rows/s over %d rounds of %,d rows in one transaction:%n"
+                                                        + "  database generated ids (batch_size=50 has no effect): %,d%n"
+                                                        + "  pooled sequence ids, no batching:                     %,d%n"
+                                                        + "  pooled sequence ids, batch_size=50:                   %,d%n",
+                                        ROUNDS, ROWS_PER_ROUND, identityRate, sequenceUnbatchedRate, sequenceBatchedRate);
+                }
+        }
+}
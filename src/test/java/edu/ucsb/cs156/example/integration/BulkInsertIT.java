@@ -0,0 +1,144 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import edu.ucsb.cs156.example.entities.Restaurant;
+import edu.ucsb.cs156.example.repositories.RestaurantRepository;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ActiveProfiles("integration")
+@Import(TestConfig.class)
+@DirtiesContext(classMode = ClassMode.BEFORE_EACH_TEST_METHOD)
+public class BulkInsertIT {
+        @Autowired
+        RestaurantRepository restaurantRepository;
+
+        @Autowired
+        JdbcTemplate jdbcTemplate;
+
+        @Autowired
+        EntityManagerFactory entityManagerFactory;
+
+        @Autowired
+        EntityManager entityManager;
+
+        @Autowired
+        TransactionTemplate transactionTemplate;
+
+        @MockBean
+        UserRepository userRepository;
+
+        private Statistics statistics;
+
+        @BeforeEach
+        public void clear_statistics() {
+                statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+                statistics.clear();
+        }
+
+        private List<Restaurant> restaurants(int count) {
+                List<Restaurant> restaurants = new ArrayList<>();
+                for (int i = 0; i < count; i++) {
+                        restaurants.add(Restaurant.builder().name("Restaurant " + i).description("food").build());
+                }
+                return restaurants;
+        }
+
+        @Test
+        public void ids_are_taken_from_the_sequence_fifty_at_a_time() {
+                // act
+                List<Restaurant> saved = new ArrayList<>();
+                restaurantRepository.saveAll(restaurants(120)).forEach(saved::add);
+
+                // assert: 3 sequence calls (50, 100, 150) for 120 ids, so the next one is 200
+                for (int i = 0; i < saved.size(); i++) {
+                        assertEquals(i + 1, saved.get(i).getId());
+                }
+                assertEquals(200L, jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR restaurants_seq", Long.class));
+        }
+
+        // statements prepared to persist the restaurants in one transaction, with the session's JDBC batch
+        // size set to batchSize; without batching every insert is prepared and executed on its own
+        private long statementsToInsert(int count, int batchSize) {
+                statistics.clear();
+                transactionTemplate.executeWithoutResult(status -> {
+                        Session session = entityManager.unwrap(Session.class);
+                        session.setJdbcBatchSize(batchSize);
+                        restaurants(count).forEach(session::persist);
+                });
+                return statistics.getPrepareStatementCount();
+        }
+
+        // statements prepared to load all the restaurants and change their description in one transaction
+        private long statementsToUpdate(String description, int batchSize) {
+                statistics.clear();
+                transactionTemplate.executeWithoutResult(status -> {
+                        Session session = entityManager.unwrap(Session.class);
+                        session.setJdbcBatchSize(batchSize);
+                        restaurantRepository.findAll().forEach(restaurant -> restaurant.setDescription(description));
+                });
+                return statistics.getPrepareStatementCount();
+        }
+
+        @Test
+        public void inserts_are_batched() {
+                // 3 sequence calls, then 1 insert statement executed as 3 batches
+                assertEquals(3 + 1, statementsToInsert(120, 50));
+                // 2 sequence calls (ids 121 to 150 are left from the last one), then 120 inserts
+                assertEquals(2 + 120, statementsToInsert(120, 0));
+                assertEquals(240L, restaurantRepository.count());
+        }
+
+        @Test
+        public void updates_are_batched() {
+                statementsToInsert(120, 50);
+
+                // 1 select, then 1 update statement executed as 3 batches
+                assertEquals(1 + 1, statementsToUpdate("more food", 50));
+                // 1 select, then 120 updates
+                assertEquals(1 + 120, statementsToUpdate("even more food", 0));
+                assertEquals(120, jdbcTemplate.queryForObject(
+                                "SELECT COUNT(*) FROM restaurants WHERE description = 'even more food'", Integer.class));
+        }
+
+        @Test
+        public void rows_inserted_without_an_id_take_theirs_from_the_sequence() {
+                // arrange: Hibernate holds ids 1 to 50
+                Restaurant first = restaurantRepository.save(Restaurant.builder().name("First").build());
+
+                // act: an import (see EntityImportService) inserts rows without an id
+                jdbcTemplate.update("INSERT INTO restaurants (name, description) VALUES ('Imported', 'food')");
+                Restaurant second = restaurantRepository.save(Restaurant.builder().name("Second").build());
+
+                // assert
+                assertEquals(1L, first.getId());
+                assertEquals(100L, jdbcTemplate.queryForObject(
+                                "SELECT id FROM restaurants WHERE name = 'Imported'", Long.class));
+                assertEquals(2L, second.getId());
+        }
+}
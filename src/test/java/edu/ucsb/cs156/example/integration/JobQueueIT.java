@@ -0,0 +1,196 @@
+package edu.ucsb.cs156.example.integration;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import edu.ucsb.cs156.example.services.jobs.JobService;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Runs jobs through the jobs table as another instance would. The scheduled claim and recovery
+ * runs are pushed out of the way, so each test decides when they happen.
+ */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(
+    properties = {
+      "app.jobs.queue.pollIntervalMs=3600000",
+      "app.jobs.lease.checkIntervalMs=3600000"
+    })
+@ActiveProfiles("integration")
+@Import(TestConfig.class)
+@DirtiesContext(classMode = ClassMode.BEFORE_EACH_TEST_METHOD)
+public class JobQueueIT {
+  @Autowired JobsRepository jobsRepository;
+
+  @Autowired JobLogLinesRepository jobLogLinesRepository;
+
+  @Autowired JobService jobService;
+
+  @Autowired TransactionTemplate transactionTemplate;
+
+  // a TestJob as saved by JobService.runAsJob on an instance without an idle worker
+  private Job.JobBuilder testJob() {
+    return Job.builder()
+        .status("queued")
+        .type("edu.ucsb.cs156.example.jobs.TestJob")
+        .parameters("{\"fail\":false,\"sleepMs\":0}")
+        .timeoutMs(0L);
+  }
+
+  private Job reload(Job job) {
+    return jobsRepository.findById(job.getId()).orElseThrow();
+  }
+
+  private List<String> log(Job job) {
+    return transactionTemplate.execute(
+        status -> {
+          try (Stream<JobLogLine> lines =
+              jobLogLinesRepository.streamByJobIdOrderByLineNumberAsc(job.getId())) {
+            return lines.map(JobLogLine::getMessage).toList();
+          }
+        });
+  }
+
+  @Test
+  public void instances_claiming_at_the_same_time_lock_different_jobs() throws Exception {
+    // arrange
+    Job first = jobsRepository.save(testJob().build());
+    Job second = jobsRepository.save(testJob().build());
+    CountDownLatch locked = new CountDownLatch(1);
+    CountDownLatch done = new CountDownLatch(1);
+    ExecutorService otherInstance = Executors.newSingleThreadExecutor();
+
+    // act: the other instance holds the lock on the oldest job while this one claims
+    Future<List<Long>> otherIds =
+        otherInstance.submit(
+            () ->
+                transactionTemplate.execute(
+                    status -> {
+                      List<Long> ids = jobsRepository.lockUnclaimedJobIds(1);
+                      locked.countDown();
+                      try {
+                        done.await();
+                      } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                      }
+                      return ids;
+                    }));
+    locked.await();
+    List<Long> ids =
+        transactionTemplate.execute(status -> jobsRepository.lockUnclaimedJobIds(2));
+    done.countDown();
+
+    // assert
+    assertEquals(List.of(first.getId()), otherIds.get());
+    assertEquals(List.of(second.getId()), ids);
+    otherInstance.shutdown();
+  }
+
+  @Test
+  public void job_queued_by_another_instance_runs_here() {
+    // arrange
+    Job job = jobsRepository.save(testJob().build());
+
+    // act
+    jobService.claimQueuedJobs();
+
+    // assert
+    await().atMost(10, SECONDS).until(() -> reload(job).getStatus().equals("complete"));
+    assertEquals(1, reload(job).getAttempts());
+    assertNull(reload(job).getLeaseOwner());
+    assertEquals(List.of("Hello World! from test job!", "Goodbye from test job!"), log(job));
+  }
+
+  @Test
+  public void jobs_whose_instance_went_away_are_run_again_or_failed() {
+    // arrange: three jobs started on an instance whose leases ran out
+    ZonedDateTime expired = ZonedDateTime.now().minusMinutes(5);
+    Job retried =
+        jobsRepository.save(
+            testJob()
+                .status("running")
+                .attempts(1)
+                .leaseOwner("gone")
+                .leaseExpiresAt(expired)
+                .build());
+    jobLogLinesRepository.save(
+        JobLogLine.builder()
+            .jobId(retried.getId())
+            .lineNumber(0L)
+            .message("Hello World! from test job!")
+            .build());
+    Job exhausted =
+        jobsRepository.save(
+            testJob()
+                .status("running")
+                .attempts(3)
+                .leaseOwner("gone")
+                .leaseExpiresAt(expired)
+                .build());
+    Job lambda =
+        jobsRepository.save(
+            Job.builder().status("running").leaseOwner("gone").leaseExpiresAt(expired).build());
+
+    // act
+    jobService.recoverJobsWithExpiredLeases();
+
+    // assert
+    assertEquals("queued", reload(retried).getStatus());
+    assertNull(reload(retried).getLeaseOwner());
+    assertEquals("error", reload(exhausted).getStatus());
+    assertEquals("error", reload(lambda).getStatus());
+
+    // act
+    jobService.claimQueuedJobs();
+
+    // assert
+    await().atMost(10, SECONDS).until(() -> reload(retried).getStatus().equals("complete"));
+    assertEquals(2, reload(retried).getAttempts());
+    assertEquals(
+        List.of(
+            "Hello World! from test job!",
+            "Starting again (attempt 2 of 3)",
+            "Hello World! from test job!",
+            "Goodbye from test job!"),
+        log(retried));
+  }
+
+  @Test
+  public void job_waiting_to_be_claimed_can_be_cancelled() {
+    // arrange
+    Job job = jobsRepository.save(testJob().build());
+
+    // act
+    boolean cancelled = jobService.cancel(job.getId());
+    jobService.claimQueuedJobs();
+
+    // assert
+    assertTrue(cancelled);
+    assertEquals("cancelled", reload(job).getStatus());
+    assertEquals(0, reload(job).getAttempts());
+  }
+}
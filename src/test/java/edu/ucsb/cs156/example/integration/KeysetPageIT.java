@@ -0,0 +1,109 @@
+package edu.ucsb.cs156.example.integration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.testconfig.TestConfig;
+import java.util.List;
+import java.util.stream.StreamSupport;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.annotation.DirtiesContext.ClassMode;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+/**
+ * Pages through jobs and users against the database, following the Link header as a client
+ * would.
+ */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("integration")
+@Import(TestConfig.class)
+@DirtiesContext(classMode = ClassMode.BEFORE_EACH_TEST_METHOD)
+public class KeysetPageIT {
+  @Autowired JobsRepository jobsRepository;
+
+  @Autowired UserRepository userRepository;
+
+  @Autowired MockMvc mockMvc;
+
+  @Autowired ObjectMapper mapper;
+
+  private JsonNode json(MvcResult response) throws Exception {
+    return mapper.readTree(response.getResponse().getContentAsString());
+  }
+
+  private static List<String> values(JsonNode rows, String field) {
+    return StreamSupport.stream(rows.spliterator(), false)
+        .map(row -> row.get(field).asText())
+        .toList();
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void jobs_are_paged_newest_first_without_their_logs() throws Exception {
+    // arrange
+    Job first = jobsRepository.save(Job.builder().status("complete").log("first").build());
+    jobsRepository.save(Job.builder().status("error").log("second").build());
+    Job third = jobsRepository.save(Job.builder().status("complete").log("third").build());
+
+    // act
+    MvcResult firstPage =
+        mockMvc
+            .perform(get("/api/jobs/page?status=complete&size=1"))
+            .andExpect(status().isOk())
+            .andReturn();
+    String link = firstPage.getResponse().getHeader("Link");
+    String next = link.substring(1, link.indexOf('>'));
+    MvcResult lastPage = mockMvc.perform(get(next)).andExpect(status().isOk()).andReturn();
+
+    // assert
+    assertEquals(List.of(String.valueOf(third.getId())), values(json(firstPage), "id"));
+    assertFalse(json(firstPage).get(0).has("log"));
+    assertEquals(List.of(String.valueOf(first.getId())), values(json(lastPage), "id"));
+    assertNull(lastPage.getResponse().getHeader("X-Next-Cursor"));
+  }
+
+  @WithMockUser(roles = {"ADMIN", "USER"})
+  @Test
+  public void users_are_paged_by_email_prefix() throws Exception {
+    // arrange
+    for (String email : List.of("pat_c@ucsb.edu", "patxb@ucsb.edu", "pat_a@ucsb.edu")) {
+      userRepository.save(User.builder().email(email).build());
+    }
+
+    // act
+    MvcResult firstPage =
+        mockMvc
+            .perform(get("/api/admin/users/page?emailPrefix=pat_&sort=email&size=1"))
+            .andExpect(status().isOk())
+            .andReturn();
+    String link = firstPage.getResponse().getHeader("Link");
+    String next = link.substring(1, link.indexOf('>'));
+    MvcResult lastPage = mockMvc.perform(get(next)).andExpect(status().isOk()).andReturn();
+
+    // assert
+    assertEquals(List.of("pat_a@ucsb.edu"), values(json(firstPage), "email"));
+    assertEquals(List.of("pat_c@ucsb.edu"), values(json(lastPage), "email"));
+    assertNull(lastPage.getResponse().getHeader("X-Next-Cursor"));
+  }
+}
@@ -1,6 +1,11 @@
 package edu.ucsb.cs156.example.integration;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -99,4 +104,60 @@ public class RestaurantIT {
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
         }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_page_through_restaurants_by_name() throws Exception {
+                // arrange
+
+                for (String name : List.of("Chipotle", "Taco Bell", "Blaze", "Chipotle")) {
+                        restaurantRepository.save(Restaurant.builder().name(name).description("food").build());
+                }
+
+                // act
+                MvcResult first = mockMvc.perform(get("/api/restaurants/page?sort=name,desc&size=2"))
+                                .andExpect(status().isOk()).andReturn();
+                String next = first.getResponse().getHeader("X-Next-Cursor");
+                MvcResult second = mockMvc.perform(get("/api/restaurants/page?sort=name,desc&size=2&cursor=" + next))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                List<Restaurant> firstPage = List.of(
+                                restaurantRepository.findById(2L).get(), restaurantRepository.findById(4L).get());
+                List<Restaurant> secondPage = List.of(
+                                restaurantRepository.findById(1L).get(), restaurantRepository.findById(3L).get());
+                assertEquals(mapper.writeValueAsString(firstPage), first.getResponse().getContentAsString());
+                assertEquals(mapper.writeValueAsString(secondPage), second.getResponse().getContentAsString());
+                assertNull(second.getResponse().getHeader("X-Next-Cursor"));
+        }
+
+        private List<Long> pageThroughIds(String sort) throws Exception {
+                List<Long> ids = new ArrayList<>();
+                String cursor = null;
+                do {
+                        String url = "/api/restaurants/page?sort=" + sort + "&size=2" + (cursor == null ? "" : "&cursor=" + cursor);
+                        MvcResult page = mockMvc.perform(get(url)).andExpect(status().isOk()).andReturn();
+                        Restaurant[] restaurants = mapper.readValue(page.getResponse().getContentAsString(), Restaurant[].class);
+                        for (Restaurant restaurant : restaurants) {
+                                ids.add(restaurant.getId());
+                        }
+                        cursor = page.getResponse().getHeader("X-Next-Cursor");
+                } while (cursor != null);
+                return ids;
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void paging_by_name_includes_restaurants_without_a_name() throws Exception {
+                // arrange
+
+                for (String name : Arrays.asList(null, "Chipotle", null, "Blaze", "Taco Bell")) {
+                        restaurantRepository.save(Restaurant.builder().name(name).description("food").build());
+                }
+
+                // act & assert: nulls come last ascending and first descending
+
+                assertEquals(List.of(4L, 2L, 5L, 1L, 3L), pageThroughIds("name,asc"));
+                assertEquals(List.of(3L, 1L, 5L, 2L, 4L), pageThroughIds("name,desc"));
+        }
 }
@@ -0,0 +1,94 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Optional;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+
+class AdminRoleServiceTests {
+
+  @Mock
+  private UserRepository userRepository;
+
+  @Mock
+  private UserCache userCache;
+
+  @Mock
+  private CurrentUserResponseCache currentUserResponseCache;
+
+  @InjectMocks
+  private AdminRoleService adminRoleService;
+
+  @BeforeEach
+  void setup() {
+    MockitoAnnotations.openMocks(this);
+    ReflectionTestUtils.setField(adminRoleService, "adminEmails", Set.of("admin@ucsb.edu"));
+  }
+
+  @Test
+  void test_configured_admin_email_needs_no_lookup() {
+    assertTrue(adminRoleService.isAdminEmail("admin@ucsb.edu"));
+    assertTrue(adminRoleService.isAdmin("admin@ucsb.edu"));
+    verify(userCache, never()).get(any());
+    verify(userRepository, never()).findByEmail(any());
+  }
+
+  @Test
+  void test_admin_flag_is_read_from_cache() {
+    User user = User.builder().email("user@ucsb.edu").admin(true).build();
+    when(userCache.get("user@ucsb.edu")).thenReturn(user);
+
+    assertFalse(adminRoleService.isAdminEmail("user@ucsb.edu"));
+    assertTrue(adminRoleService.isAdmin("user@ucsb.edu"));
+    verify(userRepository, never()).findByEmail(any());
+  }
+
+  @Test
+  void test_admin_flag_is_read_from_database_and_cached() {
+    User user = User.builder().email("user@ucsb.edu").admin(false).build();
+    when(userRepository.findByEmail("user@ucsb.edu")).thenReturn(Optional.of(user));
+
+    assertFalse(adminRoleService.isAdmin("user@ucsb.edu"));
+    verify(userCache, times(1)).put(user);
+  }
+
+  @Test
+  void test_admin_flag_set_in_database_makes_user_admin() {
+    User user = User.builder().email("user@ucsb.edu").admin(true).build();
+    when(userRepository.findByEmail("user@ucsb.edu")).thenReturn(Optional.of(user));
+
+    assertTrue(adminRoleService.isAdmin("user@ucsb.edu"));
+    verify(userCache, times(1)).put(user);
+  }
+
+  @Test
+  void test_unknown_user_is_not_admin() {
+    when(userRepository.findByEmail("new@ucsb.edu")).thenReturn(Optional.empty());
+
+    assertFalse(adminRoleService.isAdmin("new@ucsb.edu"));
+    verify(userCache, never()).put(any());
+  }
+
+  @Test
+  void test_invalidate_drops_cached_user() {
+    adminRoleService.invalidate("user@ucsb.edu");
+    verify(userCache, times(1)).invalidate("user@ucsb.edu");
+    verify(currentUserResponseCache, times(1)).invalidate("user@ucsb.edu");
+  }
+}
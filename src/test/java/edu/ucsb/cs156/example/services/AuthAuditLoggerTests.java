@@ -0,0 +1,122 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+
+class AuthAuditLoggerTests {
+
+  private final Logger logger = (Logger) LoggerFactory.getLogger("auth.audit");
+
+  private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+
+  private final AuthAuditLogger authAudit = new AuthAuditLogger();
+
+  private boolean computed;
+
+  private final Supplier<String> detail = () -> {
+    computed = true;
+    return "email=user@ucsb.edu";
+  };
+
+  @BeforeEach
+  void setup() {
+    appender.start();
+    logger.addAppender(appender);
+    logger.setLevel(Level.INFO);
+  }
+
+  @AfterEach
+  void teardown() {
+    logger.detachAppender(appender);
+    logger.setLevel(null);
+  }
+
+  private List<String> messages() {
+    return appender.list.stream()
+        .map(e -> e.getLevel() + " " + e.getFormattedMessage())
+        .toList();
+  }
+
+  @Test
+  void test_login_logs_once_at_info() {
+    authAudit.login("user@ucsb.edu", List.of("ROLE_USER"), Map.of("hd", "ucsb.edu"));
+
+    assertEquals(List.of("INFO event=login email=user@ucsb.edu authorities=[ROLE_USER]"), messages());
+  }
+
+  @Test
+  void test_login_logs_attributes_at_debug() {
+    logger.setLevel(Level.DEBUG);
+
+    authAudit.login("user@ucsb.edu", List.of("ROLE_USER"), Map.of("hd", "ucsb.edu"));
+
+    assertEquals(List.of(
+        "INFO event=login email=user@ucsb.edu authorities=[ROLE_USER]",
+        "DEBUG event=login email=user@ucsb.edu attributes={hd=ucsb.edu}"), messages());
+  }
+
+  @Test
+  void test_detail_is_not_computed_at_info_without_sampling() {
+    authAudit.detail("currentUser", detail);
+
+    assertFalse(computed);
+    assertEquals(List.of(), messages());
+  }
+
+  @Test
+  void test_detail_is_logged_at_debug() {
+    logger.setLevel(Level.DEBUG);
+
+    authAudit.detail("currentUser", detail);
+
+    assertTrue(computed);
+    assertEquals(List.of("DEBUG event=currentUser email=user@ucsb.edu"), messages());
+  }
+
+  @Test
+  void test_detail_is_sampled_at_info() {
+    ReflectionTestUtils.setField(authAudit, "sampleRate", 1.0);
+
+    authAudit.detail("currentUser", detail);
+
+    assertEquals(List.of("INFO event=currentUser sampled=true email=user@ucsb.edu"), messages());
+  }
+
+  @Test
+  void test_detail_is_not_sampled_when_info_is_off() {
+    ReflectionTestUtils.setField(authAudit, "sampleRate", 1.0);
+    logger.setLevel(Level.WARN);
+
+    authAudit.detail("currentUser", detail);
+
+    assertFalse(computed);
+    assertEquals(List.of(), messages());
+  }
+
+  @Test
+  void test_detail_outside_the_sample_is_not_logged() {
+    // nextDouble() is below this only if it returns exactly 0
+    ReflectionTestUtils.setField(authAudit, "sampleRate", Double.MIN_VALUE);
+
+    authAudit.detail("currentUser", detail);
+
+    assertFalse(computed);
+    assertEquals(List.of(), messages());
+  }
+}
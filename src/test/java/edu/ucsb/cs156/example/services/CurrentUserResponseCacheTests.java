@@ -0,0 +1,154 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Clock;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.models.CurrentUser;
+
+class CurrentUserResponseCacheTests {
+
+  private Clock clock = mock(Clock.class);
+
+  private CurrentUserResponseCache cache = new CurrentUserResponseCache();
+
+  private AtomicInteger builds = new AtomicInteger();
+
+  private Supplier<CurrentUser> build(String email, boolean admin) {
+    return () -> {
+      builds.incrementAndGet();
+      return CurrentUser.builder()
+          .user(User.builder().id(1L).email(email).admin(admin).build())
+          .roles(AuthorityUtils.createAuthorityList("ROLE_USER"))
+          .build();
+    };
+  }
+
+  private void login(String name, String... roles) {
+    SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken(name, null, roles));
+  }
+
+  @BeforeEach
+  void setup() {
+    when(clock.millis()).thenReturn(0L);
+    ReflectionTestUtils.setField(cache, "mapper", new ObjectMapper());
+    ReflectionTestUtils.setField(cache, "clock", clock);
+    ReflectionTestUtils.setField(cache, "ttlSeconds", 30L);
+    ReflectionTestUtils.setField(cache, "maxSize", 10);
+    login("alice", "ROLE_USER");
+  }
+
+  @AfterEach
+  void teardown() {
+    SecurityContextHolder.clearContext();
+  }
+
+  @Test
+  void test_response_is_built_once_and_reused() {
+    CurrentUserResponseCache.Response first = cache.get(build("alice@example.org", false));
+    CurrentUserResponseCache.Response second = cache.get(build("alice@example.org", false));
+
+    assertSame(first, second);
+    assertEquals(1, builds.get());
+    assertEquals("alice@example.org", first.currentUser().getUser().getEmail());
+  }
+
+  @Test
+  void test_etag_depends_on_content() {
+    String etag = cache.get(build("alice@example.org", false)).etag();
+    cache.invalidate("alice@example.org");
+    String sameEtag = cache.get(build("alice@example.org", false)).etag();
+    cache.invalidate("alice@example.org");
+    String adminEtag = cache.get(build("alice@example.org", true)).etag();
+
+    assertEquals(etag, sameEtag);
+    assertNotEquals(etag, adminEtag);
+    assertEquals('"', etag.charAt(0));
+    assertEquals('"', etag.charAt(etag.length() - 1));
+  }
+
+  @Test
+  void test_response_expires_after_ttl() {
+    cache.get(build("alice@example.org", false));
+
+    when(clock.millis()).thenReturn(29_999L);
+    cache.get(build("alice@example.org", false));
+    assertEquals(1, builds.get());
+
+    when(clock.millis()).thenReturn(30_000L);
+    cache.get(build("alice@example.org", false));
+    assertEquals(2, builds.get());
+  }
+
+  @Test
+  void test_changed_authorities_rebuild_response() {
+    cache.get(build("alice@example.org", false));
+
+    login("alice", "ROLE_USER", "ROLE_ADMIN");
+    cache.get(build("alice@example.org", true));
+
+    assertEquals(2, builds.get());
+  }
+
+  @Test
+  void test_invalidate_drops_only_that_user() {
+    cache.get(build("alice@example.org", false));
+    login("bob", "ROLE_USER");
+    cache.get(build("bob@example.org", false));
+
+    cache.invalidate("alice@example.org");
+
+    cache.get(build("bob@example.org", false));
+    assertEquals(2, builds.get());
+    login("alice", "ROLE_USER");
+    cache.get(build("alice@example.org", false));
+    assertEquals(3, builds.get());
+  }
+
+  @Test
+  void test_invalidate_skips_responses_without_a_user() {
+    cache.get(() -> {
+      builds.incrementAndGet();
+      return CurrentUser.builder().roles(AuthorityUtils.createAuthorityList("ROLE_ANONYMOUS")).build();
+    });
+
+    cache.invalidate("alice@example.org");
+
+    cache.get(build("alice@example.org", false));
+    assertEquals(1, builds.get());
+  }
+
+  @Test
+  void test_least_recently_used_response_is_evicted() {
+    ReflectionTestUtils.setField(cache, "maxSize", 2);
+    for (String name : List.of("a", "b", "c")) {
+      login(name, "ROLE_USER");
+      cache.get(build(name + "@example.org", false));
+    }
+
+    login("a", "ROLE_USER");
+    cache.get(build("a@example.org", false));
+    assertEquals(4, builds.get());
+    login("c", "ROLE_USER");
+    cache.get(build("c@example.org", false));
+    assertEquals(4, builds.get());
+  }
+}
@@ -0,0 +1,200 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.ucsb.cs156.example.services.EntityExportService.ExportTable;
+
+class EntityExportServiceTests {
+
+  private static final ExportTable REVIEWS =
+      ExportTable.of("reviews", "id", "itemId", "comments", "done", "dateAdded");
+
+  private EmbeddedDatabase database;
+
+  private JdbcTemplate jdbcTemplate;
+
+  private EntityExportService service = new EntityExportService();
+
+  @BeforeEach
+  void setup() {
+    database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build();
+    jdbcTemplate = new JdbcTemplate(database);
+    jdbcTemplate.execute("CREATE TABLE reviews (id BIGINT PRIMARY KEY, item_id BIGINT, comments VARCHAR(20000),"
+        + " done BOOLEAN, date_added TIMESTAMP)");
+    ReflectionTestUtils.setField(service, "jdbcTemplate", jdbcTemplate);
+    ReflectionTestUtils.setField(service, "transactionManager", new DataSourceTransactionManager(database));
+    ReflectionTestUtils.setField(service, "mapper", new ObjectMapper());
+  }
+
+  @AfterEach
+  void teardown() {
+    database.shutdown();
+  }
+
+  private void insert(long id, Long itemId, String comments, Boolean done, String dateAdded) {
+    jdbcTemplate.update("INSERT INTO reviews VALUES (?, ?, ?, ?, CAST(? AS TIMESTAMP))",
+        id, itemId, comments, done, dateAdded);
+  }
+
+  private byte[] write(ResponseEntity<StreamingResponseBody> response) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    response.getBody().writeTo(out);
+    return out.toByteArray();
+  }
+
+  @Test
+  void exports_csv_in_id_order() throws Exception {
+    // arrange
+    insert(2, 7L, "Meh, \"okay\"", false, "2024-01-02 12:30:00");
+    insert(1, 7L, "Great", true, "2024-01-01 00:00:00");
+    insert(3, null, "two\nlines", null, null);
+    insert(4, 8L, "carriage\rreturn", true, "2024-01-03 08:00:05");
+    insert(5, null, "say \"hi\"", null, null);
+
+    // act
+    ResponseEntity<StreamingResponseBody> response = service.export(REVIEWS, "csv", null);
+    String csv = new String(write(response), StandardCharsets.UTF_8);
+
+    // assert
+    assertEquals(EntityExportService.TEXT_CSV, response.getHeaders().getContentType());
+    assertEquals("attachment; filename=\"reviews.csv\"",
+        response.getHeaders().getFirst(HttpHeaders.CONTENT_DISPOSITION));
+    assertEquals(HttpHeaders.ACCEPT_ENCODING, response.getHeaders().getFirst(HttpHeaders.VARY));
+    assertNull(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+    assertEquals("id,itemId,comments,done,dateAdded\r\n"
+        + "1,7,Great,true,2024-01-01T00:00:00\r\n"
+        + "2,7,\"Meh, \"\"okay\"\"\",false,2024-01-02T12:30:00\r\n"
+        + "3,,\"two\nlines\",,\r\n"
+        + "4,8,\"carriage\rreturn\",true,2024-01-03T08:00:05\r\n"
+        + "5,,\"say \"\"hi\"\"\",,\r\n", csv);
+  }
+
+  @Test
+  void exports_ndjson() throws Exception {
+    // arrange
+    insert(1, 7L, "Great", true, "2024-01-01 00:00:00");
+    insert(2, null, "say \"hi\"", null, null);
+
+    // act
+    ResponseEntity<StreamingResponseBody> response = service.export(REVIEWS, "NDJSON", null);
+    String ndjson = new String(write(response), StandardCharsets.UTF_8);
+
+    // assert
+    assertEquals(MediaType.APPLICATION_NDJSON, response.getHeaders().getContentType());
+    assertEquals("attachment; filename=\"reviews.ndjson\"",
+        response.getHeaders().getFirst(HttpHeaders.CONTENT_DISPOSITION));
+    assertEquals(
+        "{\"id\":1,\"itemId\":7,\"comments\":\"Great\",\"done\":true,\"dateAdded\":\"2024-01-01T00:00:00\"}\n"
+            + "{\"id\":2,\"itemId\":null,\"comments\":\"say \\\"hi\\\"\",\"done\":null,\"dateAdded\":null}\n",
+        ndjson);
+  }
+
+  @Test
+  void empty_table_exports_only_the_header() throws Exception {
+    assertEquals("id,itemId,comments,done,dateAdded\r\n",
+        new String(write(service.export(REVIEWS, "csv", null)), StandardCharsets.UTF_8));
+    assertEquals(0, write(service.export(REVIEWS, "ndjson", null)).length);
+  }
+
+  @Test
+  void export_is_gzipped_when_the_client_accepts_it() throws Exception {
+    // arrange
+    insert(1, 7L, "Great", true, "2024-01-01 00:00:00");
+
+    // act
+    ResponseEntity<StreamingResponseBody> response = service.export(REVIEWS, "csv", "gzip, deflate, br");
+    byte[] gzipped = write(response);
+
+    // assert
+    assertEquals("gzip", response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING));
+    try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipped))) {
+      assertEquals("id,itemId,comments,done,dateAdded\r\n1,7,Great,true,2024-01-01T00:00:00\r\n",
+          new String(in.readAllBytes(), StandardCharsets.UTF_8));
+    }
+  }
+
+  @Test
+  void unsupported_format_is_a_bad_request() {
+    ResponseStatusException e =
+        assertThrows(ResponseStatusException.class, () -> service.export(REVIEWS, "xml", null));
+    assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+  }
+
+  @Test
+  void accepts_gzip_unless_refused() {
+    assertFalse(EntityExportService.acceptsGzip(null));
+    assertFalse(EntityExportService.acceptsGzip("deflate, br"));
+    assertTrue(EntityExportService.acceptsGzip("gzip"));
+    assertTrue(EntityExportService.acceptsGzip("br, GZIP;q=0.5"));
+    assertTrue(EntityExportService.acceptsGzip("*"));
+    assertFalse(EntityExportService.acceptsGzip("gzip;q=0"));
+    assertFalse(EntityExportService.acceptsGzip("br, gzip; q=0.0"));
+  }
+
+  @Test
+  void columns_are_the_snake_case_property_names() {
+    assertEquals("id", ExportTable.column("id"));
+    assertEquals("item_id", ExportTable.column("itemId"));
+    assertEquals("table_or_breakout_room", ExportTable.column("tableOrBreakoutRoom"));
+    assertEquals("teamid", ExportTable.column("teamID"));
+    assertEquals("quarteryyyyq", ExportTable.column("quarterYYYYQ"));
+    assertEquals("SELECT id, item_id, comments, done, date_added FROM reviews ORDER BY id", REVIEWS.select());
+  }
+
+  private OutputStream brokenPipe = new OutputStream() {
+    @Override
+    public void write(int b) throws IOException {
+      throw new IOException("Broken pipe");
+    }
+  };
+
+  @Test
+  void write_failure_while_reading_rows_is_thrown() {
+    // arrange: a row larger than the write buffer, so it is written out right away
+    insert(1, 7L, "x".repeat(10000), true, null);
+    StreamingResponseBody body = service.export(REVIEWS, "csv", null).getBody();
+
+    // act & assert
+    assertThrows(UncheckedIOException.class, () -> body.writeTo(brokenPipe));
+  }
+
+  @Test
+  void write_failure_at_the_end_is_thrown() {
+    // arrange
+    insert(1, 7L, "Great", true, null);
+    StreamingResponseBody body = service.export(REVIEWS, "ndjson", null).getBody();
+
+    // act & assert
+    assertThrows(UncheckedIOException.class, () -> body.writeTo(brokenPipe));
+  }
+}
@@ -0,0 +1,455 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.errors.JobQueueFullException;
+import edu.ucsb.cs156.example.jobs.ImportJob;
+import edu.ucsb.cs156.example.models.ImportReport;
+import edu.ucsb.cs156.example.services.EntityImportService.ColumnType;
+import edu.ucsb.cs156.example.services.EntityImportService.Format;
+import edu.ucsb.cs156.example.services.EntityImportService.ImportColumn;
+import edu.ucsb.cs156.example.services.EntityImportService.ImportTable;
+import edu.ucsb.cs156.example.services.jobs.JobContext;
+import edu.ucsb.cs156.example.services.jobs.JobContextConsumer;
+import edu.ucsb.cs156.example.services.jobs.JobService;
+
+class EntityImportServiceTests {
+
+  private static final ImportTable WIDGETS = ImportTable.of("widgets",
+      ImportColumn.required("name", ColumnType.STRING),
+      ImportColumn.optional("itemCount", ColumnType.INTEGER),
+      ImportColumn.optional("weight", ColumnType.DOUBLE),
+      ImportColumn.optional("serialNumber", ColumnType.LONG),
+      ImportColumn.optional("active", ColumnType.BOOLEAN),
+      ImportColumn.required("madeAt", ColumnType.DATETIME));
+
+  private static final String HEADER = "name,itemCount,weight,serialNumber,active,madeAt\n";
+
+  private EmbeddedDatabase database;
+
+  private JdbcTemplate jdbcTemplate;
+
+  private JobService jobService = mock(JobService.class);
+
+  private EntityImportService service = new EntityImportService();
+
+  private AtomicInteger batches = new AtomicInteger();
+
+  @BeforeEach
+  void setup() {
+    database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build();
+    jdbcTemplate = new JdbcTemplate(database);
+    jdbcTemplate.execute("CREATE TABLE widgets (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,"
+        + " name VARCHAR(255) NOT NULL UNIQUE, item_count INT, weight DOUBLE PRECISION, serial_number BIGINT,"
+        + " active BOOLEAN, made_at TIMESTAMP NOT NULL)");
+    ReflectionTestUtils.setField(service, "jdbcTemplate", jdbcTemplate);
+    ReflectionTestUtils.setField(service, "transactionManager", new DataSourceTransactionManager(database));
+    ReflectionTestUtils.setField(service, "mapper", new ObjectMapper());
+    ReflectionTestUtils.setField(service, "jobService", jobService);
+    ReflectionTestUtils.setField(service, "batchSize", 2);
+    ReflectionTestUtils.setField(service, "syncMaxBytes", 1000L);
+    ReflectionTestUtils.setField(service, "importDir", Path.of(System.getProperty("java.io.tmpdir")));
+  }
+
+  @AfterEach
+  void teardown() {
+    database.shutdown();
+  }
+
+  private InputStream input(String text) {
+    return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private ImportReport importRows(Format format, String text) {
+    return service.importRows(WIDGETS, format, input(text), batches::incrementAndGet);
+  }
+
+  private List<String> names() {
+    return jdbcTemplate.queryForList("SELECT name FROM widgets ORDER BY id", String.class);
+  }
+
+  private ImportReport report(long read, long imported, ImportReport.RowError... errors) {
+    return ImportReport.builder()
+        .rowsRead(read)
+        .rowsImported(imported)
+        .rowsRejected(errors.length)
+        .errors(List.of(errors))
+        .build();
+  }
+
+  private ImportReport.RowError error(long row, String message) {
+    return new ImportReport.RowError(row, message);
+  }
+
+  @Test
+  void imports_csv_in_batches() {
+    // act
+    ImportReport report = importRows(Format.CSV, HEADER
+        + "Sprocket,3,1.5,12345678901,true,2024-01-08T09:00:00\n"
+        + "Gear,,,,,2024-01-09T10:30:00\n"
+        + "Cog, 4 , 2 ,7, FALSE ,2024-01-10T00:00\n");
+
+    // assert
+    assertEquals(report(3, 3), report);
+    assertEquals(1, batches.get());
+    Map<String, Object> sprocket = jdbcTemplate.queryForMap("SELECT * FROM widgets WHERE name = 'Sprocket'");
+    assertEquals(3, sprocket.get("ITEM_COUNT"));
+    assertEquals(1.5, sprocket.get("WEIGHT"));
+    assertEquals(12345678901L, sprocket.get("SERIAL_NUMBER"));
+    assertEquals(true, sprocket.get("ACTIVE"));
+    assertEquals(Timestamp.valueOf(LocalDateTime.of(2024, 1, 8, 9, 0)), sprocket.get("MADE_AT"));
+    Map<String, Object> gear = jdbcTemplate.queryForMap("SELECT * FROM widgets WHERE name = 'Gear'");
+    assertEquals(null, gear.get("ITEM_COUNT"));
+    assertEquals(null, gear.get("ACTIVE"));
+    Map<String, Object> cog = jdbcTemplate.queryForMap("SELECT * FROM widgets WHERE name = 'Cog'");
+    assertEquals(4, cog.get("ITEM_COUNT"));
+    assertEquals(false, cog.get("ACTIVE"));
+  }
+
+  @Test
+  void invalid_rows_are_reported_and_skipped() {
+    // act
+    ImportReport report = importRows(Format.CSV, HEADER
+        + ",,,,,\n"
+        + "Sprocket,three,heavy,x,maybe,yesterday\n"
+        + "Gear,,,,,2024-01-09T10:30:00\n"
+        + "x".repeat(256) + ",,,,,2024-01-09T10:30:00\n"
+        + "Cog,,,,, \n");
+
+    // assert
+    assertEquals(report(5, 1,
+        error(1, "name is required; madeAt is required"),
+        error(2, "itemCount must be a whole number; weight must be a number; serialNumber must be a whole number;"
+            + " active must be true or false; madeAt must be an ISO date and time, e.g. 2024-01-08T09:00:00"),
+        error(4, "name must be at most 255 characters long"),
+        error(5, "madeAt is required")), report);
+    assertEquals(List.of("Gear"), names());
+  }
+
+  @Test
+  void only_the_first_errors_are_listed() {
+    // act
+    ImportReport report = importRows(Format.CSV, HEADER + "Gear,,,,,never\n".repeat(EntityImportService.MAX_ERRORS + 1));
+
+    // assert
+    assertEquals(EntityImportService.MAX_ERRORS + 1, report.getRowsRejected());
+    assertEquals(EntityImportService.MAX_ERRORS, report.getErrors().size());
+  }
+
+  @Test
+  void csv_quoting_follows_rfc_4180() {
+    // act
+    ImportReport report = importRows(Format.CSV,
+        "\uFEFFid,,name,madeAt\r\n"
+            + "1,a,\"Sprocket, large\",2024-01-08T09:00:00\r\n"
+            + "\r\n"
+            + "2,b,\"say \"\"hi\"\"\",2024-01-08T09:00:00,extra\r\n"
+            + "3,c,\"two\nlines\",2024-01-08T09:00:00\n"
+            + "\n"
+            + "4,d,Bob's \"big\" gear\n"
+            + "5,e,\"cl\"osed,2024-01-08T09:00:00\n"
+            + "6,f,\"\",2024-01-08T09:00:00");
+
+    // assert
+    assertEquals(report(6, 5, error(4, "madeAt is required")), report);
+    assertEquals(List.of("Sprocket, large", "say \"hi\"", "two\nlines", "closed", ""), names());
+  }
+
+  @Test
+  void csv_without_a_trailing_value() {
+    // act
+    ImportReport report = importRows(Format.CSV, "madeAt,name\n2024-01-08T09:00:00,");
+
+    // assert
+    assertEquals(report(1, 0, error(1, "name is required")), report);
+  }
+
+  @Test
+  void csv_with_quoted_value_at_the_end() {
+    // act
+    ImportReport report = importRows(Format.CSV, "madeAt,name\n2024-01-08T09:00:00,\"Gear\"");
+
+    // assert
+    assertEquals(report(1, 1), report);
+    assertEquals(List.of("Gear"), names());
+  }
+
+  @Test
+  void empty_inputs_import_nothing() {
+    assertEquals(report(0, 0), importRows(Format.CSV, ""));
+    assertEquals(report(0, 0), importRows(Format.CSV, HEADER));
+    assertEquals(report(0, 0), importRows(Format.NDJSON, ""));
+    assertEquals(report(0, 0), importRows(Format.JSON, "[]"));
+    assertEquals(0, batches.get());
+  }
+
+  @Test
+  void unterminated_quote_is_a_bad_request() {
+    // act
+    ResponseStatusException e = assertThrows(ResponseStatusException.class,
+        () -> importRows(Format.CSV, HEADER + "Gear,,,,,2024-01-09T10:30:00\n\"Cog,,,,,2024-01-09T10:30:00\n"));
+
+    // assert
+    assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+    assertEquals("Could not read row 2: unterminated quoted field", e.getReason());
+  }
+
+  @Test
+  void imports_ndjson() {
+    // act
+    ImportReport report = importRows(Format.NDJSON,
+        "{\"id\":1,\"name\":\"Sprocket\",\"itemCount\":3,\"active\":true,\"madeAt\":\"2024-01-08T09:00:00\"}\n"
+            + "{\"name\":\"Gear\",\"itemCount\":null,\"madeAt\":\"2024-01-08T09:00:00\"}\n"
+            + "[1, 2]\n"
+            + "{\"name\":{\"first\":\"Cog\"},\"madeAt\":\"2024-01-08T09:00:00\"}\n"
+            + "{\"name\":\"Wheel\",\"madeAt\":\"2024-01-08T09:00:00\"}\n");
+
+    // assert
+    assertEquals(report(5, 3,
+        error(3, "expected a JSON object"),
+        error(4, "name must be a single value")), report);
+    assertEquals(List.of("Sprocket", "Gear", "Wheel"), names());
+    assertEquals(1, batches.get());
+  }
+
+  @Test
+  void imports_json_arrays() {
+    // act
+    ImportReport report = importRows(Format.JSON,
+        "[{\"name\":\"Sprocket\",\"madeAt\":\"2024-01-08T09:00:00\"},"
+            + " {\"name\":\"Gear\",\"madeAt\":\"2024-01-08T09:00:00\"}]");
+
+    // assert
+    assertEquals(report(2, 2), report);
+    assertEquals(List.of("Sprocket", "Gear"), names());
+  }
+
+  @Test
+  void single_column_csv() {
+    // act
+    ImportReport report = importRows(Format.CSV, "name\nGear\n");
+
+    // assert
+    assertEquals(report(1, 0, error(1, "madeAt is required")), report);
+  }
+
+  @Test
+  void unreadable_input_is_a_bad_request() {
+    // arrange
+    InputStream broken = new InputStream() {
+      @Override
+      public int read() throws IOException {
+        throw new IOException("Connection reset");
+      }
+    };
+
+    // act
+    ResponseStatusException e = assertThrows(ResponseStatusException.class,
+        () -> service.importRows(WIDGETS, Format.JSON, broken, batches::incrementAndGet));
+
+    // assert
+    assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+    assertEquals("Could not read the input: Connection reset", e.getReason());
+  }
+
+  @Test
+  void malformed_json_is_a_bad_request() {
+    ResponseStatusException first = assertThrows(ResponseStatusException.class,
+        () -> importRows(Format.NDJSON, "}"));
+    assertTrue(first.getReason().startsWith("Could not read "), first.getReason());
+
+    ResponseStatusException later = assertThrows(ResponseStatusException.class,
+        () -> importRows(Format.NDJSON, "{\"name\":\"Gear\",\"madeAt\":\"2024-01-08T09:00:00\"}\n{oops"));
+    assertTrue(later.getReason().startsWith("Could not read row 2: "), later.getReason());
+    assertEquals(List.of(), names()); // rolled back
+  }
+
+  @Test
+  void format_is_chosen_by_content_type() {
+    assertEquals(Format.CSV, Format.of("text/csv; charset=UTF-8"));
+    assertEquals(Format.NDJSON, Format.of("application/x-ndjson"));
+    assertEquals(Format.JSON, Format.of("application/json"));
+    assertEquals(HttpStatus.UNSUPPORTED_MEDIA_TYPE,
+        assertThrows(ResponseStatusException.class, () -> Format.of("text/plain")).getStatusCode());
+    assertEquals(HttpStatus.UNSUPPORTED_MEDIA_TYPE,
+        assertThrows(ResponseStatusException.class, () -> Format.of(null)).getStatusCode());
+  }
+
+  @Test
+  void insert_statement_uses_snake_case_columns() {
+    assertEquals("INSERT INTO widgets (name, item_count, weight, serial_number, active, made_at)"
+        + " VALUES (?, ?, ?, ?, ?, ?)", WIDGETS.insert());
+  }
+
+  @Test
+  void small_body_is_imported_right_away() throws Exception {
+    // arrange
+    String csv = HEADER + "Gear,,,,,2024-01-09T10:30:00\n";
+
+    // act
+    ResponseEntity<Object> response = service.importBody(WIDGETS, "text/csv", csv.length(), input(csv));
+
+    // assert
+    assertEquals(HttpStatus.OK, response.getStatusCode());
+    assertEquals(report(1, 1), response.getBody());
+    assertEquals(List.of("Gear"), names());
+  }
+
+  @Test
+  void database_errors_roll_back_the_import() {
+    // arrange: the names must be unique
+    String csv = HEADER + "Gear,,,,,2024-01-09T10:30:00\nCog,,,,,2024-01-09T10:30:00\nGear,,,,,2024-01-09T10:30:00\n";
+
+    // act
+    ResponseStatusException e = assertThrows(ResponseStatusException.class,
+        () -> service.importBody(WIDGETS, "text/csv", csv.length(), input(csv)));
+
+    // assert
+    assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+    assertTrue(e.getReason().startsWith("Import failed, nothing was imported: "), e.getReason());
+    assertEquals(List.of(), names());
+  }
+
+  private Set<Path> importFiles() throws IOException {
+    try (Stream<Path> files = Files.list(Path.of(System.getProperty("java.io.tmpdir")))) {
+      return files.filter(f -> f.getFileName().toString().startsWith("import-widgets-")).collect(Collectors.toSet());
+    }
+  }
+
+  @Test
+  void large_body_is_imported_by_a_job() throws Exception {
+    // arrange
+    Set<Path> before = importFiles();
+    Job job = Job.builder().id(7L).status("queued").build();
+    ArgumentCaptor<JobContextConsumer> captor = ArgumentCaptor.forClass(JobContextConsumer.class);
+    when(jobService.runAsJob(captor.capture())).thenReturn(job);
+    String csv = HEADER + "Gear,,,,,2024-01-09T10:30:00\n" + "Cog,,,,,soon\n";
+
+    // act
+    ResponseEntity<Object> response = service.importBody(WIDGETS, "text/csv", 1001, input(csv));
+
+    // assert
+    assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+    assertSame(job, response.getBody());
+    assertEquals(List.of(), names());
+    assertEquals(before.size() + 1, importFiles().size());
+
+    // act: run the job
+    JobContext ctx = mock(JobContext.class);
+    captor.getValue().accept(ctx);
+
+    // assert
+    assertTrue(captor.getValue() instanceof ImportJob);
+    assertEquals(List.of("Gear"), names());
+    verify(ctx, times(1)).log("Importing CSV into widgets");
+    verify(ctx, times(1)).log("Row 2: madeAt must be an ISO date and time, e.g. 2024-01-08T09:00:00");
+    verify(ctx, times(1)).log("Imported 1 of 2 rows, rejected 1");
+    assertEquals(before, importFiles());
+  }
+
+  @Test
+  void body_of_unknown_length_is_imported_by_a_job() throws Exception {
+    // arrange
+    ArgumentCaptor<JobContextConsumer> captor = ArgumentCaptor.forClass(JobContextConsumer.class);
+    when(jobService.runAsJob(captor.capture())).thenReturn(Job.builder().id(8L).build());
+
+    // act
+    ResponseEntity<Object> response = service.importBody(WIDGETS, "application/x-ndjson", -1, input("{oops"));
+
+    // assert
+    assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+    JobContext ctx = mock(JobContext.class);
+    IllegalArgumentException e =
+        assertThrows(IllegalArgumentException.class, () -> captor.getValue().accept(ctx));
+    assertTrue(e.getMessage().startsWith("Could not read row 1: "), e.getMessage());
+    assertFalse(importFiles().stream().anyMatch(f -> f.toString().endsWith(".ndjson")));
+  }
+
+  @Test
+  void saved_file_is_deleted_when_the_job_queue_is_full() throws Exception {
+    // arrange
+    Set<Path> before = importFiles();
+    when(jobService.runAsJob(any(JobContextConsumer.class))).thenThrow(new JobQueueFullException());
+
+    // act & assert
+    assertThrows(JobQueueFullException.class,
+        () -> service.importBody(WIDGETS, "text/csv", 5000, input(HEADER)));
+    assertEquals(before, importFiles());
+  }
+
+  @Test
+  void saved_file_is_deleted_when_the_body_cannot_be_read() throws Exception {
+    // arrange
+    Set<Path> before = importFiles();
+    InputStream broken = new InputStream() {
+      @Override
+      public int read() throws IOException {
+        throw new IOException("Connection reset");
+      }
+    };
+
+    // act & assert
+    assertThrows(IOException.class, () -> service.importBody(WIDGETS, "text/csv", 5000, broken));
+    assertEquals(before, importFiles());
+    verify(jobService, never()).runAsJob(any(JobContextConsumer.class));
+  }
+
+  @Test
+  void rows_of_a_batch_are_counted_once() {
+    // arrange
+    List<String> rows = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      rows.add("Widget " + i + ",,,,,2024-01-09T10:30:00\n");
+    }
+
+    // act
+    ImportReport report = importRows(Format.CSV, HEADER + String.join("", rows));
+
+    // assert
+    assertEquals(report(5, 5), report);
+    assertEquals(2, batches.get());
+  }
+}
@@ -0,0 +1,121 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.ucsb.cs156.example.entities.Restaurant;
+import edu.ucsb.cs156.example.repositories.RestaurantRepository;
+import jakarta.persistence.EntityManager;
+
+class EntityStreamServiceTests {
+
+  private PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+
+  private EntityManager entityManager = mock(EntityManager.class);
+
+  private RestaurantRepository restaurantRepository = mock(RestaurantRepository.class);
+
+  private EntityStreamService service = new EntityStreamService();
+
+  private Restaurant freebirds = Restaurant.builder().id(1L).name("Freebirds").description("Burritos").build();
+
+  private Restaurant habit = Restaurant.builder().id(2L).name("The Habit").description("Burgers").build();
+
+  @BeforeEach
+  void setup() {
+    ReflectionTestUtils.setField(service, "mapper", new ObjectMapper());
+    ReflectionTestUtils.setField(service, "transactionManager", transactionManager);
+    ReflectionTestUtils.setField(service, "entityManager", entityManager);
+  }
+
+  @Test
+  void streams_all_rows_as_a_json_array() throws Exception {
+    // arrange
+    when(restaurantRepository.streamAllBy()).thenReturn(Stream.of(freebirds, habit));
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    // act
+    ResponseEntity<StreamingResponseBody> response = service.streamAll(restaurantRepository);
+    response.getBody().writeTo(out);
+
+    // assert
+    assertEquals(MediaType.APPLICATION_JSON, response.getHeaders().getContentType());
+    String expectedJson = new ObjectMapper().writeValueAsString(new Restaurant[] { freebirds, habit });
+    assertEquals(expectedJson, out.toString());
+    verify(entityManager, times(1)).detach(freebirds);
+    verify(entityManager, times(1)).detach(habit);
+    verify(transactionManager, times(1)).getTransaction(any(TransactionDefinition.class));
+    verify(transactionManager, times(1)).commit(any());
+  }
+
+  @Test
+  void empty_table_is_an_empty_array() throws Exception {
+    // arrange
+    when(restaurantRepository.streamAllBy()).thenReturn(Stream.empty());
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    // act
+    service.streamAll(restaurantRepository).getBody().writeTo(out);
+
+    // assert
+    assertEquals("[]", out.toString());
+  }
+
+  @Test
+  void query_does_not_run_until_the_body_is_written() {
+    // act
+    service.streamAll(restaurantRepository);
+
+    // assert
+    verify(restaurantRepository, never()).streamAllBy();
+    verify(transactionManager, never()).getTransaction(any());
+  }
+
+  @Test
+  void write_failure_closes_the_stream_and_rolls_back() {
+    // arrange
+    AtomicBoolean closed = new AtomicBoolean();
+    when(restaurantRepository.streamAllBy())
+        .thenReturn(Stream.of(freebirds, habit).onClose(() -> closed.set(true)));
+    OutputStream brokenPipe = new OutputStream() {
+      @Override
+      public void write(int b) throws IOException {
+        throw new IOException("Broken pipe");
+      }
+    };
+
+    // act
+    StreamingResponseBody body = service.streamAll(restaurantRepository).getBody();
+
+    // assert
+    assertThrows(UncheckedIOException.class, () -> body.writeTo(brokenPipe));
+    assertTrue(closed.get());
+    verify(transactionManager, times(1)).rollback(any());
+    verify(transactionManager, never()).commit(any());
+  }
+}
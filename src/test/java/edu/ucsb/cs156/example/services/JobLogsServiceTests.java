@@ -1,21 +1,74 @@
 package edu.ucsb.cs156.example.services;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.*;
 
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.errors.JobQueueFullException;
+import edu.ucsb.cs156.example.jobs.ImportJob;
+import edu.ucsb.cs156.example.jobs.TestJob;
+import edu.ucsb.cs156.example.models.JobExecutorStatus;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
 import edu.ucsb.cs156.example.repositories.JobsRepository;
+import edu.ucsb.cs156.example.services.EntityImportService.ColumnType;
+import edu.ucsb.cs156.example.services.EntityImportService.Format;
+import edu.ucsb.cs156.example.services.EntityImportService.ImportColumn;
+import edu.ucsb.cs156.example.services.EntityImportService.ImportTable;
+import edu.ucsb.cs156.example.services.jobs.JobCancellation;
+import edu.ucsb.cs156.example.services.jobs.JobContextConsumer;
+import edu.ucsb.cs156.example.services.jobs.JobLogArchive;
+import edu.ucsb.cs156.example.services.jobs.JobLogStreamService;
+import edu.ucsb.cs156.example.services.jobs.JobMetrics;
 import edu.ucsb.cs156.example.services.jobs.JobService;
+import java.io.StringWriter;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.stream.Stream;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.*;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+import org.springframework.test.util.ReflectionTestUtils;
 
 public class JobLogsServiceTests {
 
   @Mock private JobsRepository jobRepository;
 
+  @Mock private JobLogLinesRepository jobLogLinesRepository;
+
+  @Mock private CurrentUserService currentUserService;
+
+  @Mock private JobLogStreamService jobLogStreamService;
+
+  @Mock private ThreadPoolExecutor jobExecutor;
+
+  @Mock private JobMetrics jobMetrics;
+
+  @Mock private AutowireCapableBeanFactory beanFactory;
+
+  @Mock private JobService self;
+
   @InjectMocks private JobService jobService;
 
   @BeforeEach
@@ -53,6 +106,737 @@ public class JobLogsServiceTests {
     assertEquals("", result);
   }
 
+  @Test
+  void test_getJobLogs_with_log_lines() {
+    // Arrange
+    Long jobId = 4L;
+    Job job = Job.builder().id(jobId).build();
+    when(jobRepository.findById(jobId)).thenReturn(Optional.of(job));
+    when(jobLogLinesRepository.streamByJobIdOrderByLineNumberAsc(jobId))
+        .thenReturn(
+            Stream.of(
+                JobLogLine.builder().jobId(jobId).lineNumber(0L).message("line one").build(),
+                JobLogLine.builder().jobId(jobId).lineNumber(1L).message("line two").build()));
+
+    // Act
+    String result = jobService.getJobLogs(jobId);
+
+    // Assert
+    assertEquals("line one\nline two", result);
+  }
+
+  @Test
+  void test_getJobLogs_with_legacy_log_and_log_lines() {
+    // Arrange
+    Long jobId = 5L;
+    Job job = Job.builder().id(jobId).log("legacy log").build();
+    when(jobRepository.findById(jobId)).thenReturn(Optional.of(job));
+    when(jobLogLinesRepository.streamByJobIdOrderByLineNumberAsc(jobId))
+        .thenReturn(
+            Stream.of(
+                JobLogLine.builder().jobId(jobId).lineNumber(0L).message("new line").build()));
+
+    // Act
+    String result = jobService.getJobLogs(jobId);
+
+    // Assert
+    assertEquals("legacy log\nnew line", result);
+  }
+
+  @Test
+  void test_runAsJob_queues_job() {
+    // Arrange
+    User user = User.builder().id(1L).email("user@example.org").build();
+    when(currentUserService.getUser()).thenReturn(user);
+
+    // Act
+    Job job = jobService.runAsJob(ctx -> {});
+
+    // Assert
+    assertEquals("queued", job.getStatus());
+    assertEquals(user, job.getCreatedBy());
+    verify(jobRepository, times(1)).save(job);
+    verify(self, times(1)).runJobAsync(eq(job), any(), any());
+  }
+
+  @Test
+  void test_runAsJob_throws_and_discards_job_when_queue_is_full() {
+    // Arrange
+    doThrow(new RejectedExecutionException()).when(self).runJobAsync(any(), any(), any());
+
+    // Act
+    JobQueueFullException e =
+        assertThrows(JobQueueFullException.class, () -> jobService.runAsJob(ctx -> {}));
+
+    // Assert
+    assertEquals("Job queue is full; try again later", e.getMessage());
+    ArgumentCaptor<Job> jobCaptor = ArgumentCaptor.forClass(Job.class);
+    verify(jobRepository, times(1)).save(jobCaptor.capture());
+    verify(jobRepository, times(1)).delete(jobCaptor.getValue());
+    verify(jobMetrics, times(1)).recordRejected(any());
+    assertFalse(jobService.cancel(jobCaptor.getValue().getId()));
+  }
+
+  @Test
+  void test_cancel_queued_job() {
+    // Arrange
+    Job job = jobService.runAsJob(ctx -> {}, Duration.ZERO);
+    ArgumentCaptor<JobCancellation> cancellationCaptor =
+        ArgumentCaptor.forClass(JobCancellation.class);
+    verify(self).runJobAsync(eq(job), any(), cancellationCaptor.capture());
+
+    // Act
+    boolean cancelled = jobService.cancel(job.getId());
+
+    // Assert
+    assertTrue(cancelled);
+    assertEquals(JobCancellation.CANCELLED, cancellationCaptor.getValue().getReason());
+  }
+
+  @Test
+  void test_cancel_unknown_job() {
+    assertFalse(jobService.cancel(42L));
+  }
+
+  @Test
+  void test_runJobAsync_job_cancelled_before_it_starts() {
+    // Arrange
+    Job job = Job.builder().id(12L).status("queued").build();
+    JobCancellation cancellation = new JobCancellation(0);
+    cancellation.cancel(JobCancellation.CANCELLED);
+    List<String> ran = new ArrayList<>();
+
+    // Act
+    jobService.runJobAsync(job, ctx -> ran.add("ran"), cancellation);
+
+    // Assert
+    assertEquals(List.of(), ran);
+    assertEquals("cancelled", job.getStatus());
+    verify(jobLogLinesRepository, times(1))
+        .saveAll(
+            List.of(
+                JobLogLine.builder().jobId(12L).lineNumber(0L).message("Job cancelled").build()));
+    verify(jobLogStreamService, times(1)).complete(12L, "cancelled");
+  }
+
+  @Test
+  void test_runJobAsync_running_job_is_interrupted_when_cancelled() throws Exception {
+    // Arrange
+    Job job = Job.builder().id(13L).status("queued").build();
+    JobCancellation cancellation = new JobCancellation(0);
+    CountDownLatch started = new CountDownLatch(1);
+    Thread runner =
+        new Thread(
+            () ->
+                jobService.runJobAsync(
+                    job,
+                    ctx -> {
+                      started.countDown();
+                      Thread.sleep(60000);
+                    },
+                    cancellation));
+
+    // Act
+    runner.start();
+    started.await();
+    cancellation.cancel(JobCancellation.CANCELLED);
+    runner.join(10000);
+
+    // Assert
+    assertFalse(runner.isAlive());
+    assertEquals("cancelled", job.getStatus());
+    verify(jobLogStreamService, times(1)).complete(13L, "cancelled");
+  }
+
+  @Test
+  void test_cancelTimedOutJobs_times_out_long_running_job() {
+    // Arrange
+    Clock clock = mock(Clock.class);
+    when(clock.millis()).thenReturn(1000L, 1000L, 1500L, 2000L);
+    when(clock.instant()).thenReturn(Instant.EPOCH);
+    when(clock.getZone()).thenReturn(ZoneOffset.UTC);
+    ReflectionTestUtils.setField(jobService, "clock", clock);
+    ReflectionTestUtils.setField(jobService, "defaultTimeoutMs", 1000L);
+    Job job = jobService.runAsJob(ctx -> {});
+    ArgumentCaptor<JobCancellation> cancellationCaptor =
+        ArgumentCaptor.forClass(JobCancellation.class);
+    verify(self).runJobAsync(eq(job), any(), cancellationCaptor.capture());
+    JobCancellation cancellation = cancellationCaptor.getValue();
+    cancellation.start(Thread.currentThread(), clock.millis());
+
+    // Act & Assert
+    jobService.cancelTimedOutJobs(); // 1000 ms: just started
+    jobService.cancelTimedOutJobs(); // 1500 ms: within timeout
+    assertFalse(cancellation.isCancelled());
+    jobService.cancelTimedOutJobs(); // 2000 ms: past timeout
+    assertEquals(JobCancellation.TIMEOUT, cancellation.getReason());
+    cancellation.finish();
+  }
+
+  @Test
+  void test_runJobAsync_logs_timeout() {
+    // Arrange
+    Job job = Job.builder().id(14L).status("queued").build();
+    JobCancellation cancellation = new JobCancellation(250);
+
+    // Act
+    jobService.runJobAsync(
+        job,
+        ctx -> {
+          cancellation.cancel(JobCancellation.TIMEOUT);
+          ctx.checkCancelled();
+        },
+        cancellation);
+
+    // Assert
+    assertEquals("timeout", job.getStatus());
+    assertFalse(Thread.currentThread().isInterrupted());
+    verify(jobLogLinesRepository, times(1))
+        .saveAll(
+            List.of(
+                JobLogLine.builder()
+                    .jobId(14L)
+                    .lineNumber(0L)
+                    .message("Job timed out after 250 ms")
+                    .build()));
+    verify(jobLogStreamService, times(1)).complete(14L, "timeout");
+  }
+
+  @Test
+  void test_renewJobLeases_renews_leases_of_jobs_queued_here() {
+    // Arrange
+    Clock clock = Clock.fixed(Instant.parse("2026-01-01T00:00:00Z"), ZoneOffset.UTC);
+    ReflectionTestUtils.setField(jobService, "clock", clock);
+    ReflectionTestUtils.setField(jobService, "leaseDurationMs", 60000L);
+    ReflectionTestUtils.setField(jobService, "instanceId", "instance-1");
+    ZonedDateTime expiry = ZonedDateTime.parse("2026-01-01T00:01:00Z");
+    when(jobRepository.renewLeases("instance-1", Set.of(0L), expiry)).thenReturn(1, 0);
+
+    // Act
+    jobService.renewJobLeases(); // nothing queued yet
+    Job job = jobService.runAsJob(ctx -> {});
+    jobService.renewJobLeases();
+    jobService.renewJobLeases(); // lease lost
+
+    // Assert
+    assertEquals("instance-1", job.getLeaseOwner());
+    assertEquals(expiry, job.getLeaseExpiresAt());
+    verify(jobRepository, times(2)).renewLeases("instance-1", Set.of(0L), expiry);
+  }
+
+  @Test
+  void test_recoverJobsWithExpiredLeases() {
+    // Arrange
+    Clock clock = Clock.fixed(Instant.parse("2026-01-01T00:00:00Z"), ZoneOffset.UTC);
+    ReflectionTestUtils.setField(jobService, "clock", clock);
+    ReflectionTestUtils.setField(jobService, "maxAttempts", 3);
+    ZonedDateTime now = ZonedDateTime.now(clock);
+    List<String> statuses = List.of("queued", "running");
+    when(jobRepository.requeueJobsWithExpiredLeases(statuses, "queued", 3, now)).thenReturn(1, 0);
+    when(jobRepository.endJobsWithExpiredLeases(statuses, "error", 3, now)).thenReturn(2, 0);
+
+    // Act
+    jobService.recoverJobsWithExpiredLeases();
+    jobService.recoverJobsWithExpiredLeases();
+
+    // Assert
+    verify(jobRepository, times(2)).requeueJobsWithExpiredLeases(statuses, "queued", 3, now);
+    verify(jobRepository, times(2)).endJobsWithExpiredLeases(statuses, "error", 3, now);
+  }
+
+  // a job executor with idleWorkers of its 4 workers free
+  private void givenIdleWorkers(int idleWorkers) {
+    when(jobExecutor.getMaximumPoolSize()).thenReturn(4);
+    when(jobExecutor.getActiveCount()).thenReturn(4 - idleWorkers);
+    when(jobExecutor.getQueue()).thenReturn(new LinkedBlockingQueue<>());
+  }
+
+  @Test
+  void test_runAsJob_saves_type_and_parameters_of_jobs_from_the_jobs_package() {
+    // Arrange
+    givenIdleWorkers(1);
+    ReflectionTestUtils.setField(jobService, "instanceId", "instance-1");
+    TestJob testJob = TestJob.builder().fail(true).sleepMs(5).build();
+
+    // Act
+    Job job = jobService.runAsJob(testJob, Duration.ofSeconds(30));
+
+    // Assert
+    assertEquals("edu.ucsb.cs156.example.jobs.TestJob", job.getType());
+    assertEquals("{\"fail\":true,\"sleepMs\":5}", job.getParameters());
+    assertEquals(30000L, job.getTimeoutMs());
+    assertEquals("instance-1", job.getLeaseOwner());
+    verify(jobRepository, times(1)).save(job);
+    verify(self, times(1)).runJobAsync(eq(job), eq(testJob), any());
+  }
+
+  @Test
+  void test_runAsJob_leaves_job_in_the_table_when_no_worker_is_idle() {
+    // Arrange
+    givenIdleWorkers(0);
+
+    // Act
+    Job job = jobService.runAsJob(TestJob.builder().build());
+
+    // Assert
+    assertEquals("queued", job.getStatus());
+    assertNull(job.getLeaseOwner());
+    assertNull(job.getLeaseExpiresAt());
+    verify(jobRepository, times(1)).save(job);
+    verify(self, never()).runJobAsync(any(), any(), any());
+    assertFalse(jobService.cancel(job.getId()));
+  }
+
+  @Test
+  void test_runAsJob_releases_job_from_the_jobs_package_when_queue_is_full() {
+    // Arrange
+    givenIdleWorkers(1);
+    ReflectionTestUtils.setField(jobService, "instanceId", "instance-1");
+    doThrow(new RejectedExecutionException()).when(self).runJobAsync(any(), any(), any());
+
+    // Act
+    Job job = jobService.runAsJob(TestJob.builder().build());
+
+    // Assert
+    assertEquals("queued", job.getStatus());
+    assertNull(job.getLeaseOwner());
+    assertNull(job.getLeaseExpiresAt());
+    verify(jobRepository, times(1)).releaseLease(job.getId(), "instance-1");
+    verify(jobRepository, never()).delete(any());
+    verify(jobMetrics, never()).recordRejected(any());
+  }
+
+  @Test
+  void test_runAsJob_throws_when_parameters_cannot_be_saved() throws Exception {
+    // Arrange
+    ObjectMapper objectMapper = mock(ObjectMapper.class);
+    when(objectMapper.writeValueAsString(any())).thenThrow(new JsonMappingException(null, "no"));
+    ReflectionTestUtils.setField(jobService, "objectMapper", objectMapper);
+
+    // Act
+    IllegalArgumentException e =
+        assertThrows(
+            IllegalArgumentException.class, () -> jobService.runAsJob(TestJob.builder().build()));
+
+    // Assert
+    assertEquals(
+        "Cannot save the parameters of edu.ucsb.cs156.example.jobs.TestJob", e.getMessage());
+    verify(jobRepository, never()).save(any());
+  }
+
+  @Test
+  void test_import_job_is_saved_and_read_back() {
+    // Arrange: saved without an idle worker, then claimed
+    givenIdleWorkers(0);
+    ImportTable table =
+        ImportTable.of("widgets", ImportColumn.required("name", ColumnType.STRING));
+    Path file = Path.of("/shared/import-widgets-1.csv");
+    Job job =
+        jobService.runAsJob(
+            ImportJob.builder().table(table).format(Format.CSV).file(file).build());
+    givenIdleWorkers(1);
+    when(self.claimJobs(1)).thenReturn(List.of(job));
+
+    // Act
+    jobService.claimQueuedJobs();
+
+    // Assert
+    ArgumentCaptor<JobContextConsumer> jobFunction =
+        ArgumentCaptor.forClass(JobContextConsumer.class);
+    verify(self, times(1)).runJobAsync(eq(job), jobFunction.capture(), any());
+    ImportJob importJob = assertInstanceOf(ImportJob.class, jobFunction.getValue());
+    assertEquals(table, importJob.getTable());
+    assertEquals(Format.CSV, importJob.getFormat());
+    assertEquals(file, importJob.getFile());
+    verify(beanFactory, times(1)).autowireBean(importJob);
+  }
+
+  @Test
+  void test_claimQueuedJobs_does_nothing_when_no_worker_is_idle() {
+    // Arrange
+    givenIdleWorkers(0);
+
+    // Act
+    jobService.claimQueuedJobs();
+
+    // Assert
+    verify(self, never()).claimJobs(anyInt());
+  }
+
+  @Test
+  void test_claimQueuedJobs_starts_claimed_jobs() {
+    // Arrange
+    givenIdleWorkers(2);
+    ReflectionTestUtils.setField(jobService, "defaultTimeoutMs", 1000L);
+    Job job =
+        Job.builder()
+            .id(21L)
+            .status("queued")
+            .type("edu.ucsb.cs156.example.jobs.TestJob")
+            .parameters("{\"fail\":false,\"sleepMs\":10}")
+            .build();
+    when(self.claimJobs(2)).thenReturn(List.of(job));
+
+    // Act
+    jobService.claimQueuedJobs();
+
+    // Assert
+    ArgumentCaptor<JobContextConsumer> jobFunction =
+        ArgumentCaptor.forClass(JobContextConsumer.class);
+    ArgumentCaptor<JobCancellation> cancellation = ArgumentCaptor.forClass(JobCancellation.class);
+    verify(self, times(1)).runJobAsync(eq(job), jobFunction.capture(), cancellation.capture());
+    TestJob testJob = assertInstanceOf(TestJob.class, jobFunction.getValue());
+    assertFalse(testJob.getFail());
+    assertEquals(10, testJob.getSleepMs());
+    assertEquals(1000L, cancellation.getValue().getTimeoutMs());
+    assertTrue(jobService.cancel(21L));
+  }
+
+  @Test
+  void test_claimQueuedJobs_releases_job_when_queue_is_full() {
+    // Arrange
+    givenIdleWorkers(1);
+    ReflectionTestUtils.setField(jobService, "instanceId", "instance-1");
+    Job job =
+        Job.builder()
+            .id(22L)
+            .type("edu.ucsb.cs156.example.jobs.TestJob")
+            .parameters("{}")
+            .timeoutMs(0L)
+            .build();
+    when(self.claimJobs(1)).thenReturn(List.of(job));
+    doThrow(new RejectedExecutionException()).when(self).runJobAsync(any(), any(), any());
+
+    // Act
+    jobService.claimQueuedJobs();
+
+    // Assert
+    verify(jobRepository, times(1)).releaseLease(22L, "instance-1");
+    assertFalse(jobService.cancel(22L));
+  }
+
+  @Test
+  void test_claimQueuedJobs_ends_jobs_that_cannot_be_read() {
+    // Arrange
+    givenIdleWorkers(3);
+    Job notAJob = Job.builder().id(31L).type("java.lang.String").parameters("{}").build();
+    Job missing =
+        Job.builder().id(32L).type("edu.ucsb.cs156.example.jobs.Gone").parameters("{}").build();
+    Job malformed =
+        Job.builder()
+            .id(33L)
+            .type("edu.ucsb.cs156.example.jobs.TestJob")
+            .parameters("{oops")
+            .leaseOwner("instance-1")
+            .build();
+    when(self.claimJobs(3)).thenReturn(List.of(notAJob, missing, malformed));
+    when(jobLogLinesRepository.findMaxLineNumber(31L)).thenReturn(null); // no log lines yet
+    when(jobLogLinesRepository.findMaxLineNumber(32L)).thenReturn(null);
+    when(jobLogLinesRepository.findMaxLineNumber(33L)).thenReturn(4L);
+
+    // Act
+    jobService.claimQueuedJobs();
+
+    // Assert
+    verify(self, never()).runJobAsync(any(), any(), any());
+    for (Job job : List.of(notAJob, missing, malformed)) {
+      assertEquals("error", job.getStatus());
+      assertNull(job.getLeaseOwner());
+      verify(jobRepository, times(1)).save(job);
+      verify(jobLogStreamService, times(1)).complete(job.getId(), "error");
+    }
+    verify(jobLogLinesRepository, times(1))
+        .save(
+            JobLogLine.builder()
+                .jobId(31L)
+                .lineNumber(0L)
+                .message("Could not start job: Unknown job type java.lang.String")
+                .build());
+    verify(jobLogLinesRepository, times(1))
+        .save(
+            JobLogLine.builder()
+                .jobId(32L)
+                .lineNumber(0L)
+                .message("Could not start job: edu.ucsb.cs156.example.jobs.Gone")
+                .build());
+    ArgumentCaptor<JobLogLine> line = ArgumentCaptor.forClass(JobLogLine.class);
+    verify(jobLogLinesRepository, times(3)).save(line.capture());
+    assertEquals(5L, line.getValue().getLineNumber());
+  }
+
+  @Test
+  void test_claimJobs_claims_the_locked_jobs() {
+    // Arrange
+    Clock clock = Clock.fixed(Instant.parse("2026-01-01T00:00:00Z"), ZoneOffset.UTC);
+    ReflectionTestUtils.setField(jobService, "clock", clock);
+    ReflectionTestUtils.setField(jobService, "leaseDurationMs", 60000L);
+    ReflectionTestUtils.setField(jobService, "instanceId", "instance-1");
+    Job job = Job.builder().id(41L).build();
+    when(jobRepository.lockUnclaimedJobIds(5)).thenReturn(List.of(41L));
+    when(jobRepository.findAllById(List.of(41L))).thenReturn(List.of(job));
+
+    // Act
+    List<Job> claimed = jobService.claimJobs(5);
+
+    // Assert
+    assertEquals(List.of(job), claimed);
+    verify(jobRepository, times(1))
+        .claimJobs(List.of(41L), "instance-1", ZonedDateTime.parse("2026-01-01T00:01:00Z"));
+  }
+
+  @Test
+  void test_claimJobs_when_no_job_is_waiting() {
+    // Arrange
+    when(jobRepository.lockUnclaimedJobIds(5)).thenReturn(List.of());
+
+    // Act & Assert
+    assertEquals(List.of(), jobService.claimJobs(5));
+    verify(jobRepository, never()).claimJobs(any(), any(), any());
+  }
+
+  @Test
+  void test_cancel_job_waiting_to_be_claimed() {
+    // Arrange
+    when(jobRepository.cancelUnclaimedJob(51L)).thenReturn(1);
+
+    // Act & Assert
+    assertTrue(jobService.cancel(51L));
+    verify(jobLogStreamService, times(1)).complete(51L, "cancelled");
+  }
+
+  @Test
+  void test_runJobAsync_started_again_carries_on_after_earlier_log_lines() {
+    // Arrange
+    ReflectionTestUtils.setField(jobService, "maxAttempts", 3);
+    ReflectionTestUtils.setField(jobService, "logBatchSize", 100);
+    ReflectionTestUtils.setField(jobService, "logFlushIntervalMs", 60000L);
+    Job job = Job.builder().id(16L).status("queued").attempts(1).build();
+    when(jobLogLinesRepository.findMaxLineNumber(16L)).thenReturn(6L);
+
+    // Act
+    jobService.runJobAsync(job, ctx -> ctx.log("again"), new JobCancellation(0));
+
+    // Assert
+    assertEquals(2, job.getAttempts());
+    assertEquals("complete", job.getStatus());
+    verify(jobLogLinesRepository, times(1))
+        .saveAll(
+            List.of(
+                JobLogLine.builder()
+                    .jobId(16L)
+                    .lineNumber(7L)
+                    .message("Starting again (attempt 2 of 3)")
+                    .build(),
+                JobLogLine.builder().jobId(16L).lineNumber(8L).message("again").build()));
+  }
+
+  @Test
+  void test_getExecutorStatus() {
+    // Arrange
+    LinkedBlockingQueue<Runnable> queue = new LinkedBlockingQueue<>(10);
+    queue.add(() -> {});
+    queue.add(() -> {});
+    when(jobExecutor.getActiveCount()).thenReturn(3);
+    when(jobExecutor.getMaximumPoolSize()).thenReturn(4);
+    when(jobExecutor.getQueue()).thenReturn(queue);
+
+    // Act
+    JobExecutorStatus status = jobService.getExecutorStatus();
+
+    // Assert
+    assertEquals(
+        JobExecutorStatus.builder()
+            .activeJobs(3)
+            .queuedJobs(2)
+            .maxConcurrentJobs(4)
+            .queueCapacity(10)
+            .build(),
+        status);
+  }
+
+  @Test
+  void test_runJobAsync_buffers_log_lines_until_job_ends() {
+    // Arrange
+    ReflectionTestUtils.setField(jobService, "logBatchSize", 100);
+    ReflectionTestUtils.setField(jobService, "logFlushIntervalMs", 60000L);
+    Job job = Job.builder().id(6L).status("running").build();
+
+    // Act
+    jobService.runJobAsync(
+        job,
+        ctx -> {
+          ctx.log("first");
+          ctx.log("second");
+          jobService.flushJobLogs();
+          verify(jobLogLinesRepository, never()).saveAll(any());
+        },
+        new JobCancellation(0));
+
+    // Assert
+    List<JobLogLine> expectedLines =
+        List.of(
+            JobLogLine.builder().jobId(6L).lineNumber(0L).message("first").build(),
+            JobLogLine.builder().jobId(6L).lineNumber(1L).message("second").build());
+    verify(jobLogLinesRepository, times(1)).saveAll(expectedLines);
+    verify(jobLogStreamService, times(1)).publish(6L, expectedLines);
+    verify(jobRepository, times(2)).save(job);
+    verify(jobLogStreamService, times(1)).complete(6L, "complete");
+    verify(jobMetrics, times(1)).recordRun(any(), eq("complete"), any(), eq(11L));
+    assertEquals("complete", job.getStatus());
+    assertNull(job.getLeaseOwner());
+    assertNull(job.getLeaseExpiresAt());
+  }
+
+  @Test
+  void test_runJobAsync_records_metrics() {
+    // Arrange
+    Clock clock = Clock.fixed(Instant.parse("2026-01-01T00:00:05Z"), ZoneOffset.UTC);
+    ReflectionTestUtils.setField(jobService, "clock", clock);
+    ZonedDateTime queuedAt = ZonedDateTime.parse("2026-01-01T00:00:02Z");
+    Job job = Job.builder().id(15L).status("queued").createdAt(queuedAt).build();
+    JobContextConsumer jobFunction = ctx -> {};
+
+    // Act
+    jobService.runJobAsync(job, jobFunction, new JobCancellation(0));
+
+    // Assert
+    verify(jobMetrics, times(1))
+        .recordQueueWait(jobFunction, queuedAt, ZonedDateTime.parse("2026-01-01T00:00:05Z"));
+    verify(jobMetrics, times(1))
+        .recordRun(jobFunction, "complete", Duration.ZERO, 0L);
+  }
+
+  @Test
+  void test_runJobAsync_flushes_log_lines_when_job_fails() {
+    // Arrange
+    ReflectionTestUtils.setField(jobService, "logBatchSize", 100);
+    ReflectionTestUtils.setField(jobService, "logFlushIntervalMs", 60000L);
+    Job job = Job.builder().id(7L).status("running").build();
+
+    // Act
+    jobService.runJobAsync(
+        job,
+        ctx -> {
+          ctx.log("about to fail");
+          throw new Exception("Boom!");
+        },
+        new JobCancellation(0));
+
+    // Assert
+    verify(jobLogLinesRepository, times(1)).saveAll(any());
+    verify(jobRepository, times(2)).save(job);
+    verify(jobLogStreamService, times(1)).complete(7L, "error");
+    verify(jobMetrics, times(1)).recordRun(any(), eq("error"), any(), anyLong());
+    assertEquals("error", job.getStatus());
+  }
+
+  @Test
+  void test_runJobAsync_compresses_large_log() {
+    // Arrange
+    ReflectionTestUtils.setField(jobService, "logBatchSize", 100);
+    ReflectionTestUtils.setField(jobService, "logFlushIntervalMs", 60000L);
+    ReflectionTestUtils.setField(jobService, "logCompressThresholdChars", 10L);
+    byte[] compressed = {1, 2, 3};
+    when(self.compressJobLog(8L)).thenReturn(compressed);
+    Job job = Job.builder().id(8L).status("running").build();
+
+    // Act
+    jobService.runJobAsync(job, ctx -> ctx.log("more than ten characters"), new JobCancellation(0));
+
+    // Assert
+    assertEquals(compressed, job.getCompressedLog());
+    InOrder inOrder = inOrder(jobRepository, jobLogLinesRepository);
+    inOrder.verify(jobLogLinesRepository).saveAll(any());
+    inOrder.verify(jobRepository).save(job);
+    inOrder.verify(jobLogLinesRepository).deleteByJobIds(List.of(8L));
+  }
+
+  @Test
+  void test_runJobAsync_does_not_compress_small_log() {
+    // Arrange
+    ReflectionTestUtils.setField(jobService, "logCompressThresholdChars", 100L);
+    Job job = Job.builder().id(9L).status("running").build();
+
+    // Act
+    jobService.runJobAsync(job, ctx -> ctx.log("short"), new JobCancellation(0));
+
+    // Assert
+    verify(self, never()).compressJobLog(anyLong());
+    verify(jobLogLinesRepository, never()).deleteByJobIds(any());
+  }
+
+  @Test
+  void test_compressJobLog() {
+    // Arrange
+    List<JobLogLine> lines =
+        List.of(
+            JobLogLine.builder().jobId(10L).lineNumber(0L).message("a").build(),
+            JobLogLine.builder().jobId(10L).lineNumber(1L).message("b").build());
+    when(jobLogLinesRepository.streamByJobIdOrderByLineNumberAsc(10L)).thenReturn(lines.stream());
+
+    // Act
+    byte[] compressed = jobService.compressJobLog(10L);
+
+    // Assert
+    assertEquals(lines, JobLogArchive.lines(10L, compressed).toList());
+  }
+
+  @Test
+  void test_getJobLogs_with_compressed_log() {
+    // Arrange
+    Long jobId = 11L;
+    byte[] compressed =
+        JobLogArchive.compress(
+            Stream.of(
+                JobLogLine.builder().jobId(jobId).lineNumber(0L).message("first").build(),
+                JobLogLine.builder().jobId(jobId).lineNumber(1L).message(null).build()));
+    Job job = Job.builder().id(jobId).compressedLog(compressed).build();
+    when(jobRepository.findById(jobId)).thenReturn(Optional.of(job));
+
+    // Act
+    String result = jobService.getJobLogs(jobId);
+
+    // Assert
+    assertEquals("first\nnull", result);
+    verify(jobLogLinesRepository, never()).streamByJobIdOrderByLineNumberAsc(anyLong());
+  }
+
+  @Test
+  void test_writeJobLogs_writes_one_line_per_message() throws Exception {
+    // Arrange
+    Long jobId = 12L;
+    Job job = Job.builder().id(jobId).log("legacy log").build();
+    when(jobRepository.findById(jobId)).thenReturn(Optional.of(job));
+    when(jobLogLinesRepository.streamByJobIdOrderByLineNumberAsc(jobId))
+        .thenReturn(
+            Stream.of(
+                JobLogLine.builder().jobId(jobId).lineNumber(0L).message("first").build(),
+                JobLogLine.builder().jobId(jobId).lineNumber(1L).message("second").build()));
+    StringWriter out = new StringWriter();
+
+    // Act
+    jobService.writeJobLogs(jobId, out);
+
+    // Assert
+    assertEquals("legacy log\nfirst\nsecond", out.toString());
+  }
+
+  @Test
+  void test_writeJobLogs_with_no_log_writes_nothing() throws Exception {
+    // Arrange
+    Long jobId = 13L;
+    when(jobRepository.findById(jobId)).thenReturn(Optional.of(Job.builder().id(jobId).build()));
+    when(jobLogLinesRepository.streamByJobIdOrderByLineNumberAsc(jobId))
+        .thenReturn(Stream.empty());
+    StringWriter out = new StringWriter();
+
+    // Act
+    jobService.writeJobLogs(jobId, out);
+
+    // Assert
+    assertEquals("", out.toString());
+  }
+
   @Test
   void test_getJobLogs_job_not_found() {
     // Arrange
@@ -0,0 +1,165 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+import org.springframework.security.oauth2.core.user.DefaultOAuth2User;
+
+class SessionTokenCodecTests {
+
+  private static final String SECRET = "0123456789abcdef0123456789abcdef";
+
+  private Clock clock = mock(Clock.class);
+
+  private SessionTokenCodec codec;
+
+  private OAuth2AuthenticationToken login;
+
+  @BeforeEach
+  void setup() {
+    when(clock.instant()).thenReturn(Instant.ofEpochSecond(1_000_000));
+    codec = new SessionTokenCodec(SECRET, Duration.ofMinutes(60), clock);
+
+    Map<String, Object> attributes = new LinkedHashMap<>();
+    attributes.put("sub", "12345");
+    attributes.put("email", "user@ucsb.edu");
+    attributes.put("email_verified", true);
+    attributes.put("name", "Some User");
+    attributes.put("at_hash", "not copied");
+    List<GrantedAuthority> authorities = AuthorityUtils.createAuthorityList("ROLE_USER", "ROLE_ADMIN");
+    login = new OAuth2AuthenticationToken(
+        new DefaultOAuth2User(authorities, attributes, "sub"), authorities, "google");
+  }
+
+  @Test
+  void test_decode_restores_login() {
+    OAuth2AuthenticationToken restored = codec.decode(codec.encode(login, 7L));
+
+    assertEquals("google", restored.getAuthorizedClientRegistrationId());
+    assertEquals("12345", restored.getName());
+    assertEquals(Set.of("ROLE_USER", "ROLE_ADMIN"),
+        AuthorityUtils.authorityListToSet(restored.getAuthorities()));
+    assertEquals(Map.of(
+        "sub", "12345",
+        "email", "user@ucsb.edu",
+        "email_verified", true,
+        "name", "Some User",
+        "userId", 7L), restored.getPrincipal().getAttributes());
+    assertEquals(Duration.ofMinutes(60), codec.getTtl());
+  }
+
+  @Test
+  void test_decode_rejects_expired_token() {
+    String token = codec.encode(login, 7L);
+
+    when(clock.instant()).thenReturn(Instant.ofEpochSecond(1_000_000 + 3599));
+    assertEquals("12345", codec.decode(token).getName());
+
+    when(clock.instant()).thenReturn(Instant.ofEpochSecond(1_000_000 + 3600));
+    assertNull(codec.decode(token));
+  }
+
+  @Test
+  void test_decode_rejects_tampered_token() {
+    String token = codec.encode(login, 7L);
+    String body = new String(
+        Base64.getUrlDecoder().decode(token.substring(0, token.indexOf('.'))),
+        StandardCharsets.UTF_8);
+    String forged = Base64.getUrlEncoder().withoutPadding().encodeToString(
+        body.replace("ROLE_USER", "ROLE_ROOT").getBytes(StandardCharsets.UTF_8));
+
+    assertNull(codec.decode(forged + token.substring(token.indexOf('.'))));
+  }
+
+  @Test
+  void test_decode_rejects_token_signed_with_other_key() {
+    SessionTokenCodec other =
+        new SessionTokenCodec("another secret that is long enough", Duration.ofMinutes(60), clock);
+
+    assertNull(codec.decode(other.encode(login, 7L)));
+  }
+
+  @Test
+  void test_decode_rejects_malformed_tokens() throws Exception {
+    assertNull(codec.decode("no-dot"));
+    assertNull(codec.decode("abc.not base64!"));
+    assertNull(codec.decode(signed("not json")));
+    assertNull(codec.decode(signed("{\"reg\":\"google\",\"roles\":[],\"exp\":2000000,\"attrs\":{}}")));
+  }
+
+  @Test
+  void test_encode_uses_principal_name_when_sub_is_missing() {
+    List<GrantedAuthority> authorities = AuthorityUtils.createAuthorityList("ROLE_USER");
+    OAuth2AuthenticationToken noSub = new OAuth2AuthenticationToken(
+        new DefaultOAuth2User(authorities, Map.of("id", "42"), "id"), authorities, "github");
+
+    assertEquals("42", codec.decode(codec.encode(noSub, null)).getName());
+  }
+
+  @Test
+  void test_token_without_user_id_has_no_user_id_attribute() {
+    OAuth2AuthenticationToken restored = codec.decode(codec.encode(login, null));
+
+    assertNull(restored.getPrincipal().getAttribute(SessionTokenCodec.USER_ID));
+    assertEquals("user@ucsb.edu", restored.getPrincipal().getAttribute("email"));
+  }
+
+  @Test
+  void test_decode_rejects_token_with_forged_user_id() {
+    String token = codec.encode(login, 7L);
+    String body = new String(
+        Base64.getUrlDecoder().decode(token.substring(0, token.indexOf('.'))),
+        StandardCharsets.UTF_8);
+    assertTrue(body.contains("\"uid\":7"));
+    String forged = Base64.getUrlEncoder().withoutPadding().encodeToString(
+        body.replace("\"uid\":7", "\"uid\":1").getBytes(StandardCharsets.UTF_8));
+
+    assertNull(codec.decode(forged + token.substring(token.indexOf('.'))));
+  }
+
+  @Test
+  void test_short_key_is_rejected() {
+    Duration ttl = Duration.ofMinutes(60);
+    assertThrows(IllegalArgumentException.class, () -> new SessionTokenCodec("too short", ttl, clock));
+    assertThrows(IllegalArgumentException.class, () -> new SessionTokenCodec(null, ttl, clock));
+  }
+
+  @Test
+  void test_unavailable_algorithm_fails_loudly() {
+    SessionTokenCodec broken =
+        new SessionTokenCodec(SECRET, Duration.ofMinutes(60), clock, "NoSuchMac");
+
+    assertThrows(IllegalStateException.class, () -> broken.encode(login, 7L));
+  }
+
+  private static String signed(String json) throws Exception {
+    String body = Base64.getUrlEncoder().withoutPadding()
+        .encodeToString(json.getBytes(StandardCharsets.UTF_8));
+    Mac mac = Mac.getInstance("HmacSHA256");
+    mac.init(new SecretKeySpec(SECRET.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+    byte[] signature = mac.doFinal(body.getBytes(StandardCharsets.US_ASCII));
+    return body + "." + Base64.getUrlEncoder().withoutPadding().encodeToString(signature);
+  }
+}
@@ -0,0 +1,86 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Clock;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import edu.ucsb.cs156.example.entities.User;
+
+class UserCacheTests {
+
+  private Clock clock = mock(Clock.class);
+
+  private UserCache userCache = new UserCache();
+
+  private User alice = User.builder().id(1L).email("alice@example.org").build();
+  private User bob = User.builder().id(2L).email("bob@example.org").build();
+
+  @BeforeEach
+  void setup() {
+    when(clock.millis()).thenReturn(0L);
+    ReflectionTestUtils.setField(userCache, "clock", clock);
+    ReflectionTestUtils.setField(userCache, "ttlSeconds", 300L);
+    ReflectionTestUtils.setField(userCache, "maxSize", 10);
+  }
+
+  @Test
+  void test_get_returns_cached_user() {
+    userCache.put(alice);
+    assertSame(alice, userCache.get("alice@example.org"));
+    assertNull(userCache.get("bob@example.org"));
+  }
+
+  @Test
+  void test_get_expires_user_after_ttl() {
+    userCache.put(alice);
+
+    when(clock.millis()).thenReturn(299_999L);
+    assertSame(alice, userCache.get("alice@example.org"));
+
+    when(clock.millis()).thenReturn(300_000L);
+    assertNull(userCache.get("alice@example.org"));
+
+    when(clock.millis()).thenReturn(0L);
+    assertNull(userCache.get("alice@example.org"));
+  }
+
+  @Test
+  void test_invalidate_drops_one_user() {
+    userCache.put(alice);
+    userCache.put(bob);
+
+    userCache.invalidate("alice@example.org");
+
+    assertNull(userCache.get("alice@example.org"));
+    assertSame(bob, userCache.get("bob@example.org"));
+  }
+
+  @Test
+  void test_invalidateAll_drops_all_users() {
+    userCache.put(alice);
+    userCache.put(bob);
+
+    userCache.invalidateAll();
+
+    assertNull(userCache.get("alice@example.org"));
+    assertNull(userCache.get("bob@example.org"));
+  }
+
+  @Test
+  void test_put_drops_least_recently_used_user_when_full() {
+    ReflectionTestUtils.setField(userCache, "maxSize", 1);
+    userCache.put(alice);
+
+    userCache.put(bob);
+
+    assertNull(userCache.get("alice@example.org"));
+    assertSame(bob, userCache.get("bob@example.org"));
+  }
+}
@@ -0,0 +1,92 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class JobCancellationTests {
+
+  @Test
+  public void cancel_before_start_does_not_interrupt_anything() {
+    JobCancellation cancellation = new JobCancellation(1000);
+
+    cancellation.cancel(JobCancellation.CANCELLED);
+
+    assertTrue(cancellation.isCancelled());
+    assertEquals(JobCancellation.CANCELLED, cancellation.getReason());
+    assertFalse(Thread.currentThread().isInterrupted());
+  }
+
+  @Test
+  public void cancel_interrupts_running_thread_and_finish_clears_it() {
+    JobCancellation cancellation = new JobCancellation(1000);
+    cancellation.start(Thread.currentThread(), 0);
+
+    cancellation.cancel(JobCancellation.CANCELLED);
+    assertTrue(Thread.currentThread().isInterrupted());
+
+    cancellation.finish();
+    assertFalse(Thread.currentThread().isInterrupted());
+  }
+
+  @Test
+  public void cancel_after_finish_does_not_interrupt_thread() {
+    JobCancellation cancellation = new JobCancellation(1000);
+    cancellation.start(Thread.currentThread(), 0);
+    cancellation.finish();
+
+    cancellation.cancel(JobCancellation.CANCELLED);
+
+    assertFalse(Thread.currentThread().isInterrupted());
+  }
+
+  @Test
+  public void finish_on_other_thread_leaves_interrupt_alone() throws Exception {
+    JobCancellation cancellation = new JobCancellation(1000);
+    Thread other = new Thread(() -> {});
+    cancellation.start(other, 0);
+    Thread.currentThread().interrupt();
+
+    cancellation.finish();
+
+    assertTrue(Thread.interrupted());
+  }
+
+  @Test
+  public void first_reason_wins() {
+    JobCancellation cancellation = new JobCancellation(1000);
+
+    cancellation.cancel(JobCancellation.TIMEOUT);
+    cancellation.cancel(JobCancellation.CANCELLED);
+
+    assertEquals(JobCancellation.TIMEOUT, cancellation.getReason());
+  }
+
+  @Test
+  public void timeOutIfPast_times_out_only_after_deadline() {
+    JobCancellation cancellation = new JobCancellation(1000);
+    cancellation.start(new Thread(() -> {}), 5000);
+
+    cancellation.timeOutIfPast(5999);
+    assertNull(cancellation.getReason());
+
+    cancellation.timeOutIfPast(6000);
+    assertEquals(JobCancellation.TIMEOUT, cancellation.getReason());
+    assertEquals(1000, cancellation.getTimeoutMs());
+  }
+
+  @Test
+  public void no_timeout_when_not_started_or_unlimited() {
+    JobCancellation notStarted = new JobCancellation(1000);
+    notStarted.timeOutIfPast(Long.MAX_VALUE);
+    assertFalse(notStarted.isCancelled());
+
+    JobCancellation unlimited = new JobCancellation(0);
+    unlimited.start(new Thread(() -> {}), 0);
+    unlimited.timeOutIfPast(Long.MAX_VALUE);
+    assertFalse(unlimited.isCancelled());
+  }
+}
@@ -1,24 +1,77 @@
 package edu.ucsb.cs156.example.services.jobs;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.*;
+
 import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.errors.JobCancelledException;
 import org.junit.jupiter.api.Test;
 
-
 public class JobContextTests {
   @Test
-  public void when_jobs_repository_is_null_does_not_save() throws Exception {
+  public void log_appends_message_to_log_writer() throws Exception {
 
     // arrange
 
-    Job job1 = Job.builder().build();
-    JobContext ctx = new JobContext(null, job1);
+    Job job1 = Job.builder().id(1L).build();
+    JobLogWriter logWriter = mock(JobLogWriter.class);
+    JobContext ctx = new JobContext(job1, logWriter, new JobCancellation(0));
 
     // act
     ctx.log("This is a log message");
 
     // assert
-    assertEquals("This is a log message", job1.getLog());
+    verify(logWriter, times(1)).append("This is a log message");
+    verify(logWriter, never()).flush();
+  }
+
+  @Test
+  public void flush_flushes_log_writer() throws Exception {
+
+    // arrange
+
+    Job job1 = Job.builder().id(1L).build();
+    JobLogWriter logWriter = mock(JobLogWriter.class);
+    JobContext ctx = new JobContext(job1, logWriter, new JobCancellation(0));
+
+    // act
+    ctx.flush();
+
+    // assert
+    verify(logWriter, times(1)).flush();
+  }
+
+  @Test
+  public void checkCancelled_does_nothing_while_job_may_continue() throws Exception {
+
+    // arrange
+
+    Job job1 = Job.builder().id(1L).build();
+    JobContext ctx = new JobContext(job1, mock(JobLogWriter.class), new JobCancellation(0));
+
+    // act & assert
+    assertFalse(ctx.isCancelled());
+    ctx.checkCancelled();
   }
 
+  @Test
+  public void checkCancelled_throws_once_job_is_cancelled() throws Exception {
+
+    // arrange
+
+    Job job1 = Job.builder().id(1L).build();
+    JobCancellation cancellation = new JobCancellation(0);
+    JobContext ctx = new JobContext(job1, mock(JobLogWriter.class), cancellation);
+
+    // act
+    cancellation.cancel(JobCancellation.CANCELLED);
+
+    // assert
+    assertTrue(ctx.isCancelled());
+    JobCancelledException e = assertThrows(JobCancelledException.class, ctx::checkCancelled);
+    assertEquals("Job stopped: cancelled", e.getMessage());
+  }
 }
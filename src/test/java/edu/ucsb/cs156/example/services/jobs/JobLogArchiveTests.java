@@ -0,0 +1,159 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.DeflaterOutputStream;
+import org.junit.jupiter.api.Test;
+
+public class JobLogArchiveTests {
+
+  private JobLogLine line(long lineNumber, String message) {
+    return JobLogLine.builder().jobId(3L).lineNumber(lineNumber).message(message).build();
+  }
+
+  @Test
+  public void lines_round_trip_exactly() {
+    // arrange
+    List<JobLogLine> lines =
+        List.of(
+            line(5, "plain"),
+            line(6, "two\nlines"),
+            line(7, null),
+            line(8, ""),
+            line(9, "café ✓"));
+
+    // act
+    byte[] compressed = JobLogArchive.compress(lines.stream());
+
+    // assert
+    try (Stream<JobLogLine> restored = JobLogArchive.lines(3L, compressed)) {
+      assertEquals(lines, restored.toList());
+    }
+  }
+
+  @Test
+  public void repetitive_logs_shrink() {
+    // arrange
+    Stream<JobLogLine> lines =
+        IntStream.range(0, 1000).mapToObj(i -> line(i, "Processing item " + i + " of 1000: ok"));
+
+    // act
+    byte[] compressed = JobLogArchive.compress(lines);
+
+    // assert
+    assertTrue(compressed.length < 1000 * 30 / 5, "compressed to " + compressed.length + " bytes");
+  }
+
+  @Test
+  public void empty_log_round_trips() {
+    // act
+    byte[] compressed = JobLogArchive.compress(Stream.empty());
+
+    // assert
+    try (Stream<JobLogLine> restored = JobLogArchive.lines(3L, compressed)) {
+      assertEquals(List.of(), restored.toList());
+    }
+  }
+
+  @Test
+  public void iterator_throws_when_exhausted() {
+    // arrange
+    byte[] compressed = JobLogArchive.compress(Stream.of(line(0, "only")));
+
+    try (Stream<JobLogLine> restored = JobLogArchive.lines(3L, compressed)) {
+      Iterator<JobLogLine> it = restored.iterator();
+
+      // act
+      assertEquals(line(0, "only"), it.next());
+
+      // assert
+      assertFalse(it.hasNext());
+      assertThrows(NoSuchElementException.class, it::next);
+    }
+  }
+
+  @Test
+  public void truncated_data_throws() {
+    // arrange
+    byte[] compressed = JobLogArchive.compress(Stream.of(line(0, "a longer message")));
+    byte[] truncated = Arrays.copyOf(compressed, compressed.length / 2);
+
+    // act & assert
+    assertThrows(
+        UncheckedIOException.class, () -> JobLogArchive.lines(3L, truncated).toList());
+  }
+
+  // a well-formed deflate stream of the given record bytes, as compress would write them
+  private static byte[] deflate(byte[] records) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DeflaterOutputStream out = new DeflaterOutputStream(bytes)) {
+      out.write(records);
+    }
+    return bytes.toByteArray();
+  }
+
+  private static ByteBuffer record(long lineNumber, String message) {
+    byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+    return ByteBuffer.allocate(Long.BYTES + Integer.BYTES + bytes.length)
+        .putLong(lineNumber)
+        .putInt(bytes.length)
+        .put(bytes);
+  }
+
+  @Test
+  public void data_ending_inside_a_line_number_throws() throws Exception {
+    // arrange: one whole line, then 3 of the 8 bytes of the next line number
+    byte[] records =
+        ByteBuffer.allocate(18 + 3).put(record(0, "ok").array()).put(new byte[3]).array();
+    byte[] compressed = deflate(records);
+
+    // act
+    UncheckedIOException e =
+        assertThrows(
+            UncheckedIOException.class, () -> JobLogArchive.lines(3L, compressed).toList());
+
+    // assert
+    assertInstanceOf(EOFException.class, e.getCause());
+  }
+
+  @Test
+  public void data_ending_inside_a_message_throws() throws Exception {
+    // arrange: a line whose header promises 10 message bytes, followed by only 4
+    byte[] records = ByteBuffer.allocate(12 + 4).putLong(0).putInt(10).put(new byte[4]).array();
+    byte[] compressed = deflate(records);
+
+    // act
+    UncheckedIOException e =
+        assertThrows(
+            UncheckedIOException.class, () -> JobLogArchive.lines(3L, compressed).toList());
+
+    // assert
+    assertInstanceOf(EOFException.class, e.getCause());
+  }
+
+  @Test
+  public void data_ending_between_lines_is_the_end_of_the_log() throws Exception {
+    // arrange
+    byte[] compressed = deflate(record(0, "ok").array());
+
+    // act & assert
+    assertEquals(List.of(line(0, "ok")), JobLogArchive.lines(3L, compressed).toList());
+  }
+}
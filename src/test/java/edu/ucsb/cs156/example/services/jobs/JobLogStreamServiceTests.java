@@ -0,0 +1,428 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.*;
+
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.*;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter.SseEventBuilder;
+
+public class JobLogStreamServiceTests {
+
+  @Mock private JobsRepository jobsRepository;
+
+  @Mock private JobLogLinesRepository jobLogLinesRepository;
+
+  @Spy @InjectMocks private JobLogStreamService jobLogStreamService;
+
+  private SseEmitter emitter;
+
+  // tasks handed to the stream executor, run by runTasks
+  private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+  @BeforeEach
+  public void setup() {
+    MockitoAnnotations.openMocks(this);
+    ReflectionTestUtils.setField(jobLogStreamService, "self", jobLogStreamService);
+    ReflectionTestUtils.setField(jobLogStreamService, "streamExecutor", (Executor) tasks::add);
+    emitter = mock(SseEmitter.class);
+    doReturn(emitter).when(jobLogStreamService).createEmitter();
+  }
+
+  private void runTasks() {
+    while (!tasks.isEmpty()) {
+      tasks.remove().run();
+    }
+  }
+
+  private JobLogLine line(long lineNumber, String message) {
+    return JobLogLine.builder().jobId(1L).lineNumber(lineNumber).message(message).build();
+  }
+
+  private void givenJob(String status, Stream<JobLogLine> storedLines) {
+    when(jobsRepository.findById(1L))
+        .thenReturn(Optional.of(Job.builder().id(1L).status(status).build()));
+    when(jobLogLinesRepository.streamByJobIdAndLineNumberGreaterThanEqualOrderByLineNumberAsc(
+            eq(1L), anyLong()))
+        .thenReturn(storedLines);
+  }
+
+  private List<String> sentEvents(int times) throws IOException {
+    ArgumentCaptor<SseEventBuilder> captor = ArgumentCaptor.forClass(SseEventBuilder.class);
+    verify(emitter, times(times)).send(captor.capture());
+    return captor.getAllValues().stream()
+        .map(
+            event ->
+                event.build().stream()
+                    .map(part -> part.getData().toString())
+                    .collect(Collectors.joining()))
+        .toList();
+  }
+
+  @Test
+  public void subscribe_to_running_job_replays_stored_lines_then_live_lines() throws Exception {
+    // arrange
+    givenJob("running", Stream.of(line(0, "zero"), line(1, "one")));
+
+    // act
+    jobLogStreamService.subscribe(1L, 0L);
+    runTasks();
+    jobLogStreamService.publish(1L, List.of(line(1, "one"), line(2, "two")));
+    jobLogStreamService.complete(1L, "complete");
+    runTasks();
+
+    // assert
+    assertEquals(
+        List.of(
+            "id:0\nevent:log\ndata:zero\n\n",
+            "id:1\nevent:log\ndata:one\n\n",
+            "id:2\nevent:log\ndata:two\n\n",
+            "event:end\ndata:complete\n\n"),
+        sentEvents(4));
+    verify(emitter, times(1)).complete();
+    verify(jobLogLinesRepository)
+        .streamByJobIdAndLineNumberGreaterThanEqualOrderByLineNumberAsc(1L, 0L);
+  }
+
+  @Test
+  public void subscribe_from_line_skips_earlier_lines() throws Exception {
+    // arrange
+    givenJob("running", Stream.of(line(0, "zero"), line(1, "one")));
+
+    // act
+    jobLogStreamService.subscribe(1L, 1L);
+    runTasks();
+
+    // assert
+    assertEquals(List.of("id:1\nevent:log\ndata:one\n\n"), sentEvents(1));
+    verify(emitter, never()).complete();
+  }
+
+  @Test
+  public void subscribe_to_finished_job_replays_lines_and_ends() throws Exception {
+    // arrange
+    givenJob("error", Stream.of(line(0, "Fail!")));
+
+    // act
+    jobLogStreamService.subscribe(1L, 0L);
+    runTasks();
+
+    // assert
+    assertEquals(
+        List.of("id:0\nevent:log\ndata:Fail!\n\n", "event:end\ndata:error\n\n"), sentEvents(2));
+    verify(emitter, times(1)).complete();
+  }
+
+  @Test
+  public void lines_and_end_published_during_replay_are_sent_after_replay() throws Exception {
+    // arrange
+    Stream<JobLogLine> storedLines =
+        Stream.of(line(0, "zero"), line(1, "one"))
+            .peek(
+                l -> {
+                  if (l.getLineNumber() == 0) {
+                    jobLogStreamService.publish(1L, List.of(line(1, "one"), line(2, "two")));
+                    jobLogStreamService.complete(1L, "complete");
+                  }
+                });
+    givenJob("running", storedLines);
+
+    // act
+    jobLogStreamService.subscribe(1L, 0L);
+    runTasks();
+
+    // assert
+    assertEquals(
+        List.of(
+            "id:0\nevent:log\ndata:zero\n\n",
+            "id:1\nevent:log\ndata:one\n\n",
+            "id:2\nevent:log\ndata:two\n\n",
+            "event:end\ndata:complete\n\n"),
+        sentEvents(4));
+    verify(emitter, times(1)).complete();
+  }
+
+  @Test
+  public void subscribe_to_job_with_compressed_log_replays_from_archive() throws Exception {
+    // arrange
+    byte[] compressed =
+        JobLogArchive.compress(Stream.of(line(0, "zero"), line(1, "one"), line(2, "two")));
+    when(jobsRepository.findById(1L))
+        .thenReturn(
+            Optional.of(
+                Job.builder().id(1L).status("complete").compressedLog(compressed).build()));
+
+    // act
+    jobLogStreamService.subscribe(1L, 1L);
+    runTasks();
+
+    // assert
+    assertEquals(
+        List.of(
+            "id:1\nevent:log\ndata:one\n\n",
+            "id:2\nevent:log\ndata:two\n\n",
+            "event:end\ndata:complete\n\n"),
+        sentEvents(3));
+    verifyNoInteractions(jobLogLinesRepository);
+  }
+
+  @Test
+  public void subscribe_to_missing_job_throws_and_unsubscribes() throws Exception {
+    // arrange
+    when(jobsRepository.findById(1L)).thenReturn(Optional.empty());
+
+    // act
+    EntityNotFoundException e =
+        assertThrows(EntityNotFoundException.class, () -> jobLogStreamService.subscribe(1L, 0L));
+    jobLogStreamService.publish(1L, List.of(line(0, "zero")));
+
+    // assert
+    assertEquals("Job with id 1 not found", e.getMessage());
+    verify(emitter, never()).send(any(SseEventBuilder.class));
+  }
+
+  @Test
+  public void emitter_callbacks_unsubscribe() throws Exception {
+    // arrange
+    givenJob("running", Stream.empty());
+    jobLogStreamService.subscribe(1L, 0L);
+    runTasks();
+    ArgumentCaptor<Runnable> onCompletion = ArgumentCaptor.forClass(Runnable.class);
+    verify(emitter).onCompletion(onCompletion.capture());
+
+    // act
+    onCompletion.getValue().run();
+    jobLogStreamService.publish(1L, List.of(line(0, "zero")));
+    jobLogStreamService.complete(1L, "complete");
+    runTasks();
+
+    // assert
+    verify(emitter, never()).send(any(SseEventBuilder.class));
+    verify(emitter, never()).complete();
+  }
+
+  @Test
+  public void publish_and_complete_without_subscribers_do_nothing() {
+    // act
+    jobLogStreamService.publish(2L, List.of(line(0, "zero")));
+    jobLogStreamService.complete(2L, "complete");
+
+    // assert
+    verifyNoInteractions(emitter);
+  }
+
+  @Test
+  public void send_failure_completes_emitter_with_error() throws Exception {
+    // arrange
+    IOException failure = new IOException("client went away");
+    doThrow(failure).when(emitter).send(any(SseEventBuilder.class));
+    givenJob("complete", Stream.of(line(0, "zero")));
+
+    // act
+    jobLogStreamService.subscribe(1L, 0L);
+    runTasks();
+
+    // assert
+    verify(emitter, times(2)).completeWithError(failure);
+    verify(emitter, never()).complete();
+  }
+
+  @Test
+  public void subscribe_returns_before_replaying_stored_lines() throws Exception {
+    // arrange
+    givenJob("complete", Stream.of(line(0, "zero")));
+
+    // act
+    SseEmitter result = jobLogStreamService.subscribe(1L, 0L);
+
+    // assert
+    assertEquals(emitter, result);
+    verify(emitter, never()).send(any(SseEventBuilder.class));
+    runTasks();
+    assertEquals(
+        List.of("id:0\nevent:log\ndata:zero\n\n", "event:end\ndata:complete\n\n"), sentEvents(2));
+  }
+
+  @Test
+  public void publish_and_complete_only_queue_events_for_the_executor() throws Exception {
+    // arrange
+    givenJob("running", Stream.empty());
+    jobLogStreamService.subscribe(1L, 0L);
+    runTasks();
+
+    // act
+    jobLogStreamService.publish(1L, List.of(line(0, "zero")));
+    jobLogStreamService.publish(1L, List.of(line(1, "one")));
+    jobLogStreamService.complete(1L, "complete");
+
+    // assert: one task sends everything, in order
+    verify(emitter, never()).send(any(SseEventBuilder.class));
+    assertEquals(1, tasks.size());
+    runTasks();
+    assertEquals(
+        List.of(
+            "id:0\nevent:log\ndata:zero\n\n",
+            "id:1\nevent:log\ndata:one\n\n",
+            "event:end\ndata:complete\n\n"),
+        sentEvents(3));
+    verify(emitter, times(1)).complete();
+  }
+
+  @Test
+  public void replay_failure_completes_emitter_with_error() throws Exception {
+    // arrange
+    RuntimeException failure = new RuntimeException("connection lost");
+    when(jobsRepository.findById(1L))
+        .thenReturn(Optional.of(Job.builder().id(1L).status("running").build()));
+    when(jobLogLinesRepository.streamByJobIdAndLineNumberGreaterThanEqualOrderByLineNumberAsc(
+            1L, 0L))
+        .thenThrow(failure);
+
+    // act
+    jobLogStreamService.subscribe(1L, 0L);
+    runTasks();
+    jobLogStreamService.publish(1L, List.of(line(0, "zero")));
+    runTasks();
+
+    // assert
+    verify(emitter).completeWithError(failure);
+    verify(emitter, never()).send(any(SseEventBuilder.class));
+  }
+
+  @Test
+  public void subscriber_leaving_does_not_affect_the_others() throws Exception {
+    // arrange
+    SseEmitter leaving = mock(SseEmitter.class);
+    doReturn(leaving, emitter).when(jobLogStreamService).createEmitter();
+    when(jobsRepository.findById(1L))
+        .thenReturn(Optional.of(Job.builder().id(1L).status("queued").build()));
+    when(jobLogLinesRepository.streamByJobIdAndLineNumberGreaterThanEqualOrderByLineNumberAsc(
+            1L, 0L))
+        .thenReturn(Stream.empty(), Stream.empty());
+    jobLogStreamService.subscribe(1L, 0L);
+    jobLogStreamService.subscribe(1L, 0L);
+    runTasks();
+    ArgumentCaptor<Consumer<Throwable>> onError = ArgumentCaptor.captor();
+    verify(leaving).onError(onError.capture());
+
+    // act
+    onError.getValue().accept(new IOException("client went away"));
+    jobLogStreamService.publish(1L, List.of(line(0, "zero")));
+    runTasks();
+
+    // assert: the job has not ended, so the stream stays open
+    assertEquals(List.of("id:0\nevent:log\ndata:zero\n\n"), sentEvents(1));
+    verify(emitter, never()).complete();
+    verify(leaving, never()).send(any(SseEventBuilder.class));
+  }
+
+  @Test
+  public void created_emitter_times_out_after_stream_timeout() {
+    // arrange
+    JobLogStreamService service = new JobLogStreamService();
+    ReflectionTestUtils.setField(service, "streamTimeoutMs", 1234L);
+
+    // act
+    SseEmitter created = service.createEmitter();
+
+    // assert
+    assertEquals(1234L, created.getTimeout());
+  }
+
+  @Test
+  public void lines_compressed_between_subscribe_and_replay_are_sent_from_the_archive()
+      throws Exception {
+    // arrange: subscribe sees the job running; by the time the replay runs, the job has ended,
+    // its lines have been compressed and the job_log_lines rows deleted
+    byte[] compressed =
+        JobLogArchive.compress(Stream.of(line(0, "zero"), line(1, "one"), line(2, "two")));
+    when(jobsRepository.findById(1L))
+        .thenReturn(Optional.of(Job.builder().id(1L).status("running").build()))
+        .thenReturn(
+            Optional.of(
+                Job.builder().id(1L).status("complete").compressedLog(compressed).build()));
+    when(jobLogLinesRepository.streamByJobIdAndLineNumberGreaterThanEqualOrderByLineNumberAsc(
+            1L, 0L))
+        .thenReturn(Stream.empty());
+
+    // act
+    jobLogStreamService.subscribe(1L, 0L);
+    jobLogStreamService.complete(1L, "complete");
+    runTasks();
+
+    // assert
+    assertEquals(
+        List.of(
+            "id:0\nevent:log\ndata:zero\n\n",
+            "id:1\nevent:log\ndata:one\n\n",
+            "id:2\nevent:log\ndata:two\n\n",
+            "event:end\ndata:complete\n\n"),
+        sentEvents(4));
+    verify(emitter, times(1)).complete();
+    verify(jobsRepository, times(2)).findById(1L);
+  }
+
+  @Test
+  public void lines_already_sent_from_the_table_are_not_sent_again_from_the_archive()
+      throws Exception {
+    // arrange: the rows were deleted while the replay was reading them
+    byte[] compressed = JobLogArchive.compress(Stream.of(line(0, "zero"), line(1, "one")));
+    when(jobsRepository.findById(1L))
+        .thenReturn(Optional.of(Job.builder().id(1L).status("running").build()))
+        .thenReturn(
+            Optional.of(Job.builder().id(1L).status("error").compressedLog(compressed).build()));
+    when(jobLogLinesRepository.streamByJobIdAndLineNumberGreaterThanEqualOrderByLineNumberAsc(
+            1L, 0L))
+        .thenReturn(Stream.of(line(0, "zero")));
+
+    // act
+    jobLogStreamService.subscribe(1L, 0L);
+    runTasks();
+
+    // assert
+    assertEquals(
+        List.of(
+            "id:0\nevent:log\ndata:zero\n\n",
+            "id:1\nevent:log\ndata:one\n\n",
+            "event:end\ndata:error\n\n"),
+        sentEvents(3));
+  }
+
+  @Test
+  public void job_deleted_before_replay_ends_with_the_status_subscribe_saw() throws Exception {
+    // arrange
+    when(jobsRepository.findById(1L))
+        .thenReturn(Optional.of(Job.builder().id(1L).status("complete").build()))
+        .thenReturn(Optional.empty());
+    when(jobLogLinesRepository.streamByJobIdAndLineNumberGreaterThanEqualOrderByLineNumberAsc(
+            1L, 0L))
+        .thenReturn(Stream.of(line(0, "zero")));
+
+    // act
+    jobLogStreamService.subscribe(1L, 0L);
+    runTasks();
+
+    // assert
+    assertEquals(
+        List.of("id:0\nevent:log\ndata:zero\n\n", "event:end\ndata:complete\n\n"),
+        sentEvents(2));
+  }
+}
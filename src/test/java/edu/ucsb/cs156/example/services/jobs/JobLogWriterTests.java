@@ -0,0 +1,183 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
+import java.time.Clock;
+import java.util.List;
+import java.util.function.Consumer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+public class JobLogWriterTests {
+
+  private JobLogLinesRepository repository;
+  private Clock clock;
+  private Consumer<List<JobLogLine>> onFlush;
+
+  @SuppressWarnings("unchecked")
+  @BeforeEach
+  public void setup() {
+    repository = mock(JobLogLinesRepository.class);
+    clock = mock(Clock.class);
+    when(clock.millis()).thenReturn(0L);
+    onFlush = mock(Consumer.class);
+  }
+
+  @SuppressWarnings("unchecked")
+  private List<JobLogLine> captureSaveAll(int times) {
+    ArgumentCaptor<List<JobLogLine>> captor = ArgumentCaptor.forClass(List.class);
+    verify(repository, times(times)).saveAll(captor.capture());
+    return captor.getValue();
+  }
+
+  private JobLogLine line(long lineNumber, String message) {
+    return JobLogLine.builder().jobId(7L).lineNumber(lineNumber).message(message).build();
+  }
+
+  @Test
+  public void lines_are_buffered_until_buffer_is_full() {
+    // arrange
+    JobLogWriter writer = new JobLogWriter(repository, 7L, 2, 1000L, clock, onFlush);
+
+    // act
+    writer.append("line 0");
+
+    // assert
+    verify(repository, never()).saveAll(any());
+    assertEquals(1L, writer.getLineCount());
+    assertEquals(6L, writer.getLogSize());
+
+    // act
+    writer.append("line 1");
+
+    // assert
+    List<JobLogLine> batch = captureSaveAll(1);
+    assertEquals(List.of(line(0, "line 0"), line(1, "line 1")), batch);
+    verify(onFlush, times(1)).accept(batch);
+  }
+
+  @Test
+  public void lines_can_be_numbered_after_existing_ones() {
+    // arrange
+    JobLogWriter writer = new JobLogWriter(repository, 7L, 5, 1, 1000L, clock, onFlush);
+
+    // act
+    writer.append("line 5");
+    writer.flush();
+
+    // assert
+    assertEquals(List.of(line(5, "line 5")), captureSaveAll(1));
+    assertEquals(6L, writer.getLineCount());
+  }
+
+  @Test
+  public void ring_buffer_wraps_around_after_flush() {
+    // arrange
+    JobLogWriter writer = new JobLogWriter(repository, 7L, 3, 1000L, clock, onFlush);
+    writer.append("a");
+    writer.append("b");
+    writer.flush();
+
+    // act
+    writer.append("c");
+    writer.append("d");
+    writer.append("e");
+
+    // assert
+    assertEquals(List.of(line(2, "c"), line(3, "d"), line(4, "e")), captureSaveAll(2));
+    assertEquals(5L, writer.getLineCount());
+  }
+
+  @Test
+  public void append_flushes_when_interval_has_elapsed() {
+    // arrange
+    JobLogWriter writer = new JobLogWriter(repository, 7L, 100, 1000L, clock, onFlush);
+    writer.append("early");
+    verify(repository, never()).saveAll(any());
+    when(clock.millis()).thenReturn(1000L);
+
+    // act
+    writer.append("late");
+
+    // assert
+    assertEquals(List.of(line(0, "early"), line(1, "late")), captureSaveAll(1));
+  }
+
+  @Test
+  public void flushIfDue_only_flushes_after_interval() {
+    // arrange
+    JobLogWriter writer = new JobLogWriter(repository, 7L, 100, 1000L, clock, onFlush);
+    writer.append("waiting");
+
+    // act
+    when(clock.millis()).thenReturn(999L);
+    writer.flushIfDue();
+
+    // assert
+    verify(repository, never()).saveAll(any());
+
+    // act
+    when(clock.millis()).thenReturn(1000L);
+    writer.flushIfDue();
+
+    // assert
+    assertEquals(List.of(line(0, "waiting")), captureSaveAll(1));
+  }
+
+  @Test
+  public void flushIfDue_with_empty_buffer_does_not_save() {
+    // arrange
+    JobLogWriter writer = new JobLogWriter(repository, 7L, 100, 1000L, clock, onFlush);
+    when(clock.millis()).thenReturn(5000L);
+
+    // act
+    writer.flushIfDue();
+
+    // assert
+    verify(repository, never()).saveAll(any());
+  }
+
+  @Test
+  public void flush_with_empty_buffer_does_not_save() {
+    // arrange
+    JobLogWriter writer = new JobLogWriter(repository, 7L, 100, 1000L, clock, onFlush);
+
+    // act
+    writer.flush();
+
+    // assert
+    verify(repository, never()).saveAll(any());
+    verify(onFlush, never()).accept(any());
+  }
+
+  @Test
+  public void null_messages_count_as_empty_for_log_size() {
+    // arrange
+    JobLogWriter writer = new JobLogWriter(repository, 7L, 100, 1000L, clock, onFlush);
+
+    // act
+    writer.append(null);
+    writer.append("abc");
+
+    // assert
+    assertEquals(2L, writer.getLineCount());
+    assertEquals(3L, writer.getLogSize());
+  }
+
+  @Test
+  public void capacity_below_one_flushes_every_line() {
+    // arrange
+    JobLogWriter writer = new JobLogWriter(repository, 7L, 0, 1000L, clock, onFlush);
+
+    // act
+    writer.append("only line");
+
+    // assert
+    assertEquals(List.of(line(0, "only line")), captureSaveAll(1));
+  }
+}
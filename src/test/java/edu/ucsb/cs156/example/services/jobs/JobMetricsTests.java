@@ -0,0 +1,92 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import edu.ucsb.cs156.example.jobs.TestJob;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+
+public class JobMetricsTests {
+
+  @Spy private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  @InjectMocks private JobMetrics jobMetrics;
+
+  @BeforeEach
+  public void setup() {
+    MockitoAnnotations.openMocks(this);
+  }
+
+  @Test
+  public void recordQueueWait_records_time_until_job_started() {
+    ZonedDateTime queuedAt = ZonedDateTime.parse("2026-01-01T00:00:00Z");
+
+    jobMetrics.recordQueueWait(
+        TestJob.builder().build(), queuedAt, queuedAt.plusSeconds(3));
+
+    Timer timer = meterRegistry.get("jobs.queue.wait").tag("type", "TestJob").timer();
+    assertEquals(1, timer.count());
+    assertEquals(3000.0, timer.totalTime(TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  public void recordQueueWait_skips_job_without_launch_time() {
+    jobMetrics.recordQueueWait(TestJob.builder().build(), null, ZonedDateTime.now());
+
+    assertNull(meterRegistry.find("jobs.queue.wait").timer());
+  }
+
+  @Test
+  public void recordRun_records_run_time_by_status_and_log_size() {
+    TestJob job = TestJob.builder().build();
+
+    jobMetrics.recordRun(job, "complete", Duration.ofMillis(200), 40);
+    jobMetrics.recordRun(job, "complete", Duration.ofMillis(400), 60);
+    jobMetrics.recordRun(job, "error", Duration.ofMillis(100), 10);
+
+    Timer complete =
+        meterRegistry.get("jobs.run").tag("type", "TestJob").tag("status", "complete").timer();
+    assertEquals(2, complete.count());
+    assertEquals(600.0, complete.totalTime(TimeUnit.MILLISECONDS));
+    Timer error =
+        meterRegistry.get("jobs.run").tag("type", "TestJob").tag("status", "error").timer();
+    assertEquals(1, error.count());
+    DistributionSummary logSize =
+        meterRegistry.get("jobs.log.size").tag("type", "TestJob").summary();
+    assertEquals(3, logSize.count());
+    assertEquals(110.0, logSize.totalAmount());
+  }
+
+  @Test
+  public void recordRejected_counts_rejected_launches() {
+    jobMetrics.recordRejected(TestJob.builder().build());
+    jobMetrics.recordRejected(TestJob.builder().build());
+
+    assertEquals(2.0, meterRegistry.get("jobs.rejected").tag("type", "TestJob").counter().count());
+  }
+
+  @Test
+  public void typeOf_names_lambdas_after_declaring_class() {
+    JobContextConsumer lambda = ctx -> {};
+    JobContextConsumer anonymous =
+        new JobContextConsumer() {
+          @Override
+          public void accept(JobContext ctx) {}
+        };
+
+    assertEquals("TestJob", JobMetrics.typeOf(TestJob.builder().build()));
+    assertEquals("JobMetricsTests", JobMetrics.typeOf(lambda));
+    assertEquals(anonymous.getClass().getName(), JobMetrics.typeOf(anonymous));
+  }
+}
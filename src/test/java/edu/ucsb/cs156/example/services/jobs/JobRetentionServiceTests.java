@@ -0,0 +1,260 @@
+package edu.ucsb.cs156.example.services.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+import edu.ucsb.cs156.example.entities.Job;
+import edu.ucsb.cs156.example.entities.JobLogLine;
+import edu.ucsb.cs156.example.models.JobRetentionReport;
+import edu.ucsb.cs156.example.repositories.JobLogLinesRepository;
+import edu.ucsb.cs156.example.repositories.JobsRepository;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.*;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class JobRetentionServiceTests {
+
+  @Mock private JobsRepository jobsRepository;
+
+  @Mock private JobLogLinesRepository jobLogLinesRepository;
+
+  @InjectMocks private JobRetentionService jobRetentionService;
+
+  private final ZonedDateTime now = ZonedDateTime.parse("2025-05-20T03:30:00Z");
+
+  private final List<String> ended = List.of("complete", "error", "cancelled", "timeout");
+
+  @BeforeEach
+  public void setup() {
+    MockitoAnnotations.openMocks(this);
+    ReflectionTestUtils.setField(jobRetentionService, "enabled", true);
+    ReflectionTestUtils.setField(jobRetentionService, "jobTtlDays", 90);
+    ReflectionTestUtils.setField(jobRetentionService, "logTtlDays", 14);
+    ReflectionTestUtils.setField(jobRetentionService, "logKeepLines", 10);
+    ReflectionTestUtils.setField(jobRetentionService, "batchSize", 2);
+    ReflectionTestUtils.setField(
+        jobRetentionService, "clock", Clock.fixed(Instant.from(now), ZoneOffset.UTC));
+  }
+
+  @Test
+  public void deletes_old_jobs_in_batches_and_truncates_old_logs() {
+    // arrange
+    PageRequest batch = PageRequest.ofSize(2);
+    when(jobsRepository.findIdsOfEndedJobs(ended, now.minusDays(90), batch))
+        .thenReturn(List.of(1L, 2L))
+        .thenReturn(List.of(3L));
+    when(jobLogLinesRepository.deleteByJobIds(List.of(1L, 2L))).thenReturn(30);
+    when(jobLogLinesRepository.deleteByJobIds(List.of(3L))).thenReturn(5);
+    when(jobsRepository.deleteByIds(List.of(1L, 2L))).thenReturn(2);
+    when(jobsRepository.deleteByIds(List.of(3L))).thenReturn(1);
+
+    when(jobLogLinesRepository.findIdsOfEndedJobsWithMoreLinesThan(
+            ended, now.minusDays(14), 10L, batch))
+        .thenReturn(List.of(4L, 5L))
+        .thenReturn(List.of());
+    when(jobLogLinesRepository.findMaxLineNumber(4L)).thenReturn(99L);
+    when(jobLogLinesRepository.deleteByJobIdBeforeLine(4L, 90L)).thenReturn(90);
+    when(jobLogLinesRepository.findMaxLineNumber(5L)).thenReturn(20L);
+    when(jobLogLinesRepository.deleteByJobIdBeforeLine(5L, 11L)).thenReturn(11);
+
+    // act
+    JobRetentionReport report = jobRetentionService.runRetention();
+
+    // assert
+    assertEquals(
+        JobRetentionReport.builder()
+            .ranAt(report.getRanAt())
+            .jobsDeleted(3)
+            .logLinesDeleted(35)
+            .jobsTruncated(2)
+            .logLinesTruncated(101)
+            .build(),
+        report);
+    assertEquals(Instant.from(now), report.getRanAt().toInstant());
+    verify(jobsRepository, times(2)).findIdsOfEndedJobs(ended, now.minusDays(90), batch);
+    verify(jobLogLinesRepository, times(2))
+        .findIdsOfEndedJobsWithMoreLinesThan(ended, now.minusDays(14), 10L, batch);
+    verify(jobLogLinesRepository, times(1)).deleteByJobIdBeforeLine(4L, 90L);
+    verify(jobLogLinesRepository, times(1)).deleteByJobIdBeforeLine(5L, 11L);
+  }
+
+  @Test
+  public void nothing_to_do() {
+    // act
+    JobRetentionReport report = jobRetentionService.runRetention();
+
+    // assert
+    assertEquals(0, report.getJobsDeleted());
+    assertEquals(0, report.getJobsTruncated());
+    verify(jobsRepository, never()).deleteByIds(any());
+    verify(jobLogLinesRepository, never()).deleteByJobIds(any());
+    verify(jobLogLinesRepository, never()).deleteByJobIdBeforeLine(anyLong(), anyLong());
+  }
+
+  @Test
+  public void scheduled_run_runs_retention_when_enabled() {
+    // act
+    jobRetentionService.scheduledRun();
+
+    // assert
+    verify(jobsRepository, times(1)).findIdsOfEndedJobs(any(), any(), any());
+  }
+
+  @Test
+  public void scheduled_run_does_nothing_when_disabled() {
+    // arrange
+    ReflectionTestUtils.setField(jobRetentionService, "enabled", false);
+
+    // act
+    jobRetentionService.scheduledRun();
+
+    // assert
+    verifyNoInteractions(jobsRepository, jobLogLinesRepository);
+  }
+
+  @Test
+  public void negative_settings_are_clamped() {
+    // arrange
+    ReflectionTestUtils.setField(jobRetentionService, "logKeepLines", -5);
+    ReflectionTestUtils.setField(jobRetentionService, "batchSize", 0);
+
+    // act
+    jobRetentionService.runRetention();
+
+    // assert
+    verify(jobLogLinesRepository)
+        .findIdsOfEndedJobsWithMoreLinesThan(
+            ended, now.minusDays(14), 0L, PageRequest.ofSize(1));
+  }
+
+  private static List<String> messages(byte[] compressed) {
+    try (Stream<JobLogLine> lines = JobLogArchive.lines(6L, compressed)) {
+      return lines.map(JobLogLine::getMessage).toList();
+    }
+  }
+
+  private static byte[] archive(int lineCount) {
+    return JobLogArchive.compress(
+        LongStream.range(0, lineCount)
+            .mapToObj(n -> JobLogLine.builder().jobId(6L).lineNumber(n).message("l" + n).build()));
+  }
+
+  @Test
+  public void truncates_compressed_and_legacy_logs_paging_by_id() {
+    // arrange
+    PageRequest batch = PageRequest.ofSize(2);
+    String legacyLog =
+        IntStream.range(0, 12).mapToObj(n -> "l" + n).collect(Collectors.joining("\n"));
+    when(jobsRepository.findIdsOfEndedJobsWithStoredLogs(ended, now.minusDays(14), 0L, batch))
+        .thenReturn(List.of(6L, 7L));
+    when(jobsRepository.findIdsOfEndedJobsWithStoredLogs(ended, now.minusDays(14), 7L, batch))
+        .thenReturn(List.of(8L));
+    when(jobsRepository.findById(6L))
+        .thenReturn(Optional.of(Job.builder().id(6L).compressedLog(archive(15)).build()));
+    when(jobsRepository.findById(7L))
+        .thenReturn(Optional.of(Job.builder().id(7L).log(legacyLog).build()));
+    when(jobsRepository.findById(8L)).thenReturn(Optional.empty());
+
+    // act
+    JobRetentionReport report = jobRetentionService.runRetention();
+
+    // assert
+    assertEquals(2, report.getJobsTruncated());
+    assertEquals(5 + 2, report.getLogLinesTruncated());
+    ArgumentCaptor<byte[]> kept = ArgumentCaptor.forClass(byte[].class);
+    verify(jobsRepository).updateCompressedLog(eq(6L), kept.capture());
+    assertEquals(
+        List.of("l5", "l6", "l7", "l8", "l9", "l10", "l11", "l12", "l13", "l14"),
+        messages(kept.getValue()));
+    try (Stream<JobLogLine> lines = JobLogArchive.lines(6L, kept.getValue())) {
+      assertEquals(5L, lines.findFirst().get().getLineNumber());
+    }
+    verify(jobsRepository).updateLog(7L, "l2\nl3\nl4\nl5\nl6\nl7\nl8\nl9\nl10\nl11");
+    verify(jobsRepository, times(2))
+        .findIdsOfEndedJobsWithStoredLogs(any(), any(), anyLong(), any());
+  }
+
+  @Test
+  public void short_stored_logs_are_left_alone() {
+    // arrange
+    when(jobsRepository.findIdsOfEndedJobsWithStoredLogs(
+            ended, now.minusDays(14), 0L, PageRequest.ofSize(2)))
+        .thenReturn(List.of(6L));
+    when(jobsRepository.findById(6L))
+        .thenReturn(
+            Optional.of(
+                Job.builder()
+                    .id(6L)
+                    .compressedLog(archive(10))
+                    .log("l0\nl1\nl2\nl3\nl4\nl5\nl6\nl7\nl8\nl9")
+                    .build()));
+
+    // act
+    JobRetentionReport report = jobRetentionService.runRetention();
+
+    // assert
+    assertEquals(0, report.getJobsTruncated());
+    assertEquals(0, report.getLogLinesTruncated());
+    verify(jobsRepository, never()).updateCompressedLog(anyLong(), any());
+    verify(jobsRepository, never()).updateLog(anyLong(), any());
+  }
+
+  @Test
+  public void keeping_no_lines_clears_legacy_logs() {
+    // arrange
+    ReflectionTestUtils.setField(jobRetentionService, "logKeepLines", 0);
+    when(jobsRepository.findIdsOfEndedJobsWithStoredLogs(
+            ended, now.minusDays(14), 0L, PageRequest.ofSize(2)))
+        .thenReturn(List.of(6L));
+    when(jobsRepository.findById(6L))
+        .thenReturn(
+            Optional.of(Job.builder().id(6L).compressedLog(archive(3)).log("a\nb").build()));
+
+    // act
+    JobRetentionReport report = jobRetentionService.runRetention();
+
+    // assert
+    assertEquals(1, report.getJobsTruncated());
+    assertEquals(3 + 2, report.getLogLinesTruncated());
+    ArgumentCaptor<byte[]> kept = ArgumentCaptor.forClass(byte[].class);
+    verify(jobsRepository).updateCompressedLog(eq(6L), kept.capture());
+    assertEquals(List.of(), messages(kept.getValue()));
+    verify(jobsRepository).updateLog(6L, null);
+  }
+
+  @Test
+  public void a_job_truncated_in_two_places_is_counted_once() {
+    // arrange
+    PageRequest batch = PageRequest.ofSize(2);
+    when(jobLogLinesRepository.findIdsOfEndedJobsWithMoreLinesThan(
+            ended, now.minusDays(14), 10L, batch))
+        .thenReturn(List.of(6L));
+    when(jobLogLinesRepository.findMaxLineNumber(6L)).thenReturn(10L);
+    when(jobLogLinesRepository.deleteByJobIdBeforeLine(6L, 1L)).thenReturn(1);
+    when(jobsRepository.findIdsOfEndedJobsWithStoredLogs(ended, now.minusDays(14), 0L, batch))
+        .thenReturn(List.of(6L));
+    when(jobsRepository.findById(6L))
+        .thenReturn(
+            Optional.of(Job.builder().id(6L).log("a\nb\nc\nd\ne\nf\ng\nh\ni\nj\nk").build()));
+
+    // act
+    JobRetentionReport report = jobRetentionService.runRetention();
+
+    // assert
+    assertEquals(1, report.getJobsTruncated());
+    assertEquals(2, report.getLogLinesTruncated());
+    verify(jobsRepository).updateLog(6L, "b\nc\nd\ne\nf\ng\nh\ni\nj\nk");
+  }
+}
@@ -5,8 +5,12 @@ import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.context.annotation.Bean;
 
 
+import edu.ucsb.cs156.example.services.AdminRoleService;
+import edu.ucsb.cs156.example.services.AuthAuditLogger;
+import edu.ucsb.cs156.example.services.CurrentUserResponseCache;
 import edu.ucsb.cs156.example.services.CurrentUserService;
 import edu.ucsb.cs156.example.services.GrantedAuthoritiesService;
+import edu.ucsb.cs156.example.services.UserCache;
 import org.springframework.context.annotation.Import;
 
 @TestConfiguration
@@ -23,4 +27,24 @@ public class TestConfig {
         return new GrantedAuthoritiesService();
     }
 
+    @Bean
+    public UserCache userCache() {
+        return new UserCache();
+    }
+
+    @Bean
+    public AdminRoleService adminRoleService() {
+        return new AdminRoleService();
+    }
+
+    @Bean
+    public AuthAuditLogger authAuditLogger() {
+        return new AuthAuditLogger();
+    }
+
+    @Bean
+    public CurrentUserResponseCache currentUserResponseCache() {
+        return new CurrentUserResponseCache();
+    }
+
 }